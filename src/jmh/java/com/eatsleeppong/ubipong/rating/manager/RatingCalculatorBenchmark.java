@@ -0,0 +1,55 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point exchange for one match, and for a whole batch of matches at once.  Ratings are random in 0..3000 so that
+ * every row of the point exchange table gets used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingCalculatorBenchmark {
+    private static final int MATCH_COUNT = 1000;
+
+    private RatingCalculator ratingCalculator;
+    private int[] winnerRatingList;
+    private int[] loserRatingList;
+    private int[] winnerDeltaList;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+
+        ratingCalculator = new RatingCalculator();
+        winnerRatingList = new int[MATCH_COUNT];
+        loserRatingList = new int[MATCH_COUNT];
+        winnerDeltaList = new int[MATCH_COUNT];
+        for (int i = 0; i < MATCH_COUNT; ++i) {
+            winnerRatingList[i] = random.nextInt(3000);
+            loserRatingList[i] = random.nextInt(3000);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MATCH_COUNT)
+    public void calculateWinnerDelta(final Blackhole blackhole) {
+        for (int i = 0; i < MATCH_COUNT; ++i) {
+            blackhole.consume(ratingCalculator.calculateWinnerDelta(winnerRatingList[i], loserRatingList[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MATCH_COUNT)
+    public int[] calculateWinnerDeltaBatch() {
+        ratingCalculator.calculateWinnerDelta(winnerRatingList, loserRatingList, winnerDeltaList);
+        return winnerDeltaList;
+    }
+}
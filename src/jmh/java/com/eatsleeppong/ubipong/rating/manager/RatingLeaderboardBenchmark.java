@@ -0,0 +1,51 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.model.LeaderboardLineItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaderboard queries against a large number of players.  Ratings are random in 0..3000, so most ratings are shared
+ * by many players.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingLeaderboardBenchmark {
+    @Param({"1000", "100000"})
+    private int playerCount;
+
+    private RatingLeaderboard ratingLeaderboard;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        random = new Random(42);
+        ratingLeaderboard = new RatingLeaderboard();
+        for (int i = 0; i < playerCount; ++i) {
+            ratingLeaderboard.put(i, random.nextInt(3000));
+        }
+    }
+
+    @Benchmark
+    public Optional<LeaderboardLineItem> getRank() {
+        return ratingLeaderboard.get(random.nextInt(playerCount));
+    }
+
+    @Benchmark
+    public List<LeaderboardLineItem> getPage() {
+        return ratingLeaderboard.getRange(random.nextInt(playerCount), 20);
+    }
+
+    @Benchmark
+    public void putRating() {
+        ratingLeaderboard.put(random.nextInt(playerCount), random.nextInt(3000));
+    }
+}
@@ -0,0 +1,101 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.MatchResult;
+import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+import com.eatsleeppong.ubipong.rating.model.TournamentResultRequestLineItem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes the matches of a synthetic tournament the same way submitTournamentResult does, minus the database.  The
+ * tournament has about one player for every five matches, which is what a round robin followed by a single
+ * elimination draw looks like.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingManagerBenchmark {
+    @Param({ "50", "500", "5000" })
+    private int matchCount;
+
+    private RatingManager ratingManager;
+    private Map<String, PlayerRatingAdjustment> playerRatingAdjustmentMap;
+    private List<TournamentResultRequestLineItem> lineItemList;
+    private List<MatchResult> matchResultList;
+    private RatingDeltaAccumulator ratingDeltaAccumulator;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final int playerCount = matchCount / 5 + 2;
+
+        // these only need the rating calculator
+        ratingManager = new RatingManager(null, null, null, null, new RatingCalculator(), null, null, null, null);
+
+        playerRatingAdjustmentMap = new HashMap<>();
+        for (int i = 0; i < playerCount; ++i) {
+            final PlayerRatingAdjustment playerRatingAdjustment = new PlayerRatingAdjustment();
+            playerRatingAdjustment.setPlayerId(i + 1);
+            playerRatingAdjustment.setAdjustmentDate(new Date(0));
+            playerRatingAdjustment.setInitialRating(0);
+            playerRatingAdjustment.setFirstPassRating(0);
+            playerRatingAdjustment.setFinalRating(random.nextInt(2500));
+            playerRatingAdjustmentMap.put("player" + i, playerRatingAdjustment);
+        }
+
+        lineItemList = new ArrayList<>(matchCount);
+        for (int i = 0; i < matchCount; ++i) {
+            final int winner = random.nextInt(playerCount);
+            final int loser = (winner + 1 + random.nextInt(playerCount - 1)) % playerCount;
+            final TournamentResultRequestLineItem lineItem = new TournamentResultRequestLineItem();
+            lineItem.setWinner("player" + winner);
+            lineItem.setLoser("player" + loser);
+            lineItem.setEventName("Open Singles");
+            lineItem.setResultString("3,5,-7,9");
+            lineItemList.add(lineItem);
+        }
+
+        matchResultList = new ArrayList<>(matchCount);
+        for (final TournamentResultRequestLineItem lineItem : lineItemList) {
+            matchResultList.add(ratingManager.generateMatchResult(playerRatingAdjustmentMap, lineItem));
+        }
+
+        ratingDeltaAccumulator = new RatingDeltaAccumulator();
+    }
+
+    @Benchmark
+    public void generateMatchResult(final Blackhole blackhole) {
+        for (final TournamentResultRequestLineItem lineItem : lineItemList) {
+            blackhole.consume(ratingManager.generateMatchResult(playerRatingAdjustmentMap, lineItem));
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, PlayerRatingAdjustment> applyMatchResultList() {
+        return ratingManager.applyMatchResultList(playerRatingAdjustmentMap, matchResultList);
+    }
+
+    /**
+     * Both passes, which is what submitTournamentResult runs
+     */
+    @Benchmark
+    public Map<Integer, PlayerRatingAdjustment> processMatchResultList() {
+        return ratingManager.processMatchResultList(playerRatingAdjustmentMap.values(), matchResultList);
+    }
+
+    /**
+     * Replaying history reuses one accumulator for every tournament, and only needs the final ratings
+     */
+    @Benchmark
+    public int applyMatchResultListReusingAccumulator() {
+        ratingDeltaAccumulator.reset(playerRatingAdjustmentMap.values());
+        ratingDeltaAccumulator.addMatchResultList(matchResultList);
+        return ratingDeltaAccumulator.getRating(1);
+    }
+}
@@ -0,0 +1,88 @@
+package name.subroutine.etable;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads member lines into a CsvTable and into a ColumnTable, then adds
+ * up one field of every record, the way an import would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnTableBenchmark
+{
+    @Param({ "100000" })
+    private int recordCnt;
+
+    private String[] lineLst;
+
+    private CsvTable csvTable;
+    private ColumnTable columnTable;
+
+    @Setup
+    public void setup()
+    {
+        lineLst = new String[recordCnt];
+        for( int i = 0; i < recordCnt; i++ ){
+            lineLst[i] = i + ",\"player, " + i + "\",city" + (i % 500)
+                + "," + (i % 2500);
+        }
+
+        csvTable = new CsvTable();
+        csvTable.pushFld( new String[]{ "id", "name", "city", "rating" } );
+        columnTable = new ColumnTable();
+        columnTable.pushFld( new String[]{ "id", "name", "city", "rating" } );
+        for( int i = 0; i < recordCnt; i++ ){
+            csvTable.pushLine( lineLst[i] );
+            columnTable.pushLine( lineLst[i] );
+        }
+    }
+
+    @Benchmark
+    public CsvTable loadCsvTable()
+    {
+        CsvTable t = new CsvTable();
+        t.pushFld( new String[]{ "id", "name", "city", "rating" } );
+        for( int i = 0; i < recordCnt; i++ ){
+            t.pushLine( lineLst[i] );
+        }
+        return t;
+    }
+
+    @Benchmark
+    public ColumnTable loadColumnTable()
+    {
+        ColumnTable t = new ColumnTable();
+        t.pushFld( new String[]{ "id", "name", "city", "rating" } );
+        for( int i = 0; i < recordCnt; i++ ){
+            t.pushLine( lineLst[i] );
+        }
+        return t;
+    }
+
+    @Benchmark
+    public long scanCsvTable()
+    {
+        long sum = 0;
+        for( int i = 0; i < recordCnt; i++ ){
+            sum += Integer.parseInt( csvTable.get( i ).get( 3 ).toString() );
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long scanColumnTable()
+    {
+        long sum = 0;
+        for( int i = 0; i < recordCnt; i++ ){
+            sum += Integer.parseInt( columnTable.getString( i, 3 ) );
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,54 @@
+package name.subroutine.etable;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses lines that look like the ones posted to the rating adjustment
+ * endpoint: header lines, plain player lines, and quoted player lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvTableBenchmark
+{
+    private String[] lineLst = {
+        "tournamentName, Eat Sleep Pong Open 2019",
+        "date, 2019-01-01T00:00:00-0500",
+        "player, rating",
+        "spongebob,   1000",
+        "\"patrick\", 1100",
+        "\"squarepants, spongebob\", 2350",
+        "\"o\"\"neil\", 875",
+        "sandy.cheeks,2015",
+    };
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void toArray( Blackhole blackhole )
+    {
+        for( int i = 0; i < lineLst.length; i++ ){
+            blackhole.consume( CsvTable.toArray( lineLst[i] ) );
+        }
+    }
+
+    private CsvTokenizer tokenizer = new CsvTokenizer();
+
+    /**
+     * Only finds the fields; no Strings are created
+     */
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void tokenize( Blackhole blackhole )
+    {
+        for( int i = 0; i < lineLst.length; i++ ){
+            tokenizer.tokenize( lineLst[i] );
+            blackhole.consume( tokenizer.end( tokenizer.size() - 1 ) );
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package name.subroutine.etable;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads one field of every record of a member file, the way an import
+ * would: through RandomAccessFile, and through the memory mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DbfTableBenchmark
+{
+    @Param({ "100000" })
+    private int recordCnt;
+
+    private File file;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        file = File.createTempFile( "member", ".dbf" );
+        file.deleteOnExit();
+
+        DbfTable t = new DbfTable( file.getPath() );
+        t.create( "foxpro" );
+        DbfField name = new DbfField( "NAME", 'C' );
+        name.size( 30 );
+        t.pushFld( name );
+        DbfField city = new DbfField( "CITY", 'C' );
+        city.size( 20 );
+        t.pushFld( city );
+        DbfField rating = new DbfField( "RATING", 'C' );
+        rating.size( 6 );
+        t.pushFld( rating );
+
+        for( int i = 0; i < recordCnt; i++ ){
+            Record rec = t.createRecord();
+            rec.push( "player" + i );
+            rec.push( "city" + (i % 500) );
+            rec.push( String.valueOf( i % 2500 ) );
+            t.push( rec );
+        }
+        t.close();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    @Benchmark
+    public void read( Blackhole blackhole ) throws IOException
+    {
+        DbfTable t = new DbfTable( file.getPath() );
+        t.open();
+        t.first();
+        for( int i = 0; i < recordCnt; i++ ){
+            blackhole.consume( t.read().get( 2 ) );
+        }
+        t.close();
+    }
+
+    @Benchmark
+    public void mappedCursor( Blackhole blackhole ) throws IOException
+    {
+        DbfTable t = new DbfTable( file.getPath() );
+        t.openMapped();
+        DbfCursor cur = t.mapping().cursor();
+        while( cur.next() ){
+            blackhole.consume( cur.getString( 2 ) );
+        }
+        t.close();
+    }
+
+    @Benchmark
+    public long parallelStream() throws IOException
+    {
+        DbfTable t = new DbfTable( file.getPath() );
+        t.open();
+        long cnt = t.stream()
+            .parallel()
+            .filter( rec -> !rec.get( 2 ).toString().startsWith( " " ) )
+            .count();
+        t.close();
+        return cnt;
+    }
+}
@@ -1,27 +1,55 @@
 package com.eatsleeppong.ubipong.rating.controller;
 
+import com.eatsleeppong.ubipong.rating.entity.Player;
 import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+import com.eatsleeppong.ubipong.rating.entity.Tournament;
+import com.eatsleeppong.ubipong.rating.manager.LeaderboardManager;
 import com.eatsleeppong.ubipong.rating.manager.RatingManager;
+import com.eatsleeppong.ubipong.rating.manager.RatingRecomputationManager;
+import com.eatsleeppong.ubipong.rating.manager.TournamentSubmissionManager;
+import com.eatsleeppong.ubipong.rating.model.CurrentRatingRequest;
+import com.eatsleeppong.ubipong.rating.model.HeadToHeadResponse;
+import com.eatsleeppong.ubipong.rating.model.LeaderboardResponse;
 import com.eatsleeppong.ubipong.rating.model.RatingAdjustmentResponse;
+import com.eatsleeppong.ubipong.rating.model.RatingHistoryResponse;
+import com.eatsleeppong.ubipong.rating.model.RatingRecomputationStatus;
 import com.eatsleeppong.ubipong.rating.model.TournamentResultRequest;
 import com.eatsleeppong.ubipong.rating.model.TournamentResultResponse;
+import com.eatsleeppong.ubipong.rating.model.TournamentSubmissionStatus;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/rest/v0/rating")
 public class RatingController {
     private RatingManager ratingManager;
+    private RatingRecomputationManager ratingRecomputationManager;
+    private LeaderboardManager leaderboardManager;
+    private TournamentSubmissionManager tournamentSubmissionManager;
 
     public RatingController(
-        final RatingManager ratingManager
+        final RatingManager ratingManager,
+        final RatingRecomputationManager ratingRecomputationManager,
+        final LeaderboardManager leaderboardManager,
+        final TournamentSubmissionManager tournamentSubmissionManager
     ) {
         this.ratingManager = ratingManager;
+        this.ratingRecomputationManager = ratingRecomputationManager;
+        this.leaderboardManager = leaderboardManager;
+        this.tournamentSubmissionManager = tournamentSubmissionManager;
     }
 
     @ResponseBody
@@ -43,8 +71,27 @@ public class RatingController {
             @RequestBody final String ratingAdjustmentCsv,
             @RequestParam(defaultValue = "false") final boolean autoAddPlayer)
             throws IOException, RatingInputFormatException, DuplicateTournamentException {
-        final RatingAdjustmentResponse ratingAdjustmentResponse = ratingManager.adjustRatingByCsv(ratingAdjustmentCsv,
-                autoAddPlayer);
+        final RatingAdjustmentResponse ratingAdjustmentResponse =
+                tournamentSubmissionManager.adjustRatingByCsv(ratingAdjustmentCsv, autoAddPlayer);
+        if (ratingAdjustmentResponse.isProcessed()) {
+            return ResponseEntity.status(HttpStatus.OK).body(ratingAdjustmentResponse);
+        } else {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ratingAdjustmentResponse);
+        }
+    }
+
+    /**
+     * Same as postRatingAdjustmentByCsv, but the CSV is read from the request as it arrives instead of all at once.
+     * Use this for large files; only the rejected lines are returned.
+     */
+    @PostMapping(value = "/rating-adjustment/stream", consumes = "text/csv",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<RatingAdjustmentResponse> postRatingAdjustmentByCsvStream(
+            final InputStream ratingAdjustmentCsv,
+            @RequestParam(defaultValue = "false") final boolean autoAddPlayer)
+            throws IOException, RatingInputFormatException, DuplicateTournamentException {
+        final RatingAdjustmentResponse ratingAdjustmentResponse =
+                tournamentSubmissionManager.adjustRatingByCsvStream(ratingAdjustmentCsv, autoAddPlayer);
         if (ratingAdjustmentResponse.isProcessed()) {
             return ResponseEntity.status(HttpStatus.OK).body(ratingAdjustmentResponse);
         } else {
@@ -57,7 +104,39 @@ public class RatingController {
     public TournamentResultResponse postTournamentResult(@RequestBody final TournamentResultRequest
             tournamentResultRequest, @RequestParam(defaultValue = "false") final boolean autoAddPlayer)
             throws DuplicateTournamentException {
-        return this.ratingManager.submitTournamentResult(tournamentResultRequest, autoAddPlayer);
+        return this.tournamentSubmissionManager.submitTournamentResult(tournamentResultRequest, autoAddPlayer);
+    }
+
+    /**
+     * Same as postTournamentResult, but the tournament result is processed in the background.  This returns right
+     * away; poll GET /tournament-submission/{submissionId} for the result.
+     */
+    @PostMapping(value = "/tournament-submission", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> postTournamentSubmission(@RequestBody final TournamentResultRequest
+            tournamentResultRequest, @RequestParam(defaultValue = "false") final boolean autoAddPlayer)
+            throws DuplicateTournamentException {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(tournamentSubmissionManager.startSubmission(tournamentResultRequest, autoAddPlayer));
+        } catch (RejectedExecutionException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body("Too many tournaments are waiting to be processed");
+        }
+    }
+
+    @GetMapping(value = "/tournament-submission/{submissionId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getTournamentSubmission(@PathVariable final Integer submissionId) {
+        final Optional<TournamentSubmissionStatus> result = tournamentSubmissionManager.getStatus(submissionId);
+
+        if (result.isPresent()) {
+            return ResponseEntity.status(HttpStatus.OK).body(result.get());
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(MessageFormat.format("Could not find tournament submission {0,number,#}", submissionId));
+        }
     }
 
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -65,4 +144,160 @@ public class RatingController {
             @RequestParam(defaultValue = "3") final int size) {
         return this.ratingManager.getRatingHistory(player, size);
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the current ratings of many players at once, such as everyone in the draw of a tournament.  Players who do
+     * not exist, or do not have a rating, are reported in the response instead of failing the request.
+     */
+    @PostMapping(value = "/current-rating", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> postCurrentRating(@RequestBody final CurrentRatingRequest currentRatingRequest) {
+        try {
+            return ResponseEntity.status(HttpStatus.OK).body(ratingManager.getRatingList(currentRatingRequest));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(ex.getMessage());
+        }
+    }
+
+    /**
+     * Gets a player's rating history one page at a time, latest first.  To get the next page, pass the nextCursor of
+     * this page as the cursor.
+     */
+    @GetMapping(value = "/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getRatingHistory(@RequestParam final String player,
+            @RequestParam(required = false) final String cursor,
+            @RequestParam(defaultValue = "20") final int size) {
+        final Optional<RatingHistoryResponse> result;
+        try {
+            result = ratingManager.getRatingHistoryPage(player, cursor, size);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(ex.getMessage());
+        }
+
+        if (result.isPresent()) {
+            return ResponseEntity.status(HttpStatus.OK).body(result.get());
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(MessageFormat.format("Could not find player \"{0}\"", player));
+        }
+    }
+
+    /**
+     * Writes a player's whole rating history as a JSON array, latest first.  The array is written while it is being
+     * read from the database, so the history never has to fit in memory.
+     */
+    @GetMapping(value = "/history/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRatingHistory(@RequestParam final String player) {
+        final Optional<Player> result = ratingManager.getPlayer(player);
+
+        if (result.isPresent()) {
+            final Integer playerId = result.get().getPlayerId();
+            return ResponseEntity.status(HttpStatus.OK)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(outputStream -> ratingManager.writeRatingHistory(playerId, outputStream));
+        } else {
+            final String message = MessageFormat.format("Could not find player \"{0}\"", player);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(outputStream -> outputStream.write(message.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @GetMapping(value = "/head-to-head", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getHeadToHead(@RequestParam final String player1, @RequestParam final String player2) {
+        final Optional<HeadToHeadResponse> result = ratingManager.getHeadToHead(player1, player2);
+
+        if (result.isPresent()) {
+            return ResponseEntity.status(HttpStatus.OK).body(result.get());
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(MessageFormat.format("Could not find player \"{0}\" or \"{1}\"", player1, player2));
+        }
+    }
+
+    /**
+     * Ranks players by current rating, highest first.  Give a player to get the rank of that player, or minRating
+     * and/or maxRating to get the players rated between them; otherwise, this returns the top players, starting after
+     * offset.
+     */
+    @GetMapping(value = "/leaderboard", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getLeaderboard(@RequestParam(required = false) final String player,
+            @RequestParam(required = false) final Integer minRating,
+            @RequestParam(required = false) final Integer maxRating,
+            @RequestParam(defaultValue = "0") final int offset,
+            @RequestParam(defaultValue = "20") final int size) {
+        if (player != null) {
+            final Optional<LeaderboardResponse> result = leaderboardManager.getLeaderboardByPlayer(player);
+            if (result.isPresent()) {
+                return ResponseEntity.status(HttpStatus.OK).body(result.get());
+            } else {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body(MessageFormat.format("Could not find a rating for player \"{0}\"", player));
+            }
+        } else if (minRating != null || maxRating != null) {
+            return ResponseEntity.status(HttpStatus.OK).body(leaderboardManager.getLeaderboardBetween(
+                    minRating == null ? Integer.MIN_VALUE : minRating,
+                    maxRating == null ? Integer.MAX_VALUE : maxRating, size));
+        } else {
+            return ResponseEntity.status(HttpStatus.OK).body(leaderboardManager.getLeaderboard(offset, size));
+        }
+    }
+
+    /**
+     * regenerates the current rating of every player from the rating history
+     *
+     * @return number of players who have a current rating
+     */
+    @PostMapping(value = "/current-rating/rebuild", produces = MediaType.APPLICATION_JSON_VALUE)
+    public int rebuildCurrentRating() {
+        return this.ratingManager.rebuildCurrentRating();
+    }
+
+    /**
+     * Starts recomputing the ratings after a tournament has been entered late or corrected.  Either give the tournament
+     * (only players affected by it are recomputed), or a date (every tournament from that date is recomputed).
+     *
+     * @return status of the recomputation; poll GET /recomputation/{recomputationId} for progress
+     */
+    @PostMapping(value = "/recomputation", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> postRecomputation(@RequestParam(required = false) final String tournament,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final Date fromDate) {
+        if (tournament != null) {
+            final Optional<Tournament> result = ratingManager.getTournament(tournament);
+            if (!result.isPresent()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body(MessageFormat.format("Could not find tournament \"{0}\"", tournament));
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ratingRecomputationManager.startRecomputation(result.get()));
+        } else if (fromDate != null) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ratingRecomputationManager.startRecomputation(fromDate));
+        } else {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body("Either tournament or fromDate is required");
+        }
+    }
+
+    @GetMapping(value = "/recomputation/{recomputationId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getRecomputation(@PathVariable final Integer recomputationId) {
+        final Optional<RatingRecomputationStatus> result = ratingRecomputationManager.getStatus(recomputationId);
+
+        if (result.isPresent()) {
+            return ResponseEntity.status(HttpStatus.OK).body(result.get());
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(MessageFormat.format("Could not find recomputation {0,number,#}", recomputationId));
+        }
+    }
+}
\ No newline at end of file
@@ -2,16 +2,28 @@ package com.eatsleeppong.ubipong.rating.entity;
 
 import lombok.Data;
 
-import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
-import javax.persistence.Id;
+import javax.persistence.*;
 
 @Data
 @Entity
+@Table(
+        indexes = {
+                @Index(name = "winner_loser_index", columnList = "winnerId, loserId"),
+                @Index(name = "loser_winner_index", columnList = "loserId, winnerId"),
+                @Index(name = "match_result_tournament_index", columnList = "tournamentId")
+        }
+)
 public class MatchResult {
 
+    // match results are saved a whole tournament at a time, so we reserve IDs in blocks like PlayerRatingAdjustment
     @Id
+    @TableGenerator(
+        name = "match_result_seq",
+        table = "match_result_seq",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "match_result",
+        allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.TABLE, generator = "match_result_seq")
     private Integer matchResultId;
 
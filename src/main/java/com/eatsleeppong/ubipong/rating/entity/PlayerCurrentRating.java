@@ -0,0 +1,37 @@
+package com.eatsleeppong.ubipong.rating.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * The latest PlayerRatingAdjustment of each player, kept up to date whenever an adjustment is saved, so that finding a
+ * player's current rating is a primary key lookup instead of a sort over the whole rating history.
+ *
+ * This is derived data.  It can always be regenerated from PlayerRatingAdjustment.
+ */
+@Data
+@Entity
+public class PlayerCurrentRating {
+    @Id
+    private Integer playerId;
+
+    @Column(nullable = false)
+    private Integer playerRatingAdjustmentId;
+
+    @Column
+    private Integer tournamentId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date adjustmentDate;
+
+    @Column(nullable = false)
+    private Integer finalRating;
+
+    // besides protecting against two tournaments updating the same player at once, this lets us insert new records
+    // without first checking whether they already exist
+    @Version
+    private Integer version;
+}
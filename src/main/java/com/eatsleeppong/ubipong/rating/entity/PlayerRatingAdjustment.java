@@ -11,17 +11,25 @@ import java.util.Date;
  */
 @Data
 @Entity
+@Table(
+        indexes = {
+                // latest first, to match the order the rating history is read in
+                @Index(name = "player_adjustment_date_index",
+                        columnList = "playerId, adjustmentDate desc, playerRatingAdjustmentId desc"),
+                @Index(name = "player_rating_adjustment_tournament_index", columnList = "tournamentId")
+        }
+)
 public class PlayerRatingAdjustment implements Cloneable {
-    // example of table generator
-    // @TableGenerator(
-    //     name = "playerRatingAdjustmentGen",
-    //     table = "id_gen",
-    //     pkColumnName = "gen_key",
-    //     valueColumnName = "get_value",
-    //     pkColumnValue = "playerRatingAdjustmentId",
-    //     allocationSize = 10)
-    // @GeneratedValue(strategy = GenerationType.TABLE, generator = "playerRatingAdjustmentGen")
+    // a tournament creates one of these for every player, so we reserve IDs in blocks instead of updating the ID
+    // table on every insert.  the table and column names are the ones hibernate generates by default.
     @Id
+    @TableGenerator(
+        name = "player_rating_adjustment_seq",
+        table = "player_rating_adjustment_seq",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "player_rating_adjustment",
+        allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.TABLE, generator = "player_rating_adjustment_seq")
     private Integer playerRatingAdjustmentId;
 
@@ -9,6 +9,13 @@ import java.util.Date;
 @Entity
 public class Tournament {
     @Id
+    @TableGenerator(
+        name = "tournament_seq",
+        table = "tournament_seq",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "tournament",
+        allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.TABLE, generator = "tournament_seq")
     private Integer tournamentId;
 
@@ -0,0 +1,174 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.Player;
+import com.eatsleeppong.ubipong.rating.entity.PlayerCurrentRating;
+import com.eatsleeppong.ubipong.rating.model.LeaderboardLineItem;
+import com.eatsleeppong.ubipong.rating.model.LeaderboardResponse;
+import com.eatsleeppong.ubipong.rating.repository.PlayerCurrentRatingRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Ranks players by their current rating.  The ranking is kept in memory, in RatingLeaderboard.  It is read from
+ * PlayerCurrentRating the first time it is needed, and after that RatingManager tells us about every change to
+ * PlayerCurrentRating, so finding the rank of a player never needs a query.
+ */
+@Service
+public class LeaderboardManager {
+    /**
+     * most players returned by one call
+     */
+    public static final int MAX_LEADERBOARD_SIZE = 100;
+
+    private PlayerCurrentRatingRepository playerCurrentRatingRepository;
+    private PlayerManager playerManager;
+
+    private final RatingLeaderboard ratingLeaderboard = new RatingLeaderboard();
+
+    /**
+     * guarded by ratingLeaderboard.  until the leaderboard is loaded, changes are ignored, because loading will read
+     * them from the database anyway.
+     */
+    private boolean loaded;
+
+    public LeaderboardManager(
+            final PlayerCurrentRatingRepository playerCurrentRatingRepository,
+            final PlayerManager playerManager
+    ) {
+        this.playerCurrentRatingRepository = playerCurrentRatingRepository;
+        this.playerManager = playerManager;
+    }
+
+    /**
+     * Ranks these players by their new current ratings, once the transaction that changed them is committed
+     */
+    public void updateRating(final Collection<PlayerCurrentRating> currentRatingList) {
+        // copy the ratings now, in case the records change before the transaction is committed
+        final Map<Integer, Integer> ratingMap = new HashMap<>();
+        currentRatingList.forEach(currentRating ->
+                ratingMap.put(currentRating.getPlayerId(), currentRating.getFinalRating()));
+        afterCommit(() -> ratingMap.forEach(ratingLeaderboard::put));
+    }
+
+    /**
+     * Takes these players off the leaderboard, once the transaction that removed their current ratings is committed
+     */
+    public void removeRating(final Collection<Integer> playerIdList) {
+        final List<Integer> removedList = new ArrayList<>(playerIdList);
+        afterCommit(() -> removedList.forEach(ratingLeaderboard::remove));
+    }
+
+    private void afterCommit(final Runnable change) {
+        final Runnable loadedChange = () -> {
+            synchronized (ratingLeaderboard) {
+                if (loaded) {
+                    change.run();
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    loadedChange.run();
+                }
+            });
+        } else {
+            loadedChange.run();
+        }
+    }
+
+    /**
+     * Reads every current rating, if it has not been done.  If we are in a transaction, we may be reading ratings that
+     * are not committed, so if the transaction is rolled back, the leaderboard has to be read again.
+     */
+    private void load() {
+        synchronized (ratingLeaderboard) {
+            if (loaded) {
+                return;
+            }
+            playerCurrentRatingRepository.findAll().forEach(currentRating ->
+                    ratingLeaderboard.put(currentRating.getPlayerId(), currentRating.getFinalRating()));
+            loaded = true;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                        reset();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Forgets the leaderboard.  It will be read from PlayerCurrentRating again the next time it is needed.
+     */
+    public void reset() {
+        synchronized (ratingLeaderboard) {
+            ratingLeaderboard.clear();
+            loaded = false;
+        }
+    }
+
+    /**
+     * @param offset number of players to skip, from the top
+     * @param size number of players to return, up to MAX_LEADERBOARD_SIZE
+     * @return the highest rated players
+     */
+    public LeaderboardResponse getLeaderboard(final int offset, final int size) {
+        load();
+        return createLeaderboardResponse(ratingLeaderboard.getRange(offset, limitSize(size)));
+    }
+
+    /**
+     * @param minRating lowest rating to include
+     * @param maxRating highest rating to include
+     * @param size number of players to return, up to MAX_LEADERBOARD_SIZE
+     * @return players rated from minRating to maxRating, highest first
+     */
+    public LeaderboardResponse getLeaderboardBetween(final int minRating, final int maxRating, final int size) {
+        load();
+        return createLeaderboardResponse(ratingLeaderboard.getBetween(minRating, maxRating, limitSize(size)));
+    }
+
+    /**
+     * @param search can be ID, username, or {firstname lastname}
+     * @return the rank of the player, or empty if the player does not exist or has no rating
+     */
+    public Optional<LeaderboardResponse> getLeaderboardByPlayer(final String search) {
+        load();
+        return playerManager.getPlayer(search)
+                .flatMap(player -> ratingLeaderboard.get(player.getPlayerId()))
+                .map(Collections::singletonList)
+                .map(this::createLeaderboardResponse);
+    }
+
+    private int limitSize(final int size) {
+        return Math.max(0, Math.min(size, MAX_LEADERBOARD_SIZE));
+    }
+
+    private LeaderboardResponse createLeaderboardResponse(final List<LeaderboardLineItem> leaderboardList) {
+        final Map<Integer, Player> playerMap = playerManager.getPlayerMapById(leaderboardList.stream()
+                .map(LeaderboardLineItem::getPlayerId)
+                .collect(Collectors.toList()));
+        leaderboardList.forEach(lineItem -> {
+            final Player player = playerMap.get(lineItem.getPlayerId());
+            if (player != null) {
+                lineItem.setUserName(player.getUserName());
+            }
+        });
+
+        final LeaderboardResponse leaderboardResponse = new LeaderboardResponse();
+        leaderboardResponse.setPlayerCount(ratingLeaderboard.size());
+        leaderboardResponse.setLeaderboardList(leaderboardList);
+        return leaderboardResponse;
+    }
+}
@@ -0,0 +1,102 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.Player;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A bounded cache of players, used by PlayerManager.  Players are kept in least-recently-used order by player ID, with
+ * a second index by user name.  When the cache is full, the least recently used player is evicted.
+ *
+ * Only players that exist are cached, so a player added outside of PlayerManager will still be found.
+ */
+class PlayerCache {
+    private final int maxSize;
+
+    private final LinkedHashMap<Integer, Player> playerMap;
+    private final Map<String, Integer> playerIdMap = new HashMap<>();
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    PlayerCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.playerMap = new LinkedHashMap<Integer, Player>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, Player> eldest) {
+                if (size() <= PlayerCache.this.maxSize) {
+                    return false;
+                }
+                playerIdMap.remove(eldest.getValue().getUserName(), eldest.getKey());
+                ++evictionCount;
+                return true;
+            }
+        };
+    }
+
+    synchronized Optional<Player> getById(final Integer playerId) {
+        return count(playerMap.get(playerId));
+    }
+
+    synchronized Optional<Player> getByUserName(final String userName) {
+        final Integer playerId = playerIdMap.get(userName);
+        return count(playerId == null ? null : playerMap.get(playerId));
+    }
+
+    private Optional<Player> count(final Player player) {
+        if (player == null) {
+            ++missCount;
+        } else {
+            ++hitCount;
+        }
+        return Optional.ofNullable(player);
+    }
+
+    synchronized void put(final Player player) {
+        if (player.getPlayerId() == null || player.getUserName() == null) {
+            return;
+        }
+        // the user name may have changed, or may have belonged to another player, so the old entries have to go
+        remove(player.getPlayerId());
+        final Integer previousPlayerId = playerIdMap.get(player.getUserName());
+        if (previousPlayerId != null) {
+            remove(previousPlayerId);
+        }
+        playerIdMap.put(player.getUserName(), player.getPlayerId());
+        playerMap.put(player.getPlayerId(), player);
+    }
+
+    synchronized void remove(final Integer playerId) {
+        final Player player = playerMap.remove(playerId);
+        if (player != null) {
+            playerIdMap.remove(player.getUserName(), playerId);
+        }
+    }
+
+    synchronized void clear() {
+        playerMap.clear();
+        playerIdMap.clear();
+    }
+
+    synchronized int size() {
+        return playerMap.size();
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
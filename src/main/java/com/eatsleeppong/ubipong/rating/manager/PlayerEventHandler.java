@@ -0,0 +1,29 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.Player;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Players changed through Spring Data Rest do not go through PlayerManager, so we have to take them out of the player
+ * cache here
+ */
+@Component
+@RepositoryEventHandler
+public class PlayerEventHandler {
+    private PlayerManager playerManager;
+
+    public PlayerEventHandler(
+            final PlayerManager playerManager
+    ) {
+        this.playerManager = playerManager;
+    }
+
+    @HandleAfterSave
+    @HandleAfterDelete
+    public void evictPlayer(final Player player) {
+        playerManager.evictPlayer(player.getPlayerId());
+    }
+}
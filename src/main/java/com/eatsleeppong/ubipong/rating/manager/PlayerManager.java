@@ -4,7 +4,14 @@ import com.eatsleeppong.ubipong.rating.entity.Player;
 import com.eatsleeppong.ubipong.rating.repository.PlayerRatingAdjustmentRepository;
 import com.eatsleeppong.ubipong.rating.repository.PlayerRepository;
 import com.eatsleeppong.ubipong.rating.repository.TournamentRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -12,19 +19,78 @@ import java.util.*;
 @Service
 public class PlayerManager {
     private PlayerRepository playerRepository;
+    private PlayerCache playerCache;
 
+    /**
+     * @param playerCacheSize maximum number of players to keep in memory
+     * @param meterRegistry where we publish the cache statistics, which can be seen through the actuator under
+     *                      cache.gets, cache.evictions, and cache.size
+     */
     public PlayerManager(
-            PlayerRepository playerRepository
+            PlayerRepository playerRepository,
+            @Value("${playerCacheSize:10000}") int playerCacheSize,
+            MeterRegistry meterRegistry
     ) {
         this.playerRepository = playerRepository;
+        this.playerCache = new PlayerCache(playerCacheSize);
+
+        FunctionCounter.builder("cache.gets", playerCache, PlayerCache::getHitCount)
+                .tags("cache", "player", "result", "hit")
+                .description("The number of times a player was found in the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", playerCache, PlayerCache::getMissCount)
+                .tags("cache", "player", "result", "miss")
+                .description("The number of times a player had to be read from the database")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", playerCache, PlayerCache::getEvictionCount)
+                .tags("cache", "player")
+                .description("The number of players removed from the cache because it was full")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", playerCache, PlayerCache::size)
+                .tags("cache", "player")
+                .description("The number of players in the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A player we have just read or written may still be rolled back, so if there is a transaction, we only cache the
+     * player once it is committed
+     */
+    private void cachePlayer(final Player player) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    playerCache.put(player);
+                }
+            });
+        } else {
+            playerCache.put(player);
+        }
+    }
+
+    /**
+     * Removes a player from the cache.  This has to be called if a player is changed or deleted without going
+     * through PlayerManager.
+     */
+    public void evictPlayer(final Integer playerId) {
+        playerCache.remove(playerId);
     }
 
     public Player addPlayer(Player player) {
-        return playerRepository.save(player);
+        final Player savedPlayer = playerRepository.save(player);
+        cachePlayer(savedPlayer);
+        return savedPlayer;
     }
 
     public Optional<Player> getPlayerById(Integer id) {
-        return playerRepository.findById(id);
+        final Optional<Player> cachedPlayer = playerCache.getById(id);
+        if (cachedPlayer.isPresent()) {
+            return cachedPlayer;
+        }
+        final Optional<Player> player = playerRepository.findById(id);
+        player.ifPresent(this::cachePlayer);
+        return player;
     }
 
     /**
@@ -32,7 +98,69 @@ public class PlayerManager {
      * @return
      */
     public Optional<Player> getPlayer(final String search) {
-        return playerRepository.findByUserName(search);
+        final Optional<Player> cachedPlayer = playerCache.getByUserName(search);
+        if (cachedPlayer.isPresent()) {
+            return cachedPlayer;
+        }
+        final Optional<Player> player = playerRepository.findByUserName(search);
+        player.ifPresent(this::cachePlayer);
+        return player;
+    }
+
+    /**
+     * Looks up many players at once.  Players who are not in the cache are read with a single query.
+     *
+     * @param userNameList user names of the players
+     * @return the players who are in the system, keyed by user name
+     */
+    public Map<String, Player> getPlayerMap(final Collection<String> userNameList) {
+        final Map<String, Player> map = new HashMap<>();
+        final List<String> missingUserNameList = new ArrayList<>();
+
+        userNameList.forEach(userName -> {
+            final Optional<Player> cachedPlayer = playerCache.getByUserName(userName);
+            if (cachedPlayer.isPresent()) {
+                map.put(userName, cachedPlayer.get());
+            } else {
+                missingUserNameList.add(userName);
+            }
+        });
+
+        if (!missingUserNameList.isEmpty()) {
+            playerRepository.findByUserNameIn(missingUserNameList).forEach(player -> {
+                cachePlayer(player);
+                map.put(player.getUserName(), player);
+            });
+        }
+        return map;
+    }
+
+    /**
+     * Same as getPlayerMap, but by player ID
+     *
+     * @param playerIdList IDs of the players
+     * @return the players who are in the system, keyed by player ID
+     */
+    public Map<Integer, Player> getPlayerMapById(final Collection<Integer> playerIdList) {
+        final Map<Integer, Player> map = new HashMap<>();
+        final List<Integer> missingPlayerIdList = new ArrayList<>();
+
+        playerIdList.forEach(playerId -> {
+            final Optional<Player> cachedPlayer = playerCache.getById(playerId);
+            if (cachedPlayer.isPresent()) {
+                map.put(playerId, cachedPlayer.get());
+            } else {
+                missingPlayerIdList.add(playerId);
+            }
+        });
+
+        if (!missingPlayerIdList.isEmpty()) {
+            playerRepository.findAllById(missingPlayerIdList).forEach(player -> {
+                cachePlayer(player);
+                map.put(player.getPlayerId(), player);
+            });
+        }
+        return map;
     }
 
     public Integer getPlayerId(final String search) {
@@ -48,7 +176,7 @@ public class PlayerManager {
         // the search term becomes username
         newUser.setUserName(search);
 
-        return Optional.of(playerRepository.save(newUser));
+        return Optional.of(addPlayer(newUser));
     }
 
     public List<Player> findPlayerByUserNameStartingWith(final String search) {
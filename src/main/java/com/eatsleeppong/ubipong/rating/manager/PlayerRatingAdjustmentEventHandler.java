@@ -0,0 +1,33 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+/**
+ * Rating adjustments written through Spring Data Rest do not go through RatingManager, so we have to bring
+ * PlayerCurrentRating up to date here
+ */
+@Component
+@RepositoryEventHandler
+public class PlayerRatingAdjustmentEventHandler {
+    private RatingManager ratingManager;
+
+    public PlayerRatingAdjustmentEventHandler(
+            final RatingManager ratingManager
+    ) {
+        this.ratingManager = ratingManager;
+    }
+
+    @HandleAfterCreate
+    @HandleAfterSave
+    @HandleAfterDelete
+    public void rebuildCurrentRating(final PlayerRatingAdjustment playerRatingAdjustment) {
+        ratingManager.rebuildCurrentRating(Collections.singletonList(playerRatingAdjustment.getPlayerId()));
+    }
+}
@@ -1,60 +1,173 @@
 package com.eatsleeppong.ubipong.rating.manager;
 
+import name.subroutine.etable.CsvTable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calculates the number of points exchanged in a match from a point exchange table, which is a csv file with the
+ * structure
+ *
+ * <pre>
+ *     line 1                difference           , expected        , upset
+ *     line 2                0                    , {points}        , {points}
+ *     line 3                {rating difference}  , {points}        , {points}
+ *     ...and so on
+ * </pre>
+ *
+ * Each line gives the points for rating differences from its own difference up to the next line's.  "Expected" is when
+ * the higher rated player wins, and "upset" is when the lower rated player wins.  If the ratings are equal, the result
+ * is expected.
+ *
+ * The table is expanded into an array indexed by rating difference when the calculator is created, so calculating a
+ * match result is a single array lookup.
+ */
 @Service
 public class RatingCalculator {
-    public int calculateWinnerDelta(final int winnerRating, final int loserRating) {
-        int diff = winnerRating - loserRating;
-
-        // expected result: when winner has higher rating than loser
-        if (diff >= 238) {
-            return 0;
-        } else if (diff >= 188) {
-            return 1;
-        } else if (diff >= 138 ) {
-            return 2;
-        } else if (diff >= 113 ) {
-            return 3;
-        } else if (diff >= 88) {
-            return 4;
-        } else if (diff >= 63) {
-            return 5;
-        } else if (diff >= 38) {
-            return 6;
-        } else if (diff >= 13) {
-            return 7;
-        } else if (diff >= 0) {
-            return 8;
+    public static final String DEFAULT_POINT_EXCHANGE_TABLE = "point-exchange.csv";
+
+    /**
+     * rating differences beyond this get the same points as this
+     */
+    private final int maxDifference;
+
+    /**
+     * points the winner gets, indexed by (winner rating - loser rating + maxDifference)
+     */
+    private final int[] winnerDeltaTable;
+
+    /**
+     * uses the default point exchange table
+     */
+    public RatingCalculator() {
+        this(new ClassPathResource(DEFAULT_POINT_EXCHANGE_TABLE));
+    }
+
+    /**
+     * @param pointExchangeTable csv file of the point exchange table; this can be replaced by setting
+     *                           pointExchangeTable to a Spring resource location, such as file:/path/to/table.csv
+     */
+    @Autowired
+    public RatingCalculator(
+            @Value("${pointExchangeTable:classpath:" + DEFAULT_POINT_EXCHANGE_TABLE + "}")
+            final Resource pointExchangeTable
+    ) {
+        final List<int[]> rowList = readPointExchangeTable(pointExchangeTable);
+
+        this.maxDifference = rowList.get(rowList.size() - 1)[0];
+        this.winnerDeltaTable = new int[maxDifference * 2 + 1];
+
+        int row = 0;
+        for (int diff = 0; diff <= maxDifference; ++diff) {
+            if (row + 1 < rowList.size() && rowList.get(row + 1)[0] <= diff) {
+                ++row;
+            }
+            // winner has higher or equal rating
+            winnerDeltaTable[maxDifference + diff] = rowList.get(row)[1];
+            // winner has lower rating
+            if (diff > 0) {
+                winnerDeltaTable[maxDifference - diff] = rowList.get(row)[2];
+            }
+        }
+    }
+
+    /**
+     * @return rows of {difference, expected, upset}, sorted by difference, starting from 0
+     */
+    private static List<int[]> readPointExchangeTable(final Resource pointExchangeTable) {
+        final List<int[]> rowList = new ArrayList<>();
+
+        try (
+                final InputStreamReader isr = new InputStreamReader(pointExchangeTable.getInputStream(),
+                        StandardCharsets.UTF_8);
+                final BufferedReader br = new BufferedReader(isr)
+        ) {
+            // line 1 is the header
+            br.readLine();
+            int lineNumber = 1;
+            for (String line = br.readLine(); line != null; line = br.readLine()) {
+                ++lineNumber;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                final String[] record = CsvTable.toArray(line);
+                try {
+                    final int[] row = new int[] {
+                            Integer.parseInt(record[0].trim()),
+                            Integer.parseInt(record[1].trim()),
+                            Integer.parseInt(record[2].trim()),
+                    };
+                    final int previousDifference = rowList.isEmpty() ? -1 : rowList.get(rowList.size() - 1)[0];
+                    // the first line has to start from 0, and the differences have to go up
+                    if ((rowList.isEmpty() && row[0] != 0) || row[0] <= previousDifference) {
+                        throw new IllegalArgumentException();
+                    }
+                    rowList.add(row);
+                } catch (RuntimeException ex) {
+                    throw new IllegalArgumentException(MessageFormat.format(
+                            "Could not understand line {0} of point exchange table {1}: {2}",
+                            lineNumber, pointExchangeTable.getDescription(), line), ex);
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(MessageFormat.format("Could not read point exchange table {0}",
+                    pointExchangeTable.getDescription()), ex);
         }
 
-        // upset result: when winner has lower rating than loser
-        else if (diff <= -238) {
-            return 50;
-        } else if (diff <= -213) {
-            return 45;
-        } else if (diff <= -188) {
-            return 40;
-        } else if (diff <= -163) {
-            return 35;
-        } else if (diff <= -138) {
-            return 30;
-        } else if (diff <= -113) {
-            return 25;
-        } else if (diff <= -88) {
-            return 20;
-        } else if (diff <= -63) {
-            return 16;
-        } else if (diff <= -38) {
-            return 13;
-        } else if (diff <= -13) {
-            return 10;
-        } else {
-            return 8;
+        if (rowList.isEmpty()) {
+            throw new IllegalArgumentException(MessageFormat.format("Point exchange table {0} is empty",
+                    pointExchangeTable.getDescription()));
         }
+        return rowList;
+    }
+
+    public int calculateWinnerDelta(final int winnerRating, final int loserRating) {
+        final int diff = Math.max(-maxDifference, Math.min(maxDifference, winnerRating - loserRating));
+        return winnerDeltaTable[diff + maxDifference];
     }
 
     public int calculateLoserDelta(final int winnerRating, final int loserRating) {
         return -calculateWinnerDelta(winnerRating, loserRating);
     }
+
+    /**
+     * Calculates the winner deltas of many matches at once
+     *
+     * @param winnerRatingList rating of the winner of each match
+     * @param loserRatingList rating of the loser of each match
+     * @param winnerDeltaList where we put the winner delta of each match; must be at least as long as the rating lists
+     */
+    public void calculateWinnerDelta(final int[] winnerRatingList, final int[] loserRatingList,
+            final int[] winnerDeltaList) {
+        if (winnerRatingList.length != loserRatingList.length) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "There are {0} winner ratings but {1} loser ratings",
+                    winnerRatingList.length, loserRatingList.length));
+        }
+        for (int i = 0; i < winnerRatingList.length; ++i) {
+            final int diff = Math.max(-maxDifference,
+                    Math.min(maxDifference, winnerRatingList[i] - loserRatingList[i]));
+            winnerDeltaList[i] = winnerDeltaTable[diff + maxDifference];
+        }
+    }
+
+    /**
+     * Same as calculateWinnerDelta(int[], int[], int[]), but returns a new array
+     */
+    public int[] calculateWinnerDelta(final int[] winnerRatingList, final int[] loserRatingList) {
+        final int[] winnerDeltaList = new int[winnerRatingList.length];
+        calculateWinnerDelta(winnerRatingList, loserRatingList, winnerDeltaList);
+        return winnerDeltaList;
+    }
 }
@@ -0,0 +1,242 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.MatchResult;
+import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds up the rating transfers of a tournament.
+ *
+ * Each player in the tournament gets a dense index (0, 1, 2...), and the rating of each player is kept in an int[]
+ * under that index.  Player IDs are mapped to indexes with an open addressing hash table made of two int[], so
+ * applying a match is two probes and two additions; nothing is allocated until getPlayerRatingAdjustmentMap creates
+ * the new PlayerRatingAdjustment objects.
+ *
+ * The rated players get the indexes from 0 up to getRatedCount().  Unrated players can be given the indexes after
+ * them with addPlayer, which is how processMatchResultList numbers everyone in a tournament before running its passes
+ * over int[].
+ *
+ * An instance can be reused for any number of tournaments by calling reset, in which case the arrays are only grown
+ * when a tournament has more players than any before it.  It is not thread safe.
+ */
+public class RatingDeltaAccumulator {
+    private static final int EMPTY = -1;
+
+    private PlayerRatingAdjustment[] initialRatingList = new PlayerRatingAdjustment[0];
+    private int[] playerIdList = new int[0];
+    private int[] ratingList = new int[0];
+    private int playerCount;
+    private int ratedCount;
+
+    // hash table from player ID to index.  its size is a power of two, at least twice the number of players
+    private int[] slotPlayerIdList = new int[0];
+    private int[] slotIndexList = new int[0];
+    private int slotMask;
+    // the hash is taken from the top bits, as many as it takes to pick a slot
+    private int slotShift;
+
+    public RatingDeltaAccumulator() {
+    }
+
+    /**
+     * @param initialRatingList the latest rating of every player in the tournament
+     */
+    public RatingDeltaAccumulator(final Collection<PlayerRatingAdjustment> initialRatingList) {
+        reset(initialRatingList);
+    }
+
+    /**
+     * Starts a new tournament
+     *
+     * @param initialRatingList the latest rating of every player in the tournament
+     */
+    public void reset(final Collection<PlayerRatingAdjustment> initialRatingList) {
+        playerCount = initialRatingList.size();
+        ratedCount = playerCount;
+        if (this.initialRatingList.length < playerCount) {
+            this.initialRatingList = new PlayerRatingAdjustment[playerCount];
+            playerIdList = new int[playerCount];
+            ratingList = new int[playerCount];
+        }
+        final int slotCount = Integer.highestOneBit(Math.max(playerCount, 1)) * 4;
+        if (slotPlayerIdList.length < slotCount) {
+            slotPlayerIdList = new int[slotCount];
+            slotIndexList = new int[slotCount];
+        }
+        slotMask = slotPlayerIdList.length - 1;
+        slotShift = 32 - Integer.numberOfTrailingZeros(slotPlayerIdList.length);
+        Arrays.fill(slotIndexList, EMPTY);
+        Arrays.fill(this.initialRatingList, playerCount, this.initialRatingList.length, null);
+
+        int index = 0;
+        for (final PlayerRatingAdjustment initialRating : initialRatingList) {
+            final int playerId = initialRating.getPlayerId();
+            int slot = getSlot(playerId);
+            while (slotIndexList[slot] != EMPTY) {
+                if (slotPlayerIdList[slot] == playerId) {
+                    throw new IllegalArgumentException(MessageFormat.format(
+                            "Player {0,number,#} has more than one rating", playerId));
+                }
+                slot = (slot + 1) & slotMask;
+            }
+            slotPlayerIdList[slot] = playerId;
+            slotIndexList[slot] = index;
+
+            this.initialRatingList[index] = initialRating;
+            playerIdList[index] = playerId;
+            ratingList[index] = initialRating.getFinalRating();
+            ++index;
+        }
+    }
+
+    /**
+     * Gives a player who is not in the tournament yet the next index, as an unrated player with a rating of 0
+     *
+     * @return index of the player, which is the one they already had if they are in the tournament
+     */
+    public int addPlayer(final int playerId) {
+        int slot = getSlot(playerId);
+        while (slotIndexList[slot] != EMPTY) {
+            if (slotPlayerIdList[slot] == playerId) {
+                return slotIndexList[slot];
+            }
+            slot = (slot + 1) & slotMask;
+        }
+
+        // keep the hash table at most half full
+        if ((playerCount + 1) * 2 > slotPlayerIdList.length) {
+            growSlotList();
+            return addPlayer(playerId);
+        }
+        if (playerCount == ratingList.length) {
+            final int capacity = Math.max(playerCount * 2, 4);
+            initialRatingList = Arrays.copyOf(initialRatingList, capacity);
+            playerIdList = Arrays.copyOf(playerIdList, capacity);
+            ratingList = Arrays.copyOf(ratingList, capacity);
+        }
+
+        slotPlayerIdList[slot] = playerId;
+        slotIndexList[slot] = playerCount;
+        initialRatingList[playerCount] = null;
+        playerIdList[playerCount] = playerId;
+        ratingList[playerCount] = 0;
+        return playerCount++;
+    }
+
+    /**
+     * @return number of players, rated or not
+     */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * @return number of rated players.  they have the indexes below this
+     */
+    public int getRatedCount() {
+        return ratedCount;
+    }
+
+    public int getPlayerId(final int index) {
+        return playerIdList[index];
+    }
+
+    /**
+     * @return the rating the player came into the tournament with, or null if the player is unrated
+     */
+    public PlayerRatingAdjustment getInitialRating(final int index) {
+        return initialRatingList[index];
+    }
+
+    /**
+     * @param winnerId player ID of the winner
+     * @param loserId player ID of the loser
+     * @param winnerRatingDelta points the winner takes from the loser
+     */
+    public void addMatchResult(final int winnerId, final int loserId, final int winnerRatingDelta) {
+        ratingList[getIndex(winnerId)] += winnerRatingDelta;
+        ratingList[getIndex(loserId)] -= winnerRatingDelta;
+    }
+
+    public void addMatchResult(final MatchResult matchResult) {
+        addMatchResult(matchResult.getWinnerId(), matchResult.getLoserId(), matchResult.getWinnerRatingDelta());
+    }
+
+    public void addMatchResultList(final List<MatchResult> matchResultList) {
+        for (int i = 0, size = matchResultList.size(); i < size; ++i) {
+            addMatchResult(matchResultList.get(i));
+        }
+    }
+
+    /**
+     * @return current rating of the player, including every match result added so far
+     */
+    public int getRating(final int playerId) {
+        return ratingList[getIndex(playerId)];
+    }
+
+    /**
+     * Creates the new ratings.  Each one is a copy of the player's initial rating, with no ID, initialRating and
+     * firstPassRating set to the rating before the tournament, and finalRating set to the rating after it.
+     *
+     * @return a new map of ratings, by player ID
+     */
+    public Map<Integer, PlayerRatingAdjustment> getPlayerRatingAdjustmentMap() {
+        final Map<Integer, PlayerRatingAdjustment> result = new HashMap<>(playerCount * 4 / 3 + 1);
+        for (int index = 0; index < playerCount; ++index) {
+            final PlayerRatingAdjustment initialRating = initialRatingList[index];
+            final int initialRatingValue = initialRating == null ? 0 : initialRating.getFinalRating();
+            final PlayerRatingAdjustment newRating = new PlayerRatingAdjustment();
+            newRating.setPlayerId(playerIdList[index]);
+            if (initialRating != null) {
+                newRating.setTournamentId(initialRating.getTournamentId());
+                newRating.setAdjustmentDate(initialRating.getAdjustmentDate());
+            }
+            newRating.setInitialRating(initialRatingValue);
+            newRating.setFirstPassRating(initialRatingValue);
+            newRating.setFinalRating(ratingList[index]);
+            result.put(newRating.getPlayerId(), newRating);
+        }
+        return result;
+    }
+
+    /**
+     * called exclusively by addPlayer to double the hash table
+     */
+    private void growSlotList() {
+        slotPlayerIdList = new int[slotPlayerIdList.length * 2];
+        slotIndexList = new int[slotPlayerIdList.length];
+        slotMask = slotPlayerIdList.length - 1;
+        slotShift = 32 - Integer.numberOfTrailingZeros(slotPlayerIdList.length);
+        Arrays.fill(slotIndexList, EMPTY);
+        for (int index = 0; index < playerCount; ++index) {
+            int slot = getSlot(playerIdList[index]);
+            while (slotIndexList[slot] != EMPTY) {
+                slot = (slot + 1) & slotMask;
+            }
+            slotPlayerIdList[slot] = playerIdList[index];
+            slotIndexList[slot] = index;
+        }
+    }
+
+    private int getSlot(final int playerId) {
+        // player IDs are mostly sequential, so spread them out (fibonacci hashing)
+        return (playerId * 0x9E3779B9 >>> slotShift) & slotMask;
+    }
+
+    private int getIndex(final int playerId) {
+        for (int slot = getSlot(playerId); slotIndexList[slot] != EMPTY; slot = (slot + 1) & slotMask) {
+            if (slotPlayerIdList[slot] == playerId) {
+                return slotIndexList[slot];
+            }
+        }
+        throw new IllegalArgumentException(MessageFormat.format(
+                "Player {0,number,#} has no rating in this tournament", playerId));
+    }
+}
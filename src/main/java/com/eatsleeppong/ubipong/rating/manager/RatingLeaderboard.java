@@ -0,0 +1,217 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.model.LeaderboardLineItem;
+
+import java.util.*;
+
+/**
+ * Players ranked by their current rating, used by LeaderboardManager.  Players with the same rating share a rank,
+ * which is one more than the number of players rated higher; within a rating, players are listed by player ID.
+ *
+ * The number of players at each rating is kept in a Fenwick tree indexed by rating, so counting the players rated
+ * higher than someone, or finding the rating of the player at a given rank, takes O(log r) time, where r is the range
+ * of ratings.  The range starts at 0 to 4095 and doubles whenever a rating falls outside of it, up to about a million
+ * points; a player whose rating would stretch it further is left off the leaderboard.  The players themselves are
+ * kept in a sorted map by rating, which is only walked to list them.
+ */
+class RatingLeaderboard {
+    private static final int INITIAL_RATING_RANGE = 4096;
+    private static final int MAX_RATING_RANGE = 1 << 20;
+
+    private final Map<Integer, Integer> ratingMap = new HashMap<>();
+    private final TreeMap<Integer, TreeSet<Integer>> playerIdMap = new TreeMap<>(Comparator.reverseOrder());
+
+    private int minRating = 0;
+
+    /**
+     * countTree[i] holds the number of players rated from (minRating + i - (i & -i)) to (minRating + i - 1)
+     */
+    private int[] countTree = new int[INITIAL_RATING_RANGE + 1];
+
+    synchronized void put(final Integer playerId, final int rating) {
+        final Integer previousRating = ratingMap.get(playerId);
+        if (previousRating != null && previousRating == rating) {
+            return;
+        }
+        remove(playerId);
+        if (!ensureRange(rating)) {
+            return;
+        }
+        ratingMap.put(playerId, rating);
+        playerIdMap.computeIfAbsent(rating, r -> new TreeSet<>()).add(playerId);
+        addCount(rating, 1);
+    }
+
+    synchronized void remove(final Integer playerId) {
+        final Integer rating = ratingMap.remove(playerId);
+        if (rating != null) {
+            removeFromRating(playerId, rating);
+        }
+    }
+
+    private void removeFromRating(final Integer playerId, final int rating) {
+        final TreeSet<Integer> playerIdSet = playerIdMap.get(rating);
+        playerIdSet.remove(playerId);
+        if (playerIdSet.isEmpty()) {
+            playerIdMap.remove(rating);
+        }
+        addCount(rating, -1);
+    }
+
+    synchronized void clear() {
+        ratingMap.clear();
+        playerIdMap.clear();
+        minRating = 0;
+        countTree = new int[INITIAL_RATING_RANGE + 1];
+    }
+
+    synchronized int size() {
+        return ratingMap.size();
+    }
+
+    /**
+     * @return the rank and rating of the player, or empty if the player is not on the leaderboard
+     */
+    synchronized Optional<LeaderboardLineItem> get(final Integer playerId) {
+        final Integer rating = ratingMap.get(playerId);
+        if (rating == null) {
+            return Optional.empty();
+        }
+        return Optional.of(createLineItem(countAbove(rating) + 1, playerId, rating));
+    }
+
+    /**
+     * @param offset number of players to skip, from the top
+     * @param size most players to return
+     * @return players ranked offset + 1 onward
+     */
+    synchronized List<LeaderboardLineItem> getRange(final int offset, final int size) {
+        if (offset < 0 || offset >= ratingMap.size() || size <= 0) {
+            return new ArrayList<>();
+        }
+        // the player at offset is the (size - offset)th lowest rated
+        final int rating = findRating(ratingMap.size() - offset);
+        final int above = countAbove(rating);
+        return list(playerIdMap.tailMap(rating, true), above, offset - above, size);
+    }
+
+    /**
+     * @return players rated from minRating to maxRating, highest first
+     */
+    synchronized List<LeaderboardLineItem> getBetween(final int minRating, final int maxRating, final int size) {
+        if (minRating > maxRating || size <= 0) {
+            return new ArrayList<>();
+        }
+        final SortedMap<Integer, TreeSet<Integer>> between = playerIdMap.subMap(maxRating, true, minRating, true);
+        if (between.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return list(between, countAbove(between.firstKey()), 0, size);
+    }
+
+    /**
+     * @param ratingMap players to list, by rating, highest first
+     * @param above number of players rated higher than everyone in ratingMap
+     * @param skip number of players to skip at the highest rating
+     * @param size most players to return
+     */
+    private List<LeaderboardLineItem> list(final SortedMap<Integer, TreeSet<Integer>> ratingMap, final int above,
+            final int skip, final int size) {
+        final List<LeaderboardLineItem> result = new ArrayList<>(size);
+        int rank = above + 1;
+        int toSkip = skip;
+        for (final Map.Entry<Integer, TreeSet<Integer>> entry : ratingMap.entrySet()) {
+            for (final Integer playerId : entry.getValue()) {
+                if (toSkip > 0) {
+                    --toSkip;
+                    continue;
+                }
+                result.add(createLineItem(rank, playerId, entry.getKey()));
+                if (result.size() == size) {
+                    return result;
+                }
+            }
+            rank += entry.getValue().size();
+        }
+        return result;
+    }
+
+    private LeaderboardLineItem createLineItem(final int rank, final Integer playerId, final int rating) {
+        final LeaderboardLineItem lineItem = new LeaderboardLineItem();
+        lineItem.setRank(rank);
+        lineItem.setPlayerId(playerId);
+        lineItem.setRating(rating);
+        return lineItem;
+    }
+
+    /**
+     * @return number of players rated higher than rating
+     */
+    synchronized int countAbove(final int rating) {
+        final long index = (long) rating - minRating + 1;
+        if (index < 1) {
+            return ratingMap.size();
+        }
+        return ratingMap.size() - prefixCount((int) Math.min(index, countTree.length - 1));
+    }
+
+    /**
+     * @return number of players rated minRating + index - 1 or lower
+     */
+    private int prefixCount(final int index) {
+        int count = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            count += countTree[i];
+        }
+        return count;
+    }
+
+    private void addCount(final int rating, final int delta) {
+        for (int i = rating - minRating + 1; i < countTree.length; i += i & -i) {
+            countTree[i] += delta;
+        }
+    }
+
+    /**
+     * @param position position of a player counting from the lowest rated, starting at 1
+     * @return rating of that player
+     */
+    private int findRating(final int position) {
+        // walk down the tree to find the last index whose prefix count is below position
+        int index = 0;
+        int remaining = position;
+        for (int step = Integer.highestOneBit(countTree.length - 1); step > 0; step >>= 1) {
+            final int next = index + step;
+            if (next < countTree.length && countTree[next] < remaining) {
+                index = next;
+                remaining -= countTree[next];
+            }
+        }
+        return minRating + index;
+    }
+
+    /**
+     * widens the range of the tree to include rating, and rebuilds it from the players
+     *
+     * @return false if the range would be wider than MAX_RATING_RANGE
+     */
+    private boolean ensureRange(final int rating) {
+        final int range = countTree.length - 1;
+        if (rating >= minRating && rating < minRating + range) {
+            return true;
+        }
+        final long newMinRating = Math.min(minRating, rating);
+        final long needed = Math.max((long) minRating + range, (long) rating + 1) - newMinRating;
+        if (needed > MAX_RATING_RANGE) {
+            return false;
+        }
+        int newRange = range;
+        while (newRange < needed) {
+            newRange <<= 1;
+        }
+        minRating = (int) newMinRating;
+        countTree = new int[newRange + 1];
+        playerIdMap.forEach((r, playerIdSet) -> addCount(r, playerIdSet.size()));
+        return true;
+    }
+}
@@ -4,61 +4,140 @@ import com.eatsleeppong.ubipong.rating.controller.DuplicateTournamentException;
 import com.eatsleeppong.ubipong.rating.controller.RatingInputFormatException;
 import com.eatsleeppong.ubipong.rating.entity.MatchResult;
 import com.eatsleeppong.ubipong.rating.entity.Player;
+import com.eatsleeppong.ubipong.rating.entity.PlayerCurrentRating;
 import com.eatsleeppong.ubipong.rating.entity.Tournament;
 import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
 import com.eatsleeppong.ubipong.rating.model.*;
+import com.eatsleeppong.ubipong.rating.repository.MatchResultRepository;
+import com.eatsleeppong.ubipong.rating.repository.PlayerCurrentRatingRepository;
 import com.eatsleeppong.ubipong.rating.repository.PlayerRatingAdjustmentRepository;
-import com.eatsleeppong.ubipong.rating.repository.PlayerRepository;
 import com.eatsleeppong.ubipong.rating.repository.TournamentRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import name.subroutine.etable.CsvTable;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import javax.persistence.EntityManager;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.MessageFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class RatingManager {
     private final DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
 
-    private PlayerRepository playerRepository;
+    /**
+     * the current rating is the one with the latest adjustmentDate; if there is a tie, it is the one entered last
+     */
+    private static final Comparator<PlayerCurrentRating> CURRENT_RATING_ORDER = Comparator
+            .comparing((PlayerCurrentRating r) -> r.getAdjustmentDate().getTime())
+            .thenComparing(PlayerCurrentRating::getPlayerRatingAdjustmentId);
+
+    /**
+     * a player who gains at least this much in the first pass is underrated, and starts the second pass from the
+     * first pass rating
+     */
+    public static final int UNDERRATED_GAIN = 50;
+
+    /**
+     * a player who gains at least this much in the first pass starts the second pass from a rating based on their
+     * best win and worst loss
+     */
+    public static final int HIGHLY_UNDERRATED_GAIN = 75;
+
+    /**
+     * most players that can be looked up by one call to getRatingList
+     */
+    public static final int MAX_CURRENT_RATING_REQUEST_SIZE = 1000;
+
+    /**
+     * most rating adjustments returned by one page of getRatingHistoryPage
+     */
+    public static final int MAX_HISTORY_PAGE_SIZE = 100;
+
+    /**
+     * number of CSV lines adjustRatingByCsvStream validates and saves at a time.  this is also the most rejected lines
+     * it reports
+     */
+    public static final int CSV_CHUNK_SIZE = 1000;
+
     private PlayerRatingAdjustmentRepository playerRatingAdjustmentRepository;
+    private PlayerCurrentRatingRepository playerCurrentRatingRepository;
     private TournamentRepository tournamentRepository;
+    private MatchResultRepository matchResultRepository;
     private RatingCalculator ratingCalculator;
     private PlayerManager playerManager;
+    private LeaderboardManager leaderboardManager;
+    private EntityManager entityManager;
+    private ObjectMapper objectMapper;
 
     public RatingManager(
-            final PlayerRepository playerRepository,
             final PlayerRatingAdjustmentRepository playerRatingAdjustmentRepository,
+            final PlayerCurrentRatingRepository playerCurrentRatingRepository,
             final TournamentRepository tournamentRepository,
+            final MatchResultRepository matchResultRepository,
             final RatingCalculator ratingCalculator,
-            final PlayerManager playerManager
+            final PlayerManager playerManager,
+            final LeaderboardManager leaderboardManager,
+            final EntityManager entityManager,
+            final ObjectMapper objectMapper
     ) {
-        this.playerRepository = playerRepository;
         this.playerRatingAdjustmentRepository = playerRatingAdjustmentRepository;
+        this.playerCurrentRatingRepository = playerCurrentRatingRepository;
         this.tournamentRepository = tournamentRepository;
+        this.matchResultRepository = matchResultRepository;
         this.ratingCalculator = ratingCalculator;
         this.playerManager = playerManager;
+        this.leaderboardManager = leaderboardManager;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
     }
 
     public Optional<PlayerRatingAdjustment> getRatingByPlayerId(Integer playerId) {
-       final Page<PlayerRatingAdjustment> ratingHistory =
-           playerRatingAdjustmentRepository.findByPlayerId(playerId,
-                   PageRequest.of(0, 1, Sort.Direction.DESC, "adjustmentDate"));
+        return playerCurrentRatingRepository.findById(playerId)
+                .map(PlayerCurrentRating::getPlayerRatingAdjustmentId)
+                .flatMap(playerRatingAdjustmentRepository::findById);
+    }
 
-       return ratingHistory.get().findFirst();
+    /**
+     * Finds the latest rating of each of the given players with a constant number of queries, instead of calling
+     * getRatingByPlayerId for each one
+     *
+     * @param playerIdList players whose ratings we want
+     * @return a map of player ID to latest rating.  players without a rating are not included
+     */
+    public Map<Integer, PlayerRatingAdjustment> getRatingByPlayerIdList(final Collection<Integer> playerIdList) {
+        if (playerIdList.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        final List<Integer> playerRatingAdjustmentIdList = playerCurrentRatingRepository.findAllById(playerIdList)
+                .stream()
+                .map(PlayerCurrentRating::getPlayerRatingAdjustmentId)
+                .collect(Collectors.toList());
+        if (playerRatingAdjustmentIdList.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return playerRatingAdjustmentRepository.findAllById(playerRatingAdjustmentIdList).stream()
+                .collect(Collectors.toMap(PlayerRatingAdjustment::getPlayerId, Function.identity()));
     }
 
     public Optional<PlayerRatingAdjustment> getRating(String searchTerm) {
@@ -67,12 +146,79 @@ public class RatingManager {
         return player.map(Player::getPlayerId).flatMap(this::getRatingByPlayerId);
     }
 
-    public List<PlayerRatingAdjustment> getRatingHistoryByPlayerId(Integer playerId, int size) {
-        Page<PlayerRatingAdjustment> ratingHistory =
-            playerRatingAdjustmentRepository.findByPlayerId(playerId,
-                PageRequest.of(0, size, Sort.Direction.DESC, "adjustmentDate"));
+    /**
+     * Same as getRating, but for many players at once.  The players and their ratings are each read with a constant
+     * number of queries, no matter how many players there are.
+     *
+     * @param currentRatingRequest players by user name and/or by ID.  a player may be given more than once.
+     * @return a line item for each player in the request, with the rating, or the reason there is no rating
+     * @throws IllegalArgumentException if there are more than MAX_CURRENT_RATING_REQUEST_SIZE players
+     */
+    public CurrentRatingResponse getRatingList(final CurrentRatingRequest currentRatingRequest) {
+        final List<String> userNameList = Optional.ofNullable(currentRatingRequest.getUserNameList())
+                .orElse(Collections.emptyList());
+        final List<Integer> playerIdList = Optional.ofNullable(currentRatingRequest.getPlayerIdList())
+                .orElse(Collections.emptyList());
+        if (userNameList.size() + playerIdList.size() > MAX_CURRENT_RATING_REQUEST_SIZE) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Cannot look up more than {0,number,#} players at once", MAX_CURRENT_RATING_REQUEST_SIZE));
+        }
+
+        final Map<String, Player> playerByUserNameMap = playerManager.getPlayerMap(new HashSet<>(userNameList));
+        final Map<Integer, Player> playerByIdMap = playerManager.getPlayerMapById(new HashSet<>(playerIdList));
+
+        final Set<Integer> foundPlayerIdSet = new HashSet<>(playerByIdMap.keySet());
+        playerByUserNameMap.values().forEach(player -> foundPlayerIdSet.add(player.getPlayerId()));
+        final Map<Integer, PlayerRatingAdjustment> ratingMap = getRatingByPlayerIdList(foundPlayerIdSet);
+
+        final List<CurrentRatingResponseLineItem> currentRatingResponseList = new ArrayList<>();
+        userNameList.forEach(userName -> {
+            final CurrentRatingResponseLineItem lineItem = new CurrentRatingResponseLineItem();
+            lineItem.setUserName(userName);
+            setCurrentRating(lineItem, playerByUserNameMap.get(userName), ratingMap);
+            currentRatingResponseList.add(lineItem);
+        });
+        playerIdList.forEach(playerId -> {
+            final CurrentRatingResponseLineItem lineItem = new CurrentRatingResponseLineItem();
+            lineItem.setPlayerId(playerId);
+            setCurrentRating(lineItem, playerByIdMap.get(playerId), ratingMap);
+            currentRatingResponseList.add(lineItem);
+        });
+
+        final CurrentRatingResponse currentRatingResponse = new CurrentRatingResponse();
+        currentRatingResponse.setCurrentRatingResponseList(currentRatingResponseList);
+        return currentRatingResponse;
+    }
+
+    /**
+     * called exclusively by getRatingList to fill in a line item
+     *
+     * @param lineItem line item to fill in
+     * @param player player of the line item, or null if the player does not exist
+     * @param ratingMap current ratings of the players, by player ID
+     */
+    private void setCurrentRating(final CurrentRatingResponseLineItem lineItem, final Player player,
+            final Map<Integer, PlayerRatingAdjustment> ratingMap) {
+        if (player == null) {
+            lineItem.setProcessed(false);
+            lineItem.setRejectReason(CurrentRatingResponseLineItem.REJECT_REASON_INVALID_PLAYER);
+            return;
+        }
+        lineItem.setUserName(player.getUserName());
+        lineItem.setPlayerId(player.getPlayerId());
+
+        final PlayerRatingAdjustment rating = ratingMap.get(player.getPlayerId());
+        if (rating == null) {
+            lineItem.setProcessed(false);
+            lineItem.setRejectReason(CurrentRatingResponseLineItem.REJECT_REASON_NO_RATING);
+            return;
+        }
+        lineItem.setRating(rating);
+        lineItem.setProcessed(true);
+    }
 
-        return ratingHistory.getContent();
+    public List<PlayerRatingAdjustment> getRatingHistoryByPlayerId(Integer playerId, int size) {
+        return playerRatingAdjustmentRepository.findRatingHistoryByPlayerId(playerId, PageRequest.of(0, size));
     }
 
     public List<PlayerRatingAdjustment> getRatingHistory(String searchTerm, int size) {
@@ -82,8 +228,249 @@ public class RatingManager {
                 Collections.emptyList());
     }
 
+    /**
+     * @param search can be ID, username, or {firstname lastname}
+     * @return
+     */
+    public Optional<Player> getPlayer(final String search) {
+        return playerManager.getPlayer(search);
+    }
+
+    /**
+     * Gets one page of a player's rating history, latest first.  Unlike getRatingHistory, this can go back through
+     * the whole history one page at a time.  Each page starts where the previous one ended, so a page costs the same
+     * no matter how far back it is.
+     *
+     * @param searchTerm can be ID, username, or {firstname lastname}
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param size number of adjustments on the page, up to MAX_HISTORY_PAGE_SIZE
+     * @return the page, or empty if the player does not exist
+     * @throws IllegalArgumentException if the cursor is not one returned by this method
+     */
+    public Optional<RatingHistoryResponse> getRatingHistoryPage(final String searchTerm, final String cursor,
+            final int size) {
+        final Optional<Player> player = playerManager.getPlayer(searchTerm);
+        if (!player.isPresent()) {
+            return Optional.empty();
+        }
+        final Integer playerId = player.get().getPlayerId();
+
+        // get one more than asked for to tell if there is a next page
+        final int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        final PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        final List<PlayerRatingAdjustment> adjustmentList;
+        if (cursor == null || cursor.isEmpty()) {
+            adjustmentList = playerRatingAdjustmentRepository
+                    .findRatingHistoryByPlayerId(playerId, pageRequest);
+        } else {
+            final PlayerRatingAdjustment last = parseRatingHistoryCursor(cursor);
+            adjustmentList = playerRatingAdjustmentRepository.findRatingHistoryByPlayerIdBefore(playerId,
+                    last.getAdjustmentDate(), last.getPlayerRatingAdjustmentId(), pageRequest);
+        }
+
+        final RatingHistoryResponse ratingHistoryResponse = new RatingHistoryResponse();
+        ratingHistoryResponse.setPlayerId(playerId);
+        if (adjustmentList.size() > pageSize) {
+            final List<PlayerRatingAdjustment> page = adjustmentList.subList(0, pageSize);
+            ratingHistoryResponse.setPlayerRatingAdjustmentList(page);
+            ratingHistoryResponse.setNextCursor(formatRatingHistoryCursor(page.get(pageSize - 1)));
+        } else {
+            ratingHistoryResponse.setPlayerRatingAdjustmentList(adjustmentList);
+        }
+        return Optional.of(ratingHistoryResponse);
+    }
+
+    /**
+     * the cursor is the adjustment date and ID of the last adjustment on the page.  it is encoded so that clients
+     * treat it as opaque.
+     */
+    private String formatRatingHistoryCursor(final PlayerRatingAdjustment playerRatingAdjustment) {
+        final String cursor = playerRatingAdjustment.getAdjustmentDate().getTime() + "_" +
+                playerRatingAdjustment.getPlayerRatingAdjustmentId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return an adjustment with only the adjustment date and ID set
+     */
+    private PlayerRatingAdjustment parseRatingHistoryCursor(final String cursor) {
+        final String message = MessageFormat.format("Invalid cursor \"{0}\"", cursor);
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] part = decoded.split("_");
+            if (part.length == 2) {
+                final PlayerRatingAdjustment last = new PlayerRatingAdjustment();
+                last.setAdjustmentDate(new Date(Long.parseLong(part[0])));
+                last.setPlayerRatingAdjustmentId(Integer.valueOf(part[1]));
+                return last;
+            }
+        } catch (IllegalArgumentException ex) {
+            // NumberFormatException is an IllegalArgumentException too
+            throw new IllegalArgumentException(message, ex);
+        }
+        throw new IllegalArgumentException(message);
+    }
+
+    /**
+     * Writes the whole rating history of a player as a JSON array, latest first.  The adjustments are read from a
+     * database cursor and written one at a time, and each one is detached once it is written, so only a fetch's
+     * worth of adjustments is in memory at any time.
+     *
+     * @param playerId player whose history to write
+     * @param outputStream where the JSON goes.  it is not closed.
+     */
+    @Transactional(readOnly = true)
+    public void writeRatingHistory(final Integer playerId, final OutputStream outputStream) throws IOException {
+        try (Stream<PlayerRatingAdjustment> adjustmentStream = playerRatingAdjustmentRepository
+                .streamRatingHistoryByPlayerId(playerId);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            final Iterator<PlayerRatingAdjustment> iterator = adjustmentStream.iterator();
+            while (iterator.hasNext()) {
+                final PlayerRatingAdjustment playerRatingAdjustment = iterator.next();
+                generator.writeObject(playerRatingAdjustment);
+                entityManager.detach(playerRatingAdjustment);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    @Transactional
     public PlayerRatingAdjustment addPlayerRatingAdjustment(PlayerRatingAdjustment playerRatingAdjustment) {
-        return playerRatingAdjustmentRepository.save(playerRatingAdjustment);
+        final PlayerRatingAdjustment savedAdjustment = playerRatingAdjustmentRepository.save(playerRatingAdjustment);
+        updateCurrentRating(Collections.singletonList(savedAdjustment));
+        return savedAdjustment;
+    }
+
+    /**
+     * Same as addPlayerRatingAdjustment, but saves the whole list at once, so that the inserts can be sent to the
+     * database in JDBC batches
+     *
+     * @param playerRatingAdjustmentList adjustments to save
+     * @return saved adjustments, in the same order
+     */
+    @Transactional
+    public List<PlayerRatingAdjustment> addPlayerRatingAdjustmentList(
+            final List<PlayerRatingAdjustment> playerRatingAdjustmentList) {
+        final List<PlayerRatingAdjustment> savedAdjustmentList =
+                playerRatingAdjustmentRepository.saveAll(playerRatingAdjustmentList);
+        updateCurrentRating(savedAdjustmentList);
+        return savedAdjustmentList;
+    }
+
+    private PlayerCurrentRating toCurrentRating(final PlayerRatingAdjustment playerRatingAdjustment) {
+        final PlayerCurrentRating currentRating = new PlayerCurrentRating();
+        currentRating.setPlayerId(playerRatingAdjustment.getPlayerId());
+        currentRating.setPlayerRatingAdjustmentId(playerRatingAdjustment.getPlayerRatingAdjustmentId());
+        currentRating.setTournamentId(playerRatingAdjustment.getTournamentId());
+        currentRating.setAdjustmentDate(playerRatingAdjustment.getAdjustmentDate());
+        currentRating.setFinalRating(playerRatingAdjustment.getFinalRating());
+        return currentRating;
+    }
+
+    /**
+     * @param playerRatingAdjustmentList saved adjustments, possibly more than one per player
+     * @return the latest of the adjustments for each player, keyed by player ID
+     */
+    private Map<Integer, PlayerCurrentRating> toCurrentRatingMap(
+            final Collection<PlayerRatingAdjustment> playerRatingAdjustmentList) {
+        final Map<Integer, PlayerCurrentRating> map = new HashMap<>();
+        playerRatingAdjustmentList.forEach(adj -> map.merge(adj.getPlayerId(), toCurrentRating(adj),
+                BinaryOperator.maxBy(CURRENT_RATING_ORDER)));
+        return map;
+    }
+
+    private void copyCurrentRating(final PlayerCurrentRating from, final PlayerCurrentRating to) {
+        to.setPlayerRatingAdjustmentId(from.getPlayerRatingAdjustmentId());
+        to.setTournamentId(from.getTournamentId());
+        to.setAdjustmentDate(from.getAdjustmentDate());
+        to.setFinalRating(from.getFinalRating());
+    }
+
+    /**
+     * Brings PlayerCurrentRating up to date after some adjustments have been saved.  An adjustment only replaces a
+     * player's current rating if it is at least as recent, so entering an old tournament late does not change anyone's
+     * current rating.
+     *
+     * @param savedAdjustmentList adjustments that have already been saved, so they have IDs
+     */
+    private void updateCurrentRating(final Collection<PlayerRatingAdjustment> savedAdjustmentList) {
+        final Map<Integer, PlayerCurrentRating> currentRatingMap = toCurrentRatingMap(savedAdjustmentList);
+        if (currentRatingMap.isEmpty()) {
+            return;
+        }
+
+        // existing records are updated in place; whatever is left in the map is for players without a current rating
+        final List<PlayerCurrentRating> changedList = new ArrayList<>();
+        playerCurrentRatingRepository.findAllById(currentRatingMap.keySet()).forEach(existing -> {
+            final PlayerCurrentRating currentRating = currentRatingMap.remove(existing.getPlayerId());
+            if (CURRENT_RATING_ORDER.compare(currentRating, existing) >= 0) {
+                copyCurrentRating(currentRating, existing);
+                changedList.add(existing);
+            }
+        });
+        changedList.addAll(playerCurrentRatingRepository.saveAll(currentRatingMap.values()));
+        leaderboardManager.updateRating(changedList);
+    }
+
+    /**
+     * called exclusively by rebuildCurrentRating to replace the existing PlayerCurrentRating records
+     *
+     * @param existingList the current ratings that are being rebuilt
+     * @param rebuiltMap the new current ratings, keyed by player ID
+     */
+    private void replaceCurrentRating(final List<PlayerCurrentRating> existingList,
+            final Map<Integer, PlayerCurrentRating> rebuiltMap) {
+        final Map<Integer, PlayerCurrentRating> newMap = new HashMap<>(rebuiltMap);
+        final List<PlayerCurrentRating> obsoleteList = new ArrayList<>();
+        final List<PlayerCurrentRating> changedList = new ArrayList<>();
+
+        existingList.forEach(existing -> {
+            final PlayerCurrentRating currentRating = newMap.remove(existing.getPlayerId());
+            if (currentRating == null) {
+                obsoleteList.add(existing);
+            } else {
+                copyCurrentRating(currentRating, existing);
+                changedList.add(existing);
+            }
+        });
+        playerCurrentRatingRepository.deleteAll(obsoleteList);
+        changedList.addAll(playerCurrentRatingRepository.saveAll(newMap.values()));
+
+        leaderboardManager.removeRating(obsoleteList.stream()
+                .map(PlayerCurrentRating::getPlayerId)
+                .collect(Collectors.toList()));
+        leaderboardManager.updateRating(changedList);
+    }
+
+    /**
+     * Regenerates PlayerCurrentRating of every player from the rating history.  This is needed if rating adjustments
+     * were written without going through RatingManager.
+     *
+     * @return number of players who have a current rating
+     */
+    @Transactional
+    public int rebuildCurrentRating() {
+        final Map<Integer, PlayerCurrentRating> rebuiltMap =
+                toCurrentRatingMap(playerRatingAdjustmentRepository.findLatest());
+        replaceCurrentRating(playerCurrentRatingRepository.findAll(), rebuiltMap);
+        return rebuiltMap.size();
+    }
+
+    /**
+     * Same as rebuildCurrentRating(), but only for the given players
+     *
+     * @param playerIdList players whose current rating needs to be regenerated
+     */
+    @Transactional
+    public void rebuildCurrentRating(final Collection<Integer> playerIdList) {
+        if (playerIdList.isEmpty()) {
+            return;
+        }
+        final Map<Integer, PlayerCurrentRating> rebuiltMap =
+                toCurrentRatingMap(playerRatingAdjustmentRepository.findLatestByPlayerIdIn(playerIdList));
+        replaceCurrentRating(playerCurrentRatingRepository.findAllById(playerIdList), rebuiltMap);
     }
 
     public RatingAdjustmentResponse verifyRatingByCsv(final String csv)
@@ -98,7 +485,7 @@ public class RatingManager {
         final String tournamentName = ratingAdjustmentRequest.getTournamentName();
 
         if (getTournament(tournamentName).isPresent()) {
-            throw new DuplicateTournamentException(MessageFormat.format("Tournament '{0}' has already been recorded",
+            throw new DuplicateTournamentException(MessageFormat.format("Tournament ''{0}'' has already been recorded",
                 tournamentName));
         }
 
@@ -162,6 +549,42 @@ public class RatingManager {
         }
     }
 
+    /**
+     * called by convertCsvToRatingAdjustmentRequest and adjustRatingByCsvStream to read the first three lines of the
+     * CSV into the tournament name and date of the request
+     */
+    private void readCsvHeader(final BufferedReader br, final RatingAdjustmentRequest result)
+            throws IOException, RatingInputFormatException {
+        processHeaderLine(br.readLine(), 1, "tournament name", result::setTournamentName);
+        processHeaderLine(br.readLine(), 2, "tournament date", (s) -> {
+            try {
+                result.setTournamentDate(df.parse(s));
+            } catch (ParseException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        processHeaderLine(br.readLine(), 3, "player rating header", (s) -> {
+            if (!s.equals("rating")) {
+                throw new RuntimeException();
+            }
+        });
+    }
+
+    /**
+     * called by convertCsvToRatingAdjustmentRequest and adjustRatingByCsvStream to convert a player line of the CSV
+     */
+    private RatingAdjustmentRequestLineItem toRatingAdjustmentRequestLineItem(final String line) {
+        final RatingAdjustmentRequestLineItem playerRating = new RatingAdjustmentRequestLineItem();
+        final String[] record = CsvTable.toArray(line);
+        if (record.length > 0) {
+            playerRating.setPlayerUserName(record[0].trim());
+        }
+        if (record.length > 1) {
+            playerRating.setRating(record[1].trim());
+        }
+        return playerRating;
+    }
+
     /**
      * @param csv has two columns
      *     <pre>
@@ -184,39 +607,13 @@ public class RatingManager {
                 final StringReader sr = new StringReader(csv);
                 final BufferedReader br = new BufferedReader(sr)
         ) {
-            processHeaderLine(br.readLine(), 1, "tournament name", result::setTournamentName);
-            processHeaderLine(br.readLine(), 2, "tournament date", (s) -> {
-                try {
-                    result.setTournamentDate(df.parse(s));
-                } catch (ParseException ex) {
-                    throw new RuntimeException(ex);
-                }
-            });
-            processHeaderLine(br.readLine(), 3, "player rating header", (s) -> {
-                if (!s.equals("rating")) {
-                    throw new RuntimeException();
-                }
-            });
+            readCsvHeader(br, result);
 
             while(true) {
-                final RatingAdjustmentRequestLineItem playerRating = new RatingAdjustmentRequestLineItem();
                 final String line = br.readLine();
                 if(line == null) break;
 
-                final String[] record = CsvTable.toArray(line);
-
-                try {
-                    if (record.length > 0) {
-                        playerRating.setPlayerUserName(record[0].trim());
-                    }
-                    if (record.length > 1) {
-                        playerRating.setRating(record[1].trim());
-                    }
-
-                    ratingAdjustmentRequestLineItemList.add(playerRating);
-                } catch (Exception ex) {
-                    // can't do much
-                }
+                ratingAdjustmentRequestLineItemList.add(toRatingAdjustmentRequestLineItem(line));
             }
         }
 
@@ -231,6 +628,138 @@ public class RatingManager {
         return adjustRating(ratingAdjustmentRequest, autoAddPlayer);
     }
 
+    /**
+     * Same as adjustRatingByCsv, but reads the CSV a line at a time instead of holding all of it in memory, so that
+     * large files such as a federation's initial load can be entered.  Lines are validated and saved CSV_CHUNK_SIZE at
+     * a time, and the persistence context is cleared after each chunk.
+     *
+     * Like adjustRatingByCsv, nothing is saved unless every line is valid: once a line is rejected, no more chunks are
+     * saved, and the transaction is rolled back so that the chunks which were already saved are undone.
+     *
+     * @param csv the CSV described in convertCsvToRatingAdjustmentRequest, in UTF-8
+     * @return the tournament and the number of adjustments saved.  only rejected lines are returned, and at most
+     * CSV_CHUNK_SIZE of them; reading stops once that many have been rejected
+     */
+    @Transactional
+    public RatingAdjustmentResponse adjustRatingByCsvStream(final InputStream csv, final boolean autoAddPlayer)
+            throws IOException, RatingInputFormatException, DuplicateTournamentException {
+        final Function<String, Optional<Player>> playerFinder = autoAddPlayer ?
+                playerManager::getOrCreatePlayer : playerManager::getPlayer;
+        final RatingAdjustmentRequest header = new RatingAdjustmentRequest();
+        final List<RatingAdjustmentResponseLineItem> rejectedList = new ArrayList<>();
+        final List<RatingAdjustmentRequestLineItem> chunk = new ArrayList<>(CSV_CHUNK_SIZE);
+        Integer tournamentId = null;
+        int adjustmentCount = 0;
+
+        try (final BufferedReader br = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            readCsvHeader(br, header);
+            final String tournamentName = header.getTournamentName();
+            if (getTournament(tournamentName).isPresent()) {
+                throw new DuplicateTournamentException(MessageFormat.format(
+                        "Tournament \"{0}\" has already been recorded", tournamentName));
+            }
+
+            String line = br.readLine();
+            while (line != null && rejectedList.size() < CSV_CHUNK_SIZE) {
+                chunk.add(toRatingAdjustmentRequestLineItem(line));
+                line = br.readLine();
+                if (chunk.size() < CSV_CHUNK_SIZE && line != null) {
+                    continue;
+                }
+
+                final List<RatingAdjustmentResponseLineItem> lineItemList =
+                        processRatingAdjustmentChunk(chunk, playerFinder, tournamentId);
+                chunk.clear();
+                lineItemList.stream()
+                        .filter(lineItem -> !lineItem.isProcessed())
+                        .limit(CSV_CHUNK_SIZE - rejectedList.size())
+                        .forEach(rejectedList::add);
+                if (!rejectedList.isEmpty()) {
+                    continue;
+                }
+
+                if (tournamentId == null) {
+                    tournamentId = addTournament(header).getTournamentId();
+                }
+                final List<PlayerRatingAdjustment> adjustmentList = new ArrayList<>(lineItemList.size());
+                for (RatingAdjustmentResponseLineItem lineItem : lineItemList) {
+                    final PlayerRatingAdjustment adjustment = lineItem.getAdjustmentResult();
+                    adjustment.setTournamentId(tournamentId);
+                    adjustment.setAdjustmentDate(header.getTournamentDate());
+                    adjustmentList.add(adjustment);
+                }
+                addPlayerRatingAdjustmentList(adjustmentList);
+                adjustmentCount += adjustmentList.size();
+
+                // the saved adjustments are not needed any more, so don't let them pile up in the persistence context
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        final RatingAdjustmentResponse result = new RatingAdjustmentResponse();
+        result.setTournamentName(header.getTournamentName());
+        result.setTournamentDate(header.getTournamentDate());
+        result.setRatingAdjustmentResponseList(rejectedList);
+        if (rejectedList.isEmpty()) {
+            // a CSV without any players still records the tournament
+            result.setTournamentId(tournamentId != null ? tournamentId : addTournament(header).getTournamentId());
+            result.setAdjustmentCount(adjustmentCount);
+            result.setProcessed(true);
+        } else {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            result.setAdjustmentCount(0);
+            result.setProcessed(false);
+        }
+        return result;
+    }
+
+    /**
+     * called exclusively by adjustRatingByCsvStream to record the tournament from the CSV header
+     */
+    private Tournament addTournament(final RatingAdjustmentRequest header) {
+        final Tournament tournament = new Tournament();
+        tournament.setName(header.getTournamentName());
+        tournament.setTournamentDate(header.getTournamentDate());
+        return tournamentRepository.save(tournament);
+    }
+
+    /**
+     * called exclusively by adjustRatingByCsvStream to validate one chunk of lines.  Same as
+     * processRatingAdjustmentResponseLineItemList, but the players are looked up for the whole chunk at once.
+     *
+     * @param tournamentId the tournament the earlier chunks were saved under, or null if none have been saved yet
+     */
+    private List<RatingAdjustmentResponseLineItem> processRatingAdjustmentChunk(
+            final List<RatingAdjustmentRequestLineItem> chunk,
+            final Function<String, Optional<Player>> playerFinder,
+            final Integer tournamentId) {
+        final Map<String, Player> playerMap = playerManager.getPlayerMap(chunk.stream()
+                .map(RatingAdjustmentRequestLineItem::getPlayerUserName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        // playerFinder is only needed for the players getPlayerMap did not find, such as those to be added
+        final Function<String, Optional<Player>> chunkPlayerFinder = userName -> {
+            if (userName == null) {
+                return Optional.empty();
+            }
+            final Optional<Player> player = playerMap.containsKey(userName) ?
+                    Optional.of(playerMap.get(userName)) : playerFinder.apply(userName);
+            player.ifPresent(p -> playerMap.put(userName, p));
+            return player;
+        };
+
+        final List<RatingAdjustmentResponseLineItem> lineItemList = chunk.stream()
+                .map(playerRating -> toRatingAdjustmentResponseLineItem(playerRating, chunkPlayerFinder))
+                .collect(Collectors.toList());
+
+        // the previous ratings are only needed once every line in the chunk is known to be valid
+        if (lineItemList.stream().allMatch(RatingAdjustmentResponseLineItem::isProcessed)) {
+            setPreviousRating(lineItemList, tournamentId);
+        }
+        return lineItemList;
+    }
+
     /**
      * called exclusively by adjustRatingWithPlayerFinder to create a RatingAdjustmentResponseLineItem
      * for every RatingAdjustmentRequestLineItem
@@ -241,47 +770,77 @@ public class RatingManager {
             final List<RatingAdjustmentRequestLineItem> ratingAdjustmentRequestLineItemList,
             final Function<String, Optional<Player>> playerFinder) {
         final List<RatingAdjustmentResponseLineItem> ratingAdjustmentResponseLineItemList =
-                new ArrayList<>(ratingAdjustmentRequestLineItemList.size());
-        for (RatingAdjustmentRequestLineItem playerRating : ratingAdjustmentRequestLineItemList) {
-            final RatingAdjustmentResponseLineItem ratingAdjustmentResponseLineItem = new RatingAdjustmentResponseLineItem();
-            ratingAdjustmentResponseLineItemList.add(ratingAdjustmentResponseLineItem);
-            ratingAdjustmentResponseLineItem.setOriginalRequest(playerRating);
-
-            final PlayerRatingAdjustment playerRatingAdjustment = new PlayerRatingAdjustment();
+                ratingAdjustmentRequestLineItemList.stream()
+                        .map(playerRating -> toRatingAdjustmentResponseLineItem(playerRating, playerFinder))
+                        .collect(Collectors.toList());
 
-            final String playerUserName = playerRating.getPlayerUserName();
-            final Optional<Player> player = playerFinder.apply(playerUserName);
-            if (player.isPresent()) {
-                playerRatingAdjustment.setPlayerId(player.get().getPlayerId());
-            } else {
-                // we have decided to not throw exception in this case since we are prepared to handle cases where
-                // player does not exist.  this is following the principle that exceptions are only meant for
-                // unexpected errors.
-                ratingAdjustmentResponseLineItem.setProcessed(false);
-                ratingAdjustmentResponseLineItem.setRejectReason(
-                        RatingAdjustmentResponseLineItem.REJECT_REASON_INVALID_PLAYER);
-                continue;
-            }
+        // nothing has been saved for this tournament yet
+        setPreviousRating(ratingAdjustmentResponseLineItemList, null);
+        return ratingAdjustmentResponseLineItemList;
+    }
 
-            try {
-                final Integer rating = Integer.parseInt(playerRating.getRating());
-                final Integer prevRating = getRatingByPlayerId(player.get().getPlayerId())
-                        .map(PlayerRatingAdjustment::getFinalRating)
-                        .orElse(0);
-                playerRatingAdjustment.setInitialRating(prevRating);
-                playerRatingAdjustment.setFirstPassRating(prevRating);
-                playerRatingAdjustment.setFinalRating(rating);
-            } catch (Exception ex) {
-                ratingAdjustmentResponseLineItem.setProcessed(false);
-                ratingAdjustmentResponseLineItem.setRejectReason(RatingAdjustmentResponseLineItem.REJECT_REASON_INVALID_RATING);
-                continue;
-            }
+    /**
+     * called by processRatingAdjustmentChunk and processRatingAdjustmentResponseLineItemList to check the player and
+     * the rating of one line.  If they are valid, the adjustment result has the player ID and the final rating; the
+     * previous rating is filled in afterwards by setPreviousRating.
+     */
+    private RatingAdjustmentResponseLineItem toRatingAdjustmentResponseLineItem(
+            final RatingAdjustmentRequestLineItem playerRating,
+            final Function<String, Optional<Player>> playerFinder) {
+        final RatingAdjustmentResponseLineItem ratingAdjustmentResponseLineItem = new RatingAdjustmentResponseLineItem();
+        ratingAdjustmentResponseLineItem.setOriginalRequest(playerRating);
+
+        final Optional<Player> player = playerFinder.apply(playerRating.getPlayerUserName());
+        if (!player.isPresent()) {
+            // we have decided to not throw exception in this case since we are prepared to handle cases where
+            // player does not exist.  this is following the principle that exceptions are only meant for
+            // unexpected errors.
+            ratingAdjustmentResponseLineItem.setProcessed(false);
+            ratingAdjustmentResponseLineItem.setRejectReason(RatingAdjustmentResponseLineItem.REJECT_REASON_INVALID_PLAYER);
+            return ratingAdjustmentResponseLineItem;
+        }
 
-            ratingAdjustmentResponseLineItem.setAdjustmentResult(playerRatingAdjustment);
-            ratingAdjustmentResponseLineItem.setProcessed(true);
+        final PlayerRatingAdjustment playerRatingAdjustment = new PlayerRatingAdjustment();
+        playerRatingAdjustment.setPlayerId(player.get().getPlayerId());
+        try {
+            playerRatingAdjustment.setFinalRating(Integer.parseInt(playerRating.getRating()));
+        } catch (Exception ex) {
+            ratingAdjustmentResponseLineItem.setProcessed(false);
+            ratingAdjustmentResponseLineItem.setRejectReason(RatingAdjustmentResponseLineItem.REJECT_REASON_INVALID_RATING);
+            return ratingAdjustmentResponseLineItem;
         }
 
-        return ratingAdjustmentResponseLineItemList;
+        ratingAdjustmentResponseLineItem.setAdjustmentResult(playerRatingAdjustment);
+        ratingAdjustmentResponseLineItem.setProcessed(true);
+        return ratingAdjustmentResponseLineItem;
+    }
+
+    /**
+     * called by processRatingAdjustmentChunk and processRatingAdjustmentResponseLineItemList to set the initial rating
+     * of each valid line to the rating the player had before the adjustment, which is also what a recomputation uses.
+     * A player on more than one line starts from that rating on every one of them, even if an earlier line has already
+     * been saved.
+     *
+     * @param tournamentId the tournament the earlier lines were saved under, or null if none have been saved yet.  a
+     * player whose current rating comes from it is given the initial rating of that adjustment instead.
+     */
+    private void setPreviousRating(final List<RatingAdjustmentResponseLineItem> lineItemList,
+            final Integer tournamentId) {
+        final Map<Integer, PlayerRatingAdjustment> prevRatingMap = getRatingByPlayerIdList(lineItemList.stream()
+                .filter(RatingAdjustmentResponseLineItem::isProcessed)
+                .map(lineItem -> lineItem.getAdjustmentResult().getPlayerId())
+                .collect(Collectors.toSet()));
+        lineItemList.stream()
+                .filter(RatingAdjustmentResponseLineItem::isProcessed)
+                .forEach(lineItem -> {
+                    final PlayerRatingAdjustment adjustment = lineItem.getAdjustmentResult();
+                    final Integer prevRating = Optional.ofNullable(prevRatingMap.get(adjustment.getPlayerId()))
+                            .map(prev -> tournamentId != null && tournamentId.equals(prev.getTournamentId()) ?
+                                    prev.getInitialRating() : prev.getFinalRating())
+                            .orElse(0);
+                    adjustment.setInitialRating(prevRating);
+                    adjustment.setFirstPassRating(prevRating);
+                });
     }
 
     @Transactional
@@ -316,16 +875,20 @@ public class RatingManager {
 
             result.setTournamentId(savedTournament.getTournamentId());
 
-            ratingAdjustmentResponseLineItemList.forEach(adj -> {
-                adj.getAdjustmentResult().setTournamentId(savedTournament.getTournamentId());
-                adj.getAdjustmentResult().setAdjustmentDate(tournamentDate);
-
-                // .getAdjustmentResult is where we keep the PlayerRatingAdjustment entities
-                final PlayerRatingAdjustment savedAdj = playerRatingAdjustmentRepository.save(
-                        adj.getAdjustmentResult());
-                // savedAdj has the ID
-                adj.setAdjustmentResult(savedAdj);
+            // .getAdjustmentResult is where we keep the PlayerRatingAdjustment entities
+            final List<PlayerRatingAdjustment> adjustmentList = ratingAdjustmentResponseLineItemList.stream()
+                    .map(RatingAdjustmentResponseLineItem::getAdjustmentResult)
+                    .collect(Collectors.toList());
+            adjustmentList.forEach(adjustment -> {
+                adjustment.setTournamentId(savedTournament.getTournamentId());
+                adjustment.setAdjustmentDate(tournamentDate);
             });
+
+            // savedAdjustmentList has the IDs, in the same order as the line items
+            final List<PlayerRatingAdjustment> savedAdjustmentList = addPlayerRatingAdjustmentList(adjustmentList);
+            for (int i = 0; i < savedAdjustmentList.size(); ++i) {
+                ratingAdjustmentResponseLineItemList.get(i).setAdjustmentResult(savedAdjustmentList.get(i));
+            }
             result.setRatingAdjustmentResponseList(ratingAdjustmentResponseLineItemList);
             result.setProcessed(true);
         } else {
@@ -338,6 +901,7 @@ public class RatingManager {
         return result;
     }
 
+    @Transactional
     public RatingAdjustmentResponse adjustRating(
             final RatingAdjustmentRequest ratingAdjustmentRequest, final boolean autoAddPlayer)
             throws DuplicateTournamentException {
@@ -376,6 +940,63 @@ public class RatingManager {
         return Optional.of(tournamentRepository.save(newTournament));
     }
 
+    /**
+     * Finds every match two players have played against each other.  The number of queries does not depend on the
+     * number of matches: one for the players, one for each player's wins, and one for the tournaments.
+     *
+     * @return the matches, latest first.  empty if either player does not exist
+     */
+    public Optional<HeadToHeadResponse> getHeadToHead(final String player1UserName, final String player2UserName) {
+        final Map<String, Player> playerMap = playerManager.getPlayerMap(
+                Arrays.asList(player1UserName, player2UserName));
+        final Player player1 = playerMap.get(player1UserName);
+        final Player player2 = playerMap.get(player2UserName);
+        if (player1 == null || player2 == null) {
+            return Optional.empty();
+        }
+
+        final List<MatchResult> player1WinList =
+                matchResultRepository.findByWinnerIdAndLoserId(player1.getPlayerId(), player2.getPlayerId());
+        final List<MatchResult> player2WinList =
+                matchResultRepository.findByWinnerIdAndLoserId(player2.getPlayerId(), player1.getPlayerId());
+        final List<MatchResult> matchResultList = new ArrayList<>(player1WinList);
+        matchResultList.addAll(player2WinList);
+
+        final Set<Integer> tournamentIdSet = matchResultList.stream()
+                .map(MatchResult::getTournamentId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        final Map<Integer, Tournament> tournamentMap = tournamentIdSet.isEmpty() ? Collections.emptyMap() :
+                tournamentRepository.findAllById(tournamentIdSet).stream()
+                        .collect(Collectors.toMap(Tournament::getTournamentId, Function.identity()));
+
+        final List<HeadToHeadResponseLineItem> headToHeadResponseList = matchResultList.stream().map(matchResult -> {
+            final HeadToHeadResponseLineItem lineItem = new HeadToHeadResponseLineItem();
+            final Tournament tournament = tournamentMap.get(matchResult.getTournamentId());
+            if (tournament != null) {
+                lineItem.setTournamentId(tournament.getTournamentId());
+                lineItem.setTournamentName(tournament.getName());
+                lineItem.setTournamentDate(tournament.getTournamentDate());
+            }
+            lineItem.setMatchResult(matchResult);
+            return lineItem;
+        }).sorted(Comparator.comparing(HeadToHeadResponseLineItem::getTournamentDate,
+                Comparator.nullsFirst(Comparator.<Date>naturalOrder()))
+                .thenComparing(lineItem -> lineItem.getMatchResult().getMatchResultId())
+                .reversed())
+                .collect(Collectors.toList());
+
+        final HeadToHeadResponse result = new HeadToHeadResponse();
+        result.setPlayer1Id(player1.getPlayerId());
+        result.setPlayer1UserName(player1.getUserName());
+        result.setPlayer2Id(player2.getPlayerId());
+        result.setPlayer2UserName(player2.getUserName());
+        result.setPlayer1WinCount(player1WinList.size());
+        result.setPlayer2WinCount(player2WinList.size());
+        result.setHeadToHeadResponseList(headToHeadResponseList);
+        return Optional.of(result);
+    }
+
     /**
      * Generate a MatchResult object which contains the rating delta.  This requires a map of players and their
      * final ratings (from their latest adjustment), in the form of PlayerRatingAdjustment.
@@ -398,6 +1019,7 @@ public class RatingManager {
 
         MatchResult matchResult = new MatchResult();
         matchResult.setEventName(tournamentResultRequestLineItem.getEventName());
+        matchResult.setResultString(tournamentResultRequestLineItem.getResultString());
         matchResult.setWinnerId(winnerRating.getPlayerId());
         matchResult.setLoserId(loserRating.getPlayerId());
         matchResult.setWinnerRatingDelta(winnerRatingDelta);
@@ -406,6 +1028,9 @@ public class RatingManager {
     }
 
     /**
+     * The deltas are added up in a RatingDeltaAccumulator, so the new PlayerRatingAdjustment objects are only created
+     * once per player, at the end.
+     *
      * @param playerRatingAdjustmentMap
      * @param matchResultList
      * @return a new map of ratings.  it uses player Id as key because it is only used internally for processing
@@ -413,49 +1038,186 @@ public class RatingManager {
     public Map<Integer, PlayerRatingAdjustment> applyMatchResultList(
             final Map<String, PlayerRatingAdjustment> playerRatingAdjustmentMap,
             final List<MatchResult> matchResultList) {
-        final Map<Integer, PlayerRatingAdjustment> result = new HashMap<>();
+        final RatingDeltaAccumulator ratingDeltaAccumulator =
+                new RatingDeltaAccumulator(playerRatingAdjustmentMap.values());
+        ratingDeltaAccumulator.addMatchResultList(matchResultList);
+        return ratingDeltaAccumulator.getPlayerRatingAdjustmentMap();
+    }
 
-        // make a copy of the PlayerRatingAdjustment map
-        playerRatingAdjustmentMap.values().forEach((v) -> {
-            PlayerRatingAdjustment newRating;
-            try {
-                newRating = (PlayerRatingAdjustment)v.clone();
-            } catch (CloneNotSupportedException ex) {
-                newRating = new PlayerRatingAdjustment();
-            }
-            newRating.setPlayerRatingAdjustmentId(null);
-            newRating.setInitialRating(v.getFinalRating());
-            newRating.setFirstPassRating(v.getFinalRating());
-            newRating.setFinalRating(v.getFinalRating());
-            result.put(v.getPlayerId(), newRating);
-        });
+    /**
+     * Processes the matches of a tournament in two passes.
+     *
+     * Pass one exchanges points between rated players using their initial ratings.  From that, every player gets a
+     * first pass rating:
+     * <ul>
+     *     <li>a rated player who gained less than UNDERRATED_GAIN keeps the initial rating</li>
+     *     <li>a rated player who gained less than HIGHLY_UNDERRATED_GAIN gets the pass one rating</li>
+     *     <li>a rated player who gained more gets the average of the pass one rating and the rating estimated from
+     *     their best win and worst loss, if that is higher</li>
+     *     <li>an unrated player gets the rating estimated from their best win and worst loss against rated players, or
+     *     0 if they have not played a rated player</li>
+     * </ul>
+     * The best win and worst loss are the pass one ratings of the highest rated opponent beaten and of the lowest
+     * rated opponent lost to; the estimate is halfway between them, or whichever one there is.
+     *
+     * Pass two exchanges points between everyone using the first pass ratings, and adds them to the first pass
+     * ratings to get the final ratings.  The winnerRatingDelta of every MatchResult is set to the pass two delta.
+     *
+     * The players are given dense indexes up front by a RatingDeltaAccumulator, rated players first, so each pass is a
+     * loop over int[].
+     *
+     * @param initialRatingList latest rating of every rated player in the tournament.  any other player in the
+     *                          matches is unrated
+     * @param matchResultList matches of the tournament
+     * @return a new map of ratings for everyone in initialRatingList or matchResultList, by player ID
+     */
+    public Map<Integer, PlayerRatingAdjustment> processMatchResultList(
+            final Collection<PlayerRatingAdjustment> initialRatingList,
+            final List<MatchResult> matchResultList) {
+        final RatingDeltaAccumulator playerIndex = new RatingDeltaAccumulator(initialRatingList);
+        final int ratedCount = playerIndex.getRatedCount();
+
+        // unrated players come after the rated ones
+        final int matchCount = matchResultList.size();
+        final int[] winnerIndexList = new int[matchCount];
+        final int[] loserIndexList = new int[matchCount];
+        for (int m = 0; m < matchCount; ++m) {
+            final MatchResult matchResult = matchResultList.get(m);
+            winnerIndexList[m] = playerIndex.addPlayer(matchResult.getWinnerId());
+            loserIndexList[m] = playerIndex.addPlayer(matchResult.getLoserId());
+        }
+        final int playerCount = playerIndex.getPlayerCount();
 
-        // now apply the new ratings
-        matchResultList.forEach(m -> {
-            final PlayerRatingAdjustment winnerRating = result.get(m.getWinnerId());
-            winnerRating.setFinalRating(winnerRating.getFinalRating() + m.getWinnerRatingDelta());
-            final PlayerRatingAdjustment loserRating = result.get(m.getLoserId());
-            loserRating.setFinalRating(loserRating.getFinalRating() - m.getWinnerRatingDelta());
-        });
+        final int[] initialRatingArray = new int[playerCount];
+        for (int p = 0; p < ratedCount; ++p) {
+            initialRatingArray[p] = playerIndex.getInitialRating(p).getFinalRating();
+        }
+
+        final int[] firstPassRatingArray =
+                calculateFirstPassRating(initialRatingArray, ratedCount, winnerIndexList, loserIndexList);
+
+        // pass two
+        final int[] winnerRatingArray = new int[matchCount];
+        final int[] loserRatingArray = new int[matchCount];
+        for (int m = 0; m < matchCount; ++m) {
+            winnerRatingArray[m] = firstPassRatingArray[winnerIndexList[m]];
+            loserRatingArray[m] = firstPassRatingArray[loserIndexList[m]];
+        }
+        final int[] winnerDeltaArray = ratingCalculator.calculateWinnerDelta(winnerRatingArray, loserRatingArray);
+        final int[] finalRatingArray = firstPassRatingArray.clone();
+        for (int m = 0; m < matchCount; ++m) {
+            finalRatingArray[winnerIndexList[m]] += winnerDeltaArray[m];
+            finalRatingArray[loserIndexList[m]] -= winnerDeltaArray[m];
+        }
 
+        for (int m = 0; m < matchCount; ++m) {
+            matchResultList.get(m).setWinnerRatingDelta(winnerDeltaArray[m]);
+        }
+
+        final Map<Integer, PlayerRatingAdjustment> result = new HashMap<>(playerCount * 4 / 3 + 1);
+        for (int index = 0; index < playerCount; ++index) {
+            final PlayerRatingAdjustment newRating = new PlayerRatingAdjustment();
+            final PlayerRatingAdjustment initialRating = playerIndex.getInitialRating(index);
+            if (initialRating != null) {
+                newRating.setTournamentId(initialRating.getTournamentId());
+                newRating.setAdjustmentDate(initialRating.getAdjustmentDate());
+            }
+            newRating.setPlayerId(playerIndex.getPlayerId(index));
+            newRating.setInitialRating(initialRatingArray[index]);
+            newRating.setFirstPassRating(firstPassRatingArray[index]);
+            newRating.setFinalRating(finalRatingArray[index]);
+            result.put(newRating.getPlayerId(), newRating);
+        }
         return result;
     }
 
+    /**
+     * called exclusively by processMatchResultList to run pass one
+     *
+     * @param initialRatingArray initial rating of each player, by index
+     * @param ratedCount players with an index below this are rated
+     * @param winnerIndexList index of the winner of each match
+     * @param loserIndexList index of the loser of each match
+     * @return first pass rating of each player, by index
+     */
+    private int[] calculateFirstPassRating(final int[] initialRatingArray, final int ratedCount,
+            final int[] winnerIndexList, final int[] loserIndexList) {
+        final int playerCount = initialRatingArray.length;
+        final int matchCount = winnerIndexList.length;
+
+        final int[] gainArray = new int[playerCount];
+        for (int m = 0; m < matchCount; ++m) {
+            final int w = winnerIndexList[m];
+            final int l = loserIndexList[m];
+            if (w < ratedCount && l < ratedCount) {
+                final int delta = ratingCalculator.calculateWinnerDelta(initialRatingArray[w], initialRatingArray[l]);
+                gainArray[w] += delta;
+                gainArray[l] -= delta;
+            }
+        }
+
+        final int[] passOneRatingArray = new int[playerCount];
+        for (int p = 0; p < ratedCount; ++p) {
+            passOneRatingArray[p] = initialRatingArray[p] + gainArray[p];
+        }
+
+        // only wins and losses against rated players count
+        final int[] bestWinArray = new int[playerCount];
+        final int[] worstLossArray = new int[playerCount];
+        Arrays.fill(bestWinArray, Integer.MIN_VALUE);
+        Arrays.fill(worstLossArray, Integer.MAX_VALUE);
+        for (int m = 0; m < matchCount; ++m) {
+            final int w = winnerIndexList[m];
+            final int l = loserIndexList[m];
+            if (l < ratedCount) {
+                bestWinArray[w] = Math.max(bestWinArray[w], passOneRatingArray[l]);
+            }
+            if (w < ratedCount) {
+                worstLossArray[l] = Math.min(worstLossArray[l], passOneRatingArray[w]);
+            }
+        }
+
+        final int[] firstPassRatingArray = new int[playerCount];
+        for (int p = 0; p < playerCount; ++p) {
+            final boolean hasWin = bestWinArray[p] != Integer.MIN_VALUE;
+            final boolean hasLoss = worstLossArray[p] != Integer.MAX_VALUE;
+            final int estimatedRating = hasWin && hasLoss ? (bestWinArray[p] + worstLossArray[p]) / 2 :
+                    hasWin ? bestWinArray[p] : hasLoss ? worstLossArray[p] : 0;
+
+            if (p >= ratedCount) {
+                firstPassRatingArray[p] = estimatedRating;
+            } else if (gainArray[p] < UNDERRATED_GAIN) {
+                firstPassRatingArray[p] = initialRatingArray[p];
+            } else if (gainArray[p] < HIGHLY_UNDERRATED_GAIN) {
+                firstPassRatingArray[p] = passOneRatingArray[p];
+            } else {
+                firstPassRatingArray[p] = Math.max(passOneRatingArray[p],
+                        (passOneRatingArray[p] + estimatedRating) / 2);
+            }
+        }
+        return firstPassRatingArray;
+    }
+
     /**
      * @param playerSet set of players in the tournament.  we need to find their ratings.
      * @return a map of players and their ratings.  if the player has no rating, the map will not include the player
      */
     public Map<String, PlayerRatingAdjustment> getPlayerRatingAdjustmentMap(
             final Set<String> playerSet) {
-        final Map<String, PlayerRatingAdjustment> map = new HashMap<>();
+        return getPlayerRatingAdjustmentMapForPlayers(playerManager.getPlayerMap(playerSet).values());
+    }
 
-        playerSet.forEach(p -> {
-            final Optional<PlayerRatingAdjustment> rating = playerRepository.findByUserName(p)
-                    .map(Player::getPlayerId)
-                    .flatMap(this::getRatingByPlayerId);
+    /**
+     * Same as getPlayerRatingAdjustmentMap, for when we have already looked up the players
+     */
+    private Map<String, PlayerRatingAdjustment> getPlayerRatingAdjustmentMapForPlayers(
+            final Collection<Player> playerList) {
+        final Map<String, PlayerRatingAdjustment> map = new HashMap<>();
+        final Map<Integer, String> userNameMap = playerList.stream()
+                .collect(Collectors.toMap(Player::getPlayerId, Player::getUserName));
 
-            rating.map(r -> map.put(p, r));
-        });
+        getRatingByPlayerIdList(userNameMap.keySet()).forEach((playerId, rating) ->
+                map.put(userNameMap.get(playerId), rating));
 
         return map;
     }
@@ -478,35 +1240,39 @@ public class RatingManager {
      * Called exclusively by submitTournamentResultWithPlayerFinder to create a TournamentResultResponseLineItem
      * for each TournamentResultRequestLineItem
      *
-     * The most important part of the response is the MatchResult, which contains the amount of the rating transfer
-     * between the players
+     * The most important part of the response is the MatchResult, which will contain the amount of the rating
+     * transfer between the players once processMatchResultList has run
      *
      * @param tournamentResultRequestLineItemList
-     * @param playerRatingAdjustmentMap
      * @param playerFinder
      * @return
      */
     private List<TournamentResultResponseLineItem> processTournamentResultRequestLineItemList(
             final TournamentResultRequestLineItem[] tournamentResultRequestLineItemList,
-            final Map<String, PlayerRatingAdjustment> playerRatingAdjustmentMap,
             final Function<String, Optional<Player>> playerFinder) {
         return Arrays.stream(tournamentResultRequestLineItemList).map(lineItem -> {
             final TournamentResultResponseLineItem tournamentResultResponseLineItem =
                     new TournamentResultResponseLineItem();
             tournamentResultResponseLineItem.setOriginalTournamentResultLineItem(lineItem);
-            if (!playerFinder.apply(lineItem.getWinner()).isPresent()) {
+            final Optional<Player> winner = playerFinder.apply(lineItem.getWinner());
+            if (!winner.isPresent()) {
                 tournamentResultResponseLineItem.setRejectReason(
                         TournamentResultResponseLineItem.REJECT_REASON_INVALID_WINNER);
                 tournamentResultResponseLineItem.setProcessed(false);
                 return tournamentResultResponseLineItem;
             }
-            if (!playerFinder.apply(lineItem.getLoser()).isPresent()) {
+            final Optional<Player> loser = playerFinder.apply(lineItem.getLoser());
+            if (!loser.isPresent()) {
                 tournamentResultResponseLineItem.setRejectReason(
                         TournamentResultResponseLineItem.REJECT_REASON_INVALID_LOSER);
                 tournamentResultResponseLineItem.setProcessed(false);
                 return tournamentResultResponseLineItem;
             }
-            final MatchResult matchResult = generateMatchResult(playerRatingAdjustmentMap, lineItem);
+            final MatchResult matchResult = new MatchResult();
+            matchResult.setEventName(lineItem.getEventName());
+            matchResult.setWinnerId(winner.get().getPlayerId());
+            matchResult.setLoserId(loser.get().getPlayerId());
+            matchResult.setResultString(lineItem.getResultString());
             tournamentResultResponseLineItem.setMatchResult(matchResult);
             tournamentResultResponseLineItem.setProcessed(true);
             return tournamentResultResponseLineItem;
@@ -522,7 +1288,7 @@ public class RatingManager {
         final Date tournamentDate = tournamentResultRequest.getTournamentDate();
 
         if (getTournament(tournamentName).isPresent()) {
-            throw new DuplicateTournamentException(MessageFormat.format("Tournament '{0}' has already been submitted",
+            throw new DuplicateTournamentException(MessageFormat.format("Tournament ''{0}'' has already been submitted",
                     tournamentName));
         }
 
@@ -536,12 +1302,17 @@ public class RatingManager {
 
         // create a map of player ratings; these are needed to calculate rating adjustments
         final Set<String> playerSet = getPlayerSet(tournamentResultList);
-        final Map<String, PlayerRatingAdjustment> playerRatingAdjustmentMap = getPlayerRatingAdjustmentMap(playerSet);
+        final Map<String, Player> playerMap = playerManager.getPlayerMap(playerSet);
+        final Map<String, PlayerRatingAdjustment> playerRatingAdjustmentMap =
+                getPlayerRatingAdjustmentMapForPlayers(playerMap.values());
+
+        // we have already found most players, so playerFinder is only needed for the ones we have not
+        final Function<String, Optional<Player>> tournamentPlayerFinder = userName -> playerMap.containsKey(userName) ?
+                Optional.of(playerMap.get(userName)) : playerFinder.apply(userName);
 
         // TournamentResultResponseLineItem contains MatchResult, which includes the amount of the rating transfer
         final List<TournamentResultResponseLineItem> tournamentResultResponseLineItemList =
-                processTournamentResultRequestLineItemList(tournamentResultList, playerRatingAdjustmentMap,
-                        playerFinder);
+                processTournamentResultRequestLineItemList(tournamentResultList, tournamentPlayerFinder);
 
         final boolean isAllProcessed = tournamentResultResponseLineItemList.stream()
                 .allMatch(TournamentResultResponseLineItem::isProcessed);
@@ -552,10 +1323,10 @@ public class RatingManager {
                     .filter(TournamentResultResponseLineItem::isProcessed)
                     .map(TournamentResultResponseLineItem::getMatchResult).collect(Collectors.toList());
 
-            // MatchResult only has the deltas
-            // We need to call applyMatchResultList to get the final ratings
+            // MatchResult only has the players
+            // processMatchResultList fills in the deltas, and gives us the final ratings
             final Map<Integer, PlayerRatingAdjustment> newPlayerRatingAdjustmentMap =
-                    applyMatchResultList(playerRatingAdjustmentMap, matchResultList);
+                    processMatchResultList(playerRatingAdjustmentMap.values(), matchResultList);
 
             final Tournament tournament = new Tournament();
             tournament.setName(tournamentName);
@@ -564,14 +1335,19 @@ public class RatingManager {
 
             result.setTournamentId(savedTournament.getTournamentId());
 
+            // the match results are kept so that the ratings can be recomputed if an earlier tournament changes
+            matchResultList.forEach(matchResult -> matchResult.setTournamentId(savedTournament.getTournamentId()));
+            matchResultRepository.saveAll(matchResultList);
+
             newPlayerRatingAdjustmentMap.values().forEach(adjustment -> {
                 adjustment.setTournamentId(savedTournament.getTournamentId());
                 adjustment.setAdjustmentDate(savedTournament.getTournamentDate());
-                addPlayerRatingAdjustment(adjustment);
             });
+            final List<PlayerRatingAdjustment> savedAdjustmentList =
+                    addPlayerRatingAdjustmentList(new ArrayList<>(newPlayerRatingAdjustmentMap.values()));
 
             result.setTournamentResultResponseList(tournamentResultResponseLineItemList);
-            result.setRatingAdjustmentList(new ArrayList<>(newPlayerRatingAdjustmentMap.values()));
+            result.setRatingAdjustmentList(savedAdjustmentList);
             result.setProcessed(true);
         } else {
             final List<TournamentResultResponseLineItem> errorList = tournamentResultResponseLineItemList.stream()
@@ -584,6 +1360,7 @@ public class RatingManager {
         return result;
     }
 
+    @Transactional
     public TournamentResultResponse submitTournamentResult(final TournamentResultRequest tournamentResultRequest,
             boolean autoAddPlayer)
             throws DuplicateTournamentException {
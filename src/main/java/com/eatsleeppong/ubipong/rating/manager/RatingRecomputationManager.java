@@ -0,0 +1,315 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.MatchResult;
+import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+import com.eatsleeppong.ubipong.rating.entity.Tournament;
+import com.eatsleeppong.ubipong.rating.model.RatingRecomputationStatus;
+import com.eatsleeppong.ubipong.rating.repository.MatchResultRepository;
+import com.eatsleeppong.ubipong.rating.repository.PlayerRatingAdjustmentRepository;
+import com.eatsleeppong.ubipong.rating.repository.TournamentRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Replays the rating history after a tournament has been entered late or corrected.
+ *
+ * Tournaments are replayed in (tournamentDate, tournamentId) order.  A tournament is only recomputed if one of its
+ * players is "dirty", meaning that the player's rating going into it may no longer be what it was when the tournament
+ * was first processed.  The players of the changed tournament start out dirty; after that, a player stays dirty only
+ * while the recomputed final rating differs from the one stored.  Everyone else's adjustments are left alone.
+ *
+ * Recomputing a tournament means processing its MatchResult rows again with RatingManager.processMatchResultList,
+ * starting from the players' new initial ratings, the same way submitTournamentResult does.  A tournament without match results (a rating
+ * adjustment CSV, or a tournament submitted before match results were kept) sets each player's rating to a fixed
+ * number, so only the initial ratings of its adjustments change.
+ */
+@Service
+public class RatingRecomputationManager {
+    private static final int MAX_STATUS_COUNT = 100;
+
+    private TournamentRepository tournamentRepository;
+    private PlayerRatingAdjustmentRepository playerRatingAdjustmentRepository;
+    private MatchResultRepository matchResultRepository;
+    private RatingManager ratingManager;
+    private RatingUpdateLock ratingUpdateLock;
+    private TransactionTemplate transactionTemplate;
+
+    // recomputations run one at a time, in the order they were requested
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "rating-recomputation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger nextRecomputationId = new AtomicInteger(1);
+
+    // only the latest recomputations are remembered
+    private final Map<Integer, RatingRecomputationStatus> statusMap = Collections.synchronizedMap(
+            new LinkedHashMap<Integer, RatingRecomputationStatus>() {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Integer, RatingRecomputationStatus> eldest) {
+                    return size() > MAX_STATUS_COUNT;
+                }
+            });
+
+    public RatingRecomputationManager(
+            final TournamentRepository tournamentRepository,
+            final PlayerRatingAdjustmentRepository playerRatingAdjustmentRepository,
+            final MatchResultRepository matchResultRepository,
+            final RatingManager ratingManager,
+            final RatingUpdateLock ratingUpdateLock,
+            final PlatformTransactionManager transactionManager
+    ) {
+        this.tournamentRepository = tournamentRepository;
+        this.playerRatingAdjustmentRepository = playerRatingAdjustmentRepository;
+        this.matchResultRepository = matchResultRepository;
+        this.ratingManager = ratingManager;
+        this.ratingUpdateLock = ratingUpdateLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * State of a single replay.  ratingMap has the rating of every player seen so far, as of the last tournament
+     * replayed.
+     */
+    private static class Replay {
+        private final Date fromDate;
+        private final Map<Integer, Integer> ratingMap = new HashMap<>();
+        private final Set<Integer> dirtyPlayerIdSet = new HashSet<>();
+        private final Set<Integer> changedPlayerIdSet = new HashSet<>();
+
+        private Replay(final Date fromDate) {
+            this.fromDate = fromDate;
+        }
+    }
+
+    /**
+     * Starts recomputing the ratings affected by a tournament in the background
+     *
+     * @param tournament the tournament that has been added or corrected
+     * @return status of the recomputation, which keeps being updated as it runs
+     */
+    public RatingRecomputationStatus startRecomputation(final Tournament tournament) {
+        final RatingRecomputationStatus status = new RatingRecomputationStatus();
+        status.setTournamentId(tournament.getTournamentId());
+        status.setFromDate(tournament.getTournamentDate());
+        return start(status);
+    }
+
+    /**
+     * Starts recomputing every tournament on or after the given date in the background
+     *
+     * @return status of the recomputation, which keeps being updated as it runs
+     */
+    public RatingRecomputationStatus startRecomputation(final Date fromDate) {
+        final RatingRecomputationStatus status = new RatingRecomputationStatus();
+        status.setFromDate(fromDate);
+        return start(status);
+    }
+
+    private RatingRecomputationStatus start(final RatingRecomputationStatus status) {
+        status.setRecomputationId(nextRecomputationId.getAndIncrement());
+        statusMap.put(status.getRecomputationId(), status);
+        executorService.submit(() -> recompute(status));
+        return status;
+    }
+
+    public Optional<RatingRecomputationStatus> getStatus(final Integer recomputationId) {
+        return Optional.ofNullable(statusMap.get(recomputationId));
+    }
+
+    /**
+     * Runs a recomputation in the calling thread.  Each tournament is replayed in its own transaction (or in the
+     * caller's transaction, if there is one), so if it fails part way, the tournaments already replayed keep their
+     * new ratings, but the current ratings are not rebuilt.  To finish the job, run it again from the same date (when
+     * it was run from a tournament, from the date of that tournament) and then call RatingManager.rebuildCurrentRating().
+     * Running it again from the same tournament is not enough: the tournaments after it are only replayed if their
+     * players' ratings change, and the ones replayed the first time around no longer do.
+     *
+     * Tournament submissions wait until the recomputation is done, and it waits for the one being processed, so that
+     * every tournament is either replayed or starts from the recomputed ratings.
+     *
+     * @param status says what to recompute; it is updated with the progress
+     * @return status
+     */
+    public RatingRecomputationStatus recompute(final RatingRecomputationStatus status) {
+        ratingUpdateLock.lock();
+        try {
+            return recomputeExclusively(status);
+        } finally {
+            ratingUpdateLock.unlock();
+        }
+    }
+
+    /**
+     * called exclusively by recompute, with the rating update lock held
+     */
+    private RatingRecomputationStatus recomputeExclusively(final RatingRecomputationStatus status) {
+        status.setStartTime(new Date());
+        status.setState(RatingRecomputationStatus.State.RUNNING);
+        try {
+            final Replay replay = new Replay(status.getFromDate());
+            final List<Tournament> tournamentList = tournamentRepository
+                    .findByTournamentDateGreaterThanEqualOrderByTournamentDateAscTournamentIdAsc(status.getFromDate());
+            status.setTournamentCount(tournamentList.size());
+
+            // if we are recomputing from a tournament, the ones on the same date with a lower ID come before it
+            boolean isStarted = status.getTournamentId() == null;
+            for (final Tournament tournament : tournamentList) {
+                final boolean isChanged = !isStarted && tournament.getTournamentId().equals(status.getTournamentId());
+                isStarted = isStarted || isChanged;
+                final boolean isRecomputed = transactionTemplate.execute(transactionStatus -> replayTournament(
+                        tournament, isChanged || status.getTournamentId() == null, replay, status));
+                if (isRecomputed) {
+                    status.setRecomputedTournamentCount(status.getRecomputedTournamentCount() + 1);
+                }
+                status.setProcessedTournamentCount(status.getProcessedTournamentCount() + 1);
+            }
+
+            transactionTemplate.execute(transactionStatus -> {
+                ratingManager.rebuildCurrentRating(replay.changedPlayerIdSet);
+                return null;
+            });
+            status.setChangedPlayerCount(replay.changedPlayerIdSet.size());
+            status.setState(RatingRecomputationStatus.State.COMPLETED);
+        } catch (RuntimeException ex) {
+            status.setErrorMessage(ex.toString());
+            status.setState(RatingRecomputationStatus.State.FAILED);
+        }
+        status.setEndTime(new Date());
+        return status;
+    }
+
+    /**
+     * called exclusively by recompute to replay one tournament
+     *
+     * @param tournament tournament to replay
+     * @param isChanged if true, the tournament is recomputed even if none of its players are dirty
+     * @return true if the tournament had to be recomputed
+     */
+    private boolean replayTournament(final Tournament tournament, final boolean isChanged, final Replay replay,
+            final RatingRecomputationStatus status) {
+        final List<PlayerRatingAdjustment> adjustmentList = playerRatingAdjustmentRepository
+                .findByTournamentId(tournament.getTournamentId(), Pageable.unpaged()).getContent();
+        final boolean isAffected = isChanged || adjustmentList.stream()
+                .anyMatch(adjustment -> replay.dirtyPlayerIdSet.contains(adjustment.getPlayerId()));
+        if (!isAffected) {
+            adjustmentList.forEach(adjustment -> replay.ratingMap.put(adjustment.getPlayerId(),
+                    adjustment.getFinalRating()));
+            return false;
+        }
+
+        loadInitialRating(adjustmentList, replay);
+
+        // remember what we had, so we know which adjustments and players have changed
+        final int[] oldInitialRatingList = new int[adjustmentList.size()];
+        final int[] oldFirstPassRatingList = new int[adjustmentList.size()];
+        final int[] oldFinalRatingList = new int[adjustmentList.size()];
+        for (int i = 0; i < adjustmentList.size(); ++i) {
+            final PlayerRatingAdjustment adjustment = adjustmentList.get(i);
+            oldInitialRatingList[i] = adjustment.getInitialRating();
+            oldFirstPassRatingList[i] = adjustment.getFirstPassRating();
+            oldFinalRatingList[i] = adjustment.getFinalRating();
+        }
+
+        final List<MatchResult> matchResultList = matchResultRepository.findByTournamentId(
+                tournament.getTournamentId());
+        if (matchResultList.isEmpty()) {
+            // the final ratings were set by hand, so only the initial ratings change
+            adjustmentList.forEach(adjustment -> {
+                final Integer initialRating = replay.ratingMap.getOrDefault(adjustment.getPlayerId(),
+                        adjustment.getInitialRating());
+                adjustment.setInitialRating(initialRating);
+                adjustment.setFirstPassRating(initialRating);
+            });
+        } else {
+            applyMatchResultList(adjustmentList, matchResultList, replay);
+        }
+
+        for (int i = 0; i < adjustmentList.size(); ++i) {
+            final PlayerRatingAdjustment adjustment = adjustmentList.get(i);
+            final Integer playerId = adjustment.getPlayerId();
+            final boolean isFinalRatingChanged = adjustment.getFinalRating() != oldFinalRatingList[i];
+            if (isFinalRatingChanged || adjustment.getInitialRating() != oldInitialRatingList[i] ||
+                    adjustment.getFirstPassRating() != oldFirstPassRatingList[i]) {
+                status.setChangedAdjustmentCount(status.getChangedAdjustmentCount() + 1);
+                replay.changedPlayerIdSet.add(playerId);
+            }
+            // nobody has seen the ratings of a changed tournament yet, so its players are dirty regardless
+            if (isChanged || isFinalRatingChanged) {
+                replay.dirtyPlayerIdSet.add(playerId);
+            } else {
+                replay.dirtyPlayerIdSet.remove(playerId);
+            }
+            replay.ratingMap.put(playerId, adjustment.getFinalRating());
+        }
+        return true;
+    }
+
+    /**
+     * Makes sure replay.ratingMap has the rating going into the replay of every player in the tournament who has
+     * played before.  Players we have not seen yet get their latest rating before the replay date.
+     */
+    private void loadInitialRating(final List<PlayerRatingAdjustment> adjustmentList, final Replay replay) {
+        final List<Integer> missingPlayerIdList = adjustmentList.stream()
+                .map(PlayerRatingAdjustment::getPlayerId)
+                .filter(playerId -> !replay.ratingMap.containsKey(playerId))
+                .collect(Collectors.toList());
+        if (missingPlayerIdList.isEmpty()) {
+            return;
+        }
+
+        // if there is more than one adjustment on the latest date, the one entered last wins
+        playerRatingAdjustmentRepository.findLatestBeforeByPlayerIdIn(missingPlayerIdList, replay.fromDate).stream()
+                .collect(Collectors.toMap(PlayerRatingAdjustment::getPlayerId, Function.identity(),
+                        BinaryOperator.maxBy(Comparator.comparing(
+                                PlayerRatingAdjustment::getPlayerRatingAdjustmentId))))
+                .values()
+                .forEach(adjustment -> replay.ratingMap.put(adjustment.getPlayerId(), adjustment.getFinalRating()));
+    }
+
+    /**
+     * Reprocesses the matches of a tournament with RatingManager.processMatchResultList, starting from the ratings in
+     * replay.ratingMap, and copies the results into the adjustments.  Players who had no rating going into the
+     * tournament are processed as unrated.
+     */
+    private void applyMatchResultList(final List<PlayerRatingAdjustment> adjustmentList,
+            final List<MatchResult> matchResultList, final Replay replay) {
+        final List<PlayerRatingAdjustment> initialRatingList = adjustmentList.stream()
+                .filter(adjustment -> replay.ratingMap.containsKey(adjustment.getPlayerId()))
+                .map(adjustment -> {
+                    final PlayerRatingAdjustment initialRating = new PlayerRatingAdjustment();
+                    initialRating.setPlayerId(adjustment.getPlayerId());
+                    initialRating.setFinalRating(replay.ratingMap.get(adjustment.getPlayerId()));
+                    return initialRating;
+                })
+                .collect(Collectors.toList());
+
+        final Map<Integer, PlayerRatingAdjustment> newRatingMap =
+                ratingManager.processMatchResultList(initialRatingList, matchResultList);
+
+        adjustmentList.forEach(adjustment -> {
+            final PlayerRatingAdjustment newRating = newRatingMap.get(adjustment.getPlayerId());
+            if (newRating != null) {
+                adjustment.setInitialRating(newRating.getInitialRating());
+                adjustment.setFirstPassRating(newRating.getFirstPassRating());
+                adjustment.setFinalRating(newRating.getFinalRating());
+            }
+        });
+    }
+}
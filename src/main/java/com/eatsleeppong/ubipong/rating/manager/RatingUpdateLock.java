@@ -0,0 +1,26 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Makes tournament submissions, rating adjustments and rating recomputations take turns.  All of them read the ratings
+ * players go into a tournament with and then write new ones, so if they ran at the same time, each could start from
+ * ratings another is about to replace.
+ *
+ * Take the lock outside of the transaction, so that whoever goes next sees what the last one committed.  Waiters are
+ * let in in the order they arrived.
+ */
+@Component
+public class RatingUpdateLock {
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    public void lock() {
+        lock.lock();
+    }
+
+    public void unlock() {
+        lock.unlock();
+    }
+}
@@ -0,0 +1,175 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.controller.DuplicateTournamentException;
+import com.eatsleeppong.ubipong.rating.controller.RatingInputFormatException;
+import com.eatsleeppong.ubipong.rating.model.RatingAdjustmentResponse;
+import com.eatsleeppong.ubipong.rating.model.TournamentResultRequest;
+import com.eatsleeppong.ubipong.rating.model.TournamentResultResponse;
+import com.eatsleeppong.ubipong.rating.model.TournamentSubmissionStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes tournament results in the background, so that a large tournament does not hold up the request that
+ * submitted it.  Each tournament result goes through RatingManager.submitTournamentResult, exactly as if it had been
+ * submitted directly.
+ *
+ * Tournaments are processed one at a time, in the order they were submitted, because each one changes the ratings
+ * the next one starts from.  Only so many can be waiting at once; beyond that, submissions are turned away.  Tournaments
+ * submitted directly, rating adjustments and rating recomputations take turns with them through RatingUpdateLock.
+ */
+@Service
+public class TournamentSubmissionManager {
+    private static final int MAX_STATUS_COUNT = 100;
+
+    private RatingManager ratingManager;
+    private RatingUpdateLock ratingUpdateLock;
+
+    private final ThreadPoolExecutor executorService;
+    private final AtomicInteger nextSubmissionId = new AtomicInteger(1);
+
+    // only the latest submissions are remembered
+    private final Map<Integer, TournamentSubmissionStatus> statusMap = Collections.synchronizedMap(
+            new LinkedHashMap<Integer, TournamentSubmissionStatus>() {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Integer, TournamentSubmissionStatus> eldest) {
+                    return size() > MAX_STATUS_COUNT;
+                }
+            });
+
+    /**
+     * @param tournamentSubmissionQueueSize most tournaments that can be waiting to be processed
+     */
+    public TournamentSubmissionManager(
+            final RatingManager ratingManager,
+            final RatingUpdateLock ratingUpdateLock,
+            @Value("${tournamentSubmissionQueueSize:20}") final int tournamentSubmissionQueueSize
+    ) {
+        this.ratingManager = ratingManager;
+        this.ratingUpdateLock = ratingUpdateLock;
+        this.executorService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(tournamentSubmissionQueueSize), runnable -> {
+                    final Thread thread = new Thread(runnable, "tournament-submission");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Starts processing a tournament result in the background.  The tournament name is checked right away, so a
+     * duplicate is reported without waiting; everything else is checked when the result is processed, and shows up in
+     * the status.
+     *
+     * @return status of the submission, which keeps being updated as it is processed
+     * @throws DuplicateTournamentException if a tournament with the same name has already been submitted
+     * @throws RejectedExecutionException if too many tournaments are already waiting to be processed
+     */
+    public TournamentSubmissionStatus startSubmission(final TournamentResultRequest tournamentResultRequest,
+            final boolean autoAddPlayer) throws DuplicateTournamentException {
+        final String tournamentName = tournamentResultRequest.getTournamentName();
+        if (ratingManager.getTournament(tournamentName).isPresent()) {
+            throw new DuplicateTournamentException(MessageFormat.format("Tournament ''{0}'' has already been submitted",
+                    tournamentName));
+        }
+
+        final TournamentSubmissionStatus status = createStatus(tournamentResultRequest);
+        executorService.execute(() -> submit(status, tournamentResultRequest, autoAddPlayer));
+        statusMap.put(status.getSubmissionId(), status);
+        return status;
+    }
+
+    public Optional<TournamentSubmissionStatus> getStatus(final Integer submissionId) {
+        return Optional.ofNullable(statusMap.get(submissionId));
+    }
+
+    /**
+     * @return a new status for the tournament result, which has not been started
+     */
+    public TournamentSubmissionStatus createStatus(final TournamentResultRequest tournamentResultRequest) {
+        final TournamentSubmissionStatus status = new TournamentSubmissionStatus();
+        status.setSubmissionId(nextSubmissionId.getAndIncrement());
+        status.setTournamentName(tournamentResultRequest.getTournamentName());
+        status.setTournamentDate(tournamentResultRequest.getTournamentDate());
+        status.setMatchCount(tournamentResultRequest.getTournamentResultList() == null ? 0 :
+                tournamentResultRequest.getTournamentResultList().length);
+        status.setSubmitTime(new Date());
+        return status;
+    }
+
+    /**
+     * Processes a tournament result in the calling thread, once no other tournament or recomputation is running
+     */
+    public TournamentResultResponse submitTournamentResult(final TournamentResultRequest tournamentResultRequest,
+            final boolean autoAddPlayer) throws DuplicateTournamentException {
+        ratingUpdateLock.lock();
+        try {
+            return ratingManager.submitTournamentResult(tournamentResultRequest, autoAddPlayer);
+        } finally {
+            ratingUpdateLock.unlock();
+        }
+    }
+
+    /**
+     * Same as RatingManager.adjustRatingByCsv, once no tournament or recomputation is running
+     */
+    public RatingAdjustmentResponse adjustRatingByCsv(final String csv, final boolean autoAddPlayer)
+            throws IOException, RatingInputFormatException, DuplicateTournamentException {
+        ratingUpdateLock.lock();
+        try {
+            return ratingManager.adjustRatingByCsv(csv, autoAddPlayer);
+        } finally {
+            ratingUpdateLock.unlock();
+        }
+    }
+
+    /**
+     * Same as RatingManager.adjustRatingByCsvStream, once no tournament or recomputation is running
+     */
+    public RatingAdjustmentResponse adjustRatingByCsvStream(final InputStream csv, final boolean autoAddPlayer)
+            throws IOException, RatingInputFormatException, DuplicateTournamentException {
+        ratingUpdateLock.lock();
+        try {
+            return ratingManager.adjustRatingByCsvStream(csv, autoAddPlayer);
+        } finally {
+            ratingUpdateLock.unlock();
+        }
+    }
+
+    /**
+     * Processes a tournament result in the calling thread
+     *
+     * @param status status of the submission; it is updated with the progress and the result
+     * @return status
+     */
+    public TournamentSubmissionStatus submit(final TournamentSubmissionStatus status,
+            final TournamentResultRequest tournamentResultRequest, final boolean autoAddPlayer) {
+        status.setStartTime(new Date());
+        status.setState(TournamentSubmissionStatus.State.RUNNING);
+        try {
+            status.setResult(submitTournamentResult(tournamentResultRequest, autoAddPlayer));
+            status.setState(TournamentSubmissionStatus.State.COMPLETED);
+        } catch (DuplicateTournamentException | RuntimeException ex) {
+            status.setErrorMessage(ex.getMessage());
+            status.setState(TournamentSubmissionStatus.State.FAILED);
+        } finally {
+            status.setEndTime(new Date());
+        }
+        return status;
+    }
+}
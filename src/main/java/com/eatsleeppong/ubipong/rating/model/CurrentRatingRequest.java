@@ -0,0 +1,15 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Players whose current ratings we want, such as everyone in the draw of a tournament.  Players can be given by user
+ * name, by ID, or both.
+ */
+@Data
+public class CurrentRatingRequest {
+    private List<String> userNameList;
+    private List<Integer> playerIdList;
+}
@@ -0,0 +1,14 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The current ratings of the players in a CurrentRatingRequest, in the same order: the players by user name first,
+ * then the players by ID
+ */
+@Data
+public class CurrentRatingResponse {
+    private List<CurrentRatingResponseLineItem> currentRatingResponseList;
+}
@@ -0,0 +1,28 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+import lombok.Data;
+
+/**
+ * The current rating of one player of a CurrentRatingRequest, or the reason we could not find it
+ */
+@Data
+public class CurrentRatingResponseLineItem {
+    public static Integer REJECT_REASON_INVALID_PLAYER = 400;
+    public static Integer REJECT_REASON_NO_RATING = 401;
+
+    private String userName;
+    private Integer playerId;
+    private PlayerRatingAdjustment rating;
+
+    private Boolean processed;
+    private Integer rejectReason;
+
+    public boolean isProcessed() {
+        if (processed == null) {
+            return false;
+        } else {
+            return processed;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Every match two players have played against each other, latest first
+ */
+@Data
+public class HeadToHeadResponse {
+    private Integer player1Id;
+    private String player1UserName;
+    private Integer player2Id;
+    private String player2UserName;
+
+    private int player1WinCount;
+    private int player2WinCount;
+
+    private List<HeadToHeadResponseLineItem> headToHeadResponseList;
+}
@@ -0,0 +1,18 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import com.eatsleeppong.ubipong.rating.entity.MatchResult;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * One match of HeadToHeadResponse, with the tournament it was played in
+ */
+@Data
+public class HeadToHeadResponseLineItem {
+    private Integer tournamentId;
+    private String tournamentName;
+    private Date tournamentDate;
+
+    private MatchResult matchResult;
+}
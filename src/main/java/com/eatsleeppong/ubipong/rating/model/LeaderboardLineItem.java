@@ -0,0 +1,14 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import lombok.Data;
+
+/**
+ * One player of LeaderboardResponse.  Players with the same rating have the same rank.
+ */
+@Data
+public class LeaderboardLineItem {
+    private int rank;
+    private Integer playerId;
+    private String userName;
+    private int rating;
+}
@@ -0,0 +1,18 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Players ranked by current rating, highest first
+ */
+@Data
+public class LeaderboardResponse {
+    /**
+     * number of players with a rating, not just the ones in this response
+     */
+    private int playerCount;
+
+    private List<LeaderboardLineItem> leaderboardList;
+}
@@ -17,6 +17,11 @@ public class RatingAdjustmentResponse {
 
     private List<RatingAdjustmentResponseLineItem> ratingAdjustmentResponseList;
 
+    /**
+     * number of ratings adjusted.  only set by the streaming CSV upload, which does not return the processed lines
+     */
+    private Integer adjustmentCount;
+
     private Boolean processed;
 
     public boolean isProcessed() {
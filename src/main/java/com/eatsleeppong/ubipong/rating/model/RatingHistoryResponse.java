@@ -0,0 +1,17 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a player's rating history, latest first.  To get the next page, pass nextCursor back as the cursor.
+ * nextCursor is null on the last page.
+ */
+@Data
+public class RatingHistoryResponse {
+    private Integer playerId;
+    private List<PlayerRatingAdjustment> playerRatingAdjustmentList;
+    private String nextCursor;
+}
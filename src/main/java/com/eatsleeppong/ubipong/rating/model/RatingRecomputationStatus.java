@@ -0,0 +1,38 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Progress of a rating recomputation.  It is updated by the thread doing the recomputation while it is being read by
+ * the REST API, so the fields are volatile.
+ */
+@Data
+public class RatingRecomputationStatus {
+    public enum State { PENDING, RUNNING, COMPLETED, FAILED }
+
+    private volatile Integer recomputationId;
+
+    /**
+     * if this is set, only the players affected by this tournament are recomputed
+     */
+    private volatile Integer tournamentId;
+
+    /**
+     * tournaments on or after this date are replayed
+     */
+    private volatile Date fromDate;
+
+    private volatile State state = State.PENDING;
+    private volatile Date startTime;
+    private volatile Date endTime;
+
+    private volatile int tournamentCount;
+    private volatile int processedTournamentCount;
+    private volatile int recomputedTournamentCount;
+    private volatile int changedAdjustmentCount;
+    private volatile int changedPlayerCount;
+
+    private volatile String errorMessage;
+}
@@ -0,0 +1,35 @@
+package com.eatsleeppong.ubipong.rating.model;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Progress of a tournament result submitted to be processed in the background.  It is updated by the thread doing
+ * the processing while it is being read by the REST API, so the fields are volatile.
+ */
+@Data
+public class TournamentSubmissionStatus {
+    public enum State { PENDING, RUNNING, COMPLETED, FAILED }
+
+    private volatile Integer submissionId;
+    private volatile String tournamentName;
+    private volatile Date tournamentDate;
+    private volatile int matchCount;
+
+    private volatile State state = State.PENDING;
+    private volatile Date submitTime;
+    private volatile Date startTime;
+    private volatile Date endTime;
+
+    /**
+     * once the state is COMPLETED, this is what submitting the tournament result directly would have returned.  like
+     * that response, it is not processed if any of the matches is invalid.
+     */
+    private volatile TournamentResultResponse result;
+
+    /**
+     * set if the state is FAILED, such as when a tournament with the same name was submitted first
+     */
+    private volatile String errorMessage;
+}
@@ -0,0 +1,18 @@
+package com.eatsleeppong.ubipong.rating.repository;
+
+import com.eatsleeppong.ubipong.rating.entity.MatchResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.List;
+
+@RepositoryRestResource
+public interface MatchResultRepository extends JpaRepository<MatchResult, Integer> {
+    List<MatchResult> findByTournamentId(@Param("tournamentId") Integer tournamentId);
+
+    /**
+     * every match the winner won against the loser; this uses winner_loser_index
+     */
+    List<MatchResult> findByWinnerIdAndLoserId(@Param("winnerId") Integer winnerId, @Param("loserId") Integer loserId);
+}
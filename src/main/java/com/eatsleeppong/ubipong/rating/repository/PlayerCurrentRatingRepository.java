@@ -0,0 +1,12 @@
+package com.eatsleeppong.ubipong.rating.repository;
+
+import com.eatsleeppong.ubipong.rating.entity.PlayerCurrentRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+/**
+ * PlayerCurrentRating is maintained by RatingManager, so it is not exported for writing through Spring Data Rest
+ */
+@RepositoryRestResource(exported = false)
+public interface PlayerCurrentRatingRepository extends JpaRepository<PlayerCurrentRating, Integer> {
+}
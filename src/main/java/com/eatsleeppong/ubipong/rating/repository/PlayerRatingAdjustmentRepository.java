@@ -4,12 +4,82 @@ import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
 
 @RepositoryRestResource
 public interface PlayerRatingAdjustmentRepository extends JpaRepository<PlayerRatingAdjustment, Integer> {
     Page<PlayerRatingAdjustment> findByPlayerId(@Param("playerId") Integer playerId, Pageable pageable);
     Page<PlayerRatingAdjustment> findByTournamentId(@Param("tournamentId") Integer tournamentId, Pageable pageable);
+
+    /**
+     * First page of a player's rating history, latest first.  Returning a List instead of a Page skips the count
+     * query.
+     *
+     * Ordering by playerId does nothing here, but it makes the order by match player_adjustment_date_index column
+     * for column.  Some databases, H2 included, only read the rows in index order instead of sorting them when it
+     * does.
+     */
+    @Query("select a from PlayerRatingAdjustment a where a.playerId = :playerId " +
+            "order by a.playerId, a.adjustmentDate desc, a.playerRatingAdjustmentId desc")
+    List<PlayerRatingAdjustment> findRatingHistoryByPlayerId(@Param("playerId") Integer playerId,
+            Pageable pageable);
+
+    /**
+     * Page of a player's rating history after the given adjustment, latest first.  The adjustment date and ID of the
+     * last row of the previous page are the cursor, so the database can seek straight to the page instead of
+     * skipping over every row before it.
+     */
+    @Query("select a from PlayerRatingAdjustment a where a.playerId = :playerId and " +
+            "(a.adjustmentDate < :adjustmentDate or (a.adjustmentDate = :adjustmentDate and " +
+            "a.playerRatingAdjustmentId < :playerRatingAdjustmentId)) " +
+            "order by a.playerId, a.adjustmentDate desc, a.playerRatingAdjustmentId desc")
+    List<PlayerRatingAdjustment> findRatingHistoryByPlayerIdBefore(@Param("playerId") Integer playerId,
+            @Param("adjustmentDate") Date adjustmentDate,
+            @Param("playerRatingAdjustmentId") Integer playerRatingAdjustmentId, Pageable pageable);
+
+    /**
+     * Whole rating history of a player, latest first, read from a database cursor.  This must be called in a
+     * transaction, and the stream must be closed.
+     */
+    @RestResource(exported = false)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("select a from PlayerRatingAdjustment a where a.playerId = :playerId " +
+            "order by a.playerId, a.adjustmentDate desc, a.playerRatingAdjustmentId desc")
+    Stream<PlayerRatingAdjustment> streamRatingHistoryByPlayerId(@Param("playerId") Integer playerId);
+
+    /**
+     * Finds the latest adjustment of each of the given players in one query.  If a player has more than one adjustment
+     * on the latest date, all of them are returned and the caller has to pick one.
+     */
+    @Query("select a from PlayerRatingAdjustment a where a.playerId in :playerId and a.adjustmentDate = " +
+            "(select max(b.adjustmentDate) from PlayerRatingAdjustment b where b.playerId = a.playerId)")
+    List<PlayerRatingAdjustment> findLatestByPlayerIdIn(@Param("playerId") Collection<Integer> playerIdList);
+
+    /**
+     * Same as findLatestByPlayerIdIn, but for every player.  This is used to rebuild PlayerCurrentRating.
+     */
+    @Query("select a from PlayerRatingAdjustment a where a.adjustmentDate = " +
+            "(select max(b.adjustmentDate) from PlayerRatingAdjustment b where b.playerId = a.playerId)")
+    List<PlayerRatingAdjustment> findLatest();
+
+    /**
+     * Same as findLatestByPlayerIdIn, but only looks at adjustments before the given date.  This is the rating each
+     * player had going into a tournament on that date.
+     */
+    @Query("select a from PlayerRatingAdjustment a where a.playerId in :playerId and a.adjustmentDate = " +
+            "(select max(b.adjustmentDate) from PlayerRatingAdjustment b where b.playerId = a.playerId and " +
+            "b.adjustmentDate < :adjustmentDate)")
+    List<PlayerRatingAdjustment> findLatestBeforeByPlayerIdIn(@Param("playerId") Collection<Integer> playerIdList,
+            @Param("adjustmentDate") Date adjustmentDate);
 }
 
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +14,5 @@ public interface PlayerRepository extends JpaRepository<Player, Integer> {
     Optional<Player> findByUserName(@Param("userName") String userName);
     List<Player> findByUserNameStartingWith(@Param("userName") String userName);
     List<Player> findByUserNameContaining(@Param("userName") String userName);
+    List<Player> findByUserNameIn(@Param("userName") Collection<String> userNameList);
 }
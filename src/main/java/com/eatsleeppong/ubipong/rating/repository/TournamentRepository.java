@@ -5,9 +5,17 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 @RepositoryRestResource
 public interface TournamentRepository extends JpaRepository<Tournament, Integer> {
     Optional<Tournament> findByName(@Param("name") String name);
+
+    /**
+     * tournaments in the order their ratings have to be processed
+     */
+    List<Tournament> findByTournamentDateGreaterThanEqualOrderByTournamentDateAscTournamentIdAsc(
+            @Param("tournamentDate") Date tournamentDate);
 }
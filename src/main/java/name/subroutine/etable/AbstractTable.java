@@ -1,6 +1,7 @@
 package name.subroutine.etable;
 
 import java.util.*;
+import java.util.stream.*;
 import java.io.*;
 import java.sql.*;
 
@@ -255,6 +256,21 @@ public abstract class AbstractTable implements Table
 	return (_current >= size());
     }
 
+    /**
+     * Records in memory are split by their position in the record
+     * list
+     */
+    @SuppressWarnings( "unchecked" )
+    public Spliterator<Record> spliterator()
+    {
+        return ((List<Record>)_record_lst).spliterator();
+    }
+
+    public Stream<Record> stream()
+    {
+        return StreamSupport.stream( spliterator(), false );
+    }
+
     /**
      * Sets the current record to the last record and returns it
      *
@@ -0,0 +1,116 @@
+package name.subroutine.etable;
+
+import java.util.Arrays;
+
+/**
+ * The values of one field of a ColumnTable.
+ *
+ * All the values are packed into one char array, and each row only
+ * takes the start and end of its value, so there is no object per
+ * value.  A row that was never set is empty.
+ */
+class Column
+{
+    char[] _data;
+    int _data_len;
+
+    int[] _start;
+    int[] _end;
+
+    /**
+     * Number of rows that have been set, plus the empty rows before
+     * them
+     */
+    int _size;
+
+    Column()
+    {
+        _data = new char[256];
+        _start = new int[16];
+        _end = new int[16];
+    }
+
+    /**
+     * Makes room for the given number of rows
+     */
+    void _ensureRows( int cnt )
+    {
+        if( cnt <= _start.length ) return;
+
+        int capacity = Math.max( cnt, _start.length * 2 );
+        _start = Arrays.copyOf( _start, capacity );
+        _end = Arrays.copyOf( _end, capacity );
+    }
+
+    /**
+     * Makes room for the given number of chars more
+     */
+    void _ensureData( int cnt )
+    {
+        int needed = _data_len + cnt;
+        if( needed < 0 ){
+            throw new OutOfMemoryError( "Column is too large" );
+        }
+        if( needed <= _data.length ) return;
+
+        int capacity = _data.length * 2;
+        if( capacity < needed || capacity < 0 ){
+            capacity = needed;
+        }
+        _data = Arrays.copyOf( _data, capacity );
+    }
+
+    /**
+     * Sets the value of a row to part of a sequence.  A value that is
+     * changed is not overwritten; the new value is added at the end.
+     */
+    void set( int row, CharSequence seq, int start, int end )
+    {
+        if( row >= _size ){
+            _ensureRows( row + 1 );
+            // rows skipped over are empty
+            for( int i = _size; i < row; i++ ){
+                _start[i] = 0;
+                _end[i] = 0;
+            }
+            _size = row + 1;
+        }
+
+        int len = end - start;
+        _ensureData( len );
+        if( seq instanceof String ){
+            ((String)seq).getChars( start, end, _data, _data_len );
+        }
+        else{
+            for( int i = 0; i < len; i++ ){
+                _data[_data_len + i] = seq.charAt( start + i );
+            }
+        }
+        _start[row] = _data_len;
+        _end[row] = _data_len + len;
+        _data_len += len;
+    }
+
+    void set( int row, String val )
+    {
+        set( row, val, 0, val.length() );
+    }
+
+    int length( int row )
+    {
+        if( row >= _size ) return 0;
+        return _end[row] - _start[row];
+    }
+
+    String get( int row )
+    {
+        if( row >= _size ) return "";
+        return new String( _data, _start[row], _end[row] - _start[row] );
+    }
+
+    StringBuilder appendTo( int row, StringBuilder buf )
+    {
+        if( row >= _size ) return buf;
+        return buf.append( _data, _start[row], _end[row] - _start[row] );
+    }
+}
@@ -0,0 +1,248 @@
+package name.subroutine.etable;
+
+import java.util.*;
+import java.sql.*;
+
+/**
+ * A row of a ColumnTable.
+ *
+ * The record holds only the table and the row number; values are read
+ * from and written to the columns of the table.  To go through many
+ * rows without creating a record for each, move one record with
+ * row().
+ *
+ * Values pushed on the record are added to the end of its row, and
+ * clearVal() empties the row; either way the row keeps its place in
+ * the table.
+ */
+public class ColumnRecord implements Record
+{
+    ColumnTable _table;
+    int _row;
+
+    public ColumnRecord( ColumnTable table, int row )
+    {
+	_table = table;
+	_row = row;
+    }
+
+    /**
+     * @return row number in the table
+     */
+    public int row()
+    {
+	return _row;
+    }
+
+    /**
+     * Moves this record to another row of the table
+     */
+    public ColumnRecord row( int row )
+    {
+	if( row < 0 || row >= _table.recordCnt() ){
+	    throw new ArrayIndexOutOfBoundsException( row );
+	}
+	_row = row;
+	return this;
+    }
+
+    /**
+     * Returns the contents of the field specified by fld_idx
+     */
+    public Object get( int fld_idx )
+    {
+	if( fld_idx < 0 || fld_idx >= size() ){
+	    throw new ArrayIndexOutOfBoundsException( fld_idx );
+	}
+	return _table.getString( _row, fld_idx );
+    }
+
+    /**
+     * Returns the contents of the field specified by field name, or
+     * an empty string if there is no such field
+     */
+    public Object get( String name )
+    {
+	int idx;
+	idx = getFld( name );
+
+	if( idx < 0 ){
+	    return "";
+	}
+
+	return get( idx );
+    }
+
+    /**
+     * Returns a copy of the values; changing it does not change the
+     * table
+     */
+    public List valLst()
+    {
+	return new ArrayList( Arrays.asList( _values() ) );
+    }
+
+    public Record set( int idx, String value )
+    {
+	if( idx < 0 || idx >= size() ){
+	    throw new ArrayIndexOutOfBoundsException( idx );
+	}
+	_table.setString( _row, idx, value );
+	return this;
+    }
+
+    public Record set( String field, String value )
+    {
+	int idx;
+	idx = getFld( field );
+	return set( idx, value );
+    }
+
+    /**
+     * Deletes a field and its value.  The fields are shared by the
+     * whole table, so the column is deleted from every row
+     */
+    public Record delete( int idx )
+    {
+	_table.delete( idx );
+	return this;
+    }
+
+    public Record delete( String field )
+    {
+	int idx;
+	idx = getFld( field );
+	return delete( idx );
+    }
+
+    /**
+     * Clears the values of the row.  The row stays in the table, with
+     * no values
+     */
+    public Record clearVal()
+    {
+	_table._clear( _row );
+	return this;
+    }
+
+    public int fieldCnt()
+    {
+	return _table.fieldCnt();
+    }
+
+    public int valueCnt()
+    {
+	return size();
+    }
+
+    public int size()
+    {
+	return _table.valueCnt( _row );
+    }
+
+    public Field getFld( int idx )
+    {
+	return _table.getFld( idx );
+    }
+
+    public int getFld( String name )
+    {
+	return _table.getFld( name );
+    }
+
+    /**
+     * Adds a value at the end of the row
+     */
+    public Record push( String val )
+    {
+	_table._set( _row, size(), val == null ? "" : val );
+	return this;
+    }
+
+    /**
+     * Adds a value at the end of the row.  The table only keeps
+     * strings, so the value is stored as its toString()
+     */
+    public Record push( Object val )
+    {
+	return push( val == null ? "" : val.toString() );
+    }
+
+    /**
+     * Adds the values of the current row of a result set
+     */
+    public Record pushLst( ResultSet value )
+	throws SQLException
+    {
+	int count = value.getMetaData().getColumnCount();
+	for( int i = 0; i < count; i++ ){
+	    String v = value.getString( i + 1 );
+	    push( v == null ? "" : v.trim() );
+	}
+	return this;
+    }
+
+    /**
+     * Adds the values of a Record at the end of the row
+     */
+    public Record push( Record value )
+    {
+	// the record may be this one, which grows as it is pushed
+	int cnt = value.size();
+	for( int i = 0; i < cnt; i++ ){
+	    push( value.get( i ) );
+	}
+	return this;
+    }
+
+    public Record pushLst( String[] val )
+    {
+	for( int i = 0; i < val.length; i++ ){
+	    push( val[i] );
+	}
+	return this;
+    }
+
+    /**
+     * @return the values pushed in the row
+     */
+    String[] _values()
+    {
+	String[] retval = new String[size()];
+	for( int i = 0; i < retval.length; i++ ){
+	    retval[i] = _table.getString( _row, i );
+	}
+	return retval;
+    }
+
+    /**
+     * Returns the values as a array of strings, one per field
+     */
+    public String[] toArray()
+    {
+	String[] array = new String[fieldCnt()];
+	for( int i = 0; i < array.length; i++ ){
+	    array[i] = _table.getString( _row, i );
+	}
+	return array;
+    }
+
+    public String toString()
+    {
+	return toCsv();
+    }
+
+    public String toCsv()
+    {
+	return Csv.createCSV( toArray() );
+    }
+
+    public Map toMap()
+    {
+	Map map = new HashMap();
+	for( int i = 0; i < fieldCnt(); i++ ){
+	    map.put( getFld( i ).name(), _table.getString( _row, i ) );
+	}
+	return map;
+    }
+}
@@ -0,0 +1,387 @@
+package name.subroutine.etable;
+
+import java.util.*;
+import java.util.stream.*;
+import java.io.*;
+import java.sql.*;
+
+/**
+ * A table kept in memory by column.
+ *
+ * Each field is a Column, which packs all of its values into one char
+ * array, so a row costs a few ints per field instead of a record, a
+ * Vector and a StringBuffer per value.  Nothing is synchronized; like
+ * the other tables, a ColumnTable is meant to be filled by one thread,
+ * but once filled, stream().parallel() can read it from several.
+ *
+ * The records returned by get(), first(), last() and stream() are
+ * ColumnRecord views of a row; they hold no values of their own, and
+ * setting a value through them changes the table.  Records given to
+ * push() are copied into the columns.
+ *
+ * <pre>
+ *     ColumnTable t = new ColumnTable();
+ *     t.pushFile( "members.csv" );   // the first line names the fields
+ *     int rating = t.getFld( "rating" );
+ *     for( int i = 0; i < t.size(); i++ ){
+ *         String val = t.getString( i, rating );
+ *     }
+ * </pre>
+ */
+public class ColumnTable extends AbstractTable
+{
+    /**
+     * One column per value position.  There may be more columns than
+     * fields if rows were pushed with more values than fields
+     */
+    Column[] _column_lst;
+    int _column_cnt;
+
+    /**
+     * Number of values pushed in each row
+     */
+    int[] _value_cnt;
+
+    /**
+     * Number of rows
+     */
+    int _size;
+
+    /**
+     * Reused by pushLine
+     */
+    CsvTokenizer _tokenizer;
+
+    public ColumnTable()
+    {
+	init();
+    }
+
+    /**
+     * initializes the table.  _record_lst is left empty; the rows are
+     * kept in the columns
+     */
+    public void init()
+    {
+	super.init();
+	_column_lst = new Column[8];
+	_column_cnt = 0;
+	_value_cnt = new int[16];
+	_size = 0;
+	_tokenizer = new CsvTokenizer();
+    }
+
+    public void clear()
+    {
+	super.clear();
+	clearRecordLst();
+    }
+
+    public void clearRecordLst()
+    {
+	_column_lst = new Column[8];
+	_column_cnt = 0;
+	_value_cnt = new int[16];
+	_size = 0;
+	_current = 0;
+    }
+
+    public int recordCnt()
+    {
+	return _size;
+    }
+
+    /**
+     * @return the column of the value position, created if needed
+     */
+    Column _column( int idx )
+    {
+	if( idx >= _column_lst.length ){
+	    int capacity = Math.max( idx + 1, _column_lst.length * 2 );
+	    _column_lst = Arrays.copyOf( _column_lst, capacity );
+	}
+	while( _column_cnt <= idx ){
+	    _column_lst[_column_cnt++] = new Column();
+	}
+	return _column_lst[idx];
+    }
+
+    /**
+     * Adds an empty row
+     *
+     * @return row number
+     */
+    int _addRow()
+    {
+	if( _size == _value_cnt.length ){
+	    _value_cnt = Arrays.copyOf( _value_cnt, _size * 2 );
+	}
+	_value_cnt[_size] = 0;
+	return _size++;
+    }
+
+    /**
+     * Sets the value of a row, extending the value count of the row
+     * if needed
+     */
+    void _set( int row, int idx, CharSequence seq, int start, int end )
+    {
+	_column( idx ).set( row, seq, start, end );
+	if( _value_cnt[row] <= idx ){
+	    _value_cnt[row] = idx + 1;
+	}
+    }
+
+    void _set( int row, int idx, String val )
+    {
+	_set( row, idx, val, 0, val.length() );
+    }
+
+    /**
+     * Empties a row, so that it has no values but keeps its place in
+     * the table
+     */
+    void _clear( int row )
+    {
+	for( int i = 0; i < _value_cnt[row]; i++ ){
+	    _column_lst[i].set( row, "" );
+	}
+	_value_cnt[row] = 0;
+    }
+
+    /**
+     * Appends a record at the end of the record set.  The values are
+     * copied, so the record can be reused
+     */
+    public Table push( Record rec )
+    {
+	int row = _addRow();
+	for( int i = 0; i < rec.size(); i++ ){
+	    Object obj = rec.get( i );
+	    _set( row, i, obj == null ? "" : obj.toString() );
+	}
+	return this;
+    }
+
+    public Table push( String[] value )
+    {
+	int row = _addRow();
+	for( int i = 0; i < value.length; i++ ){
+	    _set( row, i, value[i] == null ? "" : value[i] );
+	}
+	return this;
+    }
+
+    /**
+     * Adds a record from the current row of a result set
+     */
+    public Table push( ResultSet rs )
+	throws SQLException
+    {
+	int count = rs.getMetaData().getColumnCount();
+	int row = _addRow();
+	for( int i = 0; i < count; i++ ){
+	    String v = rs.getString( i + 1 );
+	    _set( row, i, v == null ? "" : v.trim() );
+	}
+	return this;
+    }
+
+    /**
+     * Appends all the records from the current record on
+     */
+    public Table pushLst( ResultSet rs )
+	throws SQLException
+    {
+	do{
+	    push( rs );
+	} while( rs.next() );
+
+	return this;
+    }
+
+    /**
+     * Adds a line of comma separated values as a record.  Fields that
+     * have no quotes in them are copied straight from the line
+     */
+    public int pushLine( String line )
+    {
+	CsvTokenizer tok = _tokenizer;
+	tok.tokenize( line );
+
+	int row = _addRow();
+	for( int i = 0; i < tok.size(); i++ ){
+	    if( tok.isEscaped( i ) ){
+		_set( row, i, tok.get( i ) );
+	    }
+	    else{
+		_set( row, i, line, tok.start( i ), tok.end( i ) );
+	    }
+	}
+	return 1;
+    }
+
+    /**
+     * Adds a whole comma separated value file.  If the table has no
+     * fields yet, the first line names them
+     */
+    public int pushFile( String fname )
+	throws FileNotFoundException, IOException
+    {
+	BufferedReader br = new BufferedReader( new FileReader( fname ) );
+	try{
+	    String buf;
+	    if( fieldCnt() == 0 ){
+		buf = br.readLine();
+		if( buf == null ) return 1;
+		fieldLst( CsvTable.toArray( buf ) );
+	    }
+	    while( (buf = br.readLine()) != null ){
+		pushLine( buf );
+	    }
+	}
+	finally{
+	    br.close();
+	}
+	return 1;
+    }
+
+    public int pushFld( String name )
+    {
+	fieldLst().add( createField( name ) );
+	return 1;
+    }
+
+    /**
+     * Creates a record that is not part of the table.  Fill it and
+     * push() it to add its values
+     */
+    public Record createRecord()
+    {
+	return new CsvRecord( fieldLst() );
+    }
+
+    public Field createField( String name )
+    {
+	return new CsvField( name );
+    }
+
+    public Record first()
+    {
+	_current = 0;
+	if( _size <= 0 ) return null;
+
+	return new ColumnRecord( this, _current );
+    }
+
+    public Record get()
+    {
+	if( _size <= 0 ) return null;
+
+	return new ColumnRecord( this, _current );
+    }
+
+    public Record get( int num )
+    {
+	if( _size <= num ) return null;
+	return new ColumnRecord( this, num );
+    }
+
+    public Record last()
+    {
+	_current = _size - 1;
+
+	if( _current < 0 ){
+	    return null;
+	}
+	return new ColumnRecord( this, _current );
+    }
+
+    /**
+     * @return number of values pushed in a row
+     */
+    public int valueCnt( int row )
+    {
+	return _value_cnt[row];
+    }
+
+    /**
+     * Gets a value without creating a record.  Values that were never
+     * pushed are empty
+     */
+    public String getString( int row, int fld )
+    {
+	if( row < 0 || row >= _size ){
+	    throw new ArrayIndexOutOfBoundsException( row );
+	}
+	if( fld >= _column_cnt ) return "";
+	return _column_lst[fld].get( row );
+    }
+
+    /**
+     * Appends a value without creating a String
+     */
+    public StringBuilder appendTo( int row, int fld, StringBuilder buf )
+    {
+	if( row < 0 || row >= _size ){
+	    throw new ArrayIndexOutOfBoundsException( row );
+	}
+	if( fld >= _column_cnt ) return buf;
+	return _column_lst[fld].appendTo( row, buf );
+    }
+
+    /**
+     * Sets a value of a row
+     */
+    public void setString( int row, int fld, String val )
+    {
+	if( row < 0 || row >= _size ){
+	    throw new ArrayIndexOutOfBoundsException( row );
+	}
+	_set( row, fld, val );
+    }
+
+    /**
+     * Deletes a column
+     */
+    public Table delete( int idx )
+    {
+	_field_lst.remove( idx );
+
+	if( idx < _column_cnt ){
+	    System.arraycopy( _column_lst, idx + 1, _column_lst, idx,
+			      _column_cnt - idx - 1 );
+	    _column_lst[--_column_cnt] = null;
+	}
+	for( int row = 0; row < _size; row++ ){
+	    if( _value_cnt[row] > idx ){
+		_value_cnt[row]--;
+	    }
+	}
+	return this;
+    }
+
+    /**
+     * Gets from the specified record the field specified by fld_idx,
+     * without creating a record
+     */
+    public Object getVal( int rec_idx, int fld_idx )
+    {
+	if( rec_idx >= _size ) return null;
+	return getString( rec_idx, fld_idx );
+    }
+
+    /**
+     * Rows are split by number; each record is a new view
+     */
+    public Spliterator<Record> spliterator()
+    {
+	return stream().spliterator();
+    }
+
+    public Stream<Record> stream()
+    {
+	return IntStream.range( 0, _size )
+	    .mapToObj( row -> (Record)new ColumnRecord( this, row ) );
+    }
+}
@@ -201,102 +201,15 @@ public class CsvTable extends AbstractTable
     /**
      * returns a list of String objects resulting from parsing
      * a given string as comma separated values
+     *
+     * This is a shortcut for CsvTokenizer.  Use the tokenizer directly
+     * to read many lines, or to look at fields without creating Strings.
      */
     public static String[] toArray( String str )
     {
-        List retval = new ArrayList();
-
-        final int COMMA = 0;
-        final int QUOTE = 1;
-        final int TEXT = 2;
-        final int EOS = 3;
-        // this is one of those deterministic finite automaton
-        // thingies
-
-        // stores the next context of a given context (row)
-        // and character seen (column)
-        byte[] next_context_lst = {
-            //comma   quote   text    eos     
-              0      ,0      ,0      ,0       ,// 0 reserved
-              2      ,3      ,4      ,6       ,// 1 initial
-              2      ,3      ,4      ,6       ,// 2 last char == comma
-              3      ,5      ,3      ,6       ,// 3 last char == quote
-              2      ,4      ,4      ,6       ,// 4 last char == text
-              2      ,3      ,4      ,6       ,// 5 last char == second quote
-              0      ,0      ,0      ,0       ,// 6 end of stream
-        };
-
-        final int PUSH = 1;                    // push existing segment
-                                               // to result array and
-                                               // start a new segment
-        final int NOTHING = 2;                 // do absolutely nothing
-        final int APPEND = 3;                  // append current char to
-                                               // existing segment
-        
-
-        // stores the action to perform for a given context (row)
-        // and character seen (column)
-        byte[] action_lst = {
-            //comma   quote   text    eos     
-              0      ,0      ,0      ,0       ,// 0 reserved
-              1      ,2      ,3      ,2       ,// 1 initial
-              1      ,2      ,3      ,1       ,// 2 last char == comma
-              3      ,2      ,3      ,2       ,// 3 last char == quote
-              1      ,3      ,3      ,1       ,// 4 last char == text
-              1      ,3      ,3      ,1       ,// 5 last char == second quote
-              0      ,0      ,0      ,0       ,// 6 end of stream
-        };
-
-        StringBuffer seg = new StringBuffer();
-        char[] buf       = str.toCharArray();
-        byte   context   = 1;
-        char   c         = 0;
-        int    len       = buf.length;
-
-        int  idx;
-        int  chartype;
-        byte action;
-
-        for( idx = 0; ; idx++ ){
-            //System.out.print( "Context: " + context );
-
-            // find char type
-            if( idx == len ){
-                chartype = EOS;
-            }
-            else{
-                c = buf[idx];
-                if( c == ',' ){
-                    chartype = COMMA;
-                }
-                else if( c == '"' ){
-                    chartype = QUOTE;
-                }
-                else{
-                    chartype = TEXT;
-                }
-            }
-
-            //System.out.print( "    chartype: " + chartype );
-
-            action = action_lst[context * 4 + chartype];
-
-            //System.out.println( "    action: " + action );
-
-            if( action == PUSH ){
-                retval.add( seg.toString() );
-                seg = new StringBuffer();
-            }
-            else if( action == APPEND ){
-                seg.append( c );
-            }
-
-            context = next_context_lst[context * 4 + chartype];
-
-            if( context == 6 ) break;
-        }
-
-        return (String[])retval.toArray( new String[0] );
+        CsvTokenizer tok = new CsvTokenizer();
+        tok.tokenize( str );
+        return tok.toArray();
     }
 
     public int pushLine( String line ){
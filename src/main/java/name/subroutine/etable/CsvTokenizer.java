@@ -0,0 +1,395 @@
+package name.subroutine.etable;
+
+import java.util.Arrays;
+
+/**
+ * Splits comma separated values without copying them.
+ *
+ * The rules are the ones CsvTable.toArray has always used, but instead
+ * of building a String for every field, the tokenizer only records where
+ * each field is in the text.  A String is made only when get() or
+ * toArray() is called.  The offsets are kept in arrays that are reused
+ * from line to line, so one tokenizer can read any number of lines
+ * without allocating.
+ *
+ * To split a single line:
+ * <pre>
+ *     CsvTokenizer tok = new CsvTokenizer();
+ *     tok.tokenize( line );
+ *     for( int i = 0; i < tok.size(); i++ ){
+ *         ... tok.start( i ), tok.end( i ), tok.get( i ) ...
+ *     }
+ * </pre>
+ *
+ * To read many lines, use it as a cursor:
+ * <pre>
+ *     CsvTokenizer tok = new CsvTokenizer( text );
+ *     while( tok.next() ){
+ *         ...
+ *     }
+ * </pre>
+ *
+ * Like BufferedReader.readLine, the cursor ends a line at \n, \r or
+ * \r\n, even inside quotes.
+ */
+public class CsvTokenizer
+{
+    // character types; these are the columns of the tables below
+    static final int COMMA = 0;
+    static final int QUOTE = 1;
+    static final int TEXT = 2;
+    static final int EOS = 3;
+
+    // contexts; these are the rows of the tables below
+    static final byte INITIAL = 1;
+    static final byte AFTER_COMMA = 2;
+    static final byte END = 6;
+
+    // this is one of those deterministic finite automaton
+    // thingies
+
+    // stores the next context of a given context (row)
+    // and character seen (column)
+    private static final byte[] NEXT_CONTEXT_LST = {
+        //comma   quote   text    eos
+          0      ,0      ,0      ,0       ,// 0 reserved
+          2      ,3      ,4      ,6       ,// 1 initial
+          2      ,3      ,4      ,6       ,// 2 last char == comma
+          3      ,5      ,3      ,6       ,// 3 last char == quote
+          2      ,4      ,4      ,6       ,// 4 last char == text
+          2      ,3      ,4      ,6       ,// 5 last char == second quote
+          0      ,0      ,0      ,0       ,// 6 end of stream
+    };
+
+    static final int PUSH = 1;                 // push existing segment
+                                               // to result array and
+                                               // start a new segment
+    static final int NOTHING = 2;              // do absolutely nothing
+    static final int APPEND = 3;               // append current char to
+                                               // existing segment
+
+    // stores the action to perform for a given context (row)
+    // and character seen (column)
+    private static final byte[] ACTION_LST = {
+        //comma   quote   text    eos
+          0      ,0      ,0      ,0       ,// 0 reserved
+          1      ,2      ,3      ,2       ,// 1 initial
+          1      ,2      ,3      ,1       ,// 2 last char == comma
+          3      ,2      ,3      ,2       ,// 3 last char == quote
+          1      ,3      ,3      ,1       ,// 4 last char == text
+          1      ,3      ,3      ,1       ,// 5 last char == second quote
+          0      ,0      ,0      ,0       ,// 6 end of stream
+    };
+
+    private CharSequence _text;
+
+    // the line that was last tokenized
+    private int _lineStart;
+    private int _lineEnd;
+
+    // where the cursor reads the next line from
+    private int _pos;
+
+    private int _size;
+    private int[] _startLst;
+    private int[] _endLst;
+    // an escaped field is not one piece of the text, because quotes
+    // were taken out of it.  its start and end are those of the
+    // whole field, quotes and all
+    private boolean[] _escapedLst;
+
+    public CsvTokenizer()
+    {
+        _startLst = new int[8];
+        _endLst = new int[8];
+        _escapedLst = new boolean[8];
+    }
+
+    /**
+     * Creates a cursor over the lines of the given text
+     */
+    public CsvTokenizer( CharSequence text )
+    {
+        this();
+        reset( text );
+    }
+
+    /**
+     * Starts reading the lines of the given text from the beginning
+     */
+    public void reset( CharSequence text )
+    {
+        _text = text;
+        _pos = 0;
+        _lineStart = 0;
+        _lineEnd = 0;
+        _size = 0;
+    }
+
+    /**
+     * Tokenizes the next line of the text
+     *
+     * @return false if there are no more lines
+     */
+    public boolean next()
+    {
+        int len = _text.length();
+        if( _pos >= len ){
+            _size = 0;
+            return false;
+        }
+
+        int eol = _pos;
+        while( eol < len ){
+            char c = _text.charAt( eol );
+            if( c == '\n' || c == '\r' ) break;
+            eol++;
+        }
+
+        int start = _pos;
+        _pos = eol + 1;
+        if( eol + 1 < len
+            && _text.charAt( eol ) == '\r'
+            && _text.charAt( eol + 1 ) == '\n' ){
+            _pos++;
+        }
+
+        tokenize( _text, start, eol );
+        return true;
+    }
+
+    /**
+     * Tokenizes the whole sequence as a single line
+     *
+     * @return number of fields
+     */
+    public int tokenize( CharSequence line )
+    {
+        return tokenize( line, 0, line.length() );
+    }
+
+    /**
+     * Tokenizes part of a sequence as a single line
+     *
+     * @param from index of the first char of the line
+     * @param to index after the last char of the line
+     * @return number of fields
+     */
+    public int tokenize( CharSequence seq, int from, int to )
+    {
+        _text = seq;
+        _lineStart = from;
+        _lineEnd = to;
+        _size = 0;
+
+        byte context = INITIAL;
+        int rawStart = from;
+        int segStart = -1;
+        int segEnd = -1;
+        boolean escaped = false;
+
+        for( int idx = from; ; idx++ ){
+            int chartype;
+            if( idx == to ){
+                chartype = EOS;
+            }
+            else{
+                char c = seq.charAt( idx );
+                if( c == ',' ){
+                    chartype = COMMA;
+                }
+                else if( c == '"' ){
+                    chartype = QUOTE;
+                }
+                else{
+                    chartype = TEXT;
+                }
+            }
+
+            int cell = context * 4 + chartype;
+            byte action = ACTION_LST[cell];
+
+            if( action == PUSH ){
+                if( escaped ){
+                    push( rawStart, idx, true );
+                }
+                else if( segStart < 0 ){
+                    push( idx, idx, false );
+                }
+                else{
+                    push( segStart, segEnd, false );
+                }
+                rawStart = idx + 1;
+                segStart = -1;
+                escaped = false;
+            }
+            else if( action == APPEND ){
+                // as long as the appended chars follow one another,
+                // the field is a piece of the text
+                if( segStart < 0 ){
+                    segStart = idx;
+                    segEnd = idx + 1;
+                }
+                else if( segEnd == idx ){
+                    segEnd++;
+                }
+                else{
+                    escaped = true;
+                }
+            }
+
+            context = NEXT_CONTEXT_LST[cell];
+
+            if( context == END ) break;
+        }
+
+        return _size;
+    }
+
+    private void push( int start, int end, boolean escaped )
+    {
+        if( _size == _startLst.length ){
+            int capacity = _size * 2;
+            _startLst = Arrays.copyOf( _startLst, capacity );
+            _endLst = Arrays.copyOf( _endLst, capacity );
+            _escapedLst = Arrays.copyOf( _escapedLst, capacity );
+        }
+        _startLst[_size] = start;
+        _endLst[_size] = end;
+        _escapedLst[_size] = escaped;
+        _size++;
+    }
+
+    /**
+     * @return number of fields in the current line
+     */
+    public int size()
+    {
+        return _size;
+    }
+
+    /**
+     * @return the text the offsets refer to
+     */
+    public CharSequence text()
+    {
+        return _text;
+    }
+
+    /**
+     * @return index of the first char of the current line
+     */
+    public int lineStart()
+    {
+        return _lineStart;
+    }
+
+    /**
+     * @return index after the last char of the current line, not
+     * counting the line terminator
+     */
+    public int lineEnd()
+    {
+        return _lineEnd;
+    }
+
+    /**
+     * @return index of the first char of the field.  for an escaped
+     * field, this is the start of the field as written
+     */
+    public int start( int i )
+    {
+        checkIndex( i );
+        return _startLst[i];
+    }
+
+    /**
+     * @return index after the last char of the field.  for an escaped
+     * field, this is the end of the field as written
+     */
+    public int end( int i )
+    {
+        checkIndex( i );
+        return _endLst[i];
+    }
+
+    /**
+     * @return true if quotes have to be taken out of the field to get
+     * its value, so that start() and end() do not mark the value itself
+     */
+    public boolean isEscaped( int i )
+    {
+        checkIndex( i );
+        return _escapedLst[i];
+    }
+
+    /**
+     * Appends the value of a field without creating a String
+     */
+    public StringBuilder appendTo( int i, StringBuilder buf )
+    {
+        checkIndex( i );
+        int start = _startLst[i];
+        int end = _endLst[i];
+        if( !_escapedLst[i] ){
+            return buf.append( _text, start, end );
+        }
+
+        // run the field through the automaton again, keeping only
+        // the chars it appends.  a field never ends before its last
+        // char, so there is no need to look for a push
+        byte context = AFTER_COMMA;
+        for( int idx = start; idx < end; idx++ ){
+            char c = _text.charAt( idx );
+            int chartype;
+            if( c == ',' ){
+                chartype = COMMA;
+            }
+            else if( c == '"' ){
+                chartype = QUOTE;
+            }
+            else{
+                chartype = TEXT;
+            }
+
+            int cell = context * 4 + chartype;
+            if( ACTION_LST[cell] == APPEND ){
+                buf.append( c );
+            }
+            context = NEXT_CONTEXT_LST[cell];
+        }
+        return buf;
+    }
+
+    /**
+     * @return the value of a field
+     */
+    public String get( int i )
+    {
+        checkIndex( i );
+        if( !_escapedLst[i] ){
+            return _text.subSequence( _startLst[i], _endLst[i] ).toString();
+        }
+        return appendTo( i, new StringBuilder( _endLst[i] - _startLst[i] ) )
+            .toString();
+    }
+
+    /**
+     * @return the values of all the fields in the current line
+     */
+    public String[] toArray()
+    {
+        String[] retval = new String[_size];
+        for( int i = 0; i < _size; i++ ){
+            retval[i] = get( i );
+        }
+        return retval;
+    }
+
+    private void checkIndex( int i )
+    {
+        if( i < 0 || i >= _size ){
+            throw new ArrayIndexOutOfBoundsException( i );
+        }
+    }
+}
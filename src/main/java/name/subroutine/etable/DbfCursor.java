@@ -0,0 +1,188 @@
+package name.subroutine.etable;
+
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Goes through a range of records of a DbfMapping.
+ *
+ * Fields are read straight from the mapping when they are asked for.
+ * A cursor must only be used by one thread, but any number of cursors
+ * can read the same mapping at the same time.
+ *
+ * <pre>
+ *     DbfCursor cur = table.mapping().cursor();
+ *     int name = table.getFld( "NAME" );
+ *     while( cur.next() ){
+ *         if( cur.isDeleted() ) continue;
+ *         String val = cur.getString( name );
+ *     }
+ * </pre>
+ */
+public class DbfCursor
+{
+    DbfMapping _mapping;
+
+    /**
+     * Copy of the mapping's buffer, so that the position can be moved
+     * without disturbing other cursors
+     */
+    ByteBuffer _buf;
+
+    int _from;
+    int _to;
+    int _current;
+
+    /**
+     * Position of the current record in the file
+     */
+    int _pos;
+
+    /**
+     * Number of bytes of the current record that are in the file
+     */
+    int _len;
+
+    /**
+     * Holds the bytes of a field while it is decoded
+     */
+    byte[] _scratch;
+
+    DbfCursor( DbfMapping mapping, int from, int to )
+    {
+        _mapping = mapping;
+        _buf = mapping._buf.duplicate();
+        _from = from;
+        _to = to;
+        _current = from - 1;
+        _scratch = new byte[64];
+    }
+
+    /**
+     * Moves to the next record
+     *
+     * @return false if there are no more records in the range
+     */
+    public boolean next()
+    {
+        if( _current + 1 >= _to ){
+            _current = _to;
+            return false;
+        }
+        _current++;
+        _pos = _mapping._position( _current );
+        _len = _mapping._length( _current );
+        return true;
+    }
+
+    /**
+     * @return number of the current record; the first record is 0
+     */
+    public int recnum()
+    {
+        return _current;
+    }
+
+    public int from()
+    {
+        return _from;
+    }
+
+    public int to()
+    {
+        return _to;
+    }
+
+    void _checkRecord()
+    {
+        if( _current < _from || _current >= _to ){
+            throw new IllegalStateException( "No current record" );
+        }
+    }
+
+    /**
+     * @return true if the record is a deleted record
+     */
+    public boolean isDeleted()
+    {
+        _checkRecord();
+        return _buf.get( _pos ) == '*';
+    }
+
+    /**
+     * @return position of the field of the current record in the
+     * file.  the bytes can be read from the mapping without copying
+     */
+    public int position( int fld )
+    {
+        _checkRecord();
+        return _pos + _mapping._field_arr[fld]._offset;
+    }
+
+    /**
+     * @return number of bytes of the field of the current record.  this
+     * is less than the field size if the record has been cut short
+     */
+    public int length( int fld )
+    {
+        _checkRecord();
+        DbfField field = _mapping._field_arr[fld];
+        int len = _len - field._offset;
+        if( len < 0 ) return 0;
+        return Math.min( len, field._size );
+    }
+
+    /**
+     * Copies the bytes of a field into the scratch buffer
+     *
+     * @return number of bytes copied
+     */
+    int _copy( int fld )
+    {
+        int len = length( fld );
+        if( _scratch.length < len ){
+            _scratch = new byte[Math.max( len, _scratch.length * 2 )];
+        }
+        _buf.position( position( fld ) );
+        _buf.get( _scratch, 0, len );
+        return len;
+    }
+
+    /**
+     * @return the bytes of a field of the current record
+     */
+    public byte[] getBytes( int fld )
+    {
+        int len = _copy( fld );
+        byte[] retval = new byte[len];
+        System.arraycopy( _scratch, 0, retval, 0, len );
+        return retval;
+    }
+
+    /**
+     * @return a field of the current record, decoded as UTF-8 from
+     * the bytes of the field.  Like DbfTable.read(), the value is not
+     * trimmed
+     */
+    public String getString( int fld )
+    {
+        int len = _copy( fld );
+        return new String( _scratch, 0, len, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * @return the whole current record.  DbfTable.read() and stream()
+     * also cut fields by their byte offsets before decoding them, so
+     * the values are the same as theirs
+     */
+    public Record get()
+    {
+        _checkRecord();
+        Record rec = new DbfRecord( _mapping._field_lst );
+        for( int i = 0; i < _mapping._field_arr.length; i++ ){
+            if( _mapping._field_arr[i]._offset >= _len ) continue;
+            rec.push( getString( i ) );
+        }
+        return rec;
+    }
+}
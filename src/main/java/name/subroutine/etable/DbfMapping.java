@@ -0,0 +1,187 @@
+package name.subroutine.etable;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * The records of a DBF file, memory mapped.
+ *
+ * Created by DbfTable.openMapped() and DbfTableByte.openMapped().
+ * Nothing is read from the file until a record is looked at, and then
+ * only the bytes of the fields that are asked for are decoded.  Use
+ * cursor() to go through the records; cursors are independent of each
+ * other, so split() can be used to scan the table in several threads
+ * at once.
+ *
+ * The whole file is mapped at once, so it cannot be larger than 2GB.
+ */
+public class DbfMapping
+{
+    /**
+     * Whole file; positions of this buffer are never changed, so it
+     * can be shared with the cursors
+     */
+    ByteBuffer _buf;
+
+    int _header_size;
+    int _rec_size;
+
+    /**
+     * Record count.  This is less than the count in the header if the
+     * file has been cut short
+     */
+    int _size;
+
+    List _field_lst;
+    DbfField[] _field_arr;
+
+    DbfMapping( FileChannel channel, int header_size, int rec_size,
+                int size, List field_lst )
+        throws IOException
+    {
+        long len = channel.size();
+        if( len > Integer.MAX_VALUE ){
+            throw new IOException(
+                "File is too large to be mapped: " + len + " bytes"
+            );
+        }
+
+        _buf = channel.map( FileChannel.MapMode.READ_ONLY, 0, len );
+        _header_size = header_size;
+        _rec_size = rec_size;
+
+        // a record that is cut short is still read, like
+        // DbfTable.read() does
+        int available = 0;
+        if( len > header_size && rec_size > 0 ){
+            available = (int)((len - header_size + rec_size - 1)
+                              / rec_size);
+        }
+        _size = Math.min( size, available );
+
+        _field_lst = field_lst;
+        _field_arr = new DbfField[field_lst.size()];
+        field_lst.toArray( _field_arr );
+    }
+
+    /**
+     * @return number of records
+     */
+    public int recordCnt()
+    {
+        return _size;
+    }
+
+    /**
+     * @return number of fields in each record
+     */
+    public int fieldCnt()
+    {
+        return _field_arr.length;
+    }
+
+    public DbfField getFld( int idx )
+    {
+        return _field_arr[idx];
+    }
+
+    /**
+     * @return index of the field, or -1 if there is no such field
+     */
+    public int getFld( String name )
+    {
+        for( int i = 0; i < _field_arr.length; i++ ){
+            if( _field_arr[i].name().equalsIgnoreCase( name ) ){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return position of the record in the file
+     */
+    int _position( int recnum )
+    {
+        return _header_size + _rec_size * recnum;
+    }
+
+    /**
+     * @return number of bytes of the record that are in the file
+     */
+    int _length( int recnum )
+    {
+        int remaining = _buf.limit() - _position( recnum );
+        return Math.min( _rec_size, remaining );
+    }
+
+    /**
+     * Copies whole records.  This is how DbfTable.read() gets its
+     * records in mapped mode.
+     *
+     * @param cnt most records to copy
+     * @return number of bytes copied, or -1 if there is no such record
+     */
+    int read( int recnum, byte[] dst, int cnt )
+    {
+        if( recnum < 0 || recnum >= _size ){
+            return -1;
+        }
+
+        cnt = Math.min( cnt, _size - recnum );
+        int len = _rec_size * (cnt - 1) + _length( recnum + cnt - 1 );
+
+        ByteBuffer buf = _buf.duplicate();
+        buf.position( _position( recnum ) );
+        buf.get( dst, 0, len );
+        return len;
+    }
+
+    /**
+     * @return a cursor over all the records
+     */
+    public DbfCursor cursor()
+    {
+        return cursor( 0, _size );
+    }
+
+    /**
+     * @param from first record
+     * @param to record after the last one
+     * @return a cursor over some of the records
+     */
+    public DbfCursor cursor( int from, int to )
+    {
+        if( from < 0 || to > _size || from > to ){
+            throw new IndexOutOfBoundsException(
+                "Records " + from + " to " + to + " of " + _size
+            );
+        }
+        return new DbfCursor( this, from, to );
+    }
+
+    /**
+     * Divides the records into ranges of about the same size, so that
+     * they can be scanned in parallel, one cursor per thread.
+     *
+     * @param cnt number of ranges
+     * @return cursors over the ranges, in order
+     */
+    public DbfCursor[] split( int cnt )
+    {
+        if( cnt < 1 ){
+            throw new IllegalArgumentException( "Cannot split into "
+                                                + cnt + " ranges" );
+        }
+
+        DbfCursor[] retval = new DbfCursor[cnt];
+        for( int i = 0; i < cnt; i++ ){
+            int from = (int)((long)_size * i / cnt);
+            int to = (int)((long)_size * (i + 1) / cnt);
+            retval[i] = cursor( from, to );
+        }
+        return retval;
+    }
+}
@@ -2,12 +2,14 @@ package name.subroutine.etable;
 
 import java.util.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 
 /**
  * A DBF Table
  */
 public class DbfTable extends AbstractDSTable
+    implements PositionalTable
 {
     /**
      * Size of the DBF header
@@ -69,6 +71,12 @@ public class DbfTable extends AbstractDSTable
      */
     boolean _created;
 
+    /**
+     * Memory map of the records, if the table was opened with
+     * openMapped()
+     */
+    DbfMapping _mapping;
+
     public DbfTable( String name )
     {
         init( name );
@@ -94,6 +102,7 @@ public class DbfTable extends AbstractDSTable
         // windows ANSI for now
         _code_page = 0x03;
         _rec = null;
+        _mapping = null;
     }
 
 
@@ -236,12 +245,62 @@ public class DbfTable extends AbstractDSTable
      */
     public void open()
         throws FileNotFoundException, IOException
+    {
+        _open( "rw" );
+    }
+
+    /**
+     * Opens the DBF file for reading only, and maps it into memory.
+     * read() and get() then copy records from the mapping instead of
+     * reading the file, and mapping() gives cursors that only decode
+     * the fields that are asked for.
+     */
+    public void openMapped()
+        throws FileNotFoundException, IOException
+    {
+        _open( "r" );
+
+        _mapping = new DbfMapping( _fp.getChannel(), _header_size,
+                                   _rec_size, _size, _field_lst );
+    }
+
+    /**
+     * @return memory map of the records, or null if the table was not
+     * opened with openMapped()
+     */
+    public DbfMapping mapping()
+    {
+        return _mapping;
+    }
+
+    /**
+     * Reads the next record into _rec, from the mapping if there is
+     * one
+     *
+     * @return number of bytes read, or -1 at the end of the file
+     */
+    int _readRec()
+        throws IOException
+    {
+        if( _mapping != null ){
+            return _mapping.read( _current, _rec, 1 );
+        }
+        return _fp.read( _rec, 0, _rec_size );
+    }
+
+    /**
+     * Reads the header and field definitions
+     *
+     * @param mode RandomAccessFile mode
+     */
+    void _open( String mode )
+        throws FileNotFoundException, IOException
     {
         if( !(new File( _name )).exists() ){
             throw new FileNotFoundException( _name + " not found." );
         }
 
-        _fp = new RandomAccessFile( _name, "rw" );
+        _fp = new RandomAccessFile( _name, mode );
 
         _fp.seek( 0 );
 
@@ -362,6 +421,54 @@ public class DbfTable extends AbstractDSTable
         return _size;
     }
 
+    /**
+     * Gets the size of a record in bytes
+     */
+    public int recordSize()
+    {
+        return _rec_size;
+    }
+
+    /**
+     * Reads records by position, from the mapping if there is one
+     */
+    public int readAt( int recnum, byte[] buf, int cnt )
+        throws IOException
+    {
+        if( _mapping != null ){
+            return _mapping.read( recnum, buf, cnt );
+        }
+        if( recnum < 0 || recnum >= _size ){
+            return -1;
+        }
+
+        cnt = Math.min( cnt, _size - recnum );
+        return RecordSpliterator.read(
+            _fp, _header_size + (long)_rec_size * recnum, buf,
+            _rec_size * cnt
+        );
+    }
+
+    /**
+     * Deleted records are skipped
+     */
+    public Record toRecord( byte[] buf, int off, int len )
+        throws IOException
+    {
+        if( buf[off] == '*' ) return null;
+
+        return _slice( buf, off, len );
+    }
+
+    /**
+     * Records are read by position, so the table can be split among
+     * threads; see RecordSpliterator
+     */
+    public Spliterator<Record> spliterator()
+    {
+        return new RecordSpliterator( this, 0, recordCnt() );
+    }
+
     /**
      * Relocates the file pointer to the given record but does not update
      * _current
@@ -380,14 +487,18 @@ public class DbfTable extends AbstractDSTable
     }
 
     /**
-     * Cuts a string into slices according to the field definitions.
+     * Cuts a record into slices according to the field definitions.
+     * Field offsets and sizes are in bytes, so each slice is cut from
+     * the bytes of the record and then decoded as UTF-8 on its own; a
+     * field with multi-byte characters in it has fewer characters than
+     * its size.  DbfCursor decodes fields the same way.
      *
+     * @param len number of bytes of the record that were read
      * @returns a Record
      */
-    Record _slice( String buf )
+    Record _slice( byte[] buf, int off, int len )
     {
         Record pieces = new DbfRecord( _field_lst );
-        String piece;
 
         if( _field_lst.size() < 1 ) return pieces;
 
@@ -397,7 +508,6 @@ public class DbfTable extends AbstractDSTable
          * Perl people would say...
          */
         DbfField field;
-        int len = buf.length();
         int idx;
         for( idx = 0; idx < _field_lst.size(); idx++ ){
             /*
@@ -416,20 +526,13 @@ public class DbfTable extends AbstractDSTable
                 continue;
             }
 
-            int endidx = field._offset + field._size;
-
             /*
-             * Compare this with the previous statement.  We only
-             * check for "greater than" because it is okay if the 
-             * offset of the NEXT field is out of range.
+             * We only check for "greater than" because it is okay if
+             * the offset of the NEXT field is out of range.
              */
-            if( endidx > len ){
-                piece = buf.substring( field._offset );
-            }
-            else{
-                piece = buf.substring( field._offset, endidx );
-            }
-            pieces.push( piece );
+            int piece_len = Math.min( field._size, len - field._offset );
+            pieces.push( new String( buf, off + field._offset, piece_len,
+                                     StandardCharsets.UTF_8 ) );
         }
         return pieces;
     }
@@ -466,15 +569,13 @@ public class DbfTable extends AbstractDSTable
     {
         try{
             int retval;
-            retval = _fp.read( _rec, 0, _rec_size );
+            retval = _readRec();
             
             _current++;
 
             if( retval < 0 ) return null;
 
-            String x = new String( _rec, "UTF-8" );
-
-            Record rec = _slice( x );
+            Record rec = _slice( _rec, 0, retval );
 
             return rec;
         }
@@ -487,7 +588,7 @@ public class DbfTable extends AbstractDSTable
     {
         try{
             int retval;
-            retval = _fp.read( _rec, 0, _rec_size );
+            retval = _readRec();
 
             _current++;
 
@@ -543,6 +644,13 @@ public class DbfTable extends AbstractDSTable
     public void close()
         throws IOException
     {
+        if( _mapping != null ){
+            // opened for reading only; there is nothing to write
+            _mapping = null;
+            _fp.close();
+            return;
+        }
+
         _updateFieldLst();
         _updateHeader();
 
@@ -11,6 +11,7 @@ import java.sql.*;
  * (Still being evaluated)
  */
 public class DbfTableByte extends AbstractDSTable
+    implements PositionalTable
 {
     /**
      * Size of the DBF header
@@ -72,6 +73,12 @@ public class DbfTableByte extends AbstractDSTable
      */
     boolean _created;
 
+    /**
+     * Memory map of the records, if the table was opened with
+     * openMapped()
+     */
+    DbfMapping _mapping;
+
     public DbfTableByte( String name )
     {
         init( name );
@@ -97,6 +104,7 @@ public class DbfTableByte extends AbstractDSTable
         // windows ANSI for now
         _code_page = 0x03;
         _rec = null;
+        _mapping = null;
     }
 
 
@@ -239,12 +247,62 @@ public class DbfTableByte extends AbstractDSTable
      */
     public void open()
         throws FileNotFoundException, IOException
+    {
+        _open( "rw" );
+    }
+
+    /**
+     * Opens the DBF file for reading only, and maps it into memory.
+     * read() and get() then copy records from the mapping instead of
+     * reading the file, and mapping() gives cursors that only decode
+     * the fields that are asked for.
+     */
+    public void openMapped()
+        throws FileNotFoundException, IOException
+    {
+        _open( "r" );
+
+        _mapping = new DbfMapping( _fp.getChannel(), _header_size,
+                                   _rec_size, _size, _field_lst );
+    }
+
+    /**
+     * @return memory map of the records, or null if the table was not
+     * opened with openMapped()
+     */
+    public DbfMapping mapping()
+    {
+        return _mapping;
+    }
+
+    /**
+     * Reads the next record into _rec, from the mapping if there is
+     * one
+     *
+     * @return number of bytes read, or -1 at the end of the file
+     */
+    int _readRec()
+        throws IOException
+    {
+        if( _mapping != null ){
+            return _mapping.read( _current, _rec, 1 );
+        }
+        return _fp.read( _rec, 0, _rec_size );
+    }
+
+    /**
+     * Reads the header and field definitions
+     *
+     * @param mode RandomAccessFile mode
+     */
+    void _open( String mode )
+        throws FileNotFoundException, IOException
     {
         if( !(new File( _name )).exists() ){
             throw new FileNotFoundException( _name + " not found." );
         }
 
-        _fp = new RandomAccessFile( _name, "rw" );
+        _fp = new RandomAccessFile( _name, mode );
 
         _fp.seek( 0 );
 
@@ -365,6 +423,53 @@ public class DbfTableByte extends AbstractDSTable
         return _size;
     }
 
+    /**
+     * Gets the size of a record in bytes
+     */
+    public int recordSize()
+    {
+        return _rec_size;
+    }
+
+    /**
+     * Reads records by position, from the mapping if there is one
+     */
+    public int readAt( int recnum, byte[] buf, int cnt )
+        throws IOException
+    {
+        if( _mapping != null ){
+            return _mapping.read( recnum, buf, cnt );
+        }
+        if( recnum < 0 || recnum >= _size ){
+            return -1;
+        }
+
+        cnt = Math.min( cnt, _size - recnum );
+        return RecordSpliterator.read(
+            _fp, _header_size + (long)_rec_size * recnum, buf,
+            _rec_size * cnt
+        );
+    }
+
+    /**
+     * Deleted records are skipped
+     */
+    public Record toRecord( byte[] buf, int off, int len )
+    {
+        if( buf[off] == '*' ) return null;
+
+        return _slice( Arrays.copyOfRange( buf, off, off + len ) );
+    }
+
+    /**
+     * Records are read by position, so the table can be split among
+     * threads; see RecordSpliterator
+     */
+    public Spliterator<Record> spliterator()
+    {
+        return new RecordSpliterator( this, 0, recordCnt() );
+    }
+
     /**
      * Relocates the file pointer to the given record but does not update
      * _current
@@ -473,7 +578,7 @@ public class DbfTableByte extends AbstractDSTable
     {
         try{
             int retval;
-            retval = _fp.read( _rec, 0, _rec_size );
+            retval = _readRec();
             
             _current++;
 
@@ -494,7 +599,7 @@ public class DbfTableByte extends AbstractDSTable
     {
         try{
             int retval;
-            retval = _fp.read( _rec, 0, _rec_size );
+            retval = _readRec();
 
             _current++;
 
@@ -550,6 +655,13 @@ public class DbfTableByte extends AbstractDSTable
     public void close()
         throws IOException
     {
+        if( _mapping != null ){
+            // opened for reading only; there is nothing to write
+            _mapping = null;
+            _fp.close();
+            return;
+        }
+
         _updateFieldLst();
         _updateHeader();
 
@@ -0,0 +1,40 @@
+package name.subroutine.etable;
+
+import java.io.*;
+
+/**
+ * A table whose records all have the same size, so that any record
+ * can be read by its position alone.  RecordSpliterator uses this to
+ * divide the records among threads.
+ */
+interface PositionalTable
+{
+    /**
+     * Gets number of records
+     */
+    public int recordCnt();
+
+    /**
+     * Gets the size of a record in bytes
+     */
+    public int recordSize();
+
+    /**
+     * Reads records without moving the cursor.  This is called by
+     * several threads at once, so it must not use the file pointer.
+     *
+     * @param buf at least recordSize() * cnt bytes
+     * @param cnt most records to read
+     * @return number of bytes read, or -1 if there is no such record
+     */
+    public int readAt( int recnum, byte[] buf, int cnt )
+        throws IOException;
+
+    /**
+     * Converts the bytes of a record, as read by readAt
+     *
+     * @return the record, or null if it should be skipped
+     */
+    public Record toRecord( byte[] buf, int off, int len )
+        throws IOException;
+}
@@ -0,0 +1,125 @@
+package name.subroutine.etable;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Goes through a range of records of a PositionalTable.
+ *
+ * Records are read by position, so the table cursor is never moved,
+ * and the range can be split in half for another thread as many times
+ * as needed.  This is what DbfTable.stream().parallel() uses.
+ */
+class RecordSpliterator implements Spliterator<Record>
+{
+    /**
+     * A range smaller than this is not split
+     */
+    static final int MIN_SPLIT_SIZE = 1024;
+
+    /**
+     * Number of records read from the file at a time
+     */
+    static final int BLOCK_SIZE = 64;
+
+    PositionalTable _table;
+    int _current;
+    int _to;
+
+    /**
+     * Records that have been read, starting with record _block_start
+     */
+    byte[] _block;
+    int _block_start;
+    int _block_len;
+
+    RecordSpliterator( PositionalTable table, int from, int to )
+    {
+        _table = table;
+        _current = from;
+        _to = to;
+    }
+
+    public boolean tryAdvance( Consumer<? super Record> action )
+    {
+        int rec_size = _table.recordSize();
+        if( _block == null ){
+            _block = new byte[rec_size * BLOCK_SIZE];
+            _block_len = 0;
+        }
+
+        try{
+            while( _current < _to ){
+                int off = (_current - _block_start) * rec_size;
+                if( _current < _block_start || off >= _block_len ){
+                    int cnt = Math.min( BLOCK_SIZE, _to - _current );
+                    _block_start = _current;
+                    _block_len = _table.readAt( _current, _block, cnt );
+                    off = 0;
+                    if( _block_len < 0 ){
+                        _block_len = 0;
+                        _current = _to;
+                        return false;
+                    }
+                }
+
+                _current++;
+                int len = Math.min( rec_size, _block_len - off );
+                Record rec = _table.toRecord( _block, off, len );
+                if( rec != null ){
+                    action.accept( rec );
+                    return true;
+                }
+            }
+            return false;
+        }
+        catch( IOException ex ){
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    /**
+     * Reads len bytes at the given position of the file, without
+     * moving the file pointer.  Several threads can do this at once.
+     *
+     * @return number of bytes read, or -1 if pos is past the end
+     */
+    static int read( RandomAccessFile fp, long pos, byte[] buf, int len )
+        throws IOException
+    {
+        java.nio.ByteBuffer dst = java.nio.ByteBuffer.wrap( buf, 0, len );
+        while( dst.hasRemaining() ){
+            int cnt = fp.getChannel().read( dst, pos + dst.position() );
+            if( cnt < 0 ) break;
+        }
+        if( dst.position() == 0 ) return -1;
+        return dst.position();
+    }
+
+    public Spliterator<Record> trySplit()
+    {
+        int mid = (_current + _to) >>> 1;
+        if( mid - _current < MIN_SPLIT_SIZE ){
+            return null;
+        }
+
+        RecordSpliterator prefix;
+        prefix = new RecordSpliterator( _table, _current, mid );
+        _current = mid;
+        return prefix;
+    }
+
+    /**
+     * Skipped records are counted, so this is only an estimate
+     */
+    public long estimateSize()
+    {
+        return _to - _current;
+    }
+
+    public int characteristics()
+    {
+        return ORDERED | NONNULL;
+    }
+}
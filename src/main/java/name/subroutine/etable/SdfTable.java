@@ -7,6 +7,7 @@ import java.io.*;
  * A Fixed Length Format (SDF) Table
  */
 public class SdfTable extends AbstractDSTable
+    implements PositionalTable
 {
     /**
      * Size of the Sdf header
@@ -220,9 +221,60 @@ public class SdfTable extends AbstractDSTable
 
 	String buf;
 	buf = _fp.readLine();
+	if( buf == null ){
+	    _rec_size = 0;
+	    _size = 0;
+	    _rec = new byte[0];
+	    return;
+	}
 
-	_rec_size = buf.length();
+	// every line is as long as the first, line separator included.
+	// the last line may not have a line separator
+	_rec_size = (int)_fp.getFilePointer();
 	_rec = new byte[_rec_size];
+
+	long len = _fp.length();
+	_size = (int)((len + _rec_size - 1) / _rec_size);
+    }
+
+    /**
+     * Gets the size of a record in bytes, line separator included
+     */
+    public int recordSize()
+    {
+	return _rec_size;
+    }
+
+    /**
+     * Reads records by position
+     */
+    public int readAt( int recnum, byte[] buf, int cnt )
+	throws IOException
+    {
+	if( recnum < 0 || recnum >= _size ){
+	    return -1;
+	}
+
+	cnt = Math.min( cnt, _size - recnum );
+	return RecordSpliterator.read(
+	    _fp, _header_size + (long)_rec_size * recnum, buf,
+	    _rec_size * cnt
+	);
+    }
+
+    public Record toRecord( byte[] buf, int off, int len )
+	throws IOException
+    {
+	return _slice( new String( buf, off, len, "UTF-8" ) );
+    }
+
+    /**
+     * Records are read by position, so the table can be split among
+     * threads; see RecordSpliterator
+     */
+    public Spliterator<Record> spliterator()
+    {
+	return new RecordSpliterator( this, 0, recordCnt() );
     }
 
     /**
@@ -1,6 +1,7 @@
 package name.subroutine.etable;
 
 import java.util.*;
+import java.util.stream.*;
 import java.io.*;
 import java.sql.*;
 
@@ -166,6 +167,21 @@ public interface Table
      */
     public Record last();
 
+    /**
+     * Goes through the records without using the cursor, so that
+     * several threads can read the table at once.
+     *
+     * Tables stored in files of fixed size records (DbfTable,
+     * DbfTableByte and SdfTable) split by record position.
+     */
+    public Spliterator<Record> spliterator();
+
+    /**
+     * Stream of the records; call parallel() on it to read the table
+     * with several threads
+     */
+    public Stream<Record> stream();
+
     /**
      * Adds a field to the field list
      *
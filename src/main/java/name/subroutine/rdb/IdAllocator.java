@@ -0,0 +1,261 @@
+package name.subroutine.rdb;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.sql.*;
+
+/**
+ * Hands out the ids of one table, for Rdb.createId.
+ *
+ * Ids come from blocks reserved in the HighLowKeys table.  Taking an
+ * id from the current block is a single AtomicLong increment; only
+ * the thread that finds the block used up takes the lock of this
+ * table, and other tables are not held up by it.
+ *
+ * When half of a block is used, the next one is reserved in the
+ * background on a session of its own, so that it is usually ready
+ * before it is needed.  This is only done while the caller's session
+ * is in auto commit mode, since the background session would
+ * otherwise wait for the caller's lock on the HighLowKeys row.  The
+ * background session is only taken if the pool has one to spare right
+ * away, and a thread that runs out of ids never waits for the
+ * background block: if it is not ready, the thread reserves a block
+ * on its own session.  Reservations of one table are made one at a
+ * time, so that two of them never read the same max id.
+ *
+ * The block size starts at the grab size and is doubled while blocks
+ * last less than half a second, and halved, down to the grab size
+ * again, while they last more than two seconds.
+ */
+class IdAllocator
+{
+    /**
+     * How long a block should last, in nanoseconds
+     */
+    static final long BLOCK_NANOS = TimeUnit.SECONDS.toNanos( 1 );
+
+    static final int MAX_BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Threads that reserve the next blocks.  They end on their own
+     * when they have been idle for a minute
+     */
+    static final ExecutorService _prefetch_executor
+        = Executors.newCachedThreadPool( new ThreadFactory(){
+                public Thread newThread( Runnable r )
+                {
+                    Thread t = new Thread( r, "rdb-id-prefetch" );
+                    t.setDaemon( true );
+                    return t;
+                }
+            } );
+
+    /**
+     * Ids from _next up to, but not including, _end
+     */
+    static class Block
+    {
+        AtomicLong _next;
+        long _end;
+
+        /**
+         * The id whose taker starts reserving the next block
+         */
+        long _prefetch_at;
+
+        /**
+         * System.nanoTime when the block was reserved
+         */
+        long _reserved;
+
+        Block( long start, long end )
+        {
+            _next = new AtomicLong( start );
+            _end = end;
+            _prefetch_at = start + (end - start) / 2;
+            _reserved = System.nanoTime();
+        }
+    }
+
+    Rdb _db;
+    String _table;
+
+    /**
+     * Held while a block is reserved in the database.  Taken after
+     * the lock of this object, never before
+     */
+    Object _reserve_lock = new Object();
+
+    volatile Block _block;
+
+    /**
+     * The next block being reserved in the background, or null.
+     * Guarded by this, as is _size.  Only taken once it is done
+     */
+    Future _next_block;
+
+    int _size;
+
+    IdAllocator( Rdb db, String table )
+    {
+        _db = db;
+        _table = table;
+    }
+
+    /**
+     * Returns an unused id
+     *
+     * @param grab_size is the smallest number of ids to reserve at a
+     * time
+     * @param adapt is whether the block size may grow with the rate
+     * ids are taken at; if not, grab_size ids are reserved each time
+     */
+    int createId( RdbSession ses, int grab_size, boolean adapt )
+        throws RdbException, SQLException
+    {
+        while( true ){
+            Block block = _block;
+            if( block != null ){
+                long id = block._next.getAndIncrement();
+                if( id < block._end ){
+                    if( id == block._prefetch_at ){
+                        _prefetch( ses, block, grab_size, adapt );
+                    }
+                    return (int)id;
+                }
+            }
+            _refill( ses, block, grab_size, adapt );
+        }
+    }
+
+    /**
+     * Starts reserving the block that follows the given one, if no
+     * other thread has
+     */
+    void _prefetch( RdbSession ses, Block block, int grab_size,
+                    boolean adapt )
+        throws SQLException
+    {
+        if( !ses.getConn().getAutoCommit() ) return;
+
+        synchronized( this ){
+            if( _block != block || _next_block != null ) return;
+
+            // half the block went by since it was reserved
+            final int size = _nextSize( grab_size, adapt,
+                                        2 * (System.nanoTime()
+                                             - block._reserved) );
+            _next_block = _prefetch_executor.submit( new Callable(){
+                    public Object call()
+                        throws Exception
+                    {
+                        RdbSession own = _db._trySession();
+                        if( own == null ){
+                            throw new RdbException( "No connection to "
+                                                    + "spare" );
+                        }
+                        try{
+                            return _reserve( own, size );
+                        }
+                        finally{
+                            own.close();
+                        }
+                    }
+                } );
+        }
+    }
+
+    /**
+     * Puts a new block in place of the used up one, unless another
+     * thread already has
+     */
+    synchronized void _refill( RdbSession ses, Block used, int grab_size,
+                               boolean adapt )
+        throws RdbException, SQLException
+    {
+        if( _block != used ) return;
+
+        Block block = _takeNextBlock();
+        if( block == null ){
+            long nanos = used == null
+                ? Long.MAX_VALUE : System.nanoTime() - used._reserved;
+            block = _reserve( ses, _nextSize( grab_size, adapt, nanos ) );
+        }
+        _block = block;
+    }
+
+    /**
+     * Takes the block reserved in the background, if it is ready.
+     * Does not wait for it; one that is not ready is left for the
+     * next refill
+     *
+     * @return null if there is none ready, or if reserving it failed
+     */
+    Block _takeNextBlock()
+    {
+        Future next = _next_block;
+        if( next == null || !next.isDone() ) return null;
+
+        _next_block = null;
+        try{
+            return (Block)next.get();
+        }
+        catch( InterruptedException ex ){
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch( ExecutionException | CancellationException ex ){
+            return null;
+        }
+    }
+
+    /**
+     * Returns the size of the next block
+     *
+     * @param nanos is how long the last block lasted, or is expected
+     * to
+     */
+    int _nextSize( int grab_size, boolean adapt, long nanos )
+    {
+        if( !adapt ){
+            return grab_size;
+        }
+
+        if( _size < grab_size ){
+            _size = grab_size;
+        }
+        else if( nanos < BLOCK_NANOS / 2 ){
+            _size = Math.min( _size * 2, Math.max( MAX_BLOCK_SIZE,
+                                                   grab_size ) );
+        }
+        else if( nanos > BLOCK_NANOS * 2 ){
+            _size = Math.max( _size / 2, grab_size );
+        }
+        return _size;
+    }
+
+    Block _reserve( RdbSession ses, int size )
+        throws RdbException, SQLException
+    {
+        long start;
+        synchronized( _reserve_lock ){
+            start = _db._reserveId( ses, _table, size );
+        }
+        return new Block( start, start + size );
+    }
+
+    /**
+     * Makes idnum + 1 the next id.  A block being reserved in the
+     * background is dropped without waiting for it; since it is
+     * reserved under the same lock, it cannot undo the change
+     */
+    synchronized void setId( RdbSession ses, int idnum, int grab_size )
+        throws RdbException, SQLException
+    {
+        _next_block = null;
+        synchronized( _reserve_lock ){
+            _db._reserveIdFrom( ses, _table, idnum, grab_size );
+        }
+        _block = new Block( (long)idnum + 1, (long)idnum + grab_size );
+    }
+}
@@ -2,6 +2,8 @@ package name.subroutine.rdb;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.sql.*;
 import java.text.*;
 
@@ -164,9 +166,71 @@ public abstract class Rdb
 
     Connection _conn = null;
 
-    int _max_pool_size = 10;
-    Set _free_conn_set = new HashSet();
-    Set _used_conn_set = new HashSet();
+    volatile int _max_pool_size = 10;
+
+    /**
+     * Connections that have been returned, most recently returned
+     * first
+     */
+    Deque _free_conn_lst = new ConcurrentLinkedDeque();
+    Set _used_conn_set = ConcurrentHashMap.newKeySet();
+
+    /**
+     * One permit per connection that may be in use.  It is fair, so
+     * threads get connections in the order they asked for them
+     */
+    PoolSemaphore _pool_permit = new PoolSemaphore( _max_pool_size );
+
+    volatile long _pool_wait_timeout = 30000;
+    volatile long _idle_timeout = 600000;
+    volatile int _validation_timeout = 2;
+
+    LongAdder _borrow_cnt = new LongAdder();
+    LongAdder _wait_timeout_cnt = new LongAdder();
+    LongAdder _wait_nanos = new LongAdder();
+    AtomicLong _max_wait_nanos = new AtomicLong();
+
+    /**
+     * StatementCache of each connection
+     */
+    Map _stmt_cache_map = new ConcurrentHashMap();
+    volatile int _statement_cache_size = 64;
+
+    LongAdder _stmt_hit_cnt = new LongAdder();
+    LongAdder _stmt_miss_cnt = new LongAdder();
+
+    /**
+     * A connection in the free list, and when it was returned
+     */
+    static class FreeConn
+    {
+        Connection _conn;
+        long _returned;
+
+        FreeConn( Connection conn, long returned )
+        {
+            _conn = conn;
+            _returned = returned;
+        }
+    }
+
+    /**
+     * Lets the pool size be lowered while connections are in use
+     */
+    static class PoolSemaphore extends Semaphore
+    {
+        private static final long serialVersionUID = 1L;
+
+        PoolSemaphore( int permits )
+        {
+            super( permits, true );
+        }
+
+        void reduce( int cnt )
+        {
+            reducePermits( cnt );
+        }
+    }
 
     /**
      * @param relation_array
@@ -240,35 +304,23 @@ public abstract class Rdb
         _user = user; _password = password;
     }
 
+    /**
+     * Returns a session on a pooled connection.  Closing the session
+     * returns the connection to the pool
+     */
     public RdbSession getSession()
         throws RdbException, SQLException
     {
-        Connection conn;
-        SQLException last_ex = null;
         try{
-            Class.forName( _driver );
+            return new RdbSession( this, getPooledConn(), true );
         }
         catch( ClassNotFoundException ex ){
             throw new RdbException( "Cannot load class " + _driver, ex );
         }
-        for( int i = 0; i < 3; ++i ){
-            try{
-                conn = DriverManager.getConnection( _url, _user, _password );
-                return new RdbSession( this, conn );
-            }
-            catch( SQLException ex ){
-                last_ex = ex;
-                try{
-                    Thread.sleep( 500 );
-                }
-                catch( Exception do_not_wake ){
-                }
-            }
+        catch( MaximumPoolSizeReachedException ex ){
+            throw new RdbException( "No connection available in "
+                                    + _pool_wait_timeout + " ms", ex );
         }
-        if( last_ex != null ){
-            throw last_ex;
-        }
-        return null;
     }
 
     public void setDriver( String driver )
@@ -333,14 +385,68 @@ public abstract class Rdb
     }
 
     /**
-     * Returns maximum allowable number of connections, free or
-     * otherwise
+     * Sets maximum allowable number of connections.  If it is lowered
+     * while connections are in use, new requests wait until enough of
+     * them have been returned
      */
-    public void setMaxPoolSize( int val )
+    public synchronized void setMaxPoolSize( int val )
     {
+        if( val < 1 ){
+            throw new IllegalArgumentException( "Pool size must be at "
+                                                + "least 1: " + val );
+        }
+        int diff = val - _max_pool_size;
+        if( diff > 0 ){
+            _pool_permit.release( diff );
+        }
+        else if( diff < 0 ){
+            _pool_permit.reduce( -diff );
+        }
         _max_pool_size = val;
     }
 
+    /**
+     * Returns how long getPooledConn waits for a connection, in
+     * milliseconds
+     */
+    public long getPoolWaitTimeout()
+    {
+        return _pool_wait_timeout;
+    }
+
+    public void setPoolWaitTimeout( long millis )
+    {
+        _pool_wait_timeout = millis;
+    }
+
+    /**
+     * Returns how long a connection may stay in the free pile before
+     * it is closed, in milliseconds
+     */
+    public long getIdleTimeout()
+    {
+        return _idle_timeout;
+    }
+
+    public void setIdleTimeout( long millis )
+    {
+        _idle_timeout = millis;
+    }
+
+    /**
+     * Returns how long a free connection is given to answer
+     * Connection.isValid before it is handed out, in seconds
+     */
+    public int getValidationTimeout()
+    {
+        return _validation_timeout;
+    }
+
+    public void setValidationTimeout( int seconds )
+    {
+        _validation_timeout = seconds;
+    }
+
     /**
      * Returns the number of connections currently in use
      */
@@ -352,9 +458,9 @@ public abstract class Rdb
     /**
      * Returns the number of recycled connections
      */
-    int getFreeConnCnt()
+    public int getFreeConnCnt()
     {
-        return _free_conn_set.size();
+        return _free_conn_lst.size();
     }
 
     /**
@@ -366,55 +472,316 @@ public abstract class Rdb
     }
 
     /**
-     * Puts the given connection from the "free" pile to the "used"
-     * pile
+     * Returns the fraction of the pool in use, from 0 to 1
+     */
+    public double getPoolUtilization()
+    {
+        return (double)getUsedConnCnt() / getMaxPoolSize();
+    }
+
+    /**
+     * Returns the number of connections handed out by getPooledConn
+     */
+    public long getBorrowCnt()
+    {
+        return _borrow_cnt.sum();
+    }
+
+    /**
+     * Returns the number of times getPooledConn gave up waiting
+     */
+    public long getWaitTimeoutCnt()
+    {
+        return _wait_timeout_cnt.sum();
+    }
+
+    /**
+     * Returns the time spent waiting for connections, in milliseconds
      */
-    synchronized void acquireConn( Connection conn )
+    public long getTotalWaitTime()
     {
-        _free_conn_set.remove( conn );
-        _used_conn_set.add( conn );
+        return TimeUnit.NANOSECONDS.toMillis( _wait_nanos.sum() );
     }
 
     /**
-     * Puts the given connection from the "used" pile to the "free"
-     * pile
+     * Returns the longest wait for a connection, in milliseconds
      */
-    synchronized void releaseConn( Connection conn )
+    public long getMaxWaitTime()
     {
-        _used_conn_set.remove( conn );
-        _free_conn_set.add( conn );
+        return TimeUnit.NANOSECONDS.toMillis( _max_wait_nanos.get() );
     }
 
     /**
      * Returns a connection, from a pool of available connections.  If
-     * the pool has no available connections, the method will create
-     * one if the maximum has not been reached
+     * the pool has no free connections, the method will create one if
+     * the maximum has not been reached, or wait for one to be
+     * returned.
+     *
+     * Free connections are checked with Connection.isValid before they
+     * are handed out.  Return the connection with releaseConn.
+     *
+     * @exception MaximumPoolSizeReachedException if no connection
+     * becomes available within the pool wait timeout
      */
     public Connection getPooledConn()
         throws ClassNotFoundException, SQLException,
                MaximumPoolSizeReachedException
     {
-        // if we have at least one free
-        if( getFreeConnCnt() > 0 ){
-            // get the first one
-            Iterator it;
-            it = _free_conn_set.iterator();
-            Connection conn = (Connection)it.next();
-            acquireConn( conn );
-            return conn;
+        long start = System.nanoTime();
+        boolean acquired;
+        try{
+            acquired = _pool_permit.tryAcquire( _pool_wait_timeout,
+                                                TimeUnit.MILLISECONDS );
+        }
+        catch( InterruptedException ex ){
+            Thread.currentThread().interrupt();
+            throw new SQLException( "Interrupted while waiting for a "
+                                    + "connection", ex );
+        }
+
+        long waited = System.nanoTime() - start;
+        _wait_nanos.add( waited );
+        _max_wait_nanos.accumulateAndGet( waited, Math::max );
+
+        if( !acquired ){
+            _wait_timeout_cnt.increment();
+            throw new MaximumPoolSizeReachedException( String.valueOf(
+                                                       getMaxPoolSize() ) );
+        }
+
+        return _borrowConn();
+    }
+
+    /**
+     * Returns a session on a pooled connection if one can be had
+     * without waiting
+     *
+     * @return null if every connection is in use
+     */
+    RdbSession _trySession()
+        throws RdbException, SQLException
+    {
+        if( !_pool_permit.tryAcquire() ) return null;
+
+        try{
+            return new RdbSession( this, _borrowConn(), true );
         }
-        // check to see if we have exceeded limit.  If not --
-        // we just create a new one
-        if( getUsedConnCnt() < getMaxPoolSize() ){
-            Connection conn;
-            conn = newConnection();
-            synchronized( _free_conn_set ){
-                _free_conn_set.add( conn );
+        catch( ClassNotFoundException ex ){
+            throw new RdbException( "Cannot load class " + _driver, ex );
+        }
+    }
+
+    /**
+     * Hands out a connection for a permit already taken.  The permit
+     * is given back if that fails
+     */
+    Connection _borrowConn()
+        throws ClassNotFoundException, SQLException
+    {
+        try{
+            Connection conn = _pollFreeConn();
+            if( conn == null ){
+                conn = newConnection();
             }
+            _used_conn_set.add( conn );
+            _borrow_cnt.increment();
             return conn;
         }
-        throw new MaximumPoolSizeReachedException( String.valueOf(
-                                                       getMaxPoolSize() ) );
+        catch( ClassNotFoundException | SQLException | RuntimeException ex ){
+            _pool_permit.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Takes the most recently returned connection that is still good
+     * out of the free pile; the others are closed
+     *
+     * @return null if there is none
+     */
+    Connection _pollFreeConn()
+    {
+        long now = System.currentTimeMillis();
+        while( true ){
+            FreeConn free = (FreeConn)_free_conn_lst.pollFirst();
+            if( free == null ) return null;
+
+            if( now - free._returned < _idle_timeout
+                && _isValid( free._conn ) ){
+                return free._conn;
+            }
+            _closeConn( free._conn );
+        }
+    }
+
+    boolean _isValid( Connection conn )
+    {
+        try{
+            return conn.isValid( _validation_timeout );
+        }
+        catch( SQLFeatureNotSupportedException | AbstractMethodError ex ){
+            // drivers older than JDBC 4 cannot tell
+            try{
+                return !conn.isClosed();
+            }
+            catch( SQLException closed_ex ){
+                return false;
+            }
+        }
+        catch( SQLException ex ){
+            return false;
+        }
+    }
+
+    /**
+     * Closes a connection and its statements, ignoring errors
+     */
+    void _closeConn( Connection conn )
+    {
+        _closeStatementCache( conn );
+        try{
+            conn.close();
+        }
+        catch( SQLException ignored ){
+        }
+    }
+
+    /**
+     * Returns a connection obtained from getPooledConn to the pool.  A
+     * transaction left open is rolled back.  A connection that has
+     * been closed is dropped from the pool; connections that were not
+     * handed out by the pool are ignored.
+     */
+    public void releaseConn( Connection conn )
+    {
+        if( !_used_conn_set.remove( conn ) ) return;
+
+        try{
+            if( conn.isClosed() ){
+                _closeStatementCache( conn );
+                return;
+            }
+            if( !conn.getAutoCommit() ){
+                conn.rollback();
+                conn.setAutoCommit( true );
+            }
+            _free_conn_lst.offerFirst(
+                new FreeConn( conn, System.currentTimeMillis() )
+            );
+        }
+        catch( SQLException ex ){
+            _closeConn( conn );
+        }
+        finally{
+            _pool_permit.release();
+            evictIdleConn();
+        }
+    }
+
+    /**
+     * Closes the connections that have been free for longer than the
+     * idle timeout.  This is done whenever a connection is returned,
+     * so it need not be called unless the pool is left unused.
+     */
+    public void evictIdleConn()
+    {
+        long now = System.currentTimeMillis();
+        while( true ){
+            FreeConn free = (FreeConn)_free_conn_lst.peekLast();
+            if( free == null || now - free._returned < _idle_timeout ){
+                return;
+            }
+            // someone else may have taken it meanwhile
+            if( _free_conn_lst.removeLastOccurrence( free ) ){
+                _closeConn( free._conn );
+            }
+        }
+    }
+
+    /**
+     * Closes all the free connections.  Connections in use are not
+     * affected
+     */
+    public void closePool()
+    {
+        while( true ){
+            FreeConn free = (FreeConn)_free_conn_lst.pollFirst();
+            if( free == null ) return;
+            _closeConn( free._conn );
+        }
+    }
+
+    /**
+     * Returns the prepared statement cache of a connection, creating
+     * it if needed.  The cache stays with the connection while it is
+     * in the pool
+     */
+    public StatementCache getStatementCache( Connection conn )
+    {
+        StatementCache cache = (StatementCache)_stmt_cache_map.get( conn );
+        if( cache != null ) return cache;
+
+        cache = new StatementCache( this, conn, _statement_cache_size );
+        StatementCache prev;
+        prev = (StatementCache)_stmt_cache_map.putIfAbsent( conn, cache );
+        return prev == null ? cache : prev;
+    }
+
+    /**
+     * Closes the statements of a connection that is about to be closed
+     */
+    void _closeStatementCache( Connection conn )
+    {
+        StatementCache cache = (StatementCache)_stmt_cache_map.remove( conn );
+        if( cache != null ){
+            cache.close();
+        }
+    }
+
+    /**
+     * Returns the number of prepared statements kept per connection
+     */
+    public int getStatementCacheSize()
+    {
+        return _statement_cache_size;
+    }
+
+    /**
+     * Sets the number of prepared statements kept per connection.
+     * Caches that already exist keep their size
+     */
+    public void setStatementCacheSize( int val )
+    {
+        _statement_cache_size = val;
+    }
+
+    /**
+     * Returns the number of statements found in the caches of all
+     * connections
+     */
+    public long getStatementCacheHitCnt()
+    {
+        return _stmt_hit_cnt.sum();
+    }
+
+    /**
+     * Returns the number of statements that had to be prepared
+     */
+    public long getStatementCacheMissCnt()
+    {
+        return _stmt_miss_cnt.sum();
+    }
+
+    /**
+     * Returns the fraction of statements found in the caches, from 0
+     * to 1
+     */
+    public double getStatementCacheHitRate()
+    {
+        long hit = getStatementCacheHitCnt();
+        long total = hit + getStatementCacheMissCnt();
+        if( total == 0 ) return 0;
+        return (double)hit / total;
     }
 
     /**
@@ -448,34 +815,12 @@ public abstract class Rdb
     //
 
     /**
-     * Returns a list of all the fields
+     * Returns a list of all the fields.  The fields of each class are
+     * only looked up once
      */
     public List getFieldLst( Rtbl table )
     {
-        Set history = new HashSet();
-        java.lang.reflect.Field[] f;
-
-        List finallist = new ArrayList();
-        List list = new ArrayList();
-
-        Class t;
-        t = table.getClass();
-
-        while( t != null && !t.equals( Object.class ) ){
-            f = t.getDeclaredFields();
-            list.clear();
-            for( int i = 0; i < f.length; i++ ){
-                if( f[i].getName().startsWith( "__" )
-                    && !history.contains( f[i].getName() ) ){
-                    list.add( f[i] );
-                    history.add( f[i].getName() );
-                }
-            }
-            finallist.addAll( 0, list );
-            t = t.getSuperclass();
-        }
-
-        return finallist;
+        return RtblMapper.get( table.getClass() ).getFieldLst();
     }
 
     public List getFieldLst( String rtbl_name )
@@ -813,22 +1158,53 @@ public abstract class Rdb
     {
         // get prototype to make sure the size of each field is as
         // defined
-        Rtbl proto;
-        try{
-            proto = (Rtbl)rtbl.getClass().newInstance();
-        }
-        catch( IllegalAccessException ex ){
-            throw new RdbException( "Cannot get fresh copy of " +
-                                    rtbl.getClass(), ex );
-        }
-        catch( InstantiationException ex ){
-            throw new RdbException( "Cannot get fresh copy of " +
-                                    rtbl.getClass(), ex );
-        }
+        Rtbl proto = _newProto( rtbl );
 
         // field name should be converted to string
         String fname = String.valueOf( obj_fname );
 
+        // type of the destination
+        Class dst_c = getType( proto, fname );
+
+        String val = _convert( proto, fname, dst_c, obj_val );
+
+        // destination is character array, which is really how
+        // database "strings" are.
+        if( (dst_c.isArray() && dst_c.getComponentType() == char.class)
+            || dst_c.equals( char.class ) ){
+            StringBuffer retval = new StringBuffer();
+            for( int i = 0; i < val.length(); i++ ){
+                char chr = val.charAt( i );
+                if( chr == '\'' ){
+                    retval.append( literalQuote() );
+                }
+                else{
+                    retval.append( chr );
+                }
+            }
+            return Variant.grow( retval.toString(), "'" );
+        }
+        else{
+            return val;
+        }
+    }
+
+    /**
+     * Converts a value to the type of a field, the way toLiteral and
+     * toParam both need it, but as a string that is neither quoted
+     * nor escaped.  Strings are cut to the size of the field and
+     * their NUL characters dropped, numbers are trimmed, and dates
+     * become yyyymmdd.  A null becomes '' or 0, depending on the
+     * type, so that the field is not left null.
+     *
+     * @param proto prototype of the table, from _newProto
+     * @param dst_c type of the field
+     * @return the converted value; null only if the value is null and
+     *         the field is not of one of the types above
+     */
+    String _convert( Rtbl proto, String fname, Class dst_c, Object obj_val )
+        throws RdbException
+    {
         // type of the source (obj_val)
         Class src_c;
         if( obj_val != null ){
@@ -838,9 +1214,6 @@ public abstract class Rdb
             src_c = null;
         }
 
-        // type of the destination
-        Class dst_c = getType( proto, fname );
-
         // for simplicity, we convert source into a string first
         // String.valueOf won't convert char[] correctly unless it is
         // explicitily converting char[]
@@ -855,56 +1228,28 @@ public abstract class Rdb
             val = String.valueOf( obj_val );
         }
         
-        // destination is character array, which is really how
-        // database "strings" are.
         if( dst_c.isArray() && dst_c.getComponentType() == char.class ){
             if( obj_val == null ){
-                return "''";
-            }
-
-            // get the source as char array also
-            char source[];
-            if( src_c.isArray() && src_c.getComponentType() == char.class ){
-                source = (char[])obj_val;
-            }
-            else{
-                source = String.valueOf( obj_val ).toCharArray();
+                return "";
             }
 
-            // now we choose the shorter of the two arrays
+            // now we choose the shorter of the value and the field
             int min;
-            min = Math.min( source.length, getSize( proto, fname ) );
+            min = Math.min( val.length(), getSize( proto, fname ) );
 
-            // make a new string based on source, encoding characters
-            // as necessary
             StringBuffer retval = new StringBuffer();
             for( int i = 0; i < min; i++ ){
-                char chr = source[i];
-                if( chr == '\'' ){
-                    retval.append( literalQuote() );
-                }
-                else if( chr == (char)0 ){
+                char chr = val.charAt( i );
+                if( chr == (char)0 ){
                     continue;
                 }
-                else{
-                    retval.append( chr );
-                }
+                retval.append( chr );
             }
-
-            return Variant.grow( retval.toString(), "'" );
+            return retval.toString();
         }
         else if( dst_c.equals( int.class ) ||
-                 dst_c.equals( long.class ) ){
-            if( obj_val == null ){
-                return "0";
-            }
-            val = val.trim();
-            if( val.length() <= 0 ){
-                return "0";
-            }
-            return val;
-        }
-        else if( dst_c.equals( double.class ) ||
+                 dst_c.equals( long.class ) ||
+                 dst_c.equals( double.class ) ||
                  dst_c.equals( float.class ) ){
             if( obj_val == null ){
                 return "0";
@@ -937,18 +1282,9 @@ public abstract class Rdb
         }
         else if( dst_c.equals( char.class ) ){
             if( obj_val == null ){
-                return "''";
-            }
-            StringBuffer retval = new StringBuffer();
-            char chr;
-            chr = val.charAt( 0 );
-            if( chr == '\'' ){
-                retval.append( literalQuote() );
+                return "";
             }
-            else{
-                retval.append( chr );
-            }
-            return Variant.grow( retval.toString(), "'" );
+            return String.valueOf( val.charAt( 0 ) );
         }
         else{
             return val;
@@ -963,7 +1299,67 @@ public abstract class Rdb
         throws RdbException
     {
         String fname = String.valueOf( obj_fname );
-        return toLiteral( table, fname, getValue( table, fname ) );
+        return toLiteral( table, fname, getValue( table, fname ) );
+    }
+
+    /**
+     * Returns a fresh copy of the rtbl, whose char arrays have the
+     * sizes of the fields
+     */
+    Rtbl _newProto( Rtbl rtbl )
+        throws RdbException
+    {
+        return RtblMapper.get( rtbl.getClass() ).newInstance();
+    }
+
+    /**
+     * Returns the value to bind to a ? in place of toLiteral.  The
+     * value is converted by _convert, as toLiteral converts it, but it
+     * is not quoted: strings are cut to the size of the field, numbers
+     * become Long or Double and dates become yyyymmdd integers.
+     *
+     * @param rtbl must be a valid relational table object
+     * @param obj_fname must be a valid field name (without double
+     *        underscore)
+     * @param obj_val is the value which can be null
+     */
+    public Object toParam( Rtbl rtbl, Object obj_fname, Object obj_val )
+        throws RdbException
+    {
+        Rtbl proto = _newProto( rtbl );
+
+        String fname = String.valueOf( obj_fname );
+
+        Class dst_c = getType( proto, fname );
+
+        String val = _convert( proto, fname, dst_c, obj_val );
+
+        try{
+            if( dst_c.equals( int.class ) || dst_c.equals( long.class ) ){
+                return Long.valueOf( val );
+            }
+            else if( dst_c.equals( double.class ) ||
+                     dst_c.equals( float.class ) ){
+                return Double.valueOf( val );
+            }
+            else if( dst_c.equals( java.util.Date.class ) ){
+                return Integer.valueOf( val );
+            }
+        }
+        catch( NumberFormatException ex ){
+            // let the database convert it, like the literal
+        }
+        return val;
+    }
+
+    /**
+     * Returns a property of the given Rtbl as a value to bind to a ?
+     */
+    public Object toParam( Rtbl table, Object obj_fname )
+        throws RdbException
+    {
+        String fname = String.valueOf( obj_fname );
+        return toParam( table, fname, getValue( table, fname ) );
     }
 
 
@@ -977,26 +1373,11 @@ public abstract class Rdb
     public void setValue( Rtbl retval, String fname, Object value )
         throws RdbException
     {
-        Class cl = retval.getClass();
-
-        // use a prototype so that our field length
-        // is surely to be correct
-        Rtbl proto;
-        try{
-            proto = (Rtbl)cl.newInstance();
-        }
-        catch( IllegalAccessException ex ){
-            throw new RdbException( "Cannot get fresh copy of " + cl, ex );
-        }        
-        catch( InstantiationException ex ){
-            throw new RdbException( "Cannot get fresh copy of " + cl, ex );
-        }
-        
         // here goes...big messy chunk of ifs
         // only because we can't use "Object"
         // ( primitive types are annoying :( )
         try{
-            java.lang.reflect.Field field = getField( proto, fname );
+            java.lang.reflect.Field field = getField( retval, fname );
             field.setAccessible( true );
             Class type = field.getType();
             boolean is_array;
@@ -1106,7 +1487,7 @@ public abstract class Rdb
         }
         if( val.getClass() == Double.class ){
             try{
-                f.setDouble( rtbl, ((Double)val).intValue() );
+                f.setDouble( rtbl, ((Double)val).doubleValue() );
             }
             catch( IllegalAccessException ex ){
                 throw new RdbException( "Cannot set double in " +
@@ -1147,7 +1528,7 @@ public abstract class Rdb
         }
         if( val.getClass() == Float.class ){
             try{
-                f.setFloat( rtbl, ((Float)val).intValue() );
+                f.setFloat( rtbl, ((Float)val).floatValue() );
             }
             catch( IllegalAccessException ex ){
                 throw new RdbException( "Cannot set float in " +
@@ -1314,18 +1695,8 @@ public abstract class Rdb
     public Rtbl toRtbl( Rtbl rtbl, Object[] array )
         throws RdbException
     {
-        Class cl = rtbl.getClass();
-        Rtbl retval;
-        try{
-            retval = (Rtbl)cl.newInstance();
-        }
-        catch( IllegalAccessException ex ){
-            throw new RdbException( "Cannot get fresh copy of " + cl, ex );
-        }
-        catch( InstantiationException ex ){
-            throw new RdbException( "Cannot get fresh copy of " + cl, ex );
-        }
-        
+        Rtbl retval = _newProto( rtbl );
+
         for( int i = 0; i < array.length; i += 2 ){
             Object key;
             Object val;
@@ -2235,6 +2606,282 @@ public abstract class Rdb
         return toUpdate( rec, set_list );
     }
 
+
+    //
+    // SQL Record Manipulation Methods: parameterized
+    //
+    // These make the same statements as the methods above, with ?
+    // in place of each value.  The values are collected in param_lst
+    // in the order of the ?.
+    //
+
+
+    /**
+     * Like toWhere, with ? in place of the values
+     */
+    String _toWhere( Rtbl table, Object vlist[], List param_lst )
+        throws RdbException
+    {
+        StringBuffer sql = new StringBuffer();
+
+        if( vlist != null && vlist.length > 0 ){
+            sql.append( " WHERE" );
+
+            for( int i = 0; i < vlist.length; i += 5 ){
+                if( i > 0 ){
+                    sql.append( ' ' ).append( vlist[i] ).append( ' ' );
+                }
+                else{
+                    sql.append( ' ' );
+                }
+
+                boolean has_not;
+                has_not = String.valueOf( vlist[i + 1] ).trim().length() > 0;
+
+                sql.append( '(' );
+                sql.append( vlist[i + 1] ).append( ' ' );
+                if( has_not ){
+                    sql.append( "(" );
+                }
+                sql.append( vlist[i + 2] ).append( ' ' );
+                sql.append( vlist[i + 3] ).append( " ? " );
+                param_lst.add( toParam( table, vlist[i + 2], vlist[i + 4] ) );
+                if( has_not ){
+                    sql.append( ')' );
+                }
+                sql.append( ')' );
+            }
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Like toWhereEq, with ? in place of the values
+     */
+    String _toWhereEq( Rtbl table, Object vlist[], List param_lst )
+        throws RdbException
+    {
+        StringBuffer sql = new StringBuffer();
+
+        if( vlist != null && vlist.length > 0 ){
+            sql.append( " WHERE " );
+
+            for( int i = 0; i < vlist.length; i += 2 ){
+                if( i > 0 ){
+                    sql.append( " AND " );
+                }
+                sql.append( '(' );
+                sql.append( vlist[i] ).append( " = ?)" );
+                param_lst.add( toParam( table, vlist[i], vlist[i + 1] ) );
+            }
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Like toWhere( Rtbl ), with ? in place of the primary key
+     */
+    String _toWhere( Rtbl rec, List param_lst )
+        throws RdbException
+    {
+        List v = new ArrayList();
+
+        String[] pkey = rec.primaryKey();
+
+        for( int i = 0; i < pkey.length; i++ ){
+            v.add( pkey[i] );
+            v.add( getValue( rec, pkey[i] ) );
+        }
+
+        return _toWhereEq( rec, v.toArray(), param_lst );
+    }
+
+    /**
+     * Like toUpdateAll, with ? in place of the values
+     */
+    String _toUpdateAll( Rtbl rec, Object ulist[], List param_lst )
+        throws RdbException
+    {
+        StringBuffer sql = new StringBuffer();
+
+        sql.append( "UPDATE " );
+        sql.append( getTableName( rec ) );
+        sql.append( " SET " );
+
+        for( int i = 0; i < ulist.length; i += 2 ){
+            if( i > 0 ){
+                sql.append( ", " );
+            }
+            sql.append( ulist[i] );
+            sql.append( " = ?" );
+            param_lst.add( toParam( rec, ulist[i], ulist[i + 1] ) );
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Like toInsert( Rtbl ), with ? in place of the values
+     */
+    public RdbStatement toInsertStatement( Rtbl rtbl )
+        throws RdbException
+    {
+        List col_lst = new ArrayList();
+        List val_lst = new ArrayList();
+        List param_lst = new ArrayList();
+
+        List fnlist = getFieldNameLst( rtbl );
+
+        for( int i = 0; i < fnlist.size(); i++ ){
+            String fname = (String)fnlist.get( i );
+
+            try{
+                param_lst.add( toParam( rtbl, fname ) );
+                col_lst.add( fname );
+                val_lst.add( "?" );
+            }
+            catch( Exception ex ){
+                // if anything goes wrong, don't add
+            }
+        }
+
+        return new RdbStatement(
+            toInsert( getTableName( rtbl ), col_lst, val_lst ), param_lst
+        );
+    }
+
+    /**
+     * Like toSelectEq, with ? in place of the values
+     */
+    public RdbStatement toSelectEqStatement( Rtbl table, Object[] vlist )
+        throws RdbException
+    {
+        List param_lst = new ArrayList();
+        StringBuffer sql = new StringBuffer();
+
+        sql.append( toSelectAll( table ) );
+        sql.append( _toWhereEq( table, vlist, param_lst ) );
+
+        return new RdbStatement( sql.toString(), param_lst );
+    }
+
+    /**
+     * Like toSelect( Rtbl, String[] ), with ? in place of the values
+     */
+    public RdbStatement toSelectStatement( Rtbl table, Object[] vlist )
+        throws RdbException
+    {
+        List param_lst = new ArrayList();
+        StringBuffer sql = new StringBuffer();
+
+        sql.append( toSelectAll( table ) );
+        sql.append( _toWhere( table, vlist, param_lst ) );
+
+        return new RdbStatement( sql.toString(), param_lst );
+    }
+
+    /**
+     * Like toSelect( Rtbl, String[], String[] ), with ? in place of
+     * the values
+     */
+    public RdbStatement toSelectStatement( Rtbl table, Object[] vlist,
+                                           String[] olist )
+        throws RdbException
+    {
+        RdbStatement retval = toSelectStatement( table, vlist );
+        retval._sql += toOrderBy( olist );
+        return retval;
+    }
+
+    /**
+     * Like toDelete( Rtbl, Object[] ), with ? in place of the values
+     */
+    public RdbStatement toDeleteStatement( Rtbl rtbl, Object vlist[] )
+        throws RdbException
+    {
+        List param_lst = new ArrayList();
+        StringBuffer sql = new StringBuffer();
+        sql.append( "DELETE FROM " ).append( getTableName( rtbl ) );
+        sql.append( _toWhere( rtbl, vlist, param_lst ) );
+        return new RdbStatement( sql.toString(), param_lst );
+    }
+
+    /**
+     * Like toDeleteEq, with ? in place of the values
+     */
+    public RdbStatement toDeleteEqStatement( Rtbl rtbl, Object vlist[] )
+        throws RdbException
+    {
+        List param_lst = new ArrayList();
+        StringBuffer sql = new StringBuffer();
+        sql.append( "DELETE FROM " ).append( getTableName( rtbl ) );
+        sql.append( _toWhereEq( rtbl, vlist, param_lst ) );
+        return new RdbStatement( sql.toString(), param_lst );
+    }
+
+    /**
+     * Like toDelete( Rtbl ), with ? in place of the primary key
+     */
+    public RdbStatement toDeleteStatement( Rtbl rtbl )
+        throws RdbException
+    {
+        List param_lst = new ArrayList();
+        StringBuffer sql = new StringBuffer();
+        sql.append( "DELETE FROM " ).append( getTableName( rtbl ) );
+        sql.append( _toWhere( rtbl, param_lst ) );
+        return new RdbStatement( sql.toString(), param_lst );
+    }
+
+    /**
+     * Like toUpdate( Rtbl, Object[], Object[] ), with ? in place of
+     * the values
+     */
+    public RdbStatement toUpdateStatement( Rtbl rec, Object ulist[],
+                                           Object vlist[] )
+        throws RdbException
+    {
+        List param_lst = new ArrayList();
+        StringBuffer sql = new StringBuffer();
+
+        sql.append( _toUpdateAll( rec, ulist, param_lst ) );
+        sql.append( _toWhere( rec, vlist, param_lst ) );
+
+        return new RdbStatement( sql.toString(), param_lst );
+    }
+
+    /**
+     * Like toUpdateEq, with ? in place of the values
+     */
+    public RdbStatement toUpdateEqStatement( Rtbl rec, Object ulist[],
+                                             Object vlist[] )
+        throws RdbException
+    {
+        List param_lst = new ArrayList();
+        StringBuffer sql = new StringBuffer();
+
+        sql.append( _toUpdateAll( rec, ulist, param_lst ) );
+        sql.append( _toWhereEq( rec, vlist, param_lst ) );
+
+        return new RdbStatement( sql.toString(), param_lst );
+    }
+
+    /**
+     * Like toUpdate( Rtbl ), with ? in place of the values
+     */
+    public RdbStatement toUpdateStatement( Rtbl rec )
+        throws RdbException
+    {
+        List param_lst = new ArrayList();
+        StringBuffer sql = new StringBuffer();
+
+        Object[] ulist;
+        ulist = name.subroutine.util.Lists.toList( this, rec ).toArray();
+
+        sql.append( _toUpdateAll( rec, ulist, param_lst ) );
+        sql.append( _toWhere( rec, param_lst ) );
+
+        return new RdbStatement( sql.toString(), param_lst );
+    }
+
     /**
      * Converts a date object into yyyymmdd integer
      */
@@ -2421,16 +3068,13 @@ public abstract class Rdb
     // key management functions
     //
 
-    static class Id
-    {
-        int _current;
-        int _valid_until;
-    }
-
-    Map _id_map = new HashMap();
+    /**
+     * IdAllocator by table name, as given to createId
+     */
+    ConcurrentMap _id_map = new ConcurrentHashMap();
 
-    int _grab_size = 10;
-    int _starting_max_id = 1000;
+    volatile int _grab_size = 10;
+    volatile int _starting_max_id = 1000;
 
     public void setStartingMaxId( int val )
     {
@@ -2442,6 +3086,10 @@ public abstract class Rdb
         return _starting_max_id;
     }
 
+    /**
+     * Sets the smallest number of ids reserved at a time.  Tables that
+     * take ids quickly get larger blocks
+     */
     public void setGrabSize( int val )
     {
         _grab_size = val;
@@ -2452,13 +3100,26 @@ public abstract class Rdb
         return _grab_size;
     }
 
+    IdAllocator _idAllocator( String table )
+    {
+        IdAllocator retval = (IdAllocator)_id_map.get( table );
+        if( retval == null ){
+            IdAllocator alloc = new IdAllocator( this, table );
+            retval = (IdAllocator)_id_map.putIfAbsent( table, alloc );
+            if( retval == null ){
+                retval = alloc;
+            }
+        }
+        return retval;
+    }
+
     /**
      * Selects an ID from database, and if ID is not found,
      * return an initial value and adds an entry to the database.
      *
      * This will not update database if an ID is found.
      */
-    public synchronized HighLowKeys _selectId( RdbSession ses, String table )
+    public HighLowKeys _selectId( RdbSession ses, String table )
         throws RdbException, SQLException
     {
         HighLowKeys hl;
@@ -2471,95 +3132,85 @@ public abstract class Rdb
             "tablename", table
         } );
 
-        if( !rs.next() ){
-            hl.setMaxId( getStartingMaxId() );
-            hl.setTableName( table );
+        try{
+            if( !rs.next() ){
+                hl.setMaxId( getStartingMaxId() );
+                hl.setTableName( table );
 
-            ses.insert( hl );
+                ses.insert( hl );
+            }
+            else{
+                hl = (HighLowKeys)rs.get();
+            }
         }
-        else{
-            hl = (HighLowKeys)rs.get();
+        finally{
+            rs.close();
         }
-        
+
         return hl;
     }
 
     /**
-     * Returns an unused ID for a given table
+     * Reserves size ids for the table in the database
+     *
+     * @return the first of them
      */
-    public synchronized int createId( RdbSession ses, String table )
+    int _reserveId( RdbSession ses, String table, int size )
         throws RdbException, SQLException
     {
-        return createId( ses, table, getGrabSize() );
+        HighLowKeys hl = _selectId( ses, table );
+
+        int retval = hl.getMaxId();
+        hl.advanceMaxId( size );
+        ses.update( hl );
+
+        return retval;
     }
 
     /**
-     * Returns an unused ID for a given table
+     * Reserves the ids from idnum on, up to but not including idnum +
+     * size, in the database
      */
-    public synchronized int createId( RdbSession ses, String table,
-                                      int grab_size )
+    void _reserveIdFrom( RdbSession ses, String table, int idnum, int size )
         throws RdbException, SQLException
     {
-        HighLowKeys hl;
-        Id id;
-        id = (Id)_id_map.get( table );
+        HighLowKeys hl = _selectId( ses, table );
 
-        if( id == null ){
-            hl = _selectId( ses, table );
-
-            id = new Id();
-
-            id._current = hl.getMaxId();
-            id._valid_until = id._current + grab_size;
-
-            _id_map.put( table, id );
-
-            hl.advanceMaxId( grab_size );
-
-            ses.update( hl );
-        }
-        else{
-            id._current++;
-
-            // need to call database for a new chunk
-            if( id._current >= id._valid_until ){
-                hl = _selectId( ses, table );
-
-                id._current = hl.getMaxId();
-                id._valid_until = id._current + grab_size;
+        hl.setMaxId( idnum );
+        hl.advanceMaxId( size );
+        ses.update( hl );
+    }
 
-                hl.advanceMaxId( grab_size );
-                ses.update( hl );
-            }
-        }
+    /**
+     * Returns an unused ID for a given table.  Ids are reserved at
+     * least getGrabSize() at a time, more for tables that take them
+     * quickly.  Tables do not wait on each other, and most calls do
+     * not wait at all
+     */
+    public int createId( RdbSession ses, String table )
+        throws RdbException, SQLException
+    {
+        return _idAllocator( table ).createId( ses, getGrabSize(), true );
+    }
 
-        return id._current;
+    /**
+     * Returns an unused ID for a given table, reserving grab_size ids
+     * at a time
+     */
+    public int createId( RdbSession ses, String table,
+                         int grab_size )
+        throws RdbException, SQLException
+    {
+        return _idAllocator( table ).createId( ses, grab_size, false );
     }
 
     /**
      * Sets the next id to the given integer, and start
      * all future ids from there.
      */
-    public synchronized void setId( RdbSession ses, String table, int idnum )
+    public void setId( RdbSession ses, String table, int idnum )
         throws RdbException, SQLException
     {
-        HighLowKeys hl;
-        Id id;
-        id = (Id)_id_map.get( table );
-
-        if( id == null ){
-            id = new Id();
-            _id_map.put( table, id );
-        }
-
-        hl = _selectId( ses, table );
-
-        id._current = idnum;
-        id._valid_until = id._current + getGrabSize();
-
-        hl.setMaxId( idnum );
-        hl.advanceMaxId( getGrabSize() );
-
-        ses.update( hl );
+        _idAllocator( table ).setId( ses, idnum, getGrabSize() );
     }
 }
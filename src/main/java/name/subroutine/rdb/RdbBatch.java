@@ -0,0 +1,159 @@
+package name.subroutine.rdb;
+
+import java.util.*;
+import java.sql.*;
+
+/**
+ * Sends statements to the database in batches, for RdbSession's
+ * insertAll, updateAll and deleteAll.
+ *
+ * Statements with the same SQL text are added to the same batch.  A
+ * batch is sent when it is full or when a statement with different
+ * text comes along.  Close the batch when done, even after an error,
+ * so that its prepared statement goes back to the cache.
+ */
+class RdbBatch
+{
+    RdbSession _ses;
+    StatementCache _cache;
+    int _batch_size;
+    int _commit_interval;
+
+    String _sql;
+    PreparedStatement _stmt;
+
+    /**
+     * Statements added but not yet sent
+     */
+    int _pending;
+
+    /**
+     * Statements sent since the last commit
+     */
+    int _uncommitted;
+
+    /**
+     * Rows changed by each batch sent
+     */
+    List _count_lst = new ArrayList();
+
+    RdbBatch( RdbSession ses )
+    {
+        _ses = ses;
+        _cache = ses.getStatementCache();
+        _batch_size = ses.getBatchSize();
+        _commit_interval = ses.getCommitInterval();
+    }
+
+    void add( RdbStatement statement )
+        throws SQLException
+    {
+        if( _stmt != null && !statement.getSql().equals( _sql ) ){
+            _flush();
+        }
+        if( _stmt == null ){
+            _sql = statement.getSql();
+            _stmt = _cache.take( _sql );
+        }
+
+        statement.bind( _stmt );
+        _stmt.addBatch();
+        _pending++;
+
+        if( _pending >= _batch_size ){
+            _send();
+        }
+    }
+
+    /**
+     * Sends the pending statements, and commits if the commit
+     * interval has been reached
+     */
+    void _send()
+        throws SQLException
+    {
+        if( _pending == 0 ) return;
+
+        int[] result = _stmt.executeBatch();
+        int cnt = 0;
+        for( int i = 0; i < result.length; i++ ){
+            if( result[i] == Statement.SUCCESS_NO_INFO ){
+                cnt++;
+            }
+            else if( result[i] > 0 ){
+                cnt += result[i];
+            }
+        }
+        _count_lst.add( Integer.valueOf( cnt ) );
+
+        _uncommitted += _pending;
+        _pending = 0;
+
+        if( _commit_interval > 0 && _uncommitted >= _commit_interval ){
+            _commit();
+        }
+    }
+
+    void _commit()
+        throws SQLException
+    {
+        Connection conn = _ses.getConn();
+        if( !conn.getAutoCommit() ){
+            conn.commit();
+        }
+        _uncommitted = 0;
+    }
+
+    /**
+     * Sends the pending statements and puts the prepared statement back
+     */
+    void _flush()
+        throws SQLException
+    {
+        _send();
+        _cache.put( _sql, _stmt );
+        _stmt = null;
+    }
+
+    /**
+     * Sends what is left, and commits it if there is a commit interval
+     *
+     * @return rows changed by each batch
+     */
+    int[] finish()
+        throws SQLException
+    {
+        if( _stmt != null ){
+            _flush();
+        }
+        if( _commit_interval > 0 && _uncommitted > 0 ){
+            _commit();
+        }
+
+        int[] retval = new int[_count_lst.size()];
+        for( int i = 0; i < retval.length; i++ ){
+            retval[i] = ((Integer)_count_lst.get( i )).intValue();
+        }
+        return retval;
+    }
+
+    /**
+     * Drops the statements not sent and puts the prepared statement
+     * back.  Does nothing after finish
+     */
+    void close()
+    {
+        if( _stmt == null ) return;
+
+        try{
+            if( _pending > 0 ){
+                _stmt.clearBatch();
+            }
+        }
+        catch( SQLException ignored ){
+        }
+        _cache.put( _sql, _stmt );
+        _stmt = null;
+        _pending = 0;
+    }
+}
@@ -18,6 +18,19 @@ public class RdbResultSet
     Statement _stmt;
     ResultSet _rs;
 
+    /**
+     * Where the statement goes when the result set is closed, if it
+     * came from a StatementCache
+     */
+    StatementCache _cache;
+    String _sql;
+
+    /**
+     * Looked up on the first get, and kept for the other rows
+     */
+    RtblMapper _mapper;
+    int _col_cnt;
+
     public RdbResultSet( RdbSession ses, Rtbl rtbl,
                          Statement stmt, ResultSet rs )
     {
@@ -27,14 +40,38 @@ public class RdbResultSet
         _rs = rs;
     }
 
+    public RdbResultSet( RdbSession ses, Rtbl rtbl, StatementCache cache,
+                         String sql, PreparedStatement stmt, ResultSet rs )
+    {
+        this( ses, rtbl, stmt, rs );
+        _cache = cache;
+        _sql = sql;
+    }
+
+    /**
+     * Closes the result set.  A cached statement is put back in its
+     * cache instead of being closed.  Closing twice does nothing
+     */
     public void close()
         throws SQLException
     {
-        if( _stmt != null ){
-            _stmt.close();
+        Statement stmt = _stmt;
+        ResultSet rs = _rs;
+        _stmt = null;
+        _rs = null;
+
+        try{
+            if( rs != null ){
+                rs.close();
+            }
         }
-        if( _rs != null ){
-            _rs.close();
+        finally{
+            if( stmt != null && _cache != null ){
+                _cache.put( _sql, (PreparedStatement)stmt );
+            }
+            else if( stmt != null ){
+                stmt.close();
+            }
         }
     }
 
@@ -64,6 +101,10 @@ public class RdbResultSet
     public Rtbl get()
         throws RdbException, SQLException
     {
-        return _ses.toRtbl( _rtbl, _rs );
+        if( _mapper == null ){
+            _mapper = RtblMapper.get( _rtbl.getClass() );
+            _col_cnt = _rs.getMetaData().getColumnCount();
+        }
+        return _ses._toRtbl( _mapper, _rs, _col_cnt );
     }
 }
@@ -16,16 +16,53 @@ public class RdbSession
     Rdb _db;
     Connection _conn;
 
+    /**
+     * True if the connection belongs to the pool of the Rdb
+     */
+    boolean _pooled;
+    boolean _closed;
+
+    /**
+     * Number of statements sent at once by insertAll, updateAll and
+     * deleteAll
+     */
+    int _batch_size = 500;
+
+    /**
+     * Number of records between commits in insertAll, updateAll and
+     * deleteAll, or 0 to leave committing to the caller
+     */
+    int _commit_interval = 0;
+
     public RdbSession( Rdb db, Connection conn )
+    {
+        this( db, conn, false );
+    }
+
+    RdbSession( Rdb db, Connection conn, boolean pooled )
     {
         _db = db;
         _conn = conn;
+        _pooled = pooled;
     }
 
+    /**
+     * Closes the connection, or returns it to the pool if the session
+     * came from Rdb.getSession().  Closing twice does nothing
+     */
     public void close()
         throws SQLException
     {
-        _conn.close();
+        if( _closed ) return;
+        _closed = true;
+
+        if( _pooled ){
+            _db.releaseConn( _conn );
+        }
+        else{
+            _db._closeStatementCache( _conn );
+            _conn.close();
+        }
     }
 
     protected void finalize()
@@ -89,6 +126,59 @@ public class RdbSession
         }
     }
 
+    /**
+     * Returns the prepared statement cache of the connection
+     */
+    public StatementCache getStatementCache()
+    {
+        return _db.getStatementCache( _conn );
+    }
+
+    /**
+     * Runs an insert, update or delete statement with a cached
+     * prepared statement
+     *
+     * @return number of rows changed
+     */
+    public int executeUpdate( RdbStatement statement )
+        throws SQLException
+    {
+        StatementCache cache = getStatementCache();
+        String sql = statement.getSql();
+
+        PreparedStatement stmt = cache.take( sql );
+        try{
+            statement.bind( stmt );
+            return stmt.executeUpdate();
+        }
+        finally{
+            cache.put( sql, stmt );
+        }
+    }
+
+    /**
+     * Runs a query with a cached prepared statement.  The statement
+     * goes back to the cache when the result set is closed
+     */
+    public RdbResultSet openRdbResultSet( Rtbl rtbl, RdbStatement statement )
+        throws SQLException
+    {
+        StatementCache cache = getStatementCache();
+        String sql = statement.getSql();
+
+        PreparedStatement stmt = cache.take( sql );
+        ResultSet rs;
+        try{
+            statement.bind( stmt );
+            rs = stmt.executeQuery();
+        }
+        catch( SQLException | RuntimeException ex ){
+            cache.put( sql, stmt );
+            throw ex;
+        }
+        return new RdbResultSet( this, rtbl, cache, sql, stmt, rs );
+    }
+
     public RdbResultSet openRdbResultSet( Rtbl rtbl, String statement )
         throws SQLException
     {
@@ -177,7 +267,7 @@ public class RdbSession
     public void insert( Rtbl rec )
         throws RdbException, SQLException
     {
-        execute( _db.toInsert( rec ) );
+        executeUpdate( _db.toInsertStatement( rec ) );
     }
 
     /**
@@ -193,15 +283,19 @@ public class RdbSession
     public Rtbl toRtbl( Rtbl rtbl, ResultSet rs )
         throws RdbException, SQLException
     {
-        List rec = name.subroutine.util.Lists.toList( rs );
-        List flst = _db.getFieldNameLst( rtbl );
-        // reset the column names with standard names
-        for( int i = 0; i < rec.size(); i += 2 ){
-            rec.set( i, flst.get( i / 2 ) );
-        }
+        return _toRtbl( RtblMapper.get( rtbl.getClass() ), rs,
+                        rs.getMetaData().getColumnCount() );
+    }
 
+    /**
+     * Like toRtbl( Rtbl, ResultSet ), for callers that keep the mapper
+     * and the column count from row to row
+     */
+    Rtbl _toRtbl( RtblMapper mapper, ResultSet rs, int col_cnt )
+        throws RdbException, SQLException
+    {
         Rtbl retval;
-        retval = _db.toRtbl( rtbl, rec );
+        retval = mapper.map( rs, col_cnt );
         retval.resolve( this );
         retval.setIsNew( false );
         retval.setIsModified( false );
@@ -341,7 +435,8 @@ public class RdbSession
     public RdbResultSet select( Rtbl rtbl, String[] vlist, String[] olist )
         throws RdbException, SQLException
     {
-        return openRdbResultSet( rtbl, _db.toSelect( rtbl, vlist, olist ) );
+        return openRdbResultSet( rtbl,
+                                 _db.toSelectStatement( rtbl, vlist, olist ) );
     }
 
     /**
@@ -389,24 +484,16 @@ public class RdbSession
                         int row_offset, int row_count )
         throws RdbException, SQLException
     {
-        ResultSet rs;
-        rs = execute( _db.toSelect( rtbl, vlist, olist ) );
+        RdbResultSet rs;
+        rs = openRdbResultSet( rtbl,
+                               _db.toSelectStatement( rtbl, vlist, olist ) );
         List retval;
-        retval = toRtblLst( rtbl, rs, row_offset, row_count );
-        
-        try{
-            rs.close();
-        }
-        catch( SQLException sqlex ){
-        }
-        
         try{
-            rs.getStatement().close();
+            retval = toRtblLst( rtbl, rs._rs, row_offset, row_count );
         }
-        catch( Exception sqlex ){
-            // oh wells
+        finally{
+            rs.close();
         }
-        
         return retval;
     }
 
@@ -428,7 +515,7 @@ public class RdbSession
     public RdbResultSet select( Rtbl rtbl, String[] vlist )
         throws RdbException, SQLException
     {
-        return openRdbResultSet( rtbl, _db.toSelect( rtbl, vlist ) );
+        return openRdbResultSet( rtbl, _db.toSelectStatement( rtbl, vlist ) );
     }
 
     /**
@@ -450,24 +537,15 @@ public class RdbSession
                         int row_offset, int row_count )
         throws RdbException, SQLException
     {
-        ResultSet rs;
-        rs = execute( _db.toSelect( rtbl, vlist ) );
+        RdbResultSet rs;
+        rs = openRdbResultSet( rtbl, _db.toSelectStatement( rtbl, vlist ) );
         List retval;
-        retval = toRtblLst( rtbl, rs, row_offset, row_count );
-        
-        try{
-            rs.close();
-        }
-        catch( SQLException sqlex ){
-        }
-        
         try{
-            rs.getStatement().close();
+            retval = toRtblLst( rtbl, rs._rs, row_offset, row_count );
         }
-        catch( Exception sqlex ){
-            // oh wells
+        finally{
+            rs.close();
         }
-        
         return retval;
     }
 
@@ -510,7 +588,7 @@ public class RdbSession
     public RdbResultSet selectEq( Rtbl rtbl, String[] vlist )
         throws RdbException, SQLException
     {
-        return openRdbResultSet( rtbl, _db.toSelectEq( rtbl, vlist ) );
+        return openRdbResultSet( rtbl, _db.toSelectEqStatement( rtbl, vlist ) );
     }
 
     /**
@@ -548,12 +626,15 @@ public class RdbSession
             "oid", String.valueOf( oid )
         } );
 
-        if( rs.next() ){
-            Rtbl retval = rs.get();
+        try{
+            if( rs.next() ){
+                return rs.get();
+            }
+            return null;
+        }
+        finally{
             rs.close();
-            return retval;
         }
-        return null;
     }
 
     /**
@@ -574,7 +655,8 @@ public class RdbSession
     public RdbResultSet selectAll( Rtbl rtbl )
         throws RdbException, SQLException
     {
-        return openRdbResultSet( rtbl, _db.toSelectAll( rtbl ) );
+        return openRdbResultSet( rtbl,
+                                 new RdbStatement( _db.toSelectAll( rtbl ) ) );
     }
 
     /**
@@ -602,10 +684,7 @@ public class RdbSession
     public void delete( Rtbl rec, Object vlist[] )
         throws RdbException, SQLException
     {
-        String sql;
-        sql = _db.toDelete( rec, vlist );
-
-        execute( sql );
+        executeUpdate( _db.toDeleteStatement( rec, vlist ) );
     }
 
     /**
@@ -622,10 +701,7 @@ public class RdbSession
     public void deleteEq( Rtbl rec, Object vlist[] )
         throws RdbException, SQLException
     {
-        String sql;
-        sql = _db.toDeleteEq( rec, vlist );
-
-        execute( sql );
+        executeUpdate( _db.toDeleteEqStatement( rec, vlist ) );
     }
 
     /**
@@ -635,10 +711,7 @@ public class RdbSession
     public void delete( Rtbl rec )
         throws RdbException, SQLException
     {
-        String sql;
-        sql = _db.toDelete( rec );
-
-        execute( sql );
+        executeUpdate( _db.toDeleteStatement( rec ) );
     }
 
     /**
@@ -661,8 +734,7 @@ public class RdbSession
     public void updateEq( Rtbl rec, Object ulist[], Object vlist[] )
         throws RdbException, SQLException
     {
-        String sql = _db.toUpdateEq( rec, ulist, vlist );
-        execute( sql );
+        executeUpdate( _db.toUpdateEqStatement( rec, ulist, vlist ) );
     }
 
     /**
@@ -679,8 +751,7 @@ public class RdbSession
     public void update( Rtbl rec, Object ulist[], Object vlist[] )
         throws RdbException, SQLException
     {
-        String sql = _db.toUpdate( rec, ulist, vlist );
-        execute( sql );
+        executeUpdate( _db.toUpdateStatement( rec, ulist, vlist ) );
     }
 
     /**
@@ -691,9 +762,175 @@ public class RdbSession
     public void update( Rtbl rec )
         throws RdbException, SQLException
     {
-        String sql;
-        sql = _db.toUpdate( rec );
-        execute( sql );
+        executeUpdate( _db.toUpdateStatement( rec ) );
+    }
+
+    public int getBatchSize()
+    {
+        return _batch_size;
+    }
+
+    /**
+     * Sets the number of statements sent at once by insertAll,
+     * updateAll and deleteAll
+     */
+    public void setBatchSize( int val )
+    {
+        if( val < 1 ){
+            throw new IllegalArgumentException( "Batch size must be at "
+                                                + "least 1: " + val );
+        }
+        _batch_size = val;
+    }
+
+    public int getCommitInterval()
+    {
+        return _commit_interval;
+    }
+
+    /**
+     * Sets the number of records between commits in insertAll,
+     * updateAll and deleteAll.  Commits are made after the batch that
+     * reaches the interval, and after the last batch.  With 0, the
+     * default, nothing is committed.  Nothing is committed either
+     * when the connection is in auto commit mode, since every batch
+     * is then committed by the database.
+     */
+    public void setCommitInterval( int val )
+    {
+        _commit_interval = val;
+    }
+
+    static final int INSERT = 1;
+    static final int UPDATE = 2;
+    static final int DELETE = 3;
+
+    RdbStatement _toStatement( int op, Rtbl rec )
+        throws RdbException
+    {
+        switch( op ){
+        case INSERT:
+            return _db.toInsertStatement( rec );
+        case UPDATE:
+            return _db.toUpdateStatement( rec );
+        default:
+            return _db.toDeleteStatement( rec );
+        }
+    }
+
+    /**
+     * Runs the statements of the records in batches, one class of
+     * records after another
+     */
+    int[] _executeAll( int op, Collection rtbl_lst )
+        throws RdbException, SQLException
+    {
+        Map group_map = new LinkedHashMap();
+        for( Iterator it = rtbl_lst.iterator(); it.hasNext(); ){
+            Rtbl rec = (Rtbl)it.next();
+            List group = (List)group_map.get( rec.getClass() );
+            if( group == null ){
+                group = new ArrayList();
+                group_map.put( rec.getClass(), group );
+            }
+            group.add( rec );
+        }
+
+        RdbBatch batch = new RdbBatch( this );
+        try{
+            for( Iterator it = group_map.values().iterator(); it.hasNext(); ){
+                List group = (List)it.next();
+                for( int i = 0; i < group.size(); i++ ){
+                    batch.add( _toStatement( op, (Rtbl)group.get( i ) ) );
+                }
+            }
+            return batch.finish();
+        }
+        finally{
+            batch.close();
+        }
+    }
+
+    /**
+     * Inserts the records with JDBC batches.  Records of the same
+     * class go in the same batches
+     *
+     * @return number of rows inserted by each batch
+     */
+    public int[] insertAll( Collection rtbl_lst )
+        throws RdbException, SQLException
+    {
+        return _executeAll( INSERT, rtbl_lst );
+    }
+
+    /**
+     * Updates the records by primary key with JDBC batches, like
+     * update( Rtbl )
+     *
+     * @return number of rows updated by each batch
+     */
+    public int[] updateAll( Collection rtbl_lst )
+        throws RdbException, SQLException
+    {
+        return _executeAll( UPDATE, rtbl_lst );
+    }
+
+    /**
+     * Deletes the records by primary key with JDBC batches, like
+     * delete( Rtbl )
+     *
+     * @return number of rows deleted by each batch
+     */
+    public int[] deleteAll( Collection rtbl_lst )
+        throws RdbException, SQLException
+    {
+        return _executeAll( DELETE, rtbl_lst );
+    }
+
+    /**
+     * Inserts every record of a table, such as a DbfTable or a
+     * CsvTable, as an object of the class of rtbl.  Fields are
+     * matched by name; fields the rtbl does not have are left out.
+     * The records are read one at a time, so the table need not fit
+     * in memory.
+     *
+     * @return number of rows inserted by each batch
+     */
+    public int[] insertAll( Rtbl rtbl, Table table )
+        throws RdbException, SQLException
+    {
+        RdbBatch batch = new RdbBatch( this );
+        try{
+            for( Iterator it = table.stream().iterator(); it.hasNext(); ){
+                Record rec = (Record)it.next();
+                batch.add( _db.toInsertStatement( _toRtbl( rtbl, rec ) ) );
+            }
+            return batch.finish();
+        }
+        finally{
+            batch.close();
+        }
+    }
+
+    /**
+     * Copies the values of a table record into a new object of the
+     * class of rtbl
+     */
+    Rtbl _toRtbl( Rtbl rtbl, Record rec )
+        throws RdbException
+    {
+        Rtbl retval = _db._newProto( rtbl );
+        int cnt = Math.min( rec.fieldCnt(), rec.size() );
+        for( int i = 0; i < cnt; i++ ){
+            String fname = rec.getFld( i ).name().trim();
+            try{
+                _db.setValue( retval, fname, rec.get( i ) );
+            }
+            catch( RdbException ex ){
+                // not a field of this rtbl
+            }
+        }
+        return retval;
     }
 
     /**
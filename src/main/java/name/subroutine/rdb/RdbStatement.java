@@ -0,0 +1,86 @@
+package name.subroutine.rdb;
+
+import java.util.*;
+import java.sql.*;
+
+/**
+ * An SQL statement with ? in place of its values, and the values to
+ * bind to them, in order.
+ *
+ * Made by the Rdb.toXxxStatement methods.  Since the values are not
+ * part of the text, statements that differ only by their values have
+ * the same text, and the database can reuse the plan of the first.
+ */
+public class RdbStatement
+{
+    String _sql;
+    List _param_lst;
+
+    public RdbStatement( String sql, List param_lst )
+    {
+        _sql = sql;
+        _param_lst = param_lst;
+    }
+
+    public RdbStatement( String sql )
+    {
+        this( sql, new ArrayList() );
+    }
+
+    public String getSql()
+    {
+        return _sql;
+    }
+
+    public List getParamLst()
+    {
+        return _param_lst;
+    }
+
+    public Object[] getParamArray()
+    {
+        return _param_lst.toArray();
+    }
+
+    /**
+     * Sets the values as the parameters of the prepared statement.  A
+     * null is set with the SQL type the driver gives for the
+     * parameter, since not every driver accepts Types.NULL
+     */
+    public void bind( PreparedStatement stmt )
+        throws SQLException
+    {
+        for( int i = 0; i < _param_lst.size(); i++ ){
+            Object val = _param_lst.get( i );
+            if( val == null ){
+                stmt.setNull( i + 1, _nullType( stmt, i + 1 ) );
+            }
+            else{
+                stmt.setObject( i + 1, val );
+            }
+        }
+    }
+
+    /**
+     * @return SQL type of a parameter, or VARCHAR if the driver cannot
+     *         tell
+     */
+    static int _nullType( PreparedStatement stmt, int idx )
+    {
+        try{
+            int type = stmt.getParameterMetaData().getParameterType( idx );
+            if( type != Types.NULL && type != Types.OTHER ){
+                return type;
+            }
+        }
+        catch( SQLException ex ){
+            // not every driver can describe the parameters
+        }
+        return Types.VARCHAR;
+    }
+
+    public String toString()
+    {
+        return _sql + " " + _param_lst;
+    }
+}
@@ -0,0 +1,314 @@
+package name.subroutine.rdb;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.sql.*;
+
+/**
+ * The fields of one Rtbl class, with a constructor and setters looked
+ * up once, so that a row can be turned into an object without going
+ * through reflection for every column.
+ *
+ * Get the mapper of a class with get; it is made the first time and
+ * kept for as long as the class is loaded.  Values are converted the
+ * way Rdb.setValue converts them.
+ */
+class RtblMapper
+{
+    static final ClassValue _mapper_map = new ClassValue(){
+            protected Object computeValue( Class type )
+            {
+                return new RtblMapper( type );
+            }
+        };
+
+    static final int CHAR_ARRAY = 0;
+    static final int INT = 1;
+    static final int DOUBLE = 2;
+    static final int FLOAT = 3;
+    static final int DATE = 4;
+    static final int CHAR = 5;
+    static final int OTHER = 6;
+
+    static final MethodType INT_SETTER
+        = MethodType.methodType( void.class, Object.class, int.class );
+    static final MethodType DOUBLE_SETTER
+        = MethodType.methodType( void.class, Object.class, double.class );
+    static final MethodType FLOAT_SETTER
+        = MethodType.methodType( void.class, Object.class, float.class );
+    static final MethodType CHAR_SETTER
+        = MethodType.methodType( void.class, Object.class, char.class );
+    static final MethodType OBJECT_SETTER
+        = MethodType.methodType( void.class, Object.class, Object.class );
+
+    Class _type;
+
+    /**
+     * The fields whose names start with __, those of the superclasses
+     * first
+     */
+    java.lang.reflect.Field[] _field;
+    int[] _kind;
+
+    /**
+     * Setters of the fields, typed (Object, int), (Object, double) and
+     * so on by kind.  Null where the field cannot be set this way
+     */
+    MethodHandle[] _setter;
+
+    /**
+     * Typed () Rtbl, or null if the class has no constructor
+     * without arguments
+     */
+    MethodHandle _ctor;
+    Exception _ctor_ex;
+
+    static RtblMapper get( Class type )
+    {
+        return (RtblMapper)_mapper_map.get( type );
+    }
+
+    RtblMapper( Class type )
+    {
+        _type = type;
+        _field = _fieldArray( type );
+        _kind = new int[_field.length];
+        _setter = new MethodHandle[_field.length];
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        for( int i = 0; i < _field.length; i++ ){
+            java.lang.reflect.Field f = _field[i];
+            _kind[i] = _kind( f.getType() );
+            try{
+                f.setAccessible( true );
+                _setter[i] = lookup.unreflectSetter( f )
+                    .asType( _setterType( _kind[i] ) );
+            }
+            catch( IllegalAccessException | RuntimeException ex ){
+                // final fields and the like are set through the
+                // Field instead
+                _setter[i] = null;
+            }
+        }
+
+        try{
+            Constructor ctor = type.getDeclaredConstructor();
+            ctor.setAccessible( true );
+            _ctor = lookup.unreflectConstructor( ctor )
+                .asType( MethodType.methodType( Rtbl.class ) );
+        }
+        catch( NoSuchMethodException | IllegalAccessException
+               | RuntimeException ex ){
+            _ctor_ex = ex;
+        }
+    }
+
+    /**
+     * Walks up from type, the way Rdb.getFieldLst always has
+     */
+    static java.lang.reflect.Field[] _fieldArray( Class type )
+    {
+        Set history = new HashSet();
+        java.lang.reflect.Field[] f;
+
+        List finallist = new ArrayList();
+        List list = new ArrayList();
+
+        Class t = type;
+
+        while( t != null && !t.equals( Object.class ) ){
+            f = t.getDeclaredFields();
+            list.clear();
+            for( int i = 0; i < f.length; i++ ){
+                if( f[i].getName().startsWith( "__" )
+                    && !history.contains( f[i].getName() ) ){
+                    list.add( f[i] );
+                    history.add( f[i].getName() );
+                }
+            }
+            finallist.addAll( 0, list );
+            t = t.getSuperclass();
+        }
+
+        return (java.lang.reflect.Field[])finallist.toArray(
+            new java.lang.reflect.Field[finallist.size()]
+        );
+    }
+
+    static int _kind( Class type )
+    {
+        if( type.isArray() && type.getComponentType().equals( char.class ) ){
+            return CHAR_ARRAY;
+        }
+        if( type.equals( int.class ) ) return INT;
+        if( type.equals( double.class ) ) return DOUBLE;
+        if( type.equals( float.class ) ) return FLOAT;
+        if( type.equals( java.util.Date.class ) ) return DATE;
+        if( type.equals( char.class ) ) return CHAR;
+        return OTHER;
+    }
+
+    static MethodType _setterType( int kind )
+    {
+        switch( kind ){
+        case INT: return INT_SETTER;
+        case DOUBLE: return DOUBLE_SETTER;
+        case FLOAT: return FLOAT_SETTER;
+        case CHAR: return CHAR_SETTER;
+        default: return OBJECT_SETTER;
+        }
+    }
+
+    /**
+     * Returns a list of the fields, which the caller may change
+     */
+    List getFieldLst()
+    {
+        return new ArrayList( Arrays.asList( _field ) );
+    }
+
+    /**
+     * Returns a fresh object of the class
+     */
+    Rtbl newInstance()
+        throws RdbException
+    {
+        if( _ctor == null ){
+            throw new RdbException( "Cannot get fresh copy of " + _type,
+                                    _ctor_ex );
+        }
+        try{
+            return (Rtbl)_ctor.invokeExact();
+        }
+        catch( RuntimeException | Error ex ){
+            throw ex;
+        }
+        catch( Throwable ex ){
+            throw new RdbException( "Cannot get fresh copy of " + _type,
+                                    ex );
+        }
+    }
+
+    /**
+     * Sets the field at idx to the value.  A value that cannot be
+     * converted to the field's type is left out, as with
+     * Rdb.setValue
+     */
+    void set( Rtbl rtbl, int idx, Object val )
+    {
+        try{
+            _set( rtbl, idx, val );
+        }
+        catch( Error err ){
+            throw err;
+        }
+        catch( Throwable ex ){
+        }
+    }
+
+    void _set( Rtbl rtbl, int idx, Object val )
+        throws Throwable
+    {
+        MethodHandle setter = _setter[idx];
+        if( setter == null ){
+            _field[idx].set( rtbl, val );
+            return;
+        }
+
+        switch( _kind[idx] ){
+        case CHAR_ARRAY:
+            if( val != null && !(val instanceof char[]) ){
+                val = String.valueOf( val ).trim().toCharArray();
+            }
+            setter.invokeExact( (Object)rtbl, val );
+            return;
+
+        case INT:
+            int i;
+            if( val == null ){
+                i = 0;
+            }
+            else if( val.getClass() == Integer.class ){
+                i = ((Integer)val).intValue();
+            }
+            else{
+                i = Integer.parseInt( String.valueOf( val ).trim(), 10 );
+            }
+            setter.invokeExact( (Object)rtbl, i );
+            return;
+
+        case DOUBLE:
+            double d;
+            if( val == null ){
+                d = 0;
+            }
+            else if( val.getClass() == Double.class ){
+                d = ((Double)val).doubleValue();
+            }
+            else{
+                d = Double.parseDouble( String.valueOf( val ).trim() );
+            }
+            setter.invokeExact( (Object)rtbl, d );
+            return;
+
+        case FLOAT:
+            float f;
+            if( val == null ){
+                f = 0;
+            }
+            else if( val.getClass() == Float.class ){
+                f = ((Float)val).floatValue();
+            }
+            else{
+                f = Float.parseFloat( String.valueOf( val ).trim() );
+            }
+            setter.invokeExact( (Object)rtbl, f );
+            return;
+
+        case DATE:
+            if( val != null && val.getClass() != java.util.Date.class ){
+                val = Rdb.toDate( String.valueOf( val ).trim() );
+            }
+            setter.invokeExact( (Object)rtbl, val );
+            return;
+
+        case CHAR:
+            char c;
+            if( val == null ){
+                c = (char)0;
+            }
+            else if( val.getClass() == Character.class ){
+                c = ((Character)val).charValue();
+            }
+            else{
+                c = String.valueOf( val ).trim().charAt( 0 );
+            }
+            setter.invokeExact( (Object)rtbl, c );
+            return;
+
+        default:
+            // let reflection unbox and widen as it always has
+            _field[idx].set( rtbl, val );
+        }
+    }
+
+    /**
+     * Makes an object out of the current row of the result set.  The
+     * columns are taken to be in the order of the fields
+     *
+     * @param col_cnt is the number of columns in the result set
+     */
+    Rtbl map( ResultSet rs, int col_cnt )
+        throws RdbException, SQLException
+    {
+        Rtbl retval = newInstance();
+
+        int cnt = Math.min( col_cnt, _field.length );
+        for( int i = 0; i < cnt; i++ ){
+            set( retval, i, rs.getObject( i + 1 ) );
+        }
+        return retval;
+    }
+}
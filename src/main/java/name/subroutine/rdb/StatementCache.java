@@ -0,0 +1,151 @@
+package name.subroutine.rdb;
+
+import java.util.*;
+import java.sql.*;
+
+/**
+ * Prepared statements of one connection, by SQL text.
+ *
+ * A statement is taken out of the cache while it is used and put back
+ * when it is done, so a statement is never used twice at the same
+ * time, even when the same query is run again before the first result
+ * set is closed.  Only the least recently used statements are closed
+ * when the cache is full.
+ *
+ * Get the cache of a connection with Rdb.getStatementCache.
+ */
+public class StatementCache
+{
+    Rdb _db;
+    Connection _conn;
+    int _max_size;
+
+    /**
+     * Statements not in use, least recently used first
+     */
+    LinkedHashMap _stmt_map = new LinkedHashMap();
+
+    long _hit_cnt;
+    long _miss_cnt;
+    boolean _closed;
+
+    StatementCache( Rdb db, Connection conn, int max_size )
+    {
+        _db = db;
+        _conn = conn;
+        _max_size = max_size;
+    }
+
+    /**
+     * Takes the statement for the SQL text out of the cache, or
+     * prepares a new one.  Give it back with put
+     */
+    public PreparedStatement take( String sql )
+        throws SQLException
+    {
+        synchronized( this ){
+            PreparedStatement stmt = (PreparedStatement)_stmt_map.remove( sql );
+            if( stmt != null ){
+                _hit_cnt++;
+                _db._stmt_hit_cnt.increment();
+                return stmt;
+            }
+            _miss_cnt++;
+            _db._stmt_miss_cnt.increment();
+        }
+        return _conn.prepareStatement( sql );
+    }
+
+    /**
+     * Puts a statement back.  It is closed instead if the cache
+     * already has one for the SQL text, or if the cache is closed
+     */
+    public void put( String sql, PreparedStatement stmt )
+    {
+        try{
+            stmt.clearParameters();
+        }
+        catch( SQLException ex ){
+            _close( stmt );
+            return;
+        }
+
+        List evicted = new ArrayList();
+        synchronized( this ){
+            if( _closed || _stmt_map.containsKey( sql ) ){
+                evicted.add( stmt );
+            }
+            else{
+                _stmt_map.put( sql, stmt );
+                Iterator it = _stmt_map.values().iterator();
+                while( _stmt_map.size() > _max_size ){
+                    evicted.add( it.next() );
+                    it.remove();
+                }
+            }
+        }
+        for( int i = 0; i < evicted.size(); i++ ){
+            _close( (PreparedStatement)evicted.get( i ) );
+        }
+    }
+
+    static void _close( PreparedStatement stmt )
+    {
+        try{
+            stmt.close();
+        }
+        catch( SQLException ignored ){
+        }
+    }
+
+    /**
+     * Closes all the statements in the cache.  Statements in use are
+     * closed when they are put back
+     */
+    public void close()
+    {
+        List stmt_lst;
+        synchronized( this ){
+            _closed = true;
+            stmt_lst = new ArrayList( _stmt_map.values() );
+            _stmt_map.clear();
+        }
+        for( int i = 0; i < stmt_lst.size(); i++ ){
+            _close( (PreparedStatement)stmt_lst.get( i ) );
+        }
+    }
+
+    /**
+     * Returns the number of statements not in use
+     */
+    public synchronized int size()
+    {
+        return _stmt_map.size();
+    }
+
+    public int getMaxSize()
+    {
+        return _max_size;
+    }
+
+    public synchronized long getHitCnt()
+    {
+        return _hit_cnt;
+    }
+
+    public synchronized long getMissCnt()
+    {
+        return _miss_cnt;
+    }
+
+    /**
+     * Returns the fraction of take calls that found a statement, from
+     * 0 to 1
+     */
+    public synchronized double getHitRate()
+    {
+        long total = _hit_cnt + _miss_cnt;
+        if( total == 0 ) return 0;
+        return (double)_hit_cnt / total;
+    }
+}
@@ -0,0 +1,14 @@
+-- Adds the MatchResult indexes to a database created before they were mapped.
+--
+-- ddl-auto: validate does not check indexes, so the service starts without them, but head to head lookups and
+-- recomputations scan every saved match.  Run this once against the database; it does nothing if the indexes
+-- already exist.  The statements work on H2 and PostgreSQL.
+
+create index if not exists winner_loser_index
+    on match_result (winner_id, loser_id);
+
+create index if not exists loser_winner_index
+    on match_result (loser_id, winner_id);
+
+create index if not exists match_result_tournament_index
+    on match_result (tournament_id);
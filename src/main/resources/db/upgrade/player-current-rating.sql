@@ -0,0 +1,19 @@
+-- Adds the PlayerCurrentRating table to a database created before it was mapped.
+--
+-- ddl-auto: validate stops the service at startup if the table is missing.  Run this once against the database,
+-- then fill the table from the rating history with POST rest/v0/rating/current-rating/rebuild.  It does nothing if
+-- the table already exists.  The statements work on H2 and PostgreSQL.
+
+create table if not exists player_current_rating (
+    player_id integer not null,
+    adjustment_date timestamp not null,
+    final_rating integer not null,
+    player_rating_adjustment_id integer not null,
+    tournament_id integer,
+    primary key (player_id)
+);
+
+-- the version column came after the table; tables created without it need it added.  hibernate takes a row with
+-- no version for a new one, so existing rows start at 0
+alter table player_current_rating add column if not exists version integer;
+update player_current_rating set version = 0 where version is null;
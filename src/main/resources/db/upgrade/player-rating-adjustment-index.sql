@@ -0,0 +1,11 @@
+-- Adds the PlayerRatingAdjustment indexes to a database created before they were mapped.
+--
+-- ddl-auto: validate does not check indexes, so the service starts without them, but every rating lookup scans
+-- the whole table.  Run this once against the database; it does nothing if the indexes already exist.  The
+-- statements work on H2 and PostgreSQL.
+
+create index if not exists player_adjustment_date_index
+    on player_rating_adjustment (player_id, adjustment_date desc, player_rating_adjustment_id desc);
+
+create index if not exists player_rating_adjustment_tournament_index
+    on player_rating_adjustment (tournament_id);
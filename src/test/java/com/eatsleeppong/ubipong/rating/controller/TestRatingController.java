@@ -10,9 +10,12 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import javax.transaction.Transactional;
 
+import static org.springframework.test.web.servlet.request
+    .MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request
     .MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request
@@ -22,6 +25,8 @@ import static org.springframework.test.web.servlet.result
     .MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result
     .MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result
+    .MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.hamcrest.Matchers.is;
 
@@ -112,4 +117,143 @@ public class TestRatingController {
                 .andExpect(jsonPath("ratingAdjustmentResponseList[0].rejectReason")
                         .value(is(RatingAdjustmentResponseLineItem.REJECT_REASON_INVALID_PLAYER)));
     }
+
+    @Test
+    public void testPostRatingAdjustmentStream() throws Exception {
+        mockMvc.perform(
+                post("/rest/v0/rating/rating-adjustment/stream")
+                        .param("autoAddPlayer", "true")
+                        .contentType("text/csv")
+                        .content(
+                                "tournamentName, test tournament\n" +
+                                "date, 2019-01-13T17:59:00-0500\n" +
+                                "player, rating\n" +
+                                "new-player-1, 1234\n" +
+                                "new-player-2, 1000\n"
+                        ))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("processed").value(is(true)))
+                .andExpect(jsonPath("adjustmentCount").value(is(2)))
+                .andExpect(jsonPath("ratingAdjustmentResponseList").isEmpty());
+    }
+
+    @Test
+    public void testPostRatingAdjustmentStreamMissingPlayer() throws Exception {
+        mockMvc.perform(
+                post("/rest/v0/rating/rating-adjustment/stream")
+                        .contentType("text/csv")
+                        .content(
+                                "tournamentName, test tournament\n" +
+                                "date, 2019-01-13T17:59:00-0500\n" +
+                                "player, rating\n" +
+                                "invalid-player, 1234\n"
+                        ))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("ratingAdjustmentResponseList[0].rejectReason")
+                        .value(is(RatingAdjustmentResponseLineItem.REJECT_REASON_INVALID_PLAYER)));
+    }
+
+    @Test
+    public void testPostRatingAdjustmentStreamMissingLine2() throws Exception {
+        mockMvc.perform(
+                post("/rest/v0/rating/rating-adjustment/stream")
+                        .contentType("text/csv")
+                        .content("tournamentName, test tournament"))
+                .andExpect(status().is4xxClientError())
+                .andExpect(jsonPath("message").value(is("Missing line 2")));
+    }
+
+    @Test
+    public void testGetRatingHistoryMissingPlayer() throws Exception {
+        mockMvc.perform(get("/rest/v0/rating/history").param("player", "no such player"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testStreamRatingHistoryMissingPlayer() throws Exception {
+        final MvcResult mvcResult = mockMvc.perform(get("/rest/v0/rating/history/stream")
+                .param("player", "no such player"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("Could not find player \"no such player\""));
+    }
+
+    @Test
+    public void testPostCurrentRatingMissingPlayer() throws Exception {
+        mockMvc.perform(post("/rest/v0/rating/current-rating")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userNameList\": [\"no such player\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("currentRatingResponseList[0].userName").value(is("no such player")))
+                .andExpect(jsonPath("currentRatingResponseList[0].processed").value(is(false)));
+    }
+
+    @Test
+    public void testPostTournamentSubmission() throws Exception {
+        mockMvc.perform(post("/rest/v0/rating/tournament-submission")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tournamentName\": \"test tournament\", " +
+                        "\"tournamentDate\": \"2019-01-13T17:59:00.000-0500\", " +
+                        "\"tournamentResultList\": [{\"winner\": \"invalid-player-1\", " +
+                        "\"loser\": \"invalid-player-2\"}]}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("submissionId").isNumber())
+                .andExpect(jsonPath("matchCount").value(is(1)));
+    }
+
+    @Test
+    public void testGetTournamentSubmissionInvalidId() throws Exception {
+        mockMvc.perform(get("/rest/v0/rating/tournament-submission/12345"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetLeaderboardMissingPlayer() throws Exception {
+        mockMvc.perform(get("/rest/v0/rating/leaderboard").param("player", "no such player"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetLeaderboard() throws Exception {
+        mockMvc.perform(get("/rest/v0/rating/leaderboard").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("playerCount").isNumber())
+                .andExpect(jsonPath("leaderboardList").isArray());
+    }
+
+    @Test
+    public void testPostRecomputationMissingParameter() throws Exception {
+        mockMvc.perform(post("/rest/v0/rating/recomputation"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testPostRecomputationInvalidTournament() throws Exception {
+        mockMvc.perform(post("/rest/v0/rating/recomputation").param("tournament", "no such tournament"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testPostRecomputationFromDate() throws Exception {
+        mockMvc.perform(post("/rest/v0/rating/recomputation").param("fromDate", "2019-01-01T00:00:00.000-05:00"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("recomputationId").isNumber());
+    }
+
+    @Test
+    public void testGetHeadToHeadInvalidPlayer() throws Exception {
+        mockMvc.perform(get("/rest/v0/rating/head-to-head")
+                .param("player1", "invalid-player-1")
+                .param("player2", "invalid-player-2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetRecomputationNotFound() throws Exception {
+        mockMvc.perform(get("/rest/v0/rating/recomputation/12345"))
+                .andExpect(status().isNotFound());
+    }
 }
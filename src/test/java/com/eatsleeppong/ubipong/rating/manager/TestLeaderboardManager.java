@@ -0,0 +1,109 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.Player;
+import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+import com.eatsleeppong.ubipong.rating.model.LeaderboardLineItem;
+import com.eatsleeppong.ubipong.rating.model.LeaderboardResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.transaction.Transactional;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class TestLeaderboardManager {
+    @Autowired
+    private PlayerManager playerManager;
+
+    @Autowired
+    private RatingManager ratingManager;
+
+    @Autowired
+    private LeaderboardManager leaderboardManager;
+
+    @Before
+    public void setup() {
+        // the leaderboard may have been read by another test that has already been rolled back
+        leaderboardManager.reset();
+    }
+
+    private void addPlayerWithRating(final String userName, final int rating) {
+        final Player player = new Player();
+        player.setUserName(userName);
+        final Integer playerId = playerManager.addPlayer(player).getPlayerId();
+
+        final PlayerRatingAdjustment playerRatingAdjustment = new PlayerRatingAdjustment();
+        playerRatingAdjustment.setPlayerId(playerId);
+        playerRatingAdjustment.setAdjustmentDate(new Date());
+        playerRatingAdjustment.setInitialRating(rating);
+        playerRatingAdjustment.setFirstPassRating(rating);
+        playerRatingAdjustment.setFinalRating(rating);
+        ratingManager.addPlayerRatingAdjustment(playerRatingAdjustment);
+    }
+
+    @Test
+    public void getLeaderboard() {
+        addPlayerWithRating("spongebob", 1500);
+        addPlayerWithRating("patrick", 1700);
+        addPlayerWithRating("squidward", 1600);
+
+        final LeaderboardResponse leaderboardResponse = leaderboardManager.getLeaderboard(0, 2);
+
+        assertThat(leaderboardResponse.getPlayerCount(), is(3));
+        assertThat(leaderboardResponse.getLeaderboardList().stream()
+                .map(LeaderboardLineItem::getUserName)
+                .collect(Collectors.toList()), contains("patrick", "squidward"));
+    }
+
+    @Test
+    public void getLeaderboardBetween() {
+        addPlayerWithRating("spongebob", 1500);
+        addPlayerWithRating("patrick", 1700);
+        addPlayerWithRating("squidward", 1600);
+
+        final LeaderboardResponse leaderboardResponse = leaderboardManager.getLeaderboardBetween(1500, 1650, 10);
+
+        assertThat(leaderboardResponse.getLeaderboardList().stream()
+                .map(LeaderboardLineItem::getUserName)
+                .collect(Collectors.toList()), contains("squidward", "spongebob"));
+        assertThat(leaderboardResponse.getLeaderboardList().get(0).getRank(), is(2));
+    }
+
+    @Test
+    public void getLeaderboardByPlayer() {
+        addPlayerWithRating("spongebob", 1500);
+        addPlayerWithRating("patrick", 1700);
+
+        final LeaderboardLineItem lineItem = leaderboardManager.getLeaderboardByPlayer("spongebob")
+                .map(response -> response.getLeaderboardList().get(0))
+                .orElseThrow(() -> new AssertionError("Cannot get rank"));
+
+        assertThat(lineItem.getRank(), is(2));
+        assertThat(lineItem.getRating(), is(1500));
+        assertThat(lineItem.getUserName(), is("spongebob"));
+    }
+
+    @Test
+    public void getLeaderboardByPlayerWithoutRating() {
+        final Player player = new Player();
+        player.setUserName("spongebob");
+        playerManager.addPlayer(player);
+
+        assertFalse(leaderboardManager.getLeaderboardByPlayer("spongebob").isPresent());
+        assertFalse(leaderboardManager.getLeaderboardByPlayer("no such player").isPresent());
+    }
+}
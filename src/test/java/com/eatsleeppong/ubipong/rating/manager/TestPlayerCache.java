@@ -0,0 +1,71 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.Player;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestPlayerCache {
+    private final PlayerCache playerCache = new PlayerCache(2);
+
+    private Player createPlayer(final Integer playerId, final String userName) {
+        final Player player = new Player();
+        player.setPlayerId(playerId);
+        player.setUserName(userName);
+        return player;
+    }
+
+    @Test
+    public void getByIdAndUserName() {
+        playerCache.put(createPlayer(1, "spongebob"));
+
+        assertThat(playerCache.getById(1).map(Player::getUserName).orElse(null), is("spongebob"));
+        assertThat(playerCache.getByUserName("spongebob").map(Player::getPlayerId).orElse(null), is(1));
+        assertThat(playerCache.getHitCount(), is(2L));
+    }
+
+    @Test
+    public void countMiss() {
+        assertFalse(playerCache.getByUserName("spongebob").isPresent());
+        assertFalse(playerCache.getById(1).isPresent());
+
+        assertThat(playerCache.getMissCount(), is(2L));
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        playerCache.put(createPlayer(1, "spongebob"));
+        playerCache.put(createPlayer(2, "patrick"));
+        // spongebob is now used more recently than patrick
+        playerCache.getById(1);
+        playerCache.put(createPlayer(3, "squidward"));
+
+        assertThat(playerCache.size(), is(2));
+        assertThat(playerCache.getEvictionCount(), is(1L));
+        assertTrue(playerCache.getByUserName("spongebob").isPresent());
+        assertFalse(playerCache.getByUserName("patrick").isPresent());
+        assertTrue(playerCache.getByUserName("squidward").isPresent());
+    }
+
+    @Test
+    public void changeUserName() {
+        playerCache.put(createPlayer(1, "spongebob"));
+        playerCache.put(createPlayer(1, "spongebob2"));
+
+        assertFalse(playerCache.getByUserName("spongebob").isPresent());
+        assertThat(playerCache.getByUserName("spongebob2").map(Player::getPlayerId).orElse(null), is(1));
+        assertThat(playerCache.size(), is(1));
+    }
+
+    @Test
+    public void remove() {
+        playerCache.put(createPlayer(1, "spongebob"));
+        playerCache.remove(1);
+
+        assertFalse(playerCache.getById(1).isPresent());
+        assertFalse(playerCache.getByUserName("spongebob").isPresent());
+    }
+}
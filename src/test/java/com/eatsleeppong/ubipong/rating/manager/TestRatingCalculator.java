@@ -1,6 +1,9 @@
 package com.eatsleeppong.ubipong.rating.manager;
 
 import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
@@ -181,4 +184,78 @@ public class TestRatingCalculator {
         final int delta = ratingCalculator.calculateLoserDelta(2196, 2196 + 238);
         assertThat(delta, is(-50));
     }
+
+    @Test
+    public void calculateWinnerDelta999PointsBelow() {
+        final int delta = ratingCalculator.calculateWinnerDelta(977, 1976);
+        assertThat(delta, is(50));
+    }
+
+    /**
+     * the points from the USATT chart, the way RatingCalculator used to calculate them
+     */
+    private int calculateWinnerDeltaByChart(final int diff) {
+        final int[] expectedDiff = { 238, 188, 138, 113, 88, 63, 38, 13, 0 };
+        final int[] expectedDelta = { 0, 1, 2, 3, 4, 5, 6, 7, 8 };
+        final int[] upsetDiff = { -238, -213, -188, -163, -138, -113, -88, -63, -38, -13 };
+        final int[] upsetDelta = { 50, 45, 40, 35, 30, 25, 20, 16, 13, 10 };
+
+        for (int i = 0; i < expectedDiff.length; ++i) {
+            if (diff >= expectedDiff[i]) {
+                return expectedDelta[i];
+            }
+        }
+        for (int i = 0; i < upsetDiff.length; ++i) {
+            if (diff <= upsetDiff[i]) {
+                return upsetDelta[i];
+            }
+        }
+        return 8;
+    }
+
+    @Test
+    public void calculateWinnerDeltaSameAsChart() {
+        for (int diff = -500; diff <= 500; ++diff) {
+            assertThat("difference " + diff, ratingCalculator.calculateWinnerDelta(1500 + diff, 1500),
+                    is(calculateWinnerDeltaByChart(diff)));
+        }
+    }
+
+    @Test
+    public void calculateWinnerDeltaBatch() {
+        final int[] winnerRatingList = new int[] { 1234, 454, 2196, 1454, 977 };
+        final int[] loserRatingList = new int[] { 996, 466, 2409, 1441, 1976 };
+
+        final int[] deltaList = ratingCalculator.calculateWinnerDelta(winnerRatingList, loserRatingList);
+
+        assertThat(deltaList.length, is(5));
+        for (int i = 0; i < deltaList.length; ++i) {
+            assertThat(deltaList[i], is(ratingCalculator.calculateWinnerDelta(winnerRatingList[i],
+                    loserRatingList[i])));
+        }
+    }
+
+    @Test
+    public void customPointExchangeTable() {
+        final String pointExchangeTable =
+                "difference, expected, upset\n" +
+                "0,          10,       10\n" +
+                "100,        5,        20\n";
+        final RatingCalculator customRatingCalculator = new RatingCalculator(
+                new ByteArrayResource(pointExchangeTable.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(customRatingCalculator.calculateWinnerDelta(1000, 1000), is(10));
+        assertThat(customRatingCalculator.calculateWinnerDelta(1099, 1000), is(10));
+        assertThat(customRatingCalculator.calculateWinnerDelta(1100, 1000), is(5));
+        assertThat(customRatingCalculator.calculateWinnerDelta(1000, 1099), is(10));
+        assertThat(customRatingCalculator.calculateWinnerDelta(1000, 1500), is(20));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pointExchangeTableMustStartFromZero() {
+        final String pointExchangeTable =
+                "difference, expected, upset\n" +
+                "13,         7,        10\n";
+        new RatingCalculator(new ByteArrayResource(pointExchangeTable.getBytes(StandardCharsets.UTF_8)));
+    }
 }
@@ -0,0 +1,125 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class TestRatingDeltaAccumulator {
+    private final RatingDeltaAccumulator ratingDeltaAccumulator = new RatingDeltaAccumulator();
+
+    private PlayerRatingAdjustment createPlayerRatingAdjustment(final Integer playerId, final Integer finalRating) {
+        final PlayerRatingAdjustment playerRatingAdjustment = new PlayerRatingAdjustment();
+        playerRatingAdjustment.setPlayerRatingAdjustmentId(playerId * 10);
+        playerRatingAdjustment.setPlayerId(playerId);
+        playerRatingAdjustment.setAdjustmentDate(new Date(0));
+        playerRatingAdjustment.setInitialRating(0);
+        playerRatingAdjustment.setFirstPassRating(0);
+        playerRatingAdjustment.setFinalRating(finalRating);
+        return playerRatingAdjustment;
+    }
+
+    @Test
+    public void addMatchResult() {
+        ratingDeltaAccumulator.reset(Arrays.asList(
+                createPlayerRatingAdjustment(30, 1000),
+                createPlayerRatingAdjustment(10, 1100),
+                createPlayerRatingAdjustment(20, 1200)));
+
+        ratingDeltaAccumulator.addMatchResult(30, 10, 20);
+        ratingDeltaAccumulator.addMatchResult(20, 30, 4);
+
+        assertThat(ratingDeltaAccumulator.getRating(10), is(1080));
+        assertThat(ratingDeltaAccumulator.getRating(20), is(1204));
+        assertThat(ratingDeltaAccumulator.getRating(30), is(1016));
+    }
+
+    @Test
+    public void getPlayerRatingAdjustmentMap() {
+        final PlayerRatingAdjustment initialRating = createPlayerRatingAdjustment(10, 1100);
+        ratingDeltaAccumulator.reset(Arrays.asList(initialRating, createPlayerRatingAdjustment(20, 1200)));
+        ratingDeltaAccumulator.addMatchResult(10, 20, 8);
+
+        final Map<Integer, PlayerRatingAdjustment> newRatingMap =
+                ratingDeltaAccumulator.getPlayerRatingAdjustmentMap();
+        final PlayerRatingAdjustment newRating = newRatingMap.get(10);
+
+        assertThat(newRatingMap.keySet(), containsInAnyOrder(10, 20));
+        assertThat(newRating, not(sameInstance(initialRating)));
+        assertThat(newRating.getPlayerRatingAdjustmentId(), nullValue());
+        assertThat(newRating.getInitialRating(), is(1100));
+        assertThat(newRating.getFirstPassRating(), is(1100));
+        assertThat(newRating.getFinalRating(), is(1108));
+        assertThat(initialRating.getFinalRating(), is(1100));
+    }
+
+    @Test
+    public void resetForNextTournament() {
+        ratingDeltaAccumulator.reset(Arrays.asList(
+                createPlayerRatingAdjustment(10, 1100),
+                createPlayerRatingAdjustment(20, 1200)));
+        ratingDeltaAccumulator.addMatchResult(10, 20, 8);
+
+        ratingDeltaAccumulator.reset(Collections.singletonList(createPlayerRatingAdjustment(20, 1500)));
+
+        assertThat(ratingDeltaAccumulator.getRating(20), is(1500));
+        assertThat(ratingDeltaAccumulator.getPlayerRatingAdjustmentMap().keySet(), contains(20));
+    }
+
+    @Test
+    public void addPlayer() {
+        ratingDeltaAccumulator.reset(Arrays.asList(
+                createPlayerRatingAdjustment(10, 1100),
+                createPlayerRatingAdjustment(20, 1200)));
+
+        assertThat(ratingDeltaAccumulator.addPlayer(20), is(1));
+        assertThat(ratingDeltaAccumulator.addPlayer(30), is(2));
+        assertThat(ratingDeltaAccumulator.addPlayer(30), is(2));
+        ratingDeltaAccumulator.addMatchResult(30, 10, 30);
+
+        assertThat(ratingDeltaAccumulator.getRatedCount(), is(2));
+        assertThat(ratingDeltaAccumulator.getPlayerCount(), is(3));
+        assertThat(ratingDeltaAccumulator.getPlayerId(2), is(30));
+        assertThat(ratingDeltaAccumulator.getInitialRating(2), nullValue());
+        assertThat(ratingDeltaAccumulator.getRating(30), is(30));
+
+        final PlayerRatingAdjustment newRating = ratingDeltaAccumulator.getPlayerRatingAdjustmentMap().get(30);
+        assertThat(newRating.getInitialRating(), is(0));
+        assertThat(newRating.getFinalRating(), is(30));
+    }
+
+    @Test
+    public void addPlayerPastInitialCapacity() {
+        ratingDeltaAccumulator.reset(Collections.singletonList(createPlayerRatingAdjustment(1, 1000)));
+
+        // the hash table and the rating arrays have to grow several times
+        for (int playerId = 2; playerId <= 5000; ++playerId) {
+            assertThat(ratingDeltaAccumulator.addPlayer(playerId), is(playerId - 1));
+        }
+        for (int playerId = 1; playerId <= 5000; ++playerId) {
+            assertThat(ratingDeltaAccumulator.addPlayer(playerId), is(playerId - 1));
+            assertThat(ratingDeltaAccumulator.getPlayerId(playerId - 1), is(playerId));
+        }
+        assertThat(ratingDeltaAccumulator.getRating(1), is(1000));
+        assertThat(ratingDeltaAccumulator.getPlayerCount(), is(5000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPlayer() {
+        ratingDeltaAccumulator.reset(Collections.singletonList(createPlayerRatingAdjustment(10, 1100)));
+        ratingDeltaAccumulator.addMatchResult(10, 20, 8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicatePlayer() {
+        ratingDeltaAccumulator.reset(Arrays.asList(
+                createPlayerRatingAdjustment(10, 1100),
+                createPlayerRatingAdjustment(10, 1200)));
+    }
+}
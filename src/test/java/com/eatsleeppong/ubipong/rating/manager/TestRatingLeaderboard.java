@@ -0,0 +1,153 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.model.LeaderboardLineItem;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public class TestRatingLeaderboard {
+    private final RatingLeaderboard ratingLeaderboard = new RatingLeaderboard();
+
+    /**
+     * player 2 is first, players 1 and 3 are tied for second, and player 4 is fourth
+     */
+    private void putFourPlayers() {
+        ratingLeaderboard.put(1, 1500);
+        ratingLeaderboard.put(2, 1600);
+        ratingLeaderboard.put(3, 1500);
+        ratingLeaderboard.put(4, 1400);
+    }
+
+    private int getRank(final Integer playerId) {
+        return ratingLeaderboard.get(playerId).map(LeaderboardLineItem::getRank)
+                .orElseThrow(() -> new AssertionError("Cannot get rank"));
+    }
+
+    private List<Integer> getPlayerIdList(final List<LeaderboardLineItem> lineItemList) {
+        return lineItemList.stream().map(LeaderboardLineItem::getPlayerId).collect(Collectors.toList());
+    }
+
+    private List<Integer> getRankList(final List<LeaderboardLineItem> lineItemList) {
+        return lineItemList.stream().map(LeaderboardLineItem::getRank).collect(Collectors.toList());
+    }
+
+    @Test
+    public void getRankWithTie() {
+        putFourPlayers();
+
+        assertThat(getRank(2), is(1));
+        assertThat(getRank(1), is(2));
+        assertThat(getRank(3), is(2));
+        assertThat(getRank(4), is(4));
+        assertThat(ratingLeaderboard.get(1).map(LeaderboardLineItem::getRating).orElse(null), is(1500));
+    }
+
+    @Test
+    public void getMissingPlayer() {
+        putFourPlayers();
+
+        assertFalse(ratingLeaderboard.get(5).isPresent());
+    }
+
+    @Test
+    public void getRange() {
+        putFourPlayers();
+
+        assertThat(getPlayerIdList(ratingLeaderboard.getRange(0, 2)), contains(2, 1));
+        assertThat(getPlayerIdList(ratingLeaderboard.getRange(1, 2)), contains(1, 3));
+        assertThat(getRankList(ratingLeaderboard.getRange(1, 2)), contains(2, 2));
+        assertThat(getPlayerIdList(ratingLeaderboard.getRange(2, 10)), contains(3, 4));
+        assertThat(getRankList(ratingLeaderboard.getRange(2, 10)), contains(2, 4));
+        assertThat(ratingLeaderboard.getRange(4, 10), empty());
+    }
+
+    @Test
+    public void getBetween() {
+        putFourPlayers();
+
+        assertThat(getPlayerIdList(ratingLeaderboard.getBetween(1450, 1600, 10)), contains(2, 1, 3));
+        assertThat(getRankList(ratingLeaderboard.getBetween(1400, 1500, 10)), contains(2, 2, 4));
+        assertThat(getPlayerIdList(ratingLeaderboard.getBetween(1400, 1500, 1)), contains(1));
+        assertThat(ratingLeaderboard.getBetween(1501, 1599, 10), empty());
+    }
+
+    @Test
+    public void putMovesPlayer() {
+        putFourPlayers();
+
+        ratingLeaderboard.put(4, 1700);
+
+        assertThat(ratingLeaderboard.size(), is(4));
+        assertThat(getRank(4), is(1));
+        assertThat(getRank(2), is(2));
+        assertThat(getPlayerIdList(ratingLeaderboard.getRange(0, 10)), contains(4, 2, 1, 3));
+    }
+
+    @Test
+    public void remove() {
+        putFourPlayers();
+
+        ratingLeaderboard.remove(2);
+
+        assertThat(ratingLeaderboard.size(), is(3));
+        assertFalse(ratingLeaderboard.get(2).isPresent());
+        assertThat(getRank(1), is(1));
+        assertThat(getRank(4), is(3));
+    }
+
+    @Test
+    public void ratingOutsideInitialRange() {
+        putFourPlayers();
+
+        ratingLeaderboard.put(5, 5000);
+        ratingLeaderboard.put(6, -100);
+
+        assertThat(getRank(5), is(1));
+        assertThat(getRank(2), is(2));
+        assertThat(getRank(6), is(6));
+        assertThat(getPlayerIdList(ratingLeaderboard.getRange(0, 10)), contains(5, 2, 1, 3, 4, 6));
+    }
+
+    @Test
+    public void ratingTooFarOutsideRange() {
+        putFourPlayers();
+
+        ratingLeaderboard.put(5, Integer.MAX_VALUE);
+
+        assertFalse(ratingLeaderboard.get(5).isPresent());
+        assertThat(ratingLeaderboard.size(), is(4));
+    }
+
+    @Test
+    public void matchesSort() {
+        final Random random = new Random(1);
+        final Map<Integer, Integer> ratingMap = new HashMap<>();
+        for (int i = 0; i < 2000; ++i) {
+            final int playerId = random.nextInt(500);
+            if (random.nextInt(10) == 0) {
+                ratingMap.remove(playerId);
+                ratingLeaderboard.remove(playerId);
+            } else {
+                final int rating = random.nextInt(3000);
+                ratingMap.put(playerId, rating);
+                ratingLeaderboard.put(playerId, rating);
+            }
+        }
+
+        final List<Integer> sortedList = ratingMap.keySet().stream()
+                .sorted(Comparator.comparing((Integer playerId) -> -ratingMap.get(playerId))
+                        .thenComparing(Comparator.naturalOrder()))
+                .collect(Collectors.toList());
+        assertThat(getPlayerIdList(ratingLeaderboard.getRange(0, sortedList.size())), is(sortedList));
+        assertThat(getPlayerIdList(ratingLeaderboard.getRange(100, 50)), is(sortedList.subList(100, 150)));
+        ratingMap.forEach((playerId, rating) -> assertThat(getRank(playerId),
+                is((int) ratingMap.values().stream().filter(r -> r > rating).count() + 1)));
+    }
+}
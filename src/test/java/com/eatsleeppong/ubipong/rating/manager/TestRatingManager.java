@@ -6,17 +6,27 @@ import com.eatsleeppong.ubipong.rating.entity.Player;
 import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
 import com.eatsleeppong.ubipong.rating.entity.Tournament;
 import com.eatsleeppong.ubipong.rating.model.*;
+import com.eatsleeppong.ubipong.rating.repository.PlayerRatingAdjustmentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import name.subroutine.etable.CsvTable;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -44,6 +54,15 @@ public class TestRatingManager {
     @Autowired
     private RatingManager ratingManager;
 
+    @Autowired
+    private PlayerRatingAdjustmentRepository playerRatingAdjustmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private Integer spongeBobId = 1;
     private Integer patrickId = 2;
     private Integer squidwardId = 3;
@@ -241,6 +260,99 @@ public class TestRatingManager {
         assertThat(ratingHistory.get(1).getInitialRating(), is(0));
     }
 
+    /**
+     * adds five adjustments for SpongeBob, with final ratings 1001 to 1005 from earliest to latest.  the last two are
+     * on the same date.
+     */
+    private Integer addSpongeBobRatingHistory() throws ParseException {
+        final Integer spongeBobId = playerManager.addPlayer(spongeBob).getPlayerId();
+        final String[] dateList = new String[] {
+                "2018-01-01T00:00:00-0500",
+                "2018-02-01T00:00:00-0500",
+                "2018-03-01T00:00:00-0500",
+                "2018-04-01T00:00:00-0500",
+                "2018-04-01T00:00:00-0500",
+        };
+        for (int i = 0; i < dateList.length; ++i) {
+            final PlayerRatingAdjustment rating = new PlayerRatingAdjustment();
+            rating.setPlayerId(spongeBobId);
+            rating.setAdjustmentDate(df.parse(dateList[i]));
+            rating.setInitialRating(1000 + i);
+            rating.setFirstPassRating(1000 + i);
+            rating.setFinalRating(1001 + i);
+            ratingManager.addPlayerRatingAdjustment(rating);
+        }
+        return spongeBobId;
+    }
+
+    @Test
+    public void getRatingHistoryPage() throws Exception {
+        final Integer spongeBobId = addSpongeBobRatingHistory();
+
+        final List<Integer> finalRatingList = new ArrayList<>();
+        final List<Integer> pageSizeList = new ArrayList<>();
+        String cursor = null;
+        do {
+            final RatingHistoryResponse page = ratingManager.getRatingHistoryPage(spongeBobUserName, cursor, 2)
+                    .orElseThrow(() -> new AssertionError("Cannot get rating history"));
+            assertThat(page.getPlayerId(), is(spongeBobId));
+            page.getPlayerRatingAdjustmentList().forEach(rating -> finalRatingList.add(rating.getFinalRating()));
+            pageSizeList.add(page.getPlayerRatingAdjustmentList().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(pageSizeList, contains(2, 2, 1));
+        assertThat(finalRatingList, contains(1005, 1004, 1003, 1002, 1001));
+    }
+
+    @Test
+    public void getRatingHistoryPageExactFit() throws Exception {
+        addSpongeBobRatingHistory();
+
+        final RatingHistoryResponse page = ratingManager.getRatingHistoryPage(spongeBobUserName, null, 5)
+                .orElseThrow(() -> new AssertionError("Cannot get rating history"));
+
+        assertThat(page.getPlayerRatingAdjustmentList(), hasSize(5));
+        assertThat(page.getNextCursor(), nullValue());
+    }
+
+    @Test
+    public void getRatingHistoryPageMissingPlayer() {
+        assertFalse(ratingManager.getRatingHistoryPage("no such player", null, 2).isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getRatingHistoryPageInvalidCursor() throws Exception {
+        addSpongeBobRatingHistory();
+
+        ratingManager.getRatingHistoryPage(spongeBobUserName, "not a cursor", 2);
+    }
+
+    @Test
+    public void writeRatingHistory() throws Exception {
+        final Integer spongeBobId = addSpongeBobRatingHistory();
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ratingManager.writeRatingHistory(spongeBobId, outputStream);
+
+        final PlayerRatingAdjustment[] ratingHistory =
+                objectMapper.readValue(outputStream.toByteArray(), PlayerRatingAdjustment[].class);
+        assertThat(ratingHistory.length, is(5));
+        assertThat(ratingHistory[0].getFinalRating(), is(1005));
+        assertThat(ratingHistory[0].getPlayerId(), is(spongeBobId));
+        assertThat(ratingHistory[4].getFinalRating(), is(1001));
+    }
+
+    @Test
+    public void writeRatingHistoryEmpty() throws Exception {
+        final Integer spongeBobId = playerManager.addPlayer(spongeBob).getPlayerId();
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ratingManager.writeRatingHistory(spongeBobId, outputStream);
+
+        assertThat(outputStream.toString("UTF-8"), is("[]"));
+    }
+
     @Test
     public void adjustPlayerRatingByCsv() throws Exception {
         final Integer spongeBobId = playerManager.addPlayer(spongeBob).getPlayerId();
@@ -540,6 +652,154 @@ public class TestRatingManager {
         assertThat(ratingHistory.get(1).getInitialRating(), is(0));
     }
 
+    /**
+     * @return a rating adjustment CSV with a line for each of the player lines
+     */
+    private InputStream toCsvStream(final String tournamentName, final List<String> playerLineList) {
+        final StringBuilder csv = new StringBuilder()
+                .append("tournamentName, ").append(tournamentName).append("\n")
+                .append("date, ").append(tournamentDate2).append("\n")
+                .append("player, rating\n");
+        playerLineList.forEach(line -> csv.append(line).append("\n"));
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void adjustPlayerRatingByCsvStream() throws Exception {
+        initializeSpongeBobAndPatrick(1000, 1100);
+        final Integer spongeBobId = playerManager.getPlayerId(spongeBobUserName);
+
+        // enough players for three chunks, the last of which is not full
+        final List<String> playerLineList = new ArrayList<>();
+        playerLineList.add(spongeBobUserName + ", 1050");
+        for (int i = 1; i < RatingManager.CSV_CHUNK_SIZE * 2 + 10; ++i) {
+            playerLineList.add("\"csv-player-" + i + "\", " + (500 + i));
+        }
+
+        final RatingAdjustmentResponse response =
+                ratingManager.adjustRatingByCsvStream(toCsvStream(tournamentName2, playerLineList), true);
+
+        assertTrue(response.isProcessed());
+        assertThat(response.getAdjustmentCount(), is(playerLineList.size()));
+        assertThat(response.getRatingAdjustmentResponseList(), empty());
+        assertThat(response.getTournamentId(),
+                is(ratingManager.getTournament(tournamentName2).map(Tournament::getTournamentId).orElse(null)));
+
+        final PlayerRatingAdjustment spongeBobRating = ratingManager.getRatingByPlayerId(spongeBobId).get();
+        assertThat(spongeBobRating.getInitialRating(), is(1000));
+        assertThat(spongeBobRating.getFinalRating(), is(1050));
+        assertThat(ratingManager.getRating("csv-player-" + (RatingManager.CSV_CHUNK_SIZE * 2 + 9))
+                .map(PlayerRatingAdjustment::getFinalRating), is(Optional.of(RatingManager.CSV_CHUNK_SIZE * 2 + 509)));
+    }
+
+    @Test
+    public void adjustPlayerRatingByCsvStreamNoPlayer() throws Exception {
+        final RatingAdjustmentResponse response =
+                ratingManager.adjustRatingByCsvStream(toCsvStream(tournamentName2, Collections.emptyList()), false);
+
+        assertTrue(response.isProcessed());
+        assertThat(response.getAdjustmentCount(), is(0));
+        assertTrue(ratingManager.getTournament(tournamentName2).isPresent());
+    }
+
+    @Test
+    public void adjustPlayerRatingByCsvStreamInvalidRating() throws Exception {
+        initializeSpongeBobAndPatrick(1000, 1100);
+
+        final RatingAdjustmentResponse response = ratingManager.adjustRatingByCsvStream(toCsvStream(tournamentName2,
+                Arrays.asList(spongeBobUserName + ", 1050", patrickUserName + ", asdf", "nobody, 1000")), false);
+
+        assertFalse(response.isProcessed());
+        assertThat(response.getAdjustmentCount(), is(0));
+        // only the rejected lines are returned
+        assertThat(response.getRatingAdjustmentResponseList(), hasSize(2));
+        assertThat(response.getRatingAdjustmentResponseList().get(0).getRejectReason(),
+                is(RatingAdjustmentResponseLineItem.REJECT_REASON_INVALID_RATING));
+        assertThat(response.getRatingAdjustmentResponseList().get(1).getRejectReason(),
+                is(RatingAdjustmentResponseLineItem.REJECT_REASON_INVALID_PLAYER));
+        assertThat(response.getRatingAdjustmentResponseList().get(1).getOriginalRequest().getPlayerUserName(),
+                is("nobody"));
+
+        assertFalse(ratingManager.getTournament(tournamentName2).isPresent());
+        assertThat(ratingManager.getRating(spongeBobUserName).map(PlayerRatingAdjustment::getFinalRating),
+                is(Optional.of(1000)));
+    }
+
+    @Test
+    public void adjustPlayerRatingByCsvStreamInvalidRatingInLaterChunk() throws Exception {
+        final List<String> playerLineList = new ArrayList<>();
+        for (int i = 0; i < RatingManager.CSV_CHUNK_SIZE; ++i) {
+            playerLineList.add("csv-player-" + i + ", 1000");
+        }
+        playerLineList.add("csv-player-invalid, asdf");
+
+        final RatingAdjustmentResponse response =
+                ratingManager.adjustRatingByCsvStream(toCsvStream(tournamentName2, playerLineList), true);
+
+        assertFalse(response.isProcessed());
+        assertThat(response.getTournamentId(), is(nullValue()));
+        assertThat(response.getRatingAdjustmentResponseList(), hasSize(1));
+        assertThat(response.getRatingAdjustmentResponseList().get(0).getOriginalRequest().getPlayerUserName(),
+                is("csv-player-invalid"));
+    }
+
+    /**
+     * @return the initial ratings the player was given in the tournament, in the order they were saved
+     */
+    private List<Integer> getInitialRatingList(final Integer tournamentId, final Integer playerId) {
+        final List<Integer> initialRatingList = new ArrayList<>();
+        playerRatingAdjustmentRepository.findByTournamentId(tournamentId, Pageable.unpaged()).forEach(adjustment -> {
+            if (adjustment.getPlayerId().equals(playerId)) {
+                initialRatingList.add(adjustment.getInitialRating());
+            }
+        });
+        return initialRatingList;
+    }
+
+    @Test
+    public void adjustPlayerRatingByCsvStreamPlayerRepeatedAcrossChunks() throws Exception {
+        initializeSpongeBobAndPatrick(1000, 1100);
+        final Integer spongeBobId = playerManager.getPlayerId(spongeBobUserName);
+
+        // spongebob is on the first line of the first chunk and the first line of the second
+        final List<String> playerLineList = new ArrayList<>();
+        playerLineList.add(spongeBobUserName + ", 1050");
+        for (int i = 1; i < RatingManager.CSV_CHUNK_SIZE; ++i) {
+            playerLineList.add("csv-player-" + i + ", 1000");
+        }
+        playerLineList.add(spongeBobUserName + ", 1075");
+
+        final RatingAdjustmentResponse response =
+                ratingManager.adjustRatingByCsvStream(toCsvStream(tournamentName2, playerLineList), true);
+        assertTrue(response.isProcessed());
+
+        // the second chunk starts from the rating before the CSV, not the one the first chunk saved
+        assertThat(getInitialRatingList(response.getTournamentId(), spongeBobId), contains(1000, 1000));
+    }
+
+    @Test
+    public void adjustPlayerRatingByCsvPlayerRepeated() throws Exception {
+        initializeSpongeBobAndPatrick(1000, 1100);
+        final Integer spongeBobId = playerManager.getPlayerId(spongeBobUserName);
+
+        final RatingAdjustmentResponse response = ratingManager.adjustRatingByCsv(
+                "tournamentName, " + tournamentName2 + "\n" +
+                "date, " + tournamentDate2 + "\n" +
+                "player, rating\n" +
+                spongeBobUserName + ", 1050\n" +
+                spongeBobUserName + ", 1075\n", false);
+        assertTrue(response.isProcessed());
+
+        // the same as when the lines are in different chunks of adjustRatingByCsvStream
+        assertThat(getInitialRatingList(response.getTournamentId(), spongeBobId), contains(1000, 1000));
+    }
+
+    @Test(expected = DuplicateTournamentException.class)
+    public void adjustPlayerRatingByCsvStreamDuplicateTournament() throws Exception {
+        ratingManager.adjustRatingByCsvStream(toCsvStream(tournamentName2, Collections.emptyList()), false);
+        ratingManager.adjustRatingByCsvStream(toCsvStream(tournamentName2, Collections.emptyList()), false);
+    }
+
     @Test
     public void adjustPlayerRatingByJson() throws Exception {
         final RatingAdjustmentRequest ratingAdjustmentRequest = new RatingAdjustmentRequest();
@@ -655,6 +915,157 @@ public class TestRatingManager {
         assertThat(patrickNewRating.getFinalRating(), is(1084));
     }
 
+    @Test
+    public void processEmptyMatchResultList() {
+        final Integer spongeBobFinalRating = 1000;
+        final Integer patrickFinalRating = 1100;
+
+        final Map<String, PlayerRatingAdjustment> playerRatingAdjustmentMap =
+            createPlayerRatingAdjustmentForSpongeBobAndPatrick(spongeBobFinalRating, patrickFinalRating);
+
+        final Map<Integer, PlayerRatingAdjustment> newRatingMap =
+            ratingManager.processMatchResultList(playerRatingAdjustmentMap.values(), Collections.emptyList());
+
+        final PlayerRatingAdjustment spongeBobNewRating = newRatingMap.get(spongeBobId);
+        final PlayerRatingAdjustment patrickNewRating = newRatingMap.get(patrickId);
+
+        assertThat(spongeBobNewRating.getInitialRating(), is(1000));
+        assertThat(spongeBobNewRating.getFirstPassRating(), is(1000));
+        assertThat(spongeBobNewRating.getFinalRating(), is(1000));
+        assertThat(patrickNewRating.getFinalRating(), is(1100));
+    }
+
+    @Test
+    public void processMatchResultListSize1() {
+        final Integer spongeBobFinalRating = 1000;
+        final Integer patrickFinalRating = 1100;
+
+        final Map<String, PlayerRatingAdjustment> playerRatingAdjustmentMap =
+            createPlayerRatingAdjustmentForSpongeBobAndPatrick(spongeBobFinalRating, patrickFinalRating);
+
+        final MatchResult matchResult = new MatchResult();
+        matchResult.setWinnerId(spongeBobId);
+        matchResult.setLoserId(patrickId);
+        matchResult.setEventName(eventName2);
+
+        final Map<Integer, PlayerRatingAdjustment> newRatingMap = ratingManager.processMatchResultList(
+            playerRatingAdjustmentMap.values(), Collections.singletonList(matchResult));
+
+        final PlayerRatingAdjustment spongeBobNewRating = newRatingMap.get(spongeBobId);
+        final PlayerRatingAdjustment patrickNewRating = newRatingMap.get(patrickId);
+
+        // a 20 point upset is not enough to count as underrated, so pass two starts from the initial ratings
+        assertThat(matchResult.getWinnerRatingDelta(), is(20));
+        assertThat(spongeBobNewRating.getFirstPassRating(), is(1000));
+        assertThat(spongeBobNewRating.getFinalRating(), is(1020));
+        assertThat(patrickNewRating.getFinalRating(), is(1080));
+    }
+
+    @Test
+    public void processMatchResultListSize2() {
+        final Integer spongeBobFinalRating = 1000;
+        final Integer patrickFinalRating = 1100;
+
+        final Map<String, PlayerRatingAdjustment> playerRatingAdjustmentMap =
+            createPlayerRatingAdjustmentForSpongeBobAndPatrick(spongeBobFinalRating, patrickFinalRating);
+
+        final MatchResult matchResult1 = new MatchResult();
+        matchResult1.setWinnerId(spongeBobId);
+        matchResult1.setLoserId(patrickId);
+
+        final MatchResult matchResult2 = new MatchResult();
+        matchResult2.setWinnerId(patrickId);
+        matchResult2.setLoserId(spongeBobId);
+
+        final Map<Integer, PlayerRatingAdjustment> newRatingMap = ratingManager.processMatchResultList(
+            playerRatingAdjustmentMap.values(), Arrays.asList(matchResult1, matchResult2));
+
+        final PlayerRatingAdjustment spongeBobNewRating = newRatingMap.get(spongeBobId);
+        final PlayerRatingAdjustment patrickNewRating = newRatingMap.get(patrickId);
+
+        assertThat(matchResult1.getWinnerRatingDelta(), is(20));
+        assertThat(matchResult2.getWinnerRatingDelta(), is(4));
+        assertThat(spongeBobNewRating.getFinalRating(), is(1016));
+        assertThat(patrickNewRating.getFinalRating(), is(1084));
+    }
+
+    private PlayerRatingAdjustment createPlayerRatingAdjustment(final Integer playerId, final Integer finalRating) {
+        final PlayerRatingAdjustment playerRatingAdjustment = new PlayerRatingAdjustment();
+        playerRatingAdjustment.setPlayerId(playerId);
+        playerRatingAdjustment.setInitialRating(0);
+        playerRatingAdjustment.setFirstPassRating(0);
+        playerRatingAdjustment.setFinalRating(finalRating);
+        return playerRatingAdjustment;
+    }
+
+    private MatchResult createMatchResult(final Integer winnerId, final Integer loserId) {
+        final MatchResult matchResult = new MatchResult();
+        matchResult.setWinnerId(winnerId);
+        matchResult.setLoserId(loserId);
+        return matchResult;
+    }
+
+    @Test
+    public void processMatchResultListNotUnderrated() {
+        final MatchResult matchResult = createMatchResult(spongeBobId, patrickId);
+
+        final Map<Integer, PlayerRatingAdjustment> newRatingMap = ratingManager.processMatchResultList(
+                Arrays.asList(createPlayerRatingAdjustment(spongeBobId, 1000),
+                        createPlayerRatingAdjustment(patrickId, 1100)),
+                Collections.singletonList(matchResult));
+
+        // gaining 20 is not enough to be underrated, so the first pass changes nothing
+        assertThat(newRatingMap.get(spongeBobId).getInitialRating(), is(1000));
+        assertThat(newRatingMap.get(spongeBobId).getFirstPassRating(), is(1000));
+        assertThat(newRatingMap.get(spongeBobId).getFinalRating(), is(1020));
+        assertThat(newRatingMap.get(patrickId).getFirstPassRating(), is(1100));
+        assertThat(newRatingMap.get(patrickId).getFinalRating(), is(1080));
+        assertThat(matchResult.getWinnerRatingDelta(), is(20));
+    }
+
+    @Test
+    public void processMatchResultListHighlyUnderrated() {
+        final List<MatchResult> matchResultList = Arrays.asList(
+                createMatchResult(spongeBobId, patrickId),
+                createMatchResult(spongeBobId, squidwardId));
+
+        final Map<Integer, PlayerRatingAdjustment> newRatingMap = ratingManager.processMatchResultList(
+                Arrays.asList(createPlayerRatingAdjustment(spongeBobId, 1000),
+                        createPlayerRatingAdjustment(patrickId, 1200),
+                        createPlayerRatingAdjustment(squidwardId, 1200)),
+                matchResultList);
+
+        // pass one: spongebob gains 40 + 40, and his best win is 1160
+        // first pass rating: (1080 + 1160) / 2
+        // pass two: 1120 against 1200 is worth 16 each
+        assertThat(newRatingMap.get(spongeBobId).getInitialRating(), is(1000));
+        assertThat(newRatingMap.get(spongeBobId).getFirstPassRating(), is(1120));
+        assertThat(newRatingMap.get(spongeBobId).getFinalRating(), is(1152));
+        assertThat(newRatingMap.get(patrickId).getFirstPassRating(), is(1200));
+        assertThat(newRatingMap.get(patrickId).getFinalRating(), is(1184));
+        assertThat(newRatingMap.get(squidwardId).getFinalRating(), is(1184));
+        assertThat(matchResultList.get(0).getWinnerRatingDelta(), is(16));
+    }
+
+    @Test
+    public void processMatchResultListUnrated() {
+        final List<MatchResult> matchResultList = Arrays.asList(
+                createMatchResult(spongeBobId, patrickId),
+                createMatchResult(squidwardId, spongeBobId));
+
+        final Map<Integer, PlayerRatingAdjustment> newRatingMap = ratingManager.processMatchResultList(
+                Arrays.asList(createPlayerRatingAdjustment(patrickId, 1200),
+                        createPlayerRatingAdjustment(squidwardId, 1400)),
+                matchResultList);
+
+        // spongebob is unrated; halfway between his best win (1200) and worst loss (1400)
+        assertThat(newRatingMap.get(spongeBobId).getInitialRating(), is(0));
+        assertThat(newRatingMap.get(spongeBobId).getFirstPassRating(), is(1300));
+        assertThat(newRatingMap.get(spongeBobId).getFinalRating(), is(1300));
+        assertThat(newRatingMap.get(patrickId).getFinalRating(), is(1196));
+        assertThat(newRatingMap.get(squidwardId).getFinalRating(), is(1404));
+    }
+
     @Test
     public void testGetPlayerSet() throws Exception {
         final TournamentResultRequest tournamentResultRequest =
@@ -688,6 +1099,84 @@ public class TestRatingManager {
         assertThat(patrickRatingAdjustment.getFinalRating(), is(patrickRating));
     }
 
+    @Test
+    public void lateTournamentDoesNotChangeCurrentRating() throws Exception {
+        final String tournament1 =
+                "tournamentName, " + tournamentName1 + "\n" +
+                "date, " + tournamentDate1 + "\n" +
+                "player, rating\n" +
+                "spongebob,      1000\n";
+        final String tournament2 =
+                "tournamentName, " + tournamentName2 + "\n" +
+                "date, " + tournamentDate2 + "\n" +
+                "player, rating\n" +
+                "spongebob,      1100\n";
+
+        // tournament 2 happened later, but is entered first
+        ratingManager.adjustRatingByCsv(tournament2, true);
+        ratingManager.adjustRatingByCsv(tournament1, true);
+
+        final Integer spongeBobRating = ratingManager.getRating(spongeBobUserName)
+                .map(PlayerRatingAdjustment::getFinalRating)
+                .orElse(0);
+
+        assertThat(spongeBobRating, is(1100));
+    }
+
+    @Test
+    public void rebuildCurrentRating() throws Exception {
+        final Integer expectedFinalRating = 1200;
+
+        initializeSpongeBobAndPatrick(expectedFinalRating, expectedFinalRating);
+        final Integer spongeBobId = playerManager.getPlayerId(spongeBobUserName);
+
+        // this does not go through RatingManager, so the current rating is not updated
+        final PlayerRatingAdjustment spongeBobRating = new PlayerRatingAdjustment();
+        spongeBobRating.setPlayerId(spongeBobId);
+        spongeBobRating.setAdjustmentDate(df.parse(tournamentDate2));
+        spongeBobRating.setInitialRating(expectedFinalRating);
+        spongeBobRating.setFirstPassRating(expectedFinalRating);
+        spongeBobRating.setFinalRating(1300);
+        playerRatingAdjustmentRepository.save(spongeBobRating);
+
+        assertThat(ratingManager.getRatingByPlayerId(spongeBobId).map(PlayerRatingAdjustment::getFinalRating)
+                .orElse(0), is(expectedFinalRating));
+
+        assertThat(ratingManager.rebuildCurrentRating(), is(2));
+
+        assertThat(ratingManager.getRatingByPlayerId(spongeBobId).map(PlayerRatingAdjustment::getFinalRating)
+                .orElse(0), is(1300));
+        assertThat(ratingManager.getRating(patrickUserName).map(PlayerRatingAdjustment::getFinalRating)
+                .orElse(0), is(expectedFinalRating));
+    }
+
+    @Test
+    public void testGetPlayerRatingAdjustmentMapLatestRatingOnly() throws Exception {
+        final String tournament1 =
+                "tournamentName, " + tournamentName1 + "\n" +
+                "date, " + tournamentDate1 + "\n" +
+                "player, rating\n" +
+                "spongebob,      1000\n" +
+                "patrick,        1100\n";
+        final String tournament2 =
+                "tournamentName, " + tournamentName2 + "\n" +
+                "date, " + tournamentDate2 + "\n" +
+                "player, rating\n" +
+                "spongebob,      1200\n";
+
+        ratingManager.adjustRatingByCsv(tournament1, true);
+        ratingManager.adjustRatingByCsv(tournament2, true);
+
+        final Map<String, PlayerRatingAdjustment> playerRatingAdjustmentMap =
+                ratingManager.getPlayerRatingAdjustmentMap(new HashSet<>(Arrays.asList(
+                        spongeBobUserName, patrickUserName, squidwardUserName)));
+
+        assertThat(playerRatingAdjustmentMap.size(), is(2));
+        assertThat(playerRatingAdjustmentMap.get(spongeBobUserName).getFinalRating(), is(1200));
+        assertThat(playerRatingAdjustmentMap.get(patrickUserName).getFinalRating(), is(1100));
+        assertThat(playerRatingAdjustmentMap.containsKey(squidwardUserName), is(false));
+    }
+
     @Test
     public void testInitializeRatingAndSubmitTournamentResult() throws Exception {
         final String inputString =
@@ -758,6 +1247,176 @@ public class TestRatingManager {
         assertThat(patrickRatingAdjustment.getAdjustmentDate(), is(df.parse(tournamentDate2)));
     }
 
+    /**
+     * The adjustments of a big tournament are written in JDBC batches, so the number of statements should not grow with
+     * the number of players
+     */
+    @Test
+    public void testSubmitTournamentResultStatementCount() throws Exception {
+        final int playerCount = 500;
+
+        final StringBuilder inputString = new StringBuilder()
+                .append("tournamentName, ").append(tournamentName1).append("\n")
+                .append("date, ").append(tournamentDate1).append("\n")
+                .append("player, rating\n");
+        for (int i = 0; i < playerCount; ++i) {
+            inputString.append("player").append(i).append(", 1000\n");
+        }
+        ratingManager.adjustRatingByCsv(inputString.toString(), true);
+
+        // everybody beats the next player
+        final TournamentResultRequestLineItem[] tournamentResultList = new TournamentResultRequestLineItem[playerCount];
+        for (int i = 0; i < playerCount; ++i) {
+            tournamentResultList[i] = new TournamentResultRequestLineItem();
+            tournamentResultList[i].setWinner("player" + i);
+            tournamentResultList[i].setLoser("player" + (i + 1) % playerCount);
+            tournamentResultList[i].setEventName(eventName2);
+        }
+        final TournamentResultRequest tournamentResultRequest = new TournamentResultRequest();
+        tournamentResultRequest.setTournamentName(tournamentName2);
+        tournamentResultRequest.setTournamentDate(df.parse(tournamentDate2));
+        tournamentResultRequest.setTournamentResultList(tournamentResultList);
+
+        entityManager.flush();
+        final Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+
+        final TournamentResultResponse tournamentResultResponse =
+                ratingManager.submitTournamentResult(tournamentResultRequest, false);
+        entityManager.flush();
+
+        final long statementCount = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertTrue(tournamentResultResponse.isProcessed());
+        assertThat(tournamentResultResponse.getRatingAdjustmentList(), hasSize(playerCount));
+        assertThat(statementCount, lessThan(20L));
+    }
+
+    @Test
+    public void testGetRatingList() throws Exception {
+        initializeSpongeBobAndPatrick(1000, 1100);
+        playerManager.addPlayer(squidward);
+        final Integer patrickId = playerManager.getPlayerId(patrickUserName);
+
+        final CurrentRatingRequest currentRatingRequest = new CurrentRatingRequest();
+        currentRatingRequest.setUserNameList(Arrays.asList(spongeBobUserName, squidwardUserName, "no such player"));
+        currentRatingRequest.setPlayerIdList(Arrays.asList(patrickId, -1));
+
+        final List<CurrentRatingResponseLineItem> lineItemList =
+                ratingManager.getRatingList(currentRatingRequest).getCurrentRatingResponseList();
+
+        assertThat(lineItemList, hasSize(5));
+        assertTrue(lineItemList.get(0).isProcessed());
+        assertThat(lineItemList.get(0).getRating().getFinalRating(), is(1000));
+        assertFalse(lineItemList.get(1).isProcessed());
+        assertThat(lineItemList.get(1).getRejectReason(), is(CurrentRatingResponseLineItem.REJECT_REASON_NO_RATING));
+        assertFalse(lineItemList.get(2).isProcessed());
+        assertThat(lineItemList.get(2).getUserName(), is("no such player"));
+        assertThat(lineItemList.get(2).getRejectReason(),
+                is(CurrentRatingResponseLineItem.REJECT_REASON_INVALID_PLAYER));
+        assertTrue(lineItemList.get(3).isProcessed());
+        assertThat(lineItemList.get(3).getUserName(), is(patrickUserName));
+        assertThat(lineItemList.get(3).getRating().getFinalRating(), is(1100));
+        assertFalse(lineItemList.get(4).isProcessed());
+        assertThat(lineItemList.get(4).getRejectReason(),
+                is(CurrentRatingResponseLineItem.REJECT_REASON_INVALID_PLAYER));
+    }
+
+    @Test
+    public void testGetRatingListStatementCount() throws Exception {
+        final int playerCount = 500;
+
+        final StringBuilder inputString = new StringBuilder()
+                .append("tournamentName, ").append(tournamentName1).append("\n")
+                .append("date, ").append(tournamentDate1).append("\n")
+                .append("player, rating\n");
+        final List<String> userNameList = new ArrayList<>();
+        for (int i = 0; i < playerCount; ++i) {
+            inputString.append("player").append(i).append(", ").append(1000 + i).append("\n");
+            userNameList.add("player" + i);
+        }
+        ratingManager.adjustRatingByCsv(inputString.toString(), true);
+
+        final CurrentRatingRequest currentRatingRequest = new CurrentRatingRequest();
+        currentRatingRequest.setUserNameList(userNameList);
+
+        entityManager.flush();
+        entityManager.clear();
+        final Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+
+        final List<CurrentRatingResponseLineItem> lineItemList =
+                ratingManager.getRatingList(currentRatingRequest).getCurrentRatingResponseList();
+
+        final long statementCount = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertThat(statementCount, lessThanOrEqualTo(3L));
+        assertThat(lineItemList, hasSize(playerCount));
+        assertThat(lineItemList.get(playerCount - 1).getRating().getFinalRating(), is(1000 + playerCount - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetRatingListTooMany() {
+        final CurrentRatingRequest currentRatingRequest = new CurrentRatingRequest();
+        currentRatingRequest.setPlayerIdList(Collections.nCopies(RatingManager.MAX_CURRENT_RATING_REQUEST_SIZE + 1, 1));
+
+        ratingManager.getRatingList(currentRatingRequest);
+    }
+
+    @Test
+    public void testGetHeadToHead() throws Exception {
+        initializeSpongeBobAndPatrick(1000, 1000);
+
+        final TournamentResultRequest spongeBobWins = createTournamentResultRequestForSpongeBobAndPatrick();
+        spongeBobWins.getTournamentResultList()[0].setResultString("3,5,7");
+        ratingManager.submitTournamentResult(spongeBobWins, false);
+
+        final TournamentResultRequest patrickWins = createTournamentResultRequestForSpongeBobAndPatrick();
+        patrickWins.setTournamentName(tournamentName1);
+        patrickWins.setTournamentDate(df.parse("2019-02-01T00:00:00-0500"));
+        patrickWins.getTournamentResultList()[0].setWinner(patrickUserName);
+        patrickWins.getTournamentResultList()[0].setLoser(spongeBobUserName);
+        ratingManager.submitTournamentResult(patrickWins, false);
+
+        entityManager.flush();
+        final Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+
+        final HeadToHeadResponse headToHead = ratingManager.getHeadToHead(spongeBobUserName, patrickUserName)
+                .orElseThrow(() -> new AssertionError("Cannot get head to head"));
+
+        final long statementCount = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertThat(statementCount, lessThanOrEqualTo(4L));
+        assertThat(headToHead.getPlayer1WinCount(), is(1));
+        assertThat(headToHead.getPlayer2WinCount(), is(1));
+        assertThat(headToHead.getHeadToHeadResponseList(), hasSize(2));
+
+        // latest first
+        final HeadToHeadResponseLineItem latest = headToHead.getHeadToHeadResponseList().get(0);
+        final HeadToHeadResponseLineItem earliest = headToHead.getHeadToHeadResponseList().get(1);
+        assertThat(latest.getTournamentName(), is(tournamentName1));
+        assertThat(latest.getMatchResult().getWinnerId(), is(headToHead.getPlayer2Id()));
+        assertThat(earliest.getTournamentName(), is(tournamentName2));
+        assertThat(earliest.getMatchResult().getResultString(), is("3,5,7"));
+    }
+
+    @Test
+    public void testGetHeadToHeadInvalidPlayer() throws Exception {
+        playerManager.addPlayer(spongeBob);
+
+        assertFalse(ratingManager.getHeadToHead(spongeBobUserName, patrickUserName).isPresent());
+    }
+
     @Test(expected = DuplicateTournamentException.class)
     public void testSubmitTournamentResultDuplicateError() throws Exception {
         initializeSpongeBobAndPatrick(0, 0);
@@ -883,7 +1542,6 @@ public class TestRatingManager {
     }
 
     @Test
-    @Ignore
     public void testSubmitTournamentResultAutoAddPlayer() throws Exception {
         final TournamentResultRequest tournamentResultRequest =
                 createTournamentResultRequestForSpongeBobAndPatrick();
@@ -0,0 +1,137 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.entity.Player;
+import com.eatsleeppong.ubipong.rating.entity.PlayerRatingAdjustment;
+import com.eatsleeppong.ubipong.rating.model.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.transaction.Transactional;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class TestRatingRecomputationManager {
+    private final DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
+
+    @Autowired
+    private PlayerManager playerManager;
+
+    @Autowired
+    private RatingManager ratingManager;
+
+    @Autowired
+    private RatingRecomputationManager ratingRecomputationManager;
+
+    private Integer spongeBobId;
+    private Integer patrickId;
+    private Integer squidwardId;
+    private Integer sandyId;
+    private Integer garyId;
+
+    private Integer addPlayer(final String userName) {
+        final Player player = new Player();
+        player.setUserName(userName);
+        return playerManager.addPlayer(player).getPlayerId();
+    }
+
+    private TournamentResultResponse submitMatch(final String tournamentName, final String tournamentDate,
+            final String winner, final String loser) throws Exception {
+        final TournamentResultRequestLineItem lineItem = new TournamentResultRequestLineItem();
+        lineItem.setWinner(winner);
+        lineItem.setLoser(loser);
+        lineItem.setEventName("open singles");
+
+        final TournamentResultRequest tournamentResultRequest = new TournamentResultRequest();
+        tournamentResultRequest.setTournamentName(tournamentName);
+        tournamentResultRequest.setTournamentDate(df.parse(tournamentDate));
+        tournamentResultRequest.setTournamentResultList(new TournamentResultRequestLineItem[] { lineItem });
+
+        return ratingManager.submitTournamentResult(tournamentResultRequest, false);
+    }
+
+    private Integer getRating(final Integer playerId) {
+        return ratingManager.getRatingByPlayerId(playerId).map(PlayerRatingAdjustment::getFinalRating).orElse(null);
+    }
+
+    @Before
+    public void setup() throws Exception {
+        spongeBobId = addPlayer("spongebob");
+        patrickId = addPlayer("patrick");
+        squidwardId = addPlayer("squidward");
+        sandyId = addPlayer("sandy");
+        garyId = addPlayer("gary");
+
+        ratingManager.adjustRatingByCsv(
+                "tournamentName, initial rating\n" +
+                "date, 2019-01-01T00:00:00-0500\n" +
+                "player, rating\n" +
+                "spongebob, 1000\n" +
+                "patrick, 1000\n" +
+                "squidward, 1100\n" +
+                "sandy, 2000\n" +
+                "gary, 2000\n", false);
+
+        // spongebob takes 8 from patrick: 1008, 992
+        submitMatch("march open", "2019-03-01T00:00:00-0500", "spongebob", "patrick");
+        // nothing to do with anyone else
+        submitMatch("april open", "2019-04-01T00:00:00-0500", "sandy", "gary");
+    }
+
+    @Test
+    public void recomputeLateTournament() throws Exception {
+        // entered after the march open, so patrick starts at 992 instead of 1000 and takes 20 from squidward
+        final TournamentResultResponse lateTournament =
+                submitMatch("february open", "2019-02-01T00:00:00-0500", "patrick", "squidward");
+        assertThat(lateTournament.getRatingAdjustmentList().stream()
+                .filter(a -> a.getPlayerId().equals(patrickId))
+                .findFirst().map(PlayerRatingAdjustment::getFinalRating).orElse(null), is(1012));
+
+        final RatingRecomputationStatus status = new RatingRecomputationStatus();
+        status.setTournamentId(lateTournament.getTournamentId());
+        status.setFromDate(lateTournament.getTournamentDate());
+        ratingRecomputationManager.recompute(status);
+
+        assertThat(status.getErrorMessage(), is((String) null));
+        assertThat(status.getState(), is(RatingRecomputationStatus.State.COMPLETED));
+        assertThat(status.getTournamentCount(), is(3));
+        assertThat(status.getProcessedTournamentCount(), is(3));
+        // the april open has nobody from the february open
+        assertThat(status.getRecomputedTournamentCount(), is(2));
+        // squidward lost 20 either way
+        assertThat(status.getChangedPlayerCount(), is(2));
+
+        // february: patrick (1000) takes 20 from squidward (1100)
+        // march: spongebob (1000) takes 10 from patrick (1020)
+        assertThat(getRating(spongeBobId), is(1010));
+        assertThat(getRating(patrickId), is(1010));
+        assertThat(getRating(squidwardId), is(1080));
+        assertThat(getRating(sandyId), is(2008));
+        assertThat(getRating(garyId), is(1992));
+    }
+
+    @Test
+    public void recomputeFromDate() throws Exception {
+        final RatingRecomputationStatus status = new RatingRecomputationStatus();
+        status.setFromDate(df.parse("2019-02-01T00:00:00-0500"));
+        ratingRecomputationManager.recompute(status);
+
+        // nothing was wrong, so nothing changes
+        assertThat(status.getState(), is(RatingRecomputationStatus.State.COMPLETED));
+        assertThat(status.getRecomputedTournamentCount(), is(2));
+        assertThat(status.getChangedAdjustmentCount(), is(0));
+        assertThat(getRating(spongeBobId), is(1008));
+        assertThat(getRating(patrickId), is(992));
+    }
+}
@@ -0,0 +1,194 @@
+package com.eatsleeppong.ubipong.rating.manager;
+
+import com.eatsleeppong.ubipong.rating.controller.DuplicateTournamentException;
+import com.eatsleeppong.ubipong.rating.entity.Player;
+import com.eatsleeppong.ubipong.rating.model.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.transaction.Transactional;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class TestTournamentSubmissionManager {
+    private final DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
+
+    @Autowired
+    private PlayerManager playerManager;
+
+    @Autowired
+    private RatingManager ratingManager;
+
+    @Autowired
+    private TournamentSubmissionManager tournamentSubmissionManager;
+
+    @Autowired
+    private RatingUpdateLock ratingUpdateLock;
+
+    private void addPlayer(final String userName) {
+        final Player player = new Player();
+        player.setUserName(userName);
+        playerManager.addPlayer(player);
+    }
+
+    private TournamentResultRequest createTournamentResultRequest(final String winner, final String loser)
+            throws Exception {
+        final TournamentResultRequestLineItem lineItem = new TournamentResultRequestLineItem();
+        lineItem.setWinner(winner);
+        lineItem.setLoser(loser);
+        lineItem.setEventName("open singles");
+
+        final TournamentResultRequest tournamentResultRequest = new TournamentResultRequest();
+        tournamentResultRequest.setTournamentName("test-tournament");
+        tournamentResultRequest.setTournamentDate(df.parse("2019-02-01T00:00:00-0500"));
+        tournamentResultRequest.setTournamentResultList(new TournamentResultRequestLineItem[] { lineItem });
+        return tournamentResultRequest;
+    }
+
+    @Before
+    public void setup() throws Exception {
+        addPlayer("spongebob");
+        addPlayer("patrick");
+
+        ratingManager.adjustRatingByCsv(
+                "tournamentName, initial rating\n" +
+                "date, 2019-01-01T00:00:00-0500\n" +
+                "player, rating\n" +
+                "spongebob, 1000\n" +
+                "patrick, 1000\n", false);
+    }
+
+    @Test
+    public void submit() throws Exception {
+        final TournamentResultRequest tournamentResultRequest = createTournamentResultRequest("spongebob", "patrick");
+        final TournamentSubmissionStatus status = tournamentSubmissionManager.createStatus(tournamentResultRequest);
+        assertThat(status.getState(), is(TournamentSubmissionStatus.State.PENDING));
+        assertThat(status.getMatchCount(), is(1));
+
+        tournamentSubmissionManager.submit(status, tournamentResultRequest, false);
+
+        assertThat(status.getState(), is(TournamentSubmissionStatus.State.COMPLETED));
+        assertThat(status.getEndTime(), notNullValue());
+        assertTrue(status.getResult().isProcessed());
+        assertThat(status.getResult().getTournamentId(), notNullValue());
+        assertThat(status.getResult().getRatingAdjustmentList(), hasSize(2));
+        assertTrue(ratingManager.getTournament("test-tournament").isPresent());
+    }
+
+    @Test
+    public void submitWaitsForRecomputation() throws Exception {
+        // stands in for a recomputation that is running
+        final CountDownLatch locked = new CountDownLatch(1);
+        final AtomicReference<Date> unlockTime = new AtomicReference<>();
+        final Thread recomputation = new Thread(() -> {
+            ratingUpdateLock.lock();
+            try {
+                locked.countDown();
+                Thread.sleep(200);
+                unlockTime.set(new Date());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ratingUpdateLock.unlock();
+            }
+        });
+        recomputation.start();
+        locked.await();
+
+        final TournamentResultRequest tournamentResultRequest = createTournamentResultRequest("spongebob", "patrick");
+        final TournamentSubmissionStatus status = tournamentSubmissionManager.createStatus(tournamentResultRequest);
+        tournamentSubmissionManager.submit(status, tournamentResultRequest, false);
+        recomputation.join();
+
+        assertThat(status.getState(), is(TournamentSubmissionStatus.State.COMPLETED));
+        assertThat(status.getEndTime(), greaterThanOrEqualTo(unlockTime.get()));
+    }
+
+    @Test
+    public void adjustRatingByCsvWaitsForRecomputation() throws Exception {
+        // stands in for a recomputation that is running
+        final CountDownLatch locked = new CountDownLatch(1);
+        final AtomicReference<Date> unlockTime = new AtomicReference<>();
+        final Thread recomputation = new Thread(() -> {
+            ratingUpdateLock.lock();
+            try {
+                locked.countDown();
+                Thread.sleep(200);
+                unlockTime.set(new Date());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ratingUpdateLock.unlock();
+            }
+        });
+        recomputation.start();
+        locked.await();
+
+        final RatingAdjustmentResponse ratingAdjustmentResponse = tournamentSubmissionManager.adjustRatingByCsv(
+                "tournamentName, adjustment\n" +
+                "date, 2019-01-15T00:00:00-0500\n" +
+                "player, rating\n" +
+                "spongebob, 1100\n", false);
+        final Date endTime = new Date();
+        recomputation.join();
+
+        assertTrue(ratingAdjustmentResponse.isProcessed());
+        assertThat(endTime, greaterThanOrEqualTo(unlockTime.get()));
+    }
+
+    @Test
+    public void submitInvalidPlayer() throws Exception {
+        final TournamentResultRequest tournamentResultRequest =
+                createTournamentResultRequest("spongebob", "no such player");
+        final TournamentSubmissionStatus status = tournamentSubmissionManager.createStatus(tournamentResultRequest);
+
+        tournamentSubmissionManager.submit(status, tournamentResultRequest, false);
+
+        // the same response as submitting directly
+        assertThat(status.getState(), is(TournamentSubmissionStatus.State.COMPLETED));
+        assertFalse(status.getResult().isProcessed());
+        assertThat(status.getResult().getTournamentResultResponseList().get(0).getRejectReason(),
+                is(TournamentResultResponseLineItem.REJECT_REASON_INVALID_LOSER));
+        assertFalse(ratingManager.getTournament("test-tournament").isPresent());
+    }
+
+    @Test
+    public void submitDuplicateTournament() throws Exception {
+        final TournamentResultRequest tournamentResultRequest = createTournamentResultRequest("spongebob", "patrick");
+        tournamentResultRequest.setTournamentName("initial rating");
+        final TournamentSubmissionStatus status = tournamentSubmissionManager.createStatus(tournamentResultRequest);
+
+        tournamentSubmissionManager.submit(status, tournamentResultRequest, false);
+
+        assertThat(status.getState(), is(TournamentSubmissionStatus.State.FAILED));
+        assertThat(status.getErrorMessage(), is("Tournament 'initial rating' has already been submitted"));
+    }
+
+    @Test(expected = DuplicateTournamentException.class)
+    public void startSubmissionDuplicateTournament() throws Exception {
+        final TournamentResultRequest tournamentResultRequest = createTournamentResultRequest("spongebob", "patrick");
+        tournamentResultRequest.setTournamentName("initial rating");
+
+        tournamentSubmissionManager.startSubmission(tournamentResultRequest, false);
+    }
+}
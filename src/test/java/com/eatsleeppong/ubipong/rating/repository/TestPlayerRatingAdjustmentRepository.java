@@ -0,0 +1,105 @@
+package com.eatsleeppong.ubipong.rating.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Makes sure the rating history queries are answered from the indexes on PlayerRatingAdjustment.  Each test calls the
+ * repository method, takes the SQL hibernate sent for it, and explains that with the same parameters.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.eatsleeppong.ubipong.rating.repository.TestPlayerRatingAdjustmentRepository$SqlCapture")
+@ActiveProfiles("test")
+@Transactional
+public class TestPlayerRatingAdjustmentRepository {
+    /**
+     * Keeps every statement hibernate prepares
+     */
+    public static class SqlCapture implements StatementInspector {
+        private static final List<String> sqlList = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(final String sql) {
+            sqlList.add(sql);
+            return sql;
+        }
+    }
+
+    private final Date adjustmentDate = new Date(1546300800000L);
+
+    @Autowired
+    private PlayerRatingAdjustmentRepository playerRatingAdjustmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setup() {
+        SqlCapture.sqlList.clear();
+    }
+
+    /**
+     * Explains the one query the repository call sent
+     */
+    private String explainCaptured(final Object... parameterList) {
+        assertThat(SqlCapture.sqlList, hasSize(1));
+        return jdbcTemplate.queryForObject("explain " + SqlCapture.sqlList.get(0), String.class, parameterList);
+    }
+
+    @Test
+    public void testLatestRatingUsesIndex() {
+        playerRatingAdjustmentRepository.findRatingHistoryByPlayerId(1, PageRequest.of(0, 1));
+        final String plan = explainCaptured(1, 1);
+
+        assertThat(plan, containsString("PLAYER_ADJUSTMENT_DATE_INDEX: PLAYER_ID = ?1"));
+        // H2 reads the rows in index order instead of sorting them
+        assertThat(plan, containsString("index sorted"));
+    }
+
+    @Test
+    public void testRatingHistoryPageUsesIndex() {
+        playerRatingAdjustmentRepository.findRatingHistoryByPlayerIdBefore(1, adjustmentDate, 100,
+                PageRequest.of(0, 21));
+        final String plan = explainCaptured(1, adjustmentDate, adjustmentDate, 100, 21);
+
+        assertThat(plan, containsString("PLAYER_ADJUSTMENT_DATE_INDEX"));
+        assertThat(plan, containsString("index sorted"));
+    }
+
+    @Test
+    public void testLatestBeforeUsesIndex() {
+        playerRatingAdjustmentRepository.findLatestBeforeByPlayerIdIn(Collections.singletonList(1), adjustmentDate);
+        final String plan = explainCaptured(1, adjustmentDate);
+
+        assertThat(plan, containsString("PLAYER_ADJUSTMENT_DATE_INDEX"));
+        assertThat(plan, not(containsString("tableScan")));
+    }
+
+    @Test
+    public void testFindByTournamentIdUsesIndex() {
+        playerRatingAdjustmentRepository.findByTournamentId(1, PageRequest.of(0, 20));
+        final String plan = explainCaptured(1, 20);
+
+        assertThat(plan, containsString("PLAYER_RATING_ADJUSTMENT_TOURNAMENT_INDEX: TOURNAMENT_ID = ?1"));
+    }
+}
@@ -0,0 +1,237 @@
+package name.subroutine.etable;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.sql.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Filling a ColumnTable, and changing its rows through ColumnRecord
+ */
+public class TestColumnTable
+{
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    ColumnTable _t;
+
+    @Before
+    public void setup()
+    {
+        _t = new ColumnTable();
+        _t.fieldLst( new String[]{ "NAME", "CITY", "RATING" } );
+        _t.pushLine( "spongebob,bikini bottom,1000" );
+        _t.pushLine( "\"patrick, star\",\"the \"\"rock\"\"\",1100" );
+        _t.pushLine( "squidward" );
+    }
+
+    static List<String> _lst( Record rec )
+    {
+        return Arrays.asList( rec.toArray() );
+    }
+
+    @Test
+    public void testPushLine()
+    {
+        assertThat( _t.recordCnt(), is( 3 ) );
+        assertThat( _t.getString( 0, 1 ), is( "bikini bottom" ) );
+
+        // quoted values are unescaped
+        assertThat( _lst( _t.get( 1 ) ),
+                    contains( "patrick, star", "the \"rock\"", "1100" ) );
+
+        // values that were never pushed are empty
+        Record rec = _t.get( 2 );
+        assertThat( rec.size(), is( 1 ) );
+        assertThat( _lst( rec ), contains( "squidward", "", "" ) );
+        assertThat( rec.get( "no such field" ), is( "" ) );
+        assertThat( _t.get( 3 ), nullValue() );
+    }
+
+    @Test
+    public void testPushFile()
+        throws Exception
+    {
+        File file = _folder.newFile();
+        try( Writer w = new FileWriter( file ) ){
+            w.write( "name,rating\n" );
+            w.write( "spongebob,1000\n" );
+            w.write( "patrick,1100\n" );
+        }
+
+        ColumnTable t = new ColumnTable();
+        t.pushFile( file.getPath() );
+
+        // the first line names the fields
+        assertThat( t.fieldCnt(), is( 2 ) );
+        assertThat( t.recordCnt(), is( 2 ) );
+        assertThat( t.get( 1 ).get( "rating" ), is( "1100" ) );
+    }
+
+    @Test
+    public void testSet()
+    {
+        Record rec = _t.get( 0 );
+        rec.set( "city", "rock bottom" );
+        _t.setString( 1, 2, "1200" );
+
+        // the record is a view of the row
+        assertThat( _t.getString( 0, 1 ), is( "rock bottom" ) );
+        assertThat( _lst( _t.get( 1 ) ),
+                    contains( "patrick, star", "the \"rock\"", "1200" ) );
+
+        // setting a value past the end of a row grows it
+        _t.setString( 2, 2, "900" );
+        assertThat( _t.get( 2 ).size(), is( 3 ) );
+        assertThat( _lst( _t.get( 2 ) ), contains( "squidward", "", "900" ) );
+    }
+
+    @Test
+    public void testDelete()
+    {
+        _t.get( 0 ).delete( "city" );
+
+        // the column is gone from every row
+        assertThat( _t.fieldCnt(), is( 2 ) );
+        assertThat( _lst( _t.get( 0 ) ), contains( "spongebob", "1000" ) );
+        assertThat( _lst( _t.get( 1 ) ), contains( "patrick, star", "1100" ) );
+        assertThat( _t.get( 2 ).size(), is( 1 ) );
+    }
+
+    @Test
+    public void testPushRecord()
+    {
+        Record rec = _t.createRecord();
+        rec.push( "sandy" );
+        rec.push( "treedome" );
+        rec.push( "1300" );
+        _t.push( rec );
+
+        // the values are copied, so the record can be reused
+        rec.clearVal();
+        rec.push( "gary" );
+        _t.push( rec );
+
+        assertThat( _t.recordCnt(), is( 5 ) );
+        assertThat( _lst( _t.get( 3 ) ), contains( "sandy", "treedome", "1300" ) );
+        assertThat( _lst( _t.get( 4 ) ), contains( "gary", "", "" ) );
+    }
+
+    @Test
+    public void testRecordPush()
+    {
+        Record rec = _t.get( 2 );
+        rec.push( "tentacle acres" );
+        rec.push( (Object)Integer.valueOf( 800 ) );
+        rec.push( (String)null );
+
+        // a value past the fields is kept, but is not part of toArray
+        assertThat( rec.size(), is( 4 ) );
+        assertThat( rec.get( 3 ), is( "" ) );
+        assertThat( _lst( _t.get( 2 ) ),
+                    contains( "squidward", "tentacle acres", "800" ) );
+
+        // the other rows are not touched
+        assertThat( _lst( _t.get( 0 ) ),
+                    contains( "spongebob", "bikini bottom", "1000" ) );
+        assertThat( _t.get( 1 ).size(), is( 3 ) );
+    }
+
+    @Test
+    public void testRecordPushLst()
+    {
+        Record rec = _t.get( 2 );
+        rec.pushLst( new String[]{ "tentacle acres", "800" } );
+        assertThat( _lst( rec ), contains( "squidward", "tentacle acres", "800" ) );
+
+        Record other = _t.get( 1 );
+        other.clearVal();
+        other.push( _t.get( 0 ) );
+        assertThat( _lst( other ),
+                    contains( "spongebob", "bikini bottom", "1000" ) );
+
+        // pushing a row onto itself doubles it once
+        Record self = _t.get( 0 );
+        self.push( self );
+        assertThat( self.size(), is( 6 ) );
+        assertThat( self.get( 5 ), is( "1000" ) );
+    }
+
+    @Test
+    public void testRecordPushLstResultSet()
+        throws Exception
+    {
+        try( Connection conn = DriverManager.getConnection(
+                 "jdbc:h2:mem:", "sa", "" );
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "select ' tentacle acres ', cast( null as varchar ) "
+                 + "from dual" ) ){
+            rs.next();
+            Record rec = _t.get( 2 );
+            rec.pushLst( rs );
+
+            // values are trimmed, and nulls are empty
+            assertThat( rec.size(), is( 3 ) );
+            assertThat( _lst( rec ), contains( "squidward", "tentacle acres", "" ) );
+        }
+    }
+
+    @Test
+    public void testRecordClearVal()
+    {
+        Record rec = _t.get( 1 );
+        rec.clearVal();
+
+        // the row keeps its place, without any values
+        assertThat( _t.recordCnt(), is( 3 ) );
+        assertThat( rec.size(), is( 0 ) );
+        assertThat( _lst( rec ), contains( "", "", "" ) );
+        assertThat( _lst( _t.get( 2 ) ), contains( "squidward", "", "" ) );
+
+        rec.push( "plankton" );
+        assertThat( _lst( _t.get( 1 ) ), contains( "plankton", "", "" ) );
+    }
+
+    @Test
+    public void testRecordRow()
+    {
+        ColumnRecord rec = (ColumnRecord)_t.first();
+        assertThat( rec.get( 0 ), is( "spongebob" ) );
+        assertThat( rec.row( 2 ).get( 0 ), is( "squidward" ) );
+        assertThat( rec.row(), is( 2 ) );
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testRecordRowOutOfRange()
+    {
+        ((ColumnRecord)_t.first()).row( 3 );
+    }
+
+    @Test
+    public void testParallelStream()
+    {
+        ColumnTable t = new ColumnTable();
+        t.fieldLst( new String[]{ "NAME", "RATING" } );
+        for( int i = 0; i < 3000; i++ ){
+            t.pushLine( "p" + i + "," + i );
+        }
+
+        List lst = t.stream().parallel()
+            .map( rec -> _lst( rec ) )
+            .collect( Collectors.toList() );
+        assertThat( lst.size(), is( 3000 ) );
+        for( int i = 0; i < 3000; i++ ){
+            assertThat( lst.get( i ), is( _lst( t.get( i ) ) ) );
+        }
+        assertThat( lst.get( 2999 ), is( Arrays.asList( "p2999", "2999" ) ) );
+    }
+}
@@ -0,0 +1,60 @@
+package name.subroutine.etable;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Splitting comma separated values with CsvTokenizer and CsvTable
+ */
+public class TestCsvTokenizer
+{
+    @Test
+    public void testCsvParserEscapedQuote()
+    {
+        String[] result = CsvTable.toArray( "\"o\"\"neil\", 875," );
+        assertThat( result, arrayContaining( "o\"neil", " 875", "" ) );
+    }
+
+    @Test
+    public void testCsvTokenizerOffsets()
+    {
+        String line = "spongebob,\"patrick\",\"o\"\"neil\"";
+        CsvTokenizer tokenizer = new CsvTokenizer();
+
+        assertThat( tokenizer.tokenize( line ), is( 3 ) );
+        assertThat( line.substring( tokenizer.start( 0 ), tokenizer.end( 0 ) ),
+                    is( "spongebob" ) );
+
+        // the quotes are left out without copying
+        assertThat( tokenizer.isEscaped( 1 ), is( false ) );
+        assertThat( line.substring( tokenizer.start( 1 ), tokenizer.end( 1 ) ),
+                    is( "patrick" ) );
+
+        // a doubled quote cannot be left out without copying
+        assertThat( tokenizer.isEscaped( 2 ), is( true ) );
+        assertThat( line.substring( tokenizer.start( 2 ), tokenizer.end( 2 ) ),
+                    is( "\"o\"\"neil\"" ) );
+        assertThat( tokenizer.get( 2 ), is( "o\"neil" ) );
+    }
+
+    @Test
+    public void testCsvTokenizerCursor()
+    {
+        CsvTokenizer tokenizer = new CsvTokenizer(
+            "player, rating\r\nspongebob,1000\n\n\"patrick\",1100" );
+        List<List<String>> line_lst = new ArrayList<>();
+        while( tokenizer.next() ){
+            line_lst.add( Arrays.asList( tokenizer.toArray() ) );
+        }
+
+        assertThat( line_lst, contains(
+                        Arrays.asList( "player", " rating" ),
+                        Arrays.asList( "spongebob", "1000" ),
+                        Collections.emptyList(),
+                        Arrays.asList( "patrick", "1100" ) ) );
+    }
+}
@@ -0,0 +1,268 @@
+package name.subroutine.etable;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Reading a DBF file with the cursor, with stream() and with the
+ * cursors of the mapping
+ */
+public class TestDbfTable
+{
+    static final int REC_CNT = 3000;
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    String _name;
+
+    /**
+     * Record numbers that are marked deleted
+     */
+    Set _deleted_set = new HashSet();
+
+    /**
+     * @return the value as UTF-8, padded with spaces to the field size
+     */
+    static byte[] _pad( String val, int size )
+    {
+        byte[] retval = new byte[size];
+        Arrays.fill( retval, (byte)' ' );
+        byte[] bytes = val.getBytes( StandardCharsets.UTF_8 );
+        System.arraycopy( bytes, 0, retval, 0, bytes.length );
+        return retval;
+    }
+
+    /**
+     * @return the values of a record that has multi-byte characters
+     */
+    static List _nonAscii( int i )
+    {
+        // NAME is 12 bytes and CITY is 8, whatever the characters
+        String name = "Zoë" + i;
+        String city = "Zürich";
+        return Arrays.asList(
+            new String( _pad( name, 12 ), StandardCharsets.UTF_8 ),
+            new String( _pad( city, 8 ), StandardCharsets.UTF_8 ) );
+    }
+
+    @Before
+    public void setup()
+        throws IOException
+    {
+        _name = _folder.newFile( "t.dbf" ).getPath();
+
+        DbfTable t = new DbfTable( _name );
+        t.create( "foxpro" );
+        DbfField name = new DbfField( "NAME", 'C' );
+        name.size( 12 );
+        t.pushFld( name );
+        DbfField city = new DbfField( "CITY", 'C' );
+        city.size( 8 );
+        t.pushFld( city );
+        for( int i = 0; i < REC_CNT; i++ ){
+            Record rec = t.createRecord();
+            rec.push( "player" + i );
+            rec.push( "c" + (i % 97) );
+            t.push( rec );
+        }
+        t.close();
+
+        // mark every seventh record, and the last one, deleted, and
+        // give every fifth record values with multi-byte characters
+        t = new DbfTable( _name );
+        t.open();
+        try( RandomAccessFile fp = new RandomAccessFile( _name, "rw" ) ){
+            for( int i = 0; i < REC_CNT; i++ ){
+                if( i % 5 == 1 ){
+                    fp.seek( t._header_size + (long)t._rec_size * i + 1 );
+                    fp.write( _pad( "Zoë" + i, 12 ) );
+                    fp.write( _pad( "Zürich", 8 ) );
+                }
+                if( i % 7 == 3 || i == REC_CNT - 1 ){
+                    fp.seek( t._header_size + (long)t._rec_size * i );
+                    fp.write( '*' );
+                    _deleted_set.add( i );
+                }
+            }
+        }
+        t.close();
+    }
+
+    /**
+     * Records that are not deleted, read with the cursor
+     */
+    static List _cursorLst( DbfTable t )
+    {
+        List retval = new ArrayList();
+        t.first();
+        Record rec;
+        while( (rec = t.read()) != null ){
+            if( !t.isDeleted() ){
+                retval.add( Arrays.asList( rec.toArray() ) );
+            }
+        }
+        return retval;
+    }
+
+    static List _lst( Stream<Record> stream )
+    {
+        return stream.map( rec -> Arrays.asList( rec.toArray() ) )
+            .collect( Collectors.toList() );
+    }
+
+    void _check( DbfTable t )
+    {
+        assertThat( t.recordCnt(), is( REC_CNT ) );
+
+        List cursor_lst = _cursorLst( t );
+        assertThat( cursor_lst.size(), is( REC_CNT - _deleted_set.size() ) );
+        assertThat( cursor_lst.get( 3 ), is( Arrays.asList(
+                        "player4     ", "c4      " ) ) );
+
+        // fields are cut by bytes, not by characters
+        assertThat( cursor_lst.get( 1 ), is( _nonAscii( 1 ) ) );
+        assertThat( cursor_lst.get( 1 ), is( Arrays.asList(
+                        "Zoë1       ", "Zürich " ) ) );
+
+        assertThat( _lst( t.stream().parallel() ), is( cursor_lst ) );
+        assertThat( _lst( t.stream() ), is( cursor_lst ) );
+    }
+
+    @Test
+    public void testParallelStreamMatchesCursor()
+        throws Exception
+    {
+        DbfTable t = new DbfTable( _name );
+        t.open();
+        try{
+            _check( t );
+        }
+        finally{
+            t.close();
+        }
+    }
+
+    @Test
+    public void testMappedParallelStreamMatchesCursor()
+        throws Exception
+    {
+        DbfTable t = new DbfTable( _name );
+        t.openMapped();
+        try{
+            _check( t );
+        }
+        finally{
+            t.close();
+        }
+    }
+
+    /**
+     * Records that are not deleted, read with the cursor of a mapping
+     */
+    static List _mappingLst( DbfCursor cur )
+    {
+        List retval = new ArrayList();
+        while( cur.next() ){
+            if( !cur.isDeleted() ){
+                retval.add( Arrays.asList( cur.get().toArray() ) );
+            }
+        }
+        return retval;
+    }
+
+    @Test
+    public void testMappingCursor()
+        throws Exception
+    {
+        DbfTable t = new DbfTable( _name );
+        t.openMapped();
+        try{
+            DbfMapping mapping = t.mapping();
+            assertThat( mapping.recordCnt(), is( REC_CNT ) );
+
+            // the same values as read()
+            assertThat( _mappingLst( mapping.cursor() ), is( _cursorLst( t ) ) );
+
+            int name = mapping.getFld( "name" );
+            int city = mapping.getFld( "CITY" );
+            DbfCursor cur = mapping.cursor( 6, 8 );
+            assertThat( cur.next(), is( true ) );
+            assertThat( cur.recnum(), is( 6 ) );
+            assertThat( cur.getString( name ), is( "Zoë6       " ) );
+            assertThat( cur.getString( city ), is( "Zürich " ) );
+            assertThat( cur.getBytes( name ), is( _pad( "Zoë6", 12 ) ) );
+            assertThat( cur.length( city ), is( 8 ) );
+            assertThat( cur.next(), is( true ) );
+            assertThat( cur.getString( name ), is( "player7     " ) );
+            assertThat( cur.next(), is( false ) );
+        }
+        finally{
+            t.close();
+        }
+    }
+
+    @Test
+    public void testMappingSplit()
+        throws Exception
+    {
+        DbfTable t = new DbfTable( _name );
+        t.openMapped();
+        try{
+            DbfCursor[] cursor_arr = t.mapping().split( 7 );
+            assertThat( cursor_arr.length, is( 7 ) );
+            assertThat( cursor_arr[0].from(), is( 0 ) );
+            assertThat( cursor_arr[6].to(), is( REC_CNT ) );
+
+            // the ranges follow each other, and together read the same
+            // records as one cursor
+            List lst = new ArrayList();
+            for( int i = 0; i < cursor_arr.length; i++ ){
+                if( i > 0 ){
+                    assertThat( cursor_arr[i].from(),
+                                is( cursor_arr[i - 1].to() ) );
+                }
+                lst.addAll( _mappingLst( cursor_arr[i] ) );
+            }
+            assertThat( lst, is( _cursorLst( t ) ) );
+            assertThat( lst.contains( _nonAscii( 2996 ) ), is( true ) );
+        }
+        finally{
+            t.close();
+        }
+    }
+
+    @Test
+    public void testSplit()
+        throws Exception
+    {
+        DbfTable t = new DbfTable( _name );
+        t.open();
+        try{
+            Spliterator<Record> suffix = t.spliterator();
+            Spliterator<Record> prefix = suffix.trySplit();
+            assertThat( prefix, notNullValue() );
+            assertThat( prefix.estimateSize() + suffix.estimateSize(),
+                        is( (long)REC_CNT ) );
+
+            // deleted records on either side of the split are skipped
+            List lst = new ArrayList();
+            lst.addAll( _lst( StreamSupport.stream( prefix, false ) ) );
+            lst.addAll( _lst( StreamSupport.stream( suffix, false ) ) );
+            assertThat( lst, is( _cursorLst( t ) ) );
+        }
+        finally{
+            t.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package name.subroutine.etable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Reading a fixed width file with the cursor and with stream()
+ */
+public class TestSdfTable
+{
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * Writes cnt lines of a 10 character name and a 5 digit number
+     *
+     * @param last_lf is whether the last line ends in lf
+     */
+    SdfTable _open( int cnt, String lf, boolean last_lf )
+        throws IOException
+    {
+        File file = _folder.newFile();
+        try( Writer w = new OutputStreamWriter(
+                 new FileOutputStream( file ), "UTF-8" ) ){
+            for( int i = 0; i < cnt; i++ ){
+                w.write( String.format( "%-10s%5d", "p" + i, i ) );
+                if( i < cnt - 1 || last_lf ){
+                    w.write( lf );
+                }
+            }
+        }
+
+        SdfTable t = new SdfTable( file.getPath() );
+        t.open();
+        t.fieldLst( new String[]{ "NAME", "RATING" } );
+        Field name = (Field)t.fieldLst().get( 0 );
+        name.size( 10 );
+        Field rating = (Field)t.fieldLst().get( 1 );
+        rating.offset( 10 );
+        rating.size( 5 );
+        return t;
+    }
+
+    static List _cursorLst( SdfTable t )
+    {
+        List retval = new ArrayList();
+        t.first();
+        Record rec;
+        while( (rec = t.read()) != null ){
+            retval.add( Arrays.asList( rec.toArray() ) );
+        }
+        return retval;
+    }
+
+    static List _lst( Stream<Record> stream )
+    {
+        return stream.map( rec -> Arrays.asList( rec.toArray() ) )
+            .collect( Collectors.toList() );
+    }
+
+    @Test
+    public void testOpen()
+        throws Exception
+    {
+        SdfTable t = _open( 3, "\n", true );
+
+        // the line separator is part of the record
+        assertThat( t.recordSize(), is( 16 ) );
+        assertThat( t.recordCnt(), is( 3 ) );
+        assertThat( Arrays.asList( t.first().toArray() ),
+                    contains( "p0        ", "    0" ) );
+        t.close();
+    }
+
+    @Test
+    public void testParallelStreamMatchesCursor()
+        throws Exception
+    {
+        // enough records for the spliterator to split
+        SdfTable t = _open( 3000, "\n", true );
+
+        List cursor_lst = _cursorLst( t );
+        assertThat( cursor_lst.size(), is( 3000 ) );
+        assertThat( cursor_lst.get( 2999 ), is( Arrays.asList(
+                        "p2999     ", " 2999" ) ) );
+
+        assertThat( _lst( t.stream().parallel() ), is( cursor_lst ) );
+        assertThat( _lst( t.stream() ), is( cursor_lst ) );
+        t.close();
+    }
+
+    @Test
+    public void testLastLineWithoutSeparator()
+        throws Exception
+    {
+        SdfTable t = _open( 5, "\r\n", false );
+
+        assertThat( t.recordSize(), is( 17 ) );
+        assertThat( t.recordCnt(), is( 5 ) );
+
+        List cursor_lst = _cursorLst( t );
+        assertThat( cursor_lst.size(), is( 5 ) );
+        assertThat( _lst( t.stream().parallel() ), is( cursor_lst ) );
+        t.close();
+    }
+
+    @Test
+    public void testSplit()
+        throws Exception
+    {
+        SdfTable t = _open( 3000, "\n", true );
+
+        Spliterator<Record> suffix = t.spliterator();
+        Spliterator<Record> prefix = suffix.trySplit();
+        assertThat( prefix, notNullValue() );
+        assertThat( prefix.estimateSize(), is( 1500L ) );
+        assertThat( suffix.estimateSize(), is( 1500L ) );
+
+        // too small to split again
+        assertThat( prefix.trySplit(), nullValue() );
+
+        List lst = new ArrayList();
+        lst.addAll( _lst( StreamSupport.stream( prefix, false ) ) );
+        lst.addAll( _lst( StreamSupport.stream( suffix, false ) ) );
+        assertThat( lst, is( _cursorLst( t ) ) );
+        t.close();
+    }
+
+    @Test
+    public void testEmpty()
+        throws Exception
+    {
+        SdfTable t = _open( 0, "\n", true );
+
+        assertThat( t.recordCnt(), is( 0 ) );
+        assertThat( t.stream().parallel().count(), is( 0L ) );
+        t.close();
+    }
+}
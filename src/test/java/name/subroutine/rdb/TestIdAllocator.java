@@ -0,0 +1,221 @@
+package name.subroutine.rdb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ids handed out by Rdb.createId, against an in-memory H2 database
+ */
+public class TestIdAllocator
+{
+    /**
+     * Holds background reservations until released
+     */
+    static class SlowPrefetchRdb extends RdbMySQL
+    {
+        CountDownLatch _entered = new CountDownLatch( 1 );
+        CountDownLatch _release = new CountDownLatch( 1 );
+
+        int _reserveId( RdbSession ses, String table, int size )
+            throws RdbException, SQLException
+        {
+            if( Thread.currentThread().getName().equals( "rdb-id-prefetch" ) ){
+                _entered.countDown();
+                try{
+                    _release.await();
+                }
+                catch( InterruptedException ex ){
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super._reserveId( ses, table, size );
+        }
+    }
+
+    static int _db_cnt = 0;
+
+    SlowPrefetchRdb _db;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        _db = new SlowPrefetchRdb();
+        _db.init( new Object[0], new String[0], new String[0],
+                  "org.h2.Driver",
+                  "jdbc:h2:mem:ids" + (++_db_cnt)
+                  + ";DB_CLOSE_DELAY=-1;MULTI_THREADED=1", "sa", "" );
+        _db.setMaxPoolSize( 8 );
+
+        RdbSession ses = _db.getSession();
+        try{
+            ses.create( new HighLowKeys() );
+        }
+        finally{
+            ses.close();
+        }
+    }
+
+    @After
+    public void teardown()
+    {
+        _db._release.countDown();
+        _db.closePool();
+    }
+
+    @Test
+    public void testFixedGrabSize()
+        throws Exception
+    {
+        // background reservations are not held up in this test
+        _db._release.countDown();
+
+        RdbSession ses = _db.getSession();
+        try{
+            // a block reserved in the background may be used after
+            // one reserved later, so ids need not come in order
+            Set id_set = new HashSet();
+            for( int i = 0; i < 25; i++ ){
+                int id = _db.createId( ses, "fixed", 10 );
+                assertThat( id, greaterThanOrEqualTo(
+                                _db.getStartingMaxId() ) );
+                assertTrue( "id " + id, id_set.add( id ) );
+            }
+        }
+        finally{
+            ses.close();
+        }
+    }
+
+    @Test
+    public void testManualCommit()
+        throws Exception
+    {
+        RdbSession ses = _db.getSession();
+        try{
+            ses.getConn().setAutoCommit( false );
+
+            // nothing is reserved in the background, so nothing waits
+            // on the release
+            int start = _db.getStartingMaxId();
+            for( int i = 0; i < 25; i++ ){
+                assertThat( ses.createId( "manual" ), is( start + i ) );
+            }
+            ses.getConn().commit();
+        }
+        finally{
+            ses.close();
+        }
+        assertThat( _db._entered.getCount(), is( 1L ) );
+    }
+
+    @Test
+    public void testNoDuplicatesAcrossThreads()
+        throws Exception
+    {
+        _db._release.countDown();
+
+        // as many threads as connections, so that background
+        // reservations often find the pool empty
+        final int thread_cnt = 8;
+        final int id_cnt = 10000;
+        final Set id_set = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool( thread_cnt );
+        try{
+            List future_lst = new ArrayList();
+            for( int t = 0; t < thread_cnt; t++ ){
+                future_lst.add( executor.submit( new Callable(){
+                        public Object call()
+                            throws Exception
+                        {
+                            RdbSession ses = _db.getSession();
+                            try{
+                                for( int i = 0; i < id_cnt; i++ ){
+                                    String table = i % 2 == 0
+                                        ? "member" : "tournament";
+                                    int id = ses.createId( table );
+                                    assertTrue( table + " " + id,
+                                                id_set.add( table + " "
+                                                            + id ) );
+                                }
+                            }
+                            finally{
+                                ses.close();
+                            }
+                            return null;
+                        }
+                    } ) );
+            }
+            for( int t = 0; t < thread_cnt; t++ ){
+                ((Future)future_lst.get( t )).get( 60, TimeUnit.SECONDS );
+            }
+        }
+        finally{
+            executor.shutdownNow();
+        }
+
+        assertThat( id_set.size(), is( thread_cnt * id_cnt ) );
+    }
+
+    @Test
+    public void testSetIdDuringPrefetch()
+        throws Exception
+    {
+        final RdbSession ses = _db.getSession();
+        try{
+            // the block is 10 ids; taking the middle one starts
+            // reserving the next in the background
+            int start = _db.getStartingMaxId();
+            for( int i = 0; i < 6; i++ ){
+                assertThat( _db.createId( ses, "member", 10 ),
+                            is( start + i ) );
+            }
+            assertTrue( _db._entered.await( 10, TimeUnit.SECONDS ) );
+
+            Thread setter = new Thread(){
+                    public void run()
+                    {
+                        try{
+                            _db.setId( ses, "member", 5000 );
+                        }
+                        catch( RdbException | SQLException ex ){
+                            throw new RuntimeException( ex );
+                        }
+                    }
+                };
+            setter.start();
+
+            // setId waits for the background reservation to finish
+            while( setter.getState() != Thread.State.BLOCKED ){
+                assertTrue( setter.isAlive() );
+                Thread.sleep( 10 );
+            }
+            _db._release.countDown();
+            setter.join( 10000 );
+            assertThat( setter.isAlive(), is( false ) );
+
+            // the background block is dropped, so ids go on from 5001,
+            // and none of the following blocks come from below it
+            assertThat( _db.createId( ses, "member", 10 ), is( 5001 ) );
+            Set id_set = new HashSet();
+            for( int i = 0; i < 50; i++ ){
+                int id = _db.createId( ses, "member", 10 );
+                assertThat( id, greaterThan( 5001 ) );
+                assertTrue( "id " + id, id_set.add( id ) );
+            }
+        }
+        finally{
+            ses.close();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package name.subroutine.rdb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.*;
+import java.util.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * RdbSession.insertAll, updateAll and deleteAll, and the RdbBatch
+ * under them, against an in-memory H2 database
+ */
+public class TestRdbBatch
+{
+    public static class Player extends AbstractRtbl
+    {
+        char __name[] = new char[20];
+        int __rating = 0;
+
+        Player()
+        {
+        }
+
+        Player( int oid, String name, int rating )
+        {
+            __oid = oid;
+            __name = name.toCharArray();
+            __rating = rating;
+        }
+
+        public String name()
+        {
+            return "player";
+        }
+
+        public String[][] indexLst()
+        {
+            return new String[][] {};
+        }
+
+        public String[][] uniqueIndexLst()
+        {
+            return new String[][] {
+                { "oid" },
+            };
+        }
+    }
+
+    public static class Club extends AbstractRtbl
+    {
+        char __name[] = new char[20];
+
+        Club()
+        {
+        }
+
+        Club( int oid, String name )
+        {
+            __oid = oid;
+            __name = name.toCharArray();
+        }
+
+        public String name()
+        {
+            return "club";
+        }
+
+        public String[][] indexLst()
+        {
+            return new String[][] {};
+        }
+
+        public String[][] uniqueIndexLst()
+        {
+            return new String[][] {};
+        }
+    }
+
+    static int _db_cnt = 0;
+
+    Rdb _db;
+    RdbSession _ses;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        _db = new RdbMySQL();
+        _db.init( new Object[0], new String[0], new String[0],
+                  "org.h2.Driver",
+                  "jdbc:h2:mem:batch" + (++_db_cnt)
+                  + ";DB_CLOSE_DELAY=-1", "sa", "" );
+
+        _ses = _db.getSession();
+        _ses.create( new Player() );
+        _ses.index( new Player() );
+        _ses.create( new Club() );
+    }
+
+    @After
+    public void teardown()
+        throws Exception
+    {
+        _ses.close();
+        _db.closePool();
+    }
+
+    static List _players( int from, int cnt )
+    {
+        List retval = new ArrayList();
+        for( int i = from; i < from + cnt; i++ ){
+            retval.add( new Player( i, "p" + i, 1000 + i ) );
+        }
+        return retval;
+    }
+
+    /**
+     * Counts the rows with a connection of its own, which only sees
+     * what has been committed
+     */
+    int _committedCnt( String table )
+        throws Exception
+    {
+        RdbSession ses = _db.getSession();
+        try{
+            return _cnt( ses, table );
+        }
+        finally{
+            ses.close();
+        }
+    }
+
+    static int _cnt( RdbSession ses, String table )
+        throws Exception
+    {
+        ResultSet rs = ses.execute( "select count(*) from " + table );
+        try{
+            rs.next();
+            return rs.getInt( 1 );
+        }
+        finally{
+            rs.getStatement().close();
+        }
+    }
+
+    @Test
+    public void testInsertAll()
+        throws Exception
+    {
+        _ses.setBatchSize( 3 );
+
+        int[] cnt_arr = _ses.insertAll( _players( 1, 7 ) );
+
+        // one count per batch
+        assertThat( cnt_arr, is( new int[]{ 3, 3, 1 } ) );
+        assertThat( _cnt( _ses, "player" ), is( 7 ) );
+
+        // every batch went through the same cached statement
+        assertThat( _ses.getStatementCache().getMissCnt(), is( 1L ) );
+        assertThat( _ses.getStatementCache().size(), is( 1 ) );
+    }
+
+    @Test
+    public void testGroupedByClass()
+        throws Exception
+    {
+        List lst = new ArrayList();
+        lst.add( new Player( 1, "spongebob", 1000 ) );
+        lst.add( new Club( 1, "krusty krab" ) );
+        lst.add( new Player( 2, "patrick", 1100 ) );
+        lst.add( new Club( 2, "chum bucket" ) );
+        lst.add( new Player( 3, "squidward", 900 ) );
+
+        // the players go in one batch and the clubs in the next, even
+        // though they are mixed
+        assertThat( _ses.insertAll( lst ), is( new int[]{ 3, 2 } ) );
+        assertThat( _cnt( _ses, "player" ), is( 3 ) );
+        assertThat( _cnt( _ses, "club" ), is( 2 ) );
+    }
+
+    @Test
+    public void testBatchSentWhenStatementChanges()
+        throws Exception
+    {
+        // added directly, statements are not grouped, so every change
+        // of SQL text sends what has been added so far
+        RdbBatch batch = new RdbBatch( _ses );
+        try{
+            batch.add( _db.toInsertStatement( new Player( 1, "a", 1 ) ) );
+            batch.add( _db.toInsertStatement( new Player( 2, "b", 2 ) ) );
+            batch.add( _db.toInsertStatement( new Club( 1, "c" ) ) );
+            batch.add( _db.toInsertStatement( new Player( 3, "d", 3 ) ) );
+            assertThat( batch.finish(), is( new int[]{ 2, 1, 1 } ) );
+        }
+        finally{
+            batch.close();
+        }
+        assertThat( _cnt( _ses, "player" ), is( 3 ) );
+    }
+
+    @Test
+    public void testUpdateAll()
+        throws Exception
+    {
+        _ses.insertAll( _players( 1, 5 ) );
+
+        List lst = _players( 1, 5 );
+        for( int i = 0; i < lst.size(); i++ ){
+            ((Player)lst.get( i )).__rating = 2000;
+        }
+        // not in the table, so nothing is updated for it
+        lst.add( new Player( 99, "nobody", 2000 ) );
+
+        assertThat( _ses.updateAll( lst ), is( new int[]{ 5 } ) );
+
+        ResultSet rs = _ses.execute(
+            "select count(*) from player where rating = 2000" );
+        rs.next();
+        assertThat( rs.getInt( 1 ), is( 5 ) );
+        rs.getStatement().close();
+    }
+
+    @Test
+    public void testDeleteAll()
+        throws Exception
+    {
+        _ses.insertAll( _players( 1, 5 ) );
+
+        _ses.setBatchSize( 2 );
+        assertThat( _ses.deleteAll( _players( 2, 3 ) ),
+                    is( new int[]{ 2, 1 } ) );
+        assertThat( _cnt( _ses, "player" ), is( 2 ) );
+    }
+
+    @Test
+    public void testCommitInterval()
+        throws Exception
+    {
+        _ses.setAutoCommit( false );
+        _ses.setBatchSize( 2 );
+        _ses.setCommitInterval( 4 );
+
+        // the last batch fails on the duplicate key; the first two
+        // batches reached the interval, so they were committed
+        List lst = _players( 1, 4 );
+        lst.add( new Player( 1, "again", 1000 ) );
+        try{
+            _ses.insertAll( lst );
+            fail( "inserted a duplicate key" );
+        }
+        catch( SQLException ex ){
+            _ses.rollback();
+        }
+        assertThat( _committedCnt( "player" ), is( 4 ) );
+
+        // what is left after the last commit is committed at the end
+        assertThat( _ses.insertAll( _players( 5, 3 ) ),
+                    is( new int[]{ 2, 1 } ) );
+        assertThat( _committedCnt( "player" ), is( 7 ) );
+    }
+
+    @Test
+    public void testNoCommitInterval()
+        throws Exception
+    {
+        _ses.setAutoCommit( false );
+        _ses.setBatchSize( 2 );
+
+        // without an interval, committing is left to the caller
+        _ses.insertAll( _players( 1, 5 ) );
+        assertThat( _cnt( _ses, "player" ), is( 5 ) );
+        assertThat( _committedCnt( "player" ), is( 0 ) );
+
+        _ses.rollback();
+        assertThat( _cnt( _ses, "player" ), is( 0 ) );
+    }
+}
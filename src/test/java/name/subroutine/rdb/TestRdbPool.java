@@ -0,0 +1,211 @@
+package name.subroutine.rdb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.*;
+import java.util.concurrent.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * The connection pool of Rdb, against an in-memory H2 database
+ */
+public class TestRdbPool
+{
+    Rdb _db;
+
+    @Before
+    public void setup()
+    {
+        _db = new RdbMySQL();
+        _db.init( new Object[0], new String[0], new String[0],
+                  "org.h2.Driver",
+                  "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1", "sa", "" );
+        _db.setMaxPoolSize( 2 );
+        _db.setPoolWaitTimeout( 200 );
+    }
+
+    @After
+    public void teardown()
+    {
+        _db.closePool();
+    }
+
+    @Test
+    public void testWaitTimesOut()
+        throws Exception
+    {
+        Connection c1 = _db.getPooledConn();
+        Connection c2 = _db.getPooledConn();
+        assertThat( _db.getPoolUtilization(), is( 1.0 ) );
+
+        long start = System.nanoTime();
+        try{
+            _db.getPooledConn();
+            fail( "got a third connection from a pool of two" );
+        }
+        catch( MaximumPoolSizeReachedException ex ){
+        }
+        long waited = TimeUnit.NANOSECONDS.toMillis( System.nanoTime()
+                                                     - start );
+
+        assertThat( waited, greaterThanOrEqualTo( 190L ) );
+        assertThat( _db.getWaitTimeoutCnt(), is( 1L ) );
+        assertThat( _db.getUsedConnCnt(), is( 2 ) );
+
+        _db.releaseConn( c1 );
+        _db.releaseConn( c2 );
+    }
+
+    @Test
+    public void testSessionWaitTimesOut()
+        throws Exception
+    {
+        RdbSession s1 = _db.getSession();
+        RdbSession s2 = _db.getSession();
+        try{
+            _db.getSession();
+            fail( "got a third session from a pool of two" );
+        }
+        catch( RdbException ex ){
+            assertThat( ex.getCause(),
+                        instanceOf( MaximumPoolSizeReachedException.class ) );
+        }
+        s1.close();
+        s2.close();
+    }
+
+    @Test
+    public void testWaiterGetsReturnedConnection()
+        throws Exception
+    {
+        Connection c1 = _db.getPooledConn();
+        Connection c2 = _db.getPooledConn();
+        _db.setPoolWaitTimeout( 10000 );
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try{
+            Future waiter = executor.submit( new Callable(){
+                    public Object call()
+                        throws Exception
+                    {
+                        return _db.getPooledConn();
+                    }
+                } );
+            Thread.sleep( 100 );
+            assertThat( waiter.isDone(), is( false ) );
+
+            _db.releaseConn( c1 );
+            Connection c3 = (Connection)waiter.get( 10, TimeUnit.SECONDS );
+
+            // the free connection is handed out again
+            assertThat( c3, sameInstance( c1 ) );
+            _db.releaseConn( c2 );
+            _db.releaseConn( c3 );
+        }
+        finally{
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testClosedConnectionReleasesPermit()
+        throws Exception
+    {
+        _db.setMaxPoolSize( 1 );
+
+        Connection c1 = _db.getPooledConn();
+        c1.close();
+        _db.releaseConn( c1 );
+
+        // a closed connection is dropped, but its permit is not
+        assertThat( _db.getUsedConnCnt(), is( 0 ) );
+        assertThat( _db.getFreeConnCnt(), is( 0 ) );
+
+        Connection c2 = _db.getPooledConn();
+        assertThat( c2, not( sameInstance( c1 ) ) );
+        assertThat( c2.isClosed(), is( false ) );
+        _db.releaseConn( c2 );
+    }
+
+    @Test
+    public void testInvalidFreeConnectionIsReplaced()
+        throws Exception
+    {
+        _db.setMaxPoolSize( 1 );
+
+        Connection c1 = _db.getPooledConn();
+        _db.releaseConn( c1 );
+        assertThat( _db.getFreeConnCnt(), is( 1 ) );
+
+        // goes bad while in the free pile
+        c1.close();
+
+        Connection c2 = _db.getPooledConn();
+        assertThat( c2, not( sameInstance( c1 ) ) );
+        assertThat( c2.isValid( 1 ), is( true ) );
+        assertThat( _db.getFreeConnCnt(), is( 0 ) );
+        _db.releaseConn( c2 );
+    }
+
+    @Test
+    public void testFailedConnectReleasesPermit()
+        throws Exception
+    {
+        _db.setMaxPoolSize( 1 );
+        String url = _db.getUrl();
+
+        _db.setUrl( "jdbc:nosuchdriver:pool" );
+        try{
+            _db.getPooledConn();
+            fail( "connected with a bad url" );
+        }
+        catch( SQLException ex ){
+        }
+
+        _db.setUrl( url );
+        Connection conn = _db.getPooledConn();
+        assertThat( _db.getUsedConnCnt(), is( 1 ) );
+        _db.releaseConn( conn );
+    }
+
+    @Test
+    public void testOpenTransactionIsRolledBack()
+        throws Exception
+    {
+        Connection c1 = _db.getPooledConn();
+        c1.setAutoCommit( false );
+        _db.releaseConn( c1 );
+
+        Connection c2 = _db.getPooledConn();
+        assertThat( c2, sameInstance( c1 ) );
+        assertThat( c2.getAutoCommit(), is( true ) );
+        _db.releaseConn( c2 );
+    }
+
+    @Test
+    public void testLoweredPoolSize()
+        throws Exception
+    {
+        Connection c1 = _db.getPooledConn();
+        Connection c2 = _db.getPooledConn();
+        _db.setMaxPoolSize( 1 );
+        _db.releaseConn( c1 );
+
+        // one is still out, which is all a pool of one allows
+        try{
+            _db.getPooledConn();
+            fail( "got a connection from a full pool" );
+        }
+        catch( MaximumPoolSizeReachedException ex ){
+        }
+
+        _db.releaseConn( c2 );
+        Connection c3 = _db.getPooledConn();
+        _db.releaseConn( c3 );
+    }
+}
@@ -0,0 +1,171 @@
+package name.subroutine.rdb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The values Rdb binds to the ? of a statement, and binding them,
+ * against an in-memory H2 database
+ */
+public class TestRdbStatement
+{
+    public static class Member extends AbstractRtbl
+    {
+        char __name[] = new char[5];
+        int __rating = 0;
+        double __ratio = 0;
+        java.util.Date __joined = new java.util.Date( 0 );
+        char __grade = ' ';
+        String __note = null;
+
+        public String[][] indexLst()
+        {
+            return new String[][] {};
+        }
+
+        public String[][] uniqueIndexLst()
+        {
+            return new String[][] {};
+        }
+    }
+
+    static int _db_cnt = 0;
+
+    Rdb _db;
+    Member _member = new Member();
+
+    @Before
+    public void setup()
+    {
+        _db = new RdbMySQL();
+        _db.init( new Object[0], new String[0], new String[0],
+                  "org.h2.Driver",
+                  "jdbc:h2:mem:param" + (++_db_cnt)
+                  + ";DB_CLOSE_DELAY=-1", "sa", "" );
+    }
+
+    @After
+    public void teardown()
+    {
+        _db.closePool();
+    }
+
+    @Test
+    public void testToParamString()
+        throws Exception
+    {
+        // cut to the size of the field, without NUL characters
+        assertThat( _db.toParam( _member, "name", "spongebob" ),
+                    is( (Object)"spong" ) );
+        assertThat( _db.toParam( _member, "name", "ab\0c" ),
+                    is( (Object)"abc" ) );
+        assertThat( _db.toParam( _member, "name", "ab".toCharArray() ),
+                    is( (Object)"ab" ) );
+        assertThat( _db.toParam( _member, "name", null ), is( (Object)"" ) );
+
+        // quotes are left alone; only the literal escapes them
+        assertThat( _db.toParam( _member, "name", "o'b" ),
+                    is( (Object)"o'b" ) );
+        assertThat( _db.toLiteral( _member, "name", "o'b" ),
+                    is( "'o\\'b'" ) );
+
+        assertThat( _db.toParam( _member, "grade", "xyz" ), is( (Object)"x" ) );
+        assertThat( _db.toLiteral( _member, "grade", null ), is( "''" ) );
+    }
+
+    @Test
+    public void testToParamNumber()
+        throws Exception
+    {
+        assertThat( _db.toParam( _member, "rating", " 42 " ),
+                    is( (Object)Long.valueOf( 42 ) ) );
+        assertThat( _db.toParam( _member, "rating", Integer.valueOf( 7 ) ),
+                    is( (Object)Long.valueOf( 7 ) ) );
+        assertThat( _db.toParam( _member, "rating", "" ),
+                    is( (Object)Long.valueOf( 0 ) ) );
+        assertThat( _db.toParam( _member, "rating", null ),
+                    is( (Object)Long.valueOf( 0 ) ) );
+        assertThat( _db.toParam( _member, "ratio", "1.5" ),
+                    is( (Object)Double.valueOf( 1.5 ) ) );
+        assertThat( _db.toParam( _member, "ratio", null ),
+                    is( (Object)Double.valueOf( 0 ) ) );
+
+        // what cannot be parsed is left for the database, like the
+        // literal
+        assertThat( _db.toParam( _member, "rating", " 1+1 " ),
+                    is( (Object)"1+1" ) );
+        assertThat( _db.toLiteral( _member, "rating", " 1+1 " ), is( "1+1" ) );
+    }
+
+    @Test
+    public void testToParamDate()
+        throws Exception
+    {
+        java.util.Date date = new SimpleDateFormat( "yyyy-MM-dd" )
+            .parse( "2019-02-01" );
+        assertThat( _db.toParam( _member, "joined", date ),
+                    is( (Object)Integer.valueOf( 20190201 ) ) );
+        assertThat( _db.toLiteral( _member, "joined", date ),
+                    is( "20190201" ) );
+        assertThat( _db.toParam( _member, "joined", null ),
+                    is( (Object)Integer.valueOf( 0 ) ) );
+    }
+
+    @Test
+    public void testToParamOther()
+        throws Exception
+    {
+        // other types are passed as strings, and null stays null
+        assertThat( _db.toParam( _member, "note", "x" ), is( (Object)"x" ) );
+        assertThat( _db.toParam( _member, "note", null ), nullValue() );
+    }
+
+    @Test
+    public void testBindNull()
+        throws Exception
+    {
+        RdbSession ses = _db.getSession();
+        try{
+            ses.execute( "create table t( id int, note varchar(10) )" );
+
+            RdbStatement insert = new RdbStatement(
+                "insert into t values( ?, ? )",
+                Arrays.asList( new Object[]{ 1, null } ) );
+            assertThat( ses.executeUpdate( insert ), is( 1 ) );
+
+            PreparedStatement stmt = ses.prepareStatement(
+                "select count(*) from t where note is null" );
+            try{
+                ResultSet rs = stmt.executeQuery();
+                rs.next();
+                assertThat( rs.getInt( 1 ), is( 1 ) );
+            }
+            finally{
+                stmt.close();
+            }
+
+            // the null is bound with the type of its column
+            stmt = ses.prepareStatement( "insert into t values( ?, ? )" );
+            try{
+                assertThat( RdbStatement._nullType( stmt, 1 ),
+                            is( Types.INTEGER ) );
+                assertThat( RdbStatement._nullType( stmt, 2 ),
+                            is( Types.VARCHAR ) );
+            }
+            finally{
+                stmt.close();
+            }
+        }
+        finally{
+            ses.close();
+        }
+    }
+}
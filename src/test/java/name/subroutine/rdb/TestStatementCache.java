@@ -0,0 +1,145 @@
+package name.subroutine.rdb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The prepared statements kept by StatementCache, against an in-memory
+ * H2 database
+ */
+public class TestStatementCache
+{
+    static int _db_cnt = 0;
+
+    Rdb _db;
+    RdbSession _ses;
+    StatementCache _cache;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        _db = new RdbMySQL();
+        _db.init( new Object[0], new String[0], new String[0],
+                  "org.h2.Driver",
+                  "jdbc:h2:mem:stmt" + (++_db_cnt)
+                  + ";DB_CLOSE_DELAY=-1", "sa", "" );
+        _db.setStatementCacheSize( 2 );
+
+        _ses = _db.getSession();
+        _cache = _ses.getStatementCache();
+    }
+
+    @After
+    public void teardown()
+        throws Exception
+    {
+        _ses.close();
+        _db.closePool();
+    }
+
+    @Test
+    public void testHit()
+        throws Exception
+    {
+        assertThat( _cache.getMaxSize(), is( 2 ) );
+        assertThat( _ses.getStatementCache(), sameInstance( _cache ) );
+
+        PreparedStatement stmt = _cache.take( "select 1" );
+        _cache.put( "select 1", stmt );
+        assertThat( _cache.size(), is( 1 ) );
+
+        // the same statement comes back, and is out of the cache while
+        // it is used
+        assertThat( _cache.take( "select 1" ), sameInstance( stmt ) );
+        assertThat( _cache.size(), is( 0 ) );
+        _cache.put( "select 1", stmt );
+
+        assertThat( _cache.getHitCnt(), is( 1L ) );
+        assertThat( _cache.getMissCnt(), is( 1L ) );
+        assertThat( _cache.getHitRate(), is( 0.5 ) );
+        assertThat( _db.getStatementCacheHitCnt(), is( 1L ) );
+    }
+
+    @Test
+    public void testSameSqlInUse()
+        throws Exception
+    {
+        // a statement in use is not handed out again
+        PreparedStatement s1 = _cache.take( "select 1" );
+        PreparedStatement s2 = _cache.take( "select 1" );
+        assertThat( s2, not( sameInstance( s1 ) ) );
+        assertThat( _cache.getMissCnt(), is( 2L ) );
+
+        // only one is kept for the SQL text; the other is closed
+        _cache.put( "select 1", s1 );
+        _cache.put( "select 1", s2 );
+        assertThat( _cache.size(), is( 1 ) );
+        assertThat( s1.isClosed(), is( false ) );
+        assertThat( s2.isClosed(), is( true ) );
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed()
+        throws Exception
+    {
+        PreparedStatement s1 = _cache.take( "select 1" );
+        PreparedStatement s2 = _cache.take( "select 2" );
+        _cache.put( "select 1", s1 );
+        _cache.put( "select 2", s2 );
+
+        // using select 1 again makes select 2 the least recently used
+        _cache.put( "select 1", _cache.take( "select 1" ) );
+
+        PreparedStatement s3 = _cache.take( "select 3" );
+        _cache.put( "select 3", s3 );
+
+        assertThat( _cache.size(), is( 2 ) );
+        assertThat( s2.isClosed(), is( true ) );
+        assertThat( s1.isClosed(), is( false ) );
+        assertThat( s3.isClosed(), is( false ) );
+
+        assertThat( _cache.take( "select 1" ), sameInstance( s1 ) );
+        assertThat( _cache.take( "select 2" ), not( sameInstance( s2 ) ) );
+    }
+
+    @Test
+    public void testClose()
+        throws Exception
+    {
+        PreparedStatement s1 = _cache.take( "select 1" );
+        PreparedStatement s2 = _cache.take( "select 2" );
+        _cache.put( "select 1", s1 );
+
+        _cache.close();
+        assertThat( s1.isClosed(), is( true ) );
+        assertThat( _cache.size(), is( 0 ) );
+
+        // a statement in use is closed when it is put back
+        assertThat( s2.isClosed(), is( false ) );
+        _cache.put( "select 2", s2 );
+        assertThat( s2.isClosed(), is( true ) );
+    }
+
+    @Test
+    public void testExecuteUpdateReusesStatement()
+        throws Exception
+    {
+        _ses.execute( "create table t( id int, name varchar(10) )" );
+
+        RdbStatement insert = new RdbStatement(
+            "insert into t values( ?, ? )",
+            java.util.Arrays.asList( new Object[]{ 1, "a" } ) );
+        assertThat( _ses.executeUpdate( insert ), is( 1 ) );
+        assertThat( _ses.executeUpdate( insert ), is( 1 ) );
+
+        assertThat( _cache.getMissCnt(), is( 1L ) );
+        assertThat( _cache.getHitCnt(), is( 1L ) );
+    }
+}